@@ -0,0 +1,162 @@
+package com.cat.benchmark;
+
+import com.cat.model.Category;
+import com.cat.model.Product;
+import com.cat.model.ProductSummary;
+
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 基准测试数据
+ * 生成固定种子的商品、分类数据以及不依赖数据库的ResultSet替身
+ */
+public class BenchmarkData {
+
+    private static final LocalDateTime CREATED_AT = LocalDateTime.of(2024, 1, 1, 12, 0);
+
+    /**
+     * 生成商品列表（模拟一页商品）
+     * @param count 商品数量
+     */
+    public static List<Product> products(int count) {
+        List<Product> products = new ArrayList<>(count);
+        for (int i = 1; i <= count; i++) {
+            Product product = new Product("商品 Product " + i, "SKU-" + i, new BigDecimal("199.00").add(BigDecimal.valueOf(i)), 100 + i);
+            product.setId((long) i);
+            product.setDescription("这是一段商品描述 description for product " + i);
+            product.setShortDescription("简短描述 " + i);
+            product.setCostPrice(new BigDecimal("120.50"));
+            product.setMinStockLevel(10);
+            product.setCategoryId((long) (i % 20 + 1));
+            product.setImageUrl("/images/products/" + i + ".jpg");
+            product.setImages(Arrays.asList("/images/products/" + i + "-1.jpg", "/images/products/" + i + "-2.jpg"));
+            product.setWeight(new BigDecimal("1.25"));
+            product.setDimensions("{\"length\":10,\"width\":20,\"height\":5}");
+            product.setActive(true);
+            product.setFeatured(i % 10 == 0);
+            product.setCreatedAt(CREATED_AT);
+            product.setUpdatedAt(CREATED_AT);
+            products.add(product);
+        }
+        return products;
+    }
+
+    /**
+     * 生成商品摘要列表（与 products(count) 的数据一致）
+     * @param count 商品数量
+     */
+    public static List<ProductSummary> summaries(int count) {
+        List<ProductSummary> summaries = new ArrayList<>(count);
+        for (Product product : products(count)) {
+            ProductSummary summary = new ProductSummary();
+            summary.setId(product.getId());
+            summary.setName(product.getName());
+            summary.setShortDescription(product.getShortDescription());
+            summary.setSku(product.getSku());
+            summary.setPrice(product.getPrice());
+            summary.setStockQuantity(product.getStockQuantity());
+            summary.setCategoryId(product.getCategoryId());
+            summary.setImageUrl(product.getImageUrl());
+            summary.setFeatured(product.isFeatured());
+            summary.setCreatedAt(product.getCreatedAt());
+            summaries.add(summary);
+        }
+        return summaries;
+    }
+
+    /**
+     * products表中一行数据（列名 -> 值）
+     */
+    public static Map<String, Object> productRow() {
+        Map<String, Object> row = new HashMap<>();
+        row.put("id", 42L);
+        row.put("name", "无线蓝牙耳机 Wireless Earbuds");
+        row.put("description", "降噪、长续航的无线蓝牙耳机，适合通勤和运动使用。");
+        row.put("short_description", "降噪无线耳机");
+        row.put("sku", "SKU-000042");
+        row.put("price", new BigDecimal("299.00"));
+        row.put("cost_price", new BigDecimal("180.00"));
+        row.put("stock_quantity", 150);
+        row.put("min_stock_level", 10);
+        row.put("category_id", 3L);
+        row.put("image_url", "/images/products/42.jpg");
+        row.put("images", "[\"/images/products/42-1.jpg\", \"/images/products/42-2.jpg\", \"/images/products/42-3.jpg\"]");
+        row.put("weight", new BigDecimal("0.25"));
+        row.put("dimensions", "{\"length\":8,\"width\":6,\"height\":3}");
+        row.put("is_active", true);
+        row.put("is_featured", false);
+        row.put("created_at", Timestamp.valueOf(CREATED_AT));
+        row.put("updated_at", Timestamp.valueOf(CREATED_AT));
+        return row;
+    }
+
+    /**
+     * 基于Map的只读ResultSet替身，只支持按列名读取常用类型
+     * 通过动态代理实现，调用开销包含在测量结果中，可用 ProductMapperBenchmark.readColumnsOnly 作为基线扣除
+     */
+    public static ResultSet resultSet(Map<String, Object> row) {
+        return (ResultSet) Proxy.newProxyInstance(BenchmarkData.class.getClassLoader(), new Class<?>[]{ResultSet.class},
+                (proxy, method, args) -> {
+                    String name = method.getName();
+                    if (name.equals("wasNull")) {
+                        return false;
+                    }
+                    if (args == null || args.length != 1 || !(args[0] instanceof String)) {
+                        throw new SQLException("不支持的ResultSet方法: " + name);
+                    }
+                    Object value = row.get(args[0]);
+                    switch (name) {
+                        case "getLong":
+                            return value == null ? 0L : ((Number) value).longValue();
+                        case "getInt":
+                            return value == null ? 0 : ((Number) value).intValue();
+                        case "getBoolean":
+                            return value != null && (Boolean) value;
+                        case "getString":
+                            return value == null ? null : value.toString();
+                        case "getBigDecimal":
+                        case "getTimestamp":
+                        case "getObject":
+                            return value;
+                        default:
+                            throw new SQLException("不支持的ResultSet方法: " + name);
+                    }
+                });
+    }
+
+    /**
+     * 生成分类列表：roots个根分类，每个根分类下childrenPerRoot个子分类
+     */
+    public static List<Category> categories(int roots, int childrenPerRoot) {
+        List<Category> categories = new ArrayList<>(roots * (childrenPerRoot + 1));
+        long id = 1;
+        for (int r = 0; r < roots; r++) {
+            long rootId = id++;
+            categories.add(category(rootId, null, r));
+            for (int c = 0; c < childrenPerRoot; c++) {
+                categories.add(category(id++, rootId, c));
+            }
+        }
+        return categories;
+    }
+
+    private static Category category(long id, Long parentId, int sortOrder) {
+        Category category = new Category("分类 Category " + id, "描述 " + id);
+        category.setId(id);
+        category.setParentId(parentId);
+        category.setSortOrder(sortOrder);
+        category.setActive(true);
+        category.setCreatedAt(CREATED_AT);
+        return category;
+    }
+}
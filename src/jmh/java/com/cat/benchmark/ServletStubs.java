@@ -0,0 +1,142 @@
+package com.cat.benchmark;
+
+import javax.servlet.ServletContext;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import javax.servlet.http.HttpSession;
+import javax.servlet.http.HttpSessionContext;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 基准测试用的Servlet替身
+ * 被测代码用到的方法直接实现，其余方法委托给会抛出异常的动态代理，避免误用
+ */
+public class ServletStubs {
+
+    private static <T> T unsupported(Class<T> type) {
+        return type.cast(Proxy.newProxyInstance(ServletStubs.class.getClassLoader(), new Class<?>[]{type},
+                (proxy, method, args) -> {
+                    throw new UnsupportedOperationException(type.getSimpleName() + "." + method.getName());
+                }));
+    }
+
+    /**
+     * 请求替身
+     */
+    public static class StubRequest extends HttpServletRequestWrapper {
+        private final String method;
+        private final String requestUri;
+        private final String servletPath;
+        private final Map<String, Object> attributes = new HashMap<>();
+        private final Map<String, String> headers = new HashMap<>();
+        private HttpSession session;
+        private String requestedSessionId;
+
+        public StubRequest(String method, String requestUri) {
+            super(unsupported(HttpServletRequest.class));
+            this.method = method;
+            this.requestUri = requestUri;
+            int second = requestUri.indexOf('/', 1);
+            int third = second < 0 ? -1 : requestUri.indexOf('/', second + 1);
+            this.servletPath = third < 0 ? requestUri : requestUri.substring(0, third);
+        }
+
+        public StubRequest withSession(HttpSession session) {
+            this.session = session;
+            return this;
+        }
+
+        public StubRequest withRequestedSessionId(String requestedSessionId) {
+            this.requestedSessionId = requestedSessionId;
+            return this;
+        }
+
+        public StubRequest withHeader(String name, String value) {
+            headers.put(name.toLowerCase(), value);
+            return this;
+        }
+
+        /**
+         * 清除上一次调用写入的请求属性
+         */
+        public void reset() {
+            attributes.clear();
+        }
+
+        @Override public String getMethod() { return method; }
+        @Override public String getRequestURI() { return requestUri; }
+        @Override public String getContextPath() { return ""; }
+        @Override public String getServletPath() { return servletPath; }
+        @Override public String getPathInfo() {
+            return requestUri.length() > servletPath.length() ? requestUri.substring(servletPath.length()) : null;
+        }
+        @Override public String getHeader(String name) { return headers.get(name.toLowerCase()); }
+        @Override public String getRemoteAddr() { return "127.0.0.1"; }
+        @Override public String getRequestedSessionId() { return requestedSessionId; }
+        @Override public HttpSession getSession(boolean create) { return session; }
+        @Override public HttpSession getSession() { return session; }
+        @Override public Object getAttribute(String name) { return attributes.get(name); }
+        @Override public void setAttribute(String name, Object value) { attributes.put(name, value); }
+        @Override public void removeAttribute(String name) { attributes.remove(name); }
+    }
+
+    /**
+     * 响应替身，写出的内容直接丢弃
+     */
+    public static class StubResponse extends HttpServletResponseWrapper {
+        private final PrintWriter writer = new PrintWriter(Writer.nullWriter());
+        private int status = SC_OK;
+
+        public StubResponse() {
+            super(unsupported(HttpServletResponse.class));
+        }
+
+        @Override public void setStatus(int status) { this.status = status; }
+        @Override public int getStatus() { return status; }
+        @Override public void setContentType(String type) { }
+        @Override public void setCharacterEncoding(String charset) { }
+        @Override public void setHeader(String name, String value) { }
+        @Override public void addHeader(String name, String value) { }
+        @Override public PrintWriter getWriter() { return writer; }
+        @Override public boolean isCommitted() { return false; }
+    }
+
+    /**
+     * 会话替身
+     */
+    @SuppressWarnings("deprecation")
+    public static class StubSession implements HttpSession {
+        private final Map<String, Object> attributes = new HashMap<>();
+
+        public StubSession with(String name, Object value) {
+            attributes.put(name, value);
+            return this;
+        }
+
+        @Override public long getCreationTime() { return 0; }
+        @Override public String getId() { return "benchmark-session"; }
+        @Override public long getLastAccessedTime() { return 0; }
+        @Override public ServletContext getServletContext() { return null; }
+        @Override public void setMaxInactiveInterval(int interval) { }
+        @Override public int getMaxInactiveInterval() { return 1800; }
+        @Override public HttpSessionContext getSessionContext() { return null; }
+        @Override public Object getAttribute(String name) { return attributes.get(name); }
+        @Override public Object getValue(String name) { return attributes.get(name); }
+        @Override public Enumeration<String> getAttributeNames() { return Collections.enumeration(attributes.keySet()); }
+        @Override public String[] getValueNames() { return attributes.keySet().toArray(new String[0]); }
+        @Override public void setAttribute(String name, Object value) { attributes.put(name, value); }
+        @Override public void putValue(String name, Object value) { attributes.put(name, value); }
+        @Override public void removeAttribute(String name) { attributes.remove(name); }
+        @Override public void removeValue(String name) { attributes.remove(name); }
+        @Override public void invalidate() { attributes.clear(); }
+        @Override public boolean isNew() { return false; }
+    }
+}
@@ -0,0 +1,47 @@
+package com.cat.dao;
+
+import com.cat.benchmark.BenchmarkData;
+import com.cat.model.Category;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CategoryDAO.findCategoryTree 的建树部分（不含数据库查询）
+ * 建树会修改分类对象的父子关系，因此每次调用前重置
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CategoryTreeBenchmark {
+
+    @Param({"10", "50"})
+    private int roots;
+
+    @Param({"5", "20"})
+    private int childrenPerRoot;
+
+    private List<Category> categories;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        categories = BenchmarkData.categories(roots, childrenPerRoot);
+    }
+
+    @Setup(Level.Invocation)
+    public void resetTree() {
+        for (Category category : categories) {
+            category.setChildren(null);
+            category.setParent(null);
+        }
+    }
+
+    @Benchmark
+    public List<Category> buildCategoryTree() {
+        return CategoryDAO.buildCategoryTree(categories);
+    }
+}
@@ -0,0 +1,76 @@
+package com.cat.dao;
+
+import com.cat.benchmark.BenchmarkData;
+import com.cat.model.Product;
+import com.cat.model.ProductSummary;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ProductDAO.mapResultSetToProduct 映射耗时
+ * readColumnsOnly 只按同样顺序读取所有列，作为ResultSet替身本身开销的基线；
+ * mapAndReadImages 额外访问图片列表（序列化响应时的路径，images列解析结果按列文本缓存）；
+ * mapResultSetToSummary 为列表类查询使用的摘要映射
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ProductMapperBenchmark {
+
+    private ProductDAO productDAO;
+    private ResultSet resultSet;
+
+    @Setup
+    public void setUp() {
+        productDAO = new ProductDAO();
+        resultSet = BenchmarkData.resultSet(BenchmarkData.productRow());
+    }
+
+    @Benchmark
+    public Product mapResultSetToProduct() throws SQLException {
+        return productDAO.mapResultSetToProduct(resultSet);
+    }
+
+    @Benchmark
+    public List<String> mapAndReadImages() throws SQLException {
+        return productDAO.mapResultSetToProduct(resultSet).getImages();
+    }
+
+    @Benchmark
+    public ProductSummary mapResultSetToSummary() throws SQLException {
+        return productDAO.mapResultSetToSummary(resultSet);
+    }
+
+    @Benchmark
+    public void readColumnsOnly(Blackhole blackhole) throws SQLException {
+        blackhole.consume(resultSet.getLong("id"));
+        blackhole.consume(resultSet.getString("name"));
+        blackhole.consume(resultSet.getString("description"));
+        blackhole.consume(resultSet.getString("short_description"));
+        blackhole.consume(resultSet.getString("sku"));
+        blackhole.consume(resultSet.getBigDecimal("price"));
+        blackhole.consume(resultSet.getBigDecimal("cost_price"));
+        blackhole.consume(resultSet.getInt("stock_quantity"));
+        blackhole.consume(resultSet.getInt("min_stock_level"));
+        blackhole.consume(resultSet.getLong("category_id"));
+        blackhole.consume(resultSet.wasNull());
+        blackhole.consume(resultSet.getString("image_url"));
+        blackhole.consume(resultSet.getString("images"));
+        blackhole.consume(resultSet.getBigDecimal("weight"));
+        blackhole.consume(resultSet.getString("dimensions"));
+        blackhole.consume(resultSet.getBoolean("is_active"));
+        blackhole.consume(resultSet.getBoolean("is_featured"));
+        blackhole.consume(resultSet.getTimestamp("created_at"));
+        blackhole.consume(resultSet.getTimestamp("created_at"));
+        blackhole.consume(resultSet.getTimestamp("updated_at"));
+        blackhole.consume(resultSet.getTimestamp("updated_at"));
+    }
+}
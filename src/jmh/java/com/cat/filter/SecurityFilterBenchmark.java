@@ -0,0 +1,67 @@
+package com.cat.filter;
+
+import com.cat.benchmark.ServletStubs.StubRequest;
+import com.cat.benchmark.ServletStubs.StubResponse;
+import com.cat.model.UserSession;
+import com.cat.service.AuthTokenService;
+import com.cat.service.SessionStore;
+import org.openjdk.jmh.annotations.*;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SecurityFilter.doFilter 路径检查耗时（下游过滤器链为空操作）
+ * 覆盖公开商品接口、公开登录接口、已登录用户接口、管理员接口和未登录被拒绝五种情况
+ * （购物车的增删改查对游客公开，已登录用户接口使用仍需登录的 /api/cart/validate 和 /api/customers/profile）。
+ * 已登录的情况以请求属性提供已识别的会话（相当于 SessionStore 近端缓存命中之后），不访问数据库；
+ * (token) 为无状态令牌模式，每次请求校验 Authorization 头中的签名令牌
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SecurityFilterBenchmark {
+
+    @Param({"GET /api/products/42", "POST /api/customers/login", "GET /api/cart/validate",
+            "GET /api/admin/metrics", "GET /api/customers/profile (anonymous)", "GET /api/customers/profile (token)"})
+    private String scenario;
+
+    private SecurityFilter filter;
+    private StubRequest request;
+    private StubResponse response;
+    private UserSession session;
+    private final FilterChain chain = (req, res) -> { };
+
+    @Setup
+    public void setUp() throws ServletException {
+        filter = new SecurityFilter();
+        filter.init(null);
+
+        String[] parts = scenario.split(" ");
+        request = new StubRequest(parts[0], parts[1]);
+        if (scenario.endsWith("(token)")) {
+            // 每个参数组合在独立的JVM中运行，在第一次使用前切换认证方式即可
+            System.setProperty("eshop.auth.mode", "token");
+            request.withHeader("Authorization", "Bearer " + AuthTokenService.issue(1L, "CUSTOMER", 1800));
+        } else if (parts.length == 2) {
+            String userType = parts[1].startsWith("/api/admin/") ? "ADMIN" : "CUSTOMER";
+            session = new UserSession("benchmark-session", userType, 1L);
+        }
+        response = new StubResponse();
+    }
+
+    @Benchmark
+    public int doFilter() throws IOException, ServletException {
+        request.reset();
+        if (session != null) {
+            request.setAttribute(SessionStore.REQUEST_ATTRIBUTE, session);
+        }
+        filter.doFilter(request, response, chain);
+        return response.getStatus();
+    }
+}
@@ -0,0 +1,79 @@
+package com.cat.pricing;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Collections;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 100项购物车计算合计的耗时：原来的 BigDecimal 逐项乘加和 PricingEngine 的分为单位long计算
+ * minorUnitsWithConversion 包含每项单价 BigDecimal -> 分 的转换（ShoppingCartService.buildCart 的实际路径）
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PricingEngineBenchmark {
+
+    private static final int LINES = 100;
+
+    private static final BigDecimal TAX_RATE = new BigDecimal("0.06");
+    private static final BigDecimal FREE_SHIPPING_THRESHOLD = new BigDecimal("200.00");
+    private static final BigDecimal SHIPPING_FEE = new BigDecimal("10.00");
+
+    private BigDecimal[] prices;
+    private long[] productIds;
+    private long[] unitPrices;
+    private int[] quantities;
+    private PricingEngine engine;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        prices = new BigDecimal[LINES];
+        productIds = new long[LINES];
+        unitPrices = new long[LINES];
+        quantities = new int[LINES];
+        for (int i = 0; i < LINES; i++) {
+            prices[i] = BigDecimal.valueOf(100 + random.nextInt(1_000_000), 2);
+            productIds[i] = i + 1;
+            unitPrices[i] = Money.toMinor(prices[i]);
+            quantities[i] = 1 + random.nextInt(5);
+        }
+        engine = new PricingEngine(Collections.emptyList(), Money.toRate(TAX_RATE),
+                Money.toMinor(FREE_SHIPPING_THRESHOLD), Money.toMinor(SHIPPING_FEE));
+    }
+
+    @Benchmark
+    public BigDecimal bigDecimal() {
+        BigDecimal totalAmount = BigDecimal.ZERO;
+        int totalQuantity = 0;
+        for (int i = 0; i < LINES; i++) {
+            totalAmount = totalAmount.add(prices[i].multiply(new BigDecimal(quantities[i])));
+            totalQuantity += quantities[i];
+        }
+        BigDecimal shippingFee = totalQuantity == 0 || totalAmount.compareTo(FREE_SHIPPING_THRESHOLD) >= 0
+                ? BigDecimal.ZERO : SHIPPING_FEE;
+        BigDecimal taxAmount = totalAmount.multiply(TAX_RATE).setScale(2, RoundingMode.HALF_UP);
+        return totalAmount.add(shippingFee).add(taxAmount);
+    }
+
+    @Benchmark
+    public long minorUnits() {
+        return engine.price(productIds, unitPrices, quantities, LINES).getPayable();
+    }
+
+    @Benchmark
+    public BigDecimal minorUnitsWithConversion() {
+        long[] converted = new long[LINES];
+        for (int i = 0; i < LINES; i++) {
+            converted[i] = Money.toMinor(prices[i]);
+        }
+        return Money.toDecimal(engine.price(productIds, converted, quantities, LINES).getPayable());
+    }
+}
@@ -0,0 +1,92 @@
+package com.cat.util;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 访问规则分类吞吐量（每个 /api/* 请求分类一次）
+ * 请求样本覆盖公开、需要登录、需要管理员和未匹配规则的路径，并带上下文路径；
+ * linearChecks 为改用规则表之前 SecurityFilter 的写法（substring + 列表查找 + 前缀比较），用于对比
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class AccessRuleTableBenchmark {
+
+    private static final String CONTEXT_PATH = "/eshop";
+
+    private static final String[][] REQUESTS = {
+        {"GET", "/eshop/api/products/42"},
+        {"GET", "/eshop/api/products/search"},
+        {"POST", "/eshop/api/customers/login"},
+        {"GET", "/eshop/api/cart"},
+        {"POST", "/eshop/api/cart/items"},
+        {"PUT", "/eshop/api/customers/profile"},
+        {"GET", "/eshop/api/admin/orders/1001"},
+        {"OPTIONS", "/eshop/api/cart"},
+        {"DELETE", "/eshop/api/products/42"},
+        {"GET", "/eshop/api/orders/1001/items"}
+    };
+
+    private static final List<String> PUBLIC_PATHS = Arrays.asList(
+        "/api/customers/register",
+        "/api/customers/login",
+        "/api/products",
+        "/api/products/featured",
+        "/api/products/search",
+        "/api/products/categories"
+    );
+
+    private AccessRuleTable table;
+    private int next;
+
+    @Setup
+    public void setUp() throws IOException {
+        table = AccessRuleTable.load("access-rules.conf", AccessRuleTable.Access.AUTHENTICATED);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(10)
+    public void classify(Blackhole blackhole) {
+        for (String[] request : REQUESTS) {
+            blackhole.consume(table.classify(request[0], request[1], CONTEXT_PATH.length()));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(10)
+    public void linearChecks(Blackhole blackhole) {
+        for (String[] request : REQUESTS) {
+            blackhole.consume(linearClassify(request[0], request[1]));
+        }
+    }
+
+    @Benchmark
+    public AccessRuleTable.Access classifySingle() {
+        String[] request = REQUESTS[next];
+        next = next == REQUESTS.length - 1 ? 0 : next + 1;
+        return table.classify(request[0], request[1], CONTEXT_PATH.length());
+    }
+
+    private static AccessRuleTable.Access linearClassify(String method, String uri) {
+        String path = uri.substring(CONTEXT_PATH.length());
+        if ("OPTIONS".equalsIgnoreCase(method)) {
+            return AccessRuleTable.Access.PUBLIC;
+        }
+        if ("GET".equalsIgnoreCase(method) && path.startsWith("/api/products")) {
+            return AccessRuleTable.Access.PUBLIC;
+        }
+        if (PUBLIC_PATHS.contains(path)) {
+            return AccessRuleTable.Access.PUBLIC;
+        }
+        return path.startsWith("/api/admin/") ? AccessRuleTable.Access.ADMIN : AccessRuleTable.Access.AUTHENTICATED;
+    }
+}
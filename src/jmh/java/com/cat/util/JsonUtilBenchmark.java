@@ -0,0 +1,53 @@
+package com.cat.util;
+
+import com.cat.benchmark.BenchmarkData;
+import com.cat.dto.ApiResponse;
+import com.cat.model.Product;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JsonUtil.toJson 序列化商品分页响应（与 GET /api/products 的响应结构一致，列表为商品摘要）
+ * productList 序列化完整商品对象，用于对比摘要与完整行的序列化开销
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JsonUtilBenchmark {
+
+    @Param({"10", "50", "100"})
+    private int pageSize;
+
+    private ApiResponse<Map<String, Object>> page;
+    private List<Product> products;
+
+    @Setup
+    public void setUp() {
+        products = BenchmarkData.products(pageSize);
+
+        Map<String, Object> responseData = new HashMap<>();
+        responseData.put("products", BenchmarkData.summaries(pageSize));
+        responseData.put("page", 1);
+        responseData.put("pageSize", pageSize);
+        responseData.put("totalCount", 100000L);
+        responseData.put("totalPages", 100000 / pageSize);
+        page = ApiResponse.success("获取成功", responseData);
+    }
+
+    @Benchmark
+    public String productPage() {
+        return JsonUtil.toJson(page);
+    }
+
+    @Benchmark
+    public String productList() {
+        return JsonUtil.toJson(products);
+    }
+}
@@ -0,0 +1,41 @@
+package com.cat.util;
+
+import org.mindrot.jbcrypt.BCrypt;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * PasswordUtil.verifyPassword 在不同BCrypt强度下的耗时
+ * 生产环境的哈希强度为12；登录接口的吞吐上限大致为 CPU核数 / 单次验证耗时
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PasswordUtilBenchmark {
+
+    private static final String PASSWORD = "Passw0rd!2024";
+
+    @Param({"4", "8", "10", "12"})
+    private int cost;
+
+    private String hashedPassword;
+
+    @Setup
+    public void setUp() {
+        hashedPassword = BCrypt.hashpw(PASSWORD, BCrypt.gensalt(cost));
+    }
+
+    @Benchmark
+    public boolean verifyCorrectPassword() {
+        return PasswordUtil.verifyPassword(PASSWORD, hashedPassword);
+    }
+
+    @Benchmark
+    public boolean verifyWrongPassword() {
+        return PasswordUtil.verifyPassword("wrong-password", hashedPassword);
+    }
+}
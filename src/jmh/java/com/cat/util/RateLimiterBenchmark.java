@@ -0,0 +1,51 @@
+package com.cat.util;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * RateLimiter 每次申请的耗时（每个 /api/* 请求申请一次）
+ * hotClient 为4个线程争用同一客户端的桶（CAS冲突最多的情况），manyClients 为各线程轮流使用大量不同客户端
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class RateLimiterBenchmark {
+
+    private static final int CLIENTS = 10000;
+
+    private RateLimiter limiter;
+    private String[] clients;
+
+    @Setup
+    public void setUp() {
+        // 速率足够高，测量的是申请本身而不是拒绝路径
+        limiter = new RateLimiter(1_000_000_000, 1_000_000, CLIENTS * 2);
+        clients = new String[CLIENTS];
+        for (int i = 0; i < CLIENTS; i++) {
+            clients[i] = "IP:10.0." + (i / 256) + "." + (i % 256);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int next;
+    }
+
+    @Benchmark
+    public long hotClient() {
+        return limiter.tryAcquire("C:42", System.nanoTime());
+    }
+
+    @Benchmark
+    public long manyClients(Cursor cursor) {
+        String client = clients[cursor.next];
+        cursor.next = cursor.next == CLIENTS - 1 ? 0 : cursor.next + 1;
+        return limiter.tryAcquire(client, System.nanoTime());
+    }
+}
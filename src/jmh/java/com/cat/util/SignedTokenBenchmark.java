@@ -0,0 +1,62 @@
+package com.cat.util;
+
+import org.openjdk.jmh.annotations.*;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SignedToken 签发与校验耗时（令牌模式下每个已登录请求校验一次）
+ * verifyWithNewMac 每次校验新建Mac，用于对比按线程缓存Mac的收益
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SignedTokenBenchmark {
+
+    private static final byte[] SECRET = "benchmark-secret-benchmark-secret".getBytes(StandardCharsets.UTF_8);
+
+    private SignedToken signer;
+    private SignedToken.Claims claims;
+    private String token;
+    private String tamperedToken;
+    private long now;
+
+    @Setup
+    public void setUp() {
+        signer = new SignedToken(SECRET);
+        now = System.currentTimeMillis() / 1000;
+        claims = new SignedToken.Claims(123456L, "CUSTOMER", now, now + 1800, 0x1234_5678_9abc_def0L);
+        token = signer.issue(claims);
+        char last = token.charAt(token.length() - 1);
+        tamperedToken = token.substring(0, token.length() - 1) + (last == 'A' ? 'B' : 'A');
+    }
+
+    @Benchmark
+    public String issue() {
+        return signer.issue(claims);
+    }
+
+    @Benchmark
+    public SignedToken.Claims verify() {
+        return signer.verify(token, now);
+    }
+
+    @Benchmark
+    public SignedToken.Claims verifyTampered() {
+        return signer.verify(tamperedToken, now);
+    }
+
+    @Benchmark
+    public byte[] verifyWithNewMac() throws GeneralSecurityException {
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(SECRET, "HmacSHA256"));
+        return mac.doFinal(token.substring(0, token.indexOf('.')).getBytes(StandardCharsets.ISO_8859_1));
+    }
+}
@@ -0,0 +1,115 @@
+package com.cat.loadtest;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 访问控制检查
+ * 使用内嵌Tomcat + H2运行完整应用，通过原始Socket发送请求（请求行不经过客户端规范化），
+ * 检查含 ..、;参数 的URI按容器实际分派的路径做访问控制，以及未登录时只能访问游客购物车的接口。任一检查不符时以非0状态退出。
+ *
+ * 运行：mvn -P loadtest test-compile exec:java -Dloadtest.main=com.cat.loadtest.AccessRuleCheck
+ */
+public class AccessRuleCheck {
+
+    private static final String JDBC_URL =
+            "jdbc:h2:mem:eshop_access;MODE=MySQL;DATABASE_TO_LOWER=TRUE;CASE_INSENSITIVE_IDENTIFIERS=TRUE;DB_CLOSE_DELAY=-1";
+    private static final Pattern SESSION_COOKIE = Pattern.compile("(?i)Set-Cookie: (JSESSIONID=[^;\\r\\n]+)");
+
+    private static int port;
+    private static final List<String> failures = new ArrayList<>();
+
+    public static void main(String[] args) throws Exception {
+        System.setProperty("eshop.db.url", JDBC_URL);
+        System.setProperty("eshop.db.driver", "org.h2.Driver");
+        System.setProperty("eshop.db.username", "sa");
+        System.setProperty("eshop.db.password", "");
+        System.setProperty("eshop.ratelimit.enabled", "false");
+
+        try (Connection connection = DriverManager.getConnection(JDBC_URL, "sa", "")) {
+            SchemaLoader.load(connection);
+            DataGenerator generator = new DataGenerator(42L, 1.07, 500, 10);
+            generator.generateProducts(100);
+            generator.generateCustomers(1);
+
+            EmbeddedServer server = new EmbeddedServer();
+            port = server.start(0);
+            try {
+                String loginBody = "{\"username\":\"" + DataGenerator.username(generator.getFirstCustomerId())
+                        + "\",\"password\":\"" + DataGenerator.CUSTOMER_PASSWORD + "\"}";
+                Matcher cookie = SESSION_COOKIE.matcher(send("POST", "/api/customers/login", null, loginBody));
+                if (!cookie.find()) {
+                    throw new IllegalStateException("顾客登录失败，无法检查已登录的请求");
+                }
+                String customer = cookie.group(1);
+
+                expect("GET", "/api/products/1", null, 200);
+                // 原始URI以公开的购物车、商品路径开头，容器实际分派到 AdminServlet
+                expect("POST", "/api/cart/../admin/products/import", null, 401);
+                expect("GET", "/api/products/../admin/products/export", null, 401);
+                // ;参数 使原始URI不匹配 /api/admin/**
+                expect("GET", "/api/admin;x/metrics", null, 401);
+                expect("GET", "/api/admin;x/metrics", customer, 403);
+                expect("GET", "/api/admin/metrics", customer, 403);
+                // 游客购物车只开放实际的购物车接口
+                expect("GET", "/api/cart", null, 200);
+                expect("GET", "/api/cart/count", null, 200);
+                expect("GET", "/api/cart/validate", null, 401);
+                expect("POST", "/api/cart/1/import", null, 401);
+            } finally {
+                server.stop();
+            }
+        }
+
+        if (!failures.isEmpty()) {
+            failures.forEach(failure -> System.out.println("检查失败：" + failure));
+            System.exit(1);
+        }
+        System.out.println("检查通过");
+        System.exit(0);
+    }
+
+    private static void expect(String method, String target, String cookie, int expectedStatus) throws IOException {
+        String response = send(method, target, cookie, null);
+        int status = Integer.parseInt(response.substring(9, 12));
+        System.out.printf("%-6s %-45s %-10s -> %d%n", method, target, cookie != null ? "(顾客)" : "(未登录)", status);
+        if (status != expectedStatus) {
+            failures.add(method + " " + target + " 返回 " + status + "，应为 " + expectedStatus);
+        }
+    }
+
+    private static String send(String method, String target, String cookie, String body) throws IOException {
+        byte[] content = body != null ? body.getBytes(StandardCharsets.UTF_8) : new byte[0];
+        StringBuilder request = new StringBuilder()
+                .append(method).append(' ').append(target).append(" HTTP/1.1\r\n")
+                .append("Host: localhost:").append(port).append("\r\n")
+                .append("Connection: close\r\n")
+                .append("Content-Type: application/json;charset=UTF-8\r\n")
+                .append("Content-Length: ").append(content.length).append("\r\n");
+        if (cookie != null) {
+            request.append("Cookie: ").append(cookie).append("\r\n");
+        }
+        request.append("\r\n");
+
+        try (Socket socket = new Socket("localhost", port)) {
+            OutputStream out = socket.getOutputStream();
+            out.write(request.toString().getBytes(StandardCharsets.ISO_8859_1));
+            out.write(content);
+            out.flush();
+            InputStream in = socket.getInputStream();
+            ByteArrayOutputStream response = new ByteArrayOutputStream();
+            in.transferTo(response);
+            return response.toString(StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,443 @@
+package com.cat.loadtest;
+
+import com.cat.util.DatabaseUtil;
+import com.cat.util.PasswordUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+/**
+ * 合成数据生成器
+ * 生成多级分类树和百万级的商品、用户、购物车和订单数据，商品热度服从Zipf分布（购物车、订单明细和推荐标记都偏向热门商品），
+ * 商品名称混合中文和英文，商品分布在生成的叶子分类上。数据通过 DatabaseUtil.executeBatch 以多行 INSERT 批量写入，
+ * 目标数据库由应用配置决定（database.properties，或 eshop.db.* 系统属性）。
+ *
+ * 运行：mvn -P loadtest test-compile exec:java -Dloadtest.main=com.cat.loadtest.DataGenerator -Dgen.products=1000000
+ * 参数：gen.category-depth / gen.category-fanout / gen.products / gen.customers / gen.cart-items-per-customer / gen.orders / gen.max-items-per-order /
+ *      gen.skew / gen.seed / gen.rows-per-statement / gen.statements-per-batch
+ */
+public class DataGenerator {
+    private static final Logger logger = LoggerFactory.getLogger(DataGenerator.class);
+
+    public static final String CUSTOMER_PASSWORD = "LoadTest#2024";
+
+    private static final String[] BRANDS_CN = {"小米", "华为", "联想", "海尔", "美的", "李宁", "安踏", "九阳", "得力", "罗莱"};
+    private static final String[] BRANDS_EN = {"Apple", "Sony", "Nike", "Adidas", "Logitech", "Philips", "Lego", "Muji", "Anker", "Dell"};
+    private static final String[] ADJECTIVES_CN = {"无线", "智能", "轻薄", "便携", "经典", "降噪", "加厚", "防水", "复古", "大容量"};
+    private static final String[] ADJECTIVES_EN = {"Wireless", "Smart", "Slim", "Portable", "Classic", "Pro", "Ultra", "Waterproof", "Vintage", "Mini"};
+    private static final String[] NOUNS_CN = {"耳机", "手表", "跑鞋", "连衣裙", "笔记本电脑", "保温杯", "双肩包", "机械键盘", "台灯", "空气炸锅"};
+    private static final String[] NOUNS_EN = {"Headphones", "Watch", "Running Shoes", "Dress", "Laptop", "Tumbler", "Backpack", "Keyboard", "Desk Lamp", "Air Fryer"};
+
+    // 压测搜索场景使用的关键字（与商品名称词表一致）
+    public static final String[] SEARCH_TERMS = concat(ADJECTIVES_CN, NOUNS_CN, ADJECTIVES_EN, NOUNS_EN, BRANDS_CN, BRANDS_EN);
+
+    // database.sql 中的叶子分类，没有生成分类树时使用
+    private static final long[] LEAF_CATEGORIES = {6, 7, 8, 9, 10, 11};
+    private static final int MAX_CATEGORIES = 1_000_000;
+    // MySQL单条语句最多65535个占位符
+    private static final int MAX_PLACEHOLDERS = 65535;
+
+    private final long seed;
+    private final double skew;
+    private final int rowsPerStatement;
+    private final int statementsPerBatch;
+    private final Timestamp createdAt = Timestamp.valueOf(LocalDateTime.now().withNano(0));
+
+    private long firstLeafCategoryId;
+    private int leafCategoryCount;
+    private long firstProductId;
+    private long[] productPriceCents;
+    private ZipfSampler popularity;
+    private long firstCustomerId;
+    private int customerCount;
+
+    public DataGenerator(long seed, double skew, int rowsPerStatement, int statementsPerBatch) {
+        this.seed = seed;
+        this.skew = skew;
+        this.rowsPerStatement = rowsPerStatement;
+        this.statementsPerBatch = statementsPerBatch;
+    }
+
+    public static void main(String[] args) {
+        DataGenerator generator = new DataGenerator(
+                Long.getLong("gen.seed", 20240101L),
+                Double.parseDouble(System.getProperty("gen.skew", "1.07")),
+                Integer.getInteger("gen.rows-per-statement", 500),
+                Integer.getInteger("gen.statements-per-batch", 10));
+
+        long start = System.nanoTime();
+        generator.generateCategories(Integer.getInteger("gen.category-depth", 3), Integer.getInteger("gen.category-fanout", 8));
+        generator.generateProducts(Integer.getInteger("gen.products", 1_000_000));
+        generator.generateCustomers(Integer.getInteger("gen.customers", 100_000));
+        generator.generateCartItems(Integer.getInteger("gen.cart-items-per-customer", 3));
+        generator.generateOrders(Integer.getInteger("gen.orders", 500_000), Integer.getInteger("gen.max-items-per-order", 6));
+        logger.info("数据生成完成，总耗时 {} 秒", (System.nanoTime() - start) / 1_000_000_000L);
+    }
+
+    /**
+     * 生成多级分类树：fanout 个顶级分类，每个分类有 fanout 个子分类，共 depth 级（depth=3、fanout=8 时为 584 个分类、512 个叶子）。
+     * 按层从上到下编号写入，父分类总在子分类之前；之后生成的商品分布在最底层的叶子分类上
+     * @param depth 层数
+     * @param fanout 每个分类的子分类数
+     */
+    public void generateCategories(int depth, int fanout) {
+        if (depth < 1 || fanout < 1) {
+            throw new IllegalArgumentException("分类层数和子分类数至少为1");
+        }
+        long firstId = nextId("categories");
+        // levelStarts[l] 为第 l 级第一个分类相对 firstId 的序号，levelStarts[depth] 为分类总数
+        long[] levelStarts = new long[depth + 1];
+        long levelSize = 1;
+        for (int level = 0; level < depth; level++) {
+            levelSize *= fanout;
+            levelStarts[level + 1] = levelStarts[level] + levelSize;
+            if (levelStarts[level + 1] > MAX_CATEGORIES) {
+                throw new IllegalArgumentException("分类数超过上限 " + MAX_CATEGORIES + "，请减小层数或子分类数");
+            }
+        }
+        int count = (int) levelStarts[depth];
+
+        String[] columns = {"id", "name", "description", "parent_id", "sort_order", "is_active", "created_at"};
+        bulkInsert("categories", columns, count, (index, row) -> {
+            int level = 0;
+            while (index >= levelStarts[level + 1]) {
+                level++;
+            }
+            long offset = index - levelStarts[level];
+            // 分类路径：每一级在父分类中的序号（从1开始），如 3.1.7
+            StringBuilder path = new StringBuilder();
+            long remaining = offset;
+            for (int l = level; l >= 0; l--) {
+                path.insert(0, (l < level ? "." : "") + (remaining % fanout + 1));
+                remaining /= fanout;
+            }
+            row[0] = firstId + index;
+            row[1] = (level % 2 == 0 ? "分类 " : "Category ") + path;
+            row[2] = "第 " + (level + 1) + " 级分类 / level " + (level + 1) + " category " + path;
+            row[3] = level == 0 ? null : firstId + levelStarts[level - 1] + offset / fanout;
+            row[4] = (int) (offset % fanout) + 1;
+            row[5] = true;
+            row[6] = createdAt;
+        });
+
+        firstLeafCategoryId = firstId + levelStarts[depth - 1];
+        leafCategoryCount = (int) (levelStarts[depth] - levelStarts[depth - 1]);
+    }
+
+    /**
+     * 生成商品，ID紧接在现有最大ID之后
+     * 热度排名靠前的商品库存更多，前0.05%标记为推荐商品；先调用 generateCategories 时分布在生成的叶子分类上，
+     * 否则分布在 database.sql 的叶子分类上
+     * @param count 商品数量
+     */
+    public void generateProducts(int count) {
+        firstProductId = nextId("products");
+        productPriceCents = new long[count];
+        popularity = new ZipfSampler(count, skew, seed);
+        int featuredRanks = Math.max(10, count / 2000);
+
+        String[] columns = {"id", "name", "description", "short_description", "sku", "price", "cost_price",
+                "stock_quantity", "min_stock_level", "category_id", "image_url", "images", "is_active", "is_featured",
+                "created_at", "updated_at"};
+        bulkInsert("products", columns, count, (index, row) -> {
+            long id = firstProductId + index;
+            SplittableRandom random = new SplittableRandom(seed ^ id);
+            String name = productName(random, id);
+            long priceCents = random.nextLong(100, 1_000_000);
+            productPriceCents[index] = priceCents;
+            int rank = popularity.rankOf(index);
+
+            row[0] = id;
+            row[1] = name;
+            row[2] = name + "，品质保证，支持七天无理由退货。 " + name + " with free shipping over 200.";
+            row[3] = name;
+            row[4] = String.format("GEN-%09d", id);
+            row[5] = BigDecimal.valueOf(priceCents, 2);
+            row[6] = BigDecimal.valueOf(priceCents * 6 / 10, 2);
+            row[7] = rank < count / 100 ? random.nextInt(500, 5000) : random.nextInt(0, 300);
+            row[8] = 10;
+            row[9] = leafCategoryCount > 0
+                    ? firstLeafCategoryId + random.nextInt(leafCategoryCount)
+                    : LEAF_CATEGORIES[random.nextInt(LEAF_CATEGORIES.length)];
+            row[10] = "/images/products/" + id + ".jpg";
+            row[11] = "[\"/images/products/" + id + "-1.jpg\",\"/images/products/" + id + "-2.jpg\"]";
+            row[12] = true;
+            row[13] = rank < featuredRanks;
+            row[14] = createdAt;
+            row[15] = createdAt;
+        });
+    }
+
+    /**
+     * 生成用户，用户名为 gen_user0000001 形式，所有用户共用密码 CUSTOMER_PASSWORD（只计算一次哈希）
+     * @param count 用户数量
+     */
+    public void generateCustomers(int count) {
+        firstCustomerId = nextId("customers");
+        customerCount = count;
+        String passwordHash = PasswordUtil.hashPassword(CUSTOMER_PASSWORD);
+
+        String[] columns = {"id", "username", "email", "password_hash", "first_name", "last_name", "phone", "is_active",
+                "created_at", "updated_at"};
+        bulkInsert("customers", columns, count, (index, row) -> {
+            long id = firstCustomerId + index;
+            String username = username(id);
+            boolean chinese = id % 2 == 0;
+            row[0] = id;
+            row[1] = username;
+            row[2] = username + "@example.com";
+            row[3] = passwordHash;
+            row[4] = chinese ? "用户" : "User";
+            row[5] = chinese ? "测试" + id : "Tester " + id;
+            row[6] = String.format("01%08d", id % 100_000_000);
+            row[7] = true;
+            row[8] = createdAt;
+            row[9] = createdAt;
+        });
+    }
+
+    /**
+     * 生成购物车，每个用户 0 ~ 2*平均数 件，商品按热度采样（同一用户内去重）
+     * @param averagePerCustomer 每个用户的平均购物车商品数
+     */
+    public void generateCartItems(int averagePerCustomer) {
+        requireProductsAndCustomers();
+        SplittableRandom random = new SplittableRandom(seed + 1);
+        List<long[]> items = new ArrayList<>();
+        Set<Integer> picked = new HashSet<>();
+        for (int c = 0; c < customerCount; c++) {
+            int count = random.nextInt(0, averagePerCustomer * 2 + 1);
+            picked.clear();
+            for (int i = 0; i < count; i++) {
+                int product = popularity.sample(random);
+                if (picked.add(product)) {
+                    items.add(new long[]{firstCustomerId + c, firstProductId + product, 1 + random.nextInt(3)});
+                }
+            }
+        }
+
+        String[] columns = {"customer_id", "product_id", "quantity", "created_at", "updated_at"};
+        bulkInsert("shopping_cart", columns, items.size(), (index, row) -> {
+            long[] item = items.get(index);
+            row[0] = item[0];
+            row[1] = item[1];
+            row[2] = (int) item[2];
+            row[3] = createdAt;
+            row[4] = createdAt;
+        });
+    }
+
+    /**
+     * 生成订单及订单明细，订单明细中的商品按热度采样
+     * @param count 订单数量
+     * @param maxItemsPerOrder 每个订单最多的商品种类
+     */
+    public void generateOrders(int count, int maxItemsPerOrder) {
+        requireProductsAndCustomers();
+        long firstOrderId = nextId("orders");
+        SplittableRandom random = new SplittableRandom(seed + 2);
+
+        // 先确定每个订单的明细，订单金额由明细汇总
+        int[] itemOffsets = new int[count + 1];
+        List<int[]> items = new ArrayList<>();
+        long[] subtotals = new long[count];
+        for (int o = 0; o < count; o++) {
+            itemOffsets[o] = items.size();
+            int lines = 1 + random.nextInt(maxItemsPerOrder);
+            for (int i = 0; i < lines; i++) {
+                int product = popularity.sample(random);
+                int quantity = 1 + random.nextInt(3);
+                items.add(new int[]{o, product, quantity});
+                subtotals[o] += productPriceCents[product] * quantity;
+            }
+        }
+        itemOffsets[count] = items.size();
+
+        String[] statuses = {"PENDING", "CONFIRMED", "PROCESSING", "SHIPPED", "DELIVERED", "CANCELLED"};
+        String[] orderColumns = {"id", "order_number", "customer_id", "status", "subtotal", "tax_amount", "shipping_fee",
+                "total_amount", "shipping_first_name", "shipping_last_name", "shipping_address_line1", "shipping_city",
+                "shipping_postal_code", "shipping_country", "payment_method", "payment_status", "created_at", "updated_at"};
+        bulkInsert("orders", orderColumns, count, (index, row) -> {
+            long id = firstOrderId + index;
+            long subtotal = subtotals[index];
+            long tax = subtotal * 6 / 100;
+            long shipping = subtotal >= 20000 ? 0 : 1000;
+            String status = statuses[(int) (id % statuses.length)];
+            row[0] = id;
+            row[1] = String.format("GEN%012d", id);
+            row[2] = firstCustomerId + (id * 7919) % customerCount;
+            row[3] = status;
+            row[4] = BigDecimal.valueOf(subtotal, 2);
+            row[5] = BigDecimal.valueOf(tax, 2);
+            row[6] = BigDecimal.valueOf(shipping, 2);
+            row[7] = BigDecimal.valueOf(subtotal + tax + shipping, 2);
+            row[8] = "张";
+            row[9] = "三";
+            row[10] = "88 Jalan Sultan Ismail";
+            row[11] = "Kuala Lumpur";
+            row[12] = "50250";
+            row[13] = "Malaysia";
+            row[14] = "CREDIT_CARD";
+            row[15] = "CANCELLED".equals(status) || "PENDING".equals(status) ? "PENDING" : "PAID";
+            row[16] = createdAt;
+            row[17] = createdAt;
+        });
+
+        String[] itemColumns = {"order_id", "product_id", "product_name", "product_sku", "quantity", "unit_price",
+                "total_price", "created_at"};
+        bulkInsert("order_items", itemColumns, items.size(), (index, row) -> {
+            int[] item = items.get(index);
+            long productId = firstProductId + item[1];
+            long price = productPriceCents[item[1]];
+            row[0] = firstOrderId + item[0];
+            row[1] = productId;
+            row[2] = productName(new SplittableRandom(seed ^ productId), productId);
+            row[3] = String.format("GEN-%09d", productId);
+            row[4] = item[2];
+            row[5] = BigDecimal.valueOf(price, 2);
+            row[6] = BigDecimal.valueOf(price * item[2], 2);
+            row[7] = createdAt;
+        });
+    }
+
+    /**
+     * 已生成的第一个商品ID
+     */
+    public long getFirstProductId() {
+        return firstProductId;
+    }
+
+    /**
+     * 已生成的第一个用户ID
+     */
+    public long getFirstCustomerId() {
+        return firstCustomerId;
+    }
+
+    /**
+     * 用户ID对应的用户名
+     */
+    public static String username(long customerId) {
+        return String.format("gen_user%07d", customerId);
+    }
+
+    /**
+     * 商品名称：中文、英文、中英混合三种风格
+     */
+    private static String productName(SplittableRandom random, long id) {
+        int style = random.nextInt(10);
+        if (style < 4) {
+            return pick(random, BRANDS_CN) + " " + pick(random, ADJECTIVES_CN) + pick(random, NOUNS_CN) + " " + (id % 20 + 1) + "代";
+        } else if (style < 7) {
+            return pick(random, BRANDS_EN) + " " + pick(random, ADJECTIVES_EN) + " " + pick(random, NOUNS_EN) + " " + (id % 900 + 100);
+        }
+        return pick(random, BRANDS_EN) + " " + pick(random, ADJECTIVES_CN) + " " + pick(random, NOUNS_EN) + " " + pick(random, NOUNS_CN);
+    }
+
+    private static String pick(SplittableRandom random, String[] words) {
+        return words[random.nextInt(words.length)];
+    }
+
+    private static String[] concat(String[]... arrays) {
+        List<String> all = new ArrayList<>();
+        for (String[] array : arrays) {
+            all.addAll(List.of(array));
+        }
+        return all.toArray(new String[0]);
+    }
+
+    private void requireProductsAndCustomers() {
+        if (productPriceCents == null || customerCount == 0) {
+            throw new IllegalStateException("需要先生成商品和用户");
+        }
+    }
+
+    private static long nextId(String table) {
+        return DatabaseUtil.count("SELECT COALESCE(MAX(id), 0) FROM " + table) + 1;
+    }
+
+    /**
+     * 以多行INSERT批量写入：每条语句 rowsPerStatement 行，每 statementsPerBatch 条语句通过一次 executeBatch 提交
+     */
+    private void bulkInsert(String table, String[] columns, int count, RowWriter writer) {
+        int rows = Math.max(1, Math.min(rowsPerStatement, MAX_PLACEHOLDERS / columns.length));
+        String fullSql = insertSql(table, columns, rows);
+        List<Object[]> batch = new ArrayList<>(statementsPerBatch);
+        Object[] row = new Object[columns.length];
+
+        long start = System.nanoTime();
+        int written = 0;
+        int nextLog = 100_000;
+        while (written < count) {
+            int statementRows = Math.min(rows, count - written);
+            Object[] params = new Object[statementRows * columns.length];
+            for (int r = 0; r < statementRows; r++) {
+                writer.write(written + r, row);
+                System.arraycopy(row, 0, params, r * columns.length, columns.length);
+            }
+            written += statementRows;
+
+            if (statementRows < rows) {
+                // 最后不足一条完整语句的行单独提交
+                flush(fullSql, batch);
+                DatabaseUtil.executeBatch(insertSql(table, columns, statementRows), List.<Object[]>of(params));
+            } else {
+                batch.add(params);
+                if (batch.size() >= statementsPerBatch) {
+                    flush(fullSql, batch);
+                }
+            }
+
+            if (written >= nextLog) {
+                logger.info("{}: 已写入 {} / {} 行", table, written, count);
+                nextLog += 100_000;
+            }
+        }
+        flush(fullSql, batch);
+
+        double seconds = (System.nanoTime() - start) / 1e9;
+        logger.info("{}: 写入 {} 行，耗时 {} 秒，{} 行/秒", table, count, String.format("%.1f", seconds),
+                String.format("%.0f", count / Math.max(seconds, 1e-9)));
+    }
+
+    private static void flush(String sql, List<Object[]> batch) {
+        if (!batch.isEmpty()) {
+            DatabaseUtil.executeBatch(sql, batch);
+            batch.clear();
+        }
+    }
+
+    private static String insertSql(String table, String[] columns, int rows) {
+        StringBuilder placeholders = new StringBuilder("(");
+        for (int i = 0; i < columns.length; i++) {
+            placeholders.append(i == 0 ? "?" : ", ?");
+        }
+        placeholders.append(')');
+
+        StringBuilder sql = new StringBuilder("INSERT INTO ").append(table)
+                .append(" (").append(String.join(", ", columns)).append(") VALUES ");
+        for (int r = 0; r < rows; r++) {
+            if (r > 0) {
+                sql.append(", ");
+            }
+            sql.append(placeholders);
+        }
+        return sql.toString();
+    }
+
+    /**
+     * 行数据填充接口
+     */
+    @FunctionalInterface
+    private interface RowWriter {
+        void write(int index, Object[] row);
+    }
+}
@@ -0,0 +1,59 @@
+package com.cat.loadtest;
+
+import org.apache.catalina.LifecycleException;
+import org.apache.catalina.WebResourceRoot;
+import org.apache.catalina.core.StandardContext;
+import org.apache.catalina.startup.Tomcat;
+import org.apache.catalina.webresources.DirResourceSet;
+import org.apache.catalina.webresources.StandardRoot;
+import org.apache.tomcat.util.scan.StandardJarScanner;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+/**
+ * 内嵌Tomcat，直接加载 src/main/webapp 和 target/classes
+ * Web应用类加载器设为父优先，压测程序与应用共用同一份类，可以直接读取应用内的指标
+ */
+public class EmbeddedServer {
+
+    private final Tomcat tomcat = new Tomcat();
+
+    /**
+     * 启动服务器
+     * @param port 端口，0表示随机端口
+     * @return 实际监听的端口
+     */
+    public int start(int port) throws IOException, LifecycleException {
+        File baseDir = Files.createTempDirectory("eshop-loadtest").toFile();
+        baseDir.deleteOnExit();
+
+        tomcat.setBaseDir(baseDir.getAbsolutePath());
+        tomcat.setPort(port);
+        tomcat.getConnector();
+        // 不加载Tomcat默认的web.xml（其中的JSP Servlet需要Jasper）
+        tomcat.setAddDefaultWebXmlToWebapp(false);
+
+        StandardContext context = (StandardContext) tomcat.addWebapp("", new File("src/main/webapp").getAbsolutePath());
+        context.setParentClassLoader(EmbeddedServer.class.getClassLoader());
+        context.setDelegate(true);
+        ((StandardJarScanner) context.getJarScanner()).setScanClassPath(false);
+
+        WebResourceRoot resources = new StandardRoot(context);
+        resources.addPreResources(new DirResourceSet(resources, "/WEB-INF/classes",
+                new File("target/classes").getAbsolutePath(), "/"));
+        context.setResources(resources);
+
+        tomcat.start();
+        return tomcat.getConnector().getLocalPort();
+    }
+
+    /**
+     * 停止服务器
+     */
+    public void stop() throws LifecycleException {
+        tomcat.stop();
+        tomcat.destroy();
+    }
+}
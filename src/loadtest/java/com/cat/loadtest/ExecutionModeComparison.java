@@ -0,0 +1,113 @@
+package com.cat.loadtest;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * 平台线程与虚拟线程执行模式的吞吐对比
+ * 执行模式在 ExecutionConfig 加载时确定，无法在同一个JVM内切换，因此对每个并发数分别以
+ * -Deshop.execution.virtual-threads=false/true 启动子JVM运行 LoadTest，最后汇总两种模式的吞吐和延迟。
+ * 虚拟线程需要JDK 21+，可用 loadtest.compare-java 指定子JVM的java命令；子JVM不支持时结果中的模式显示为 platform。
+ *
+ * 运行：mvn -P loadtest test-compile exec:java -Dloadtest.main=com.cat.loadtest.ExecutionModeComparison
+ *       [-Dloadtest.compare-concurrency=1000,5000 -Dloadtest.compare-java=/path/to/jdk21/bin/java -Dloadtest.duration=30 ...]
+ * 其余 loadtest.* / eshop.* 系统属性原样传给子JVM（loadtest.concurrency 除外）
+ *
+ * 记录（1核CPU / 5GB内存，JDK 21.0.1，products=20000，warmup=15s，duration=60s，无思考时间，客户端超时30秒；
+ * 错误主要是客户端超时和等待数据库连接超时）：
+ * <pre>
+ * 场景                             并发   模式       吞吐/s    错误   p50(ms)   p99(ms)
+ * 默认 (browse/search/cart/login)  1000  platform      9.9     592    23622     47428
+ *                                  1000  virtual      16.7    1000    30065     30065
+ *                                  5000  platform     10.5     628    22549     51223
+ *                                  5000  virtual     167.6   10054     6174     31139   （几乎全部为失败请求）
+ * 只读 (browse=75,search=25)       1000  platform    155.6       0     4832     13422
+ *                                  1000  virtual     187.4       0     5100     10737
+ *                                  5000  platform    128.5     702    10737     21475
+ *                                  5000  virtual      85.3    5117    30065     31076
+ * </pre>
+ * 两种并发下服务端都已CPU饱和，执行模式不会增加处理能力：只读场景1000并发时虚拟线程吞吐高约20%、p99更低；
+ * 5000并发或包含登录（BCrypt）时虚拟线程更差——虚拟线程不分时间片，BCrypt计算占住载体线程，
+ * 其余请求无上限地排队直到客户端超时，而平台线程模式有Tomcat线程池和连接队列限流。因此默认仍关闭 execution.virtual-threads。
+ */
+public class ExecutionModeComparison {
+
+    public static void main(String[] args) throws Exception {
+        String java = System.getProperty("loadtest.compare-java",
+                System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+        String classpath = classpath();
+
+        List<Properties> results = new ArrayList<>();
+        for (String value : System.getProperty("loadtest.compare-concurrency", "1000,5000").split(",")) {
+            int concurrency = Integer.parseInt(value.trim());
+            for (boolean virtualThreads : new boolean[]{false, true}) {
+                File resultFile = File.createTempFile("eshop-loadtest", ".properties");
+                resultFile.deleteOnExit();
+
+                List<String> command = new ArrayList<>();
+                command.add(java);
+                for (String name : System.getProperties().stringPropertyNames()) {
+                    if ((name.startsWith("loadtest.") || name.startsWith("eshop."))
+                            && !name.equals("loadtest.concurrency") && !name.equals("loadtest.main")
+                            && !name.equals("eshop.execution.virtual-threads")) {
+                        command.add("-D" + name + "=" + System.getProperty(name));
+                    }
+                }
+                command.add("-Dloadtest.concurrency=" + concurrency);
+                command.add("-Deshop.execution.virtual-threads=" + virtualThreads);
+                command.add("-Dloadtest.result-file=" + resultFile.getAbsolutePath());
+                command.add("-cp");
+                command.add(classpath);
+                command.add(LoadTest.class.getName());
+
+                System.out.printf("%n==== 并发 %d，execution.virtual-threads=%s ====%n", concurrency, virtualThreads);
+                int exitCode = new ProcessBuilder(command).inheritIO().start().waitFor();
+                if (exitCode != 0 || resultFile.length() == 0) {
+                    throw new IllegalStateException("压测子进程失败，退出码: " + exitCode);
+                }
+                Properties result = new Properties();
+                try (InputStream in = new FileInputStream(resultFile)) {
+                    result.load(in);
+                }
+                results.add(result);
+                Files.deleteIfExists(resultFile.toPath());
+            }
+        }
+
+        System.out.println();
+        System.out.println("== 执行模式对比 ==");
+        System.out.printf("%8s %10s %12s %8s %10s %10s %10s%n", "并发", "模式", "吞吐/s", "错误", "p50(ms)", "p99(ms)", "max(ms)");
+        for (Properties result : results) {
+            System.out.printf("%8s %10s %12.1f %8s %10.2f %10.2f %10.2f%n",
+                    result.getProperty("concurrency"), result.getProperty("mode"),
+                    Double.parseDouble(result.getProperty("throughput")), result.getProperty("errors"),
+                    Double.parseDouble(result.getProperty("p50")), Double.parseDouble(result.getProperty("p99")),
+                    Double.parseDouble(result.getProperty("max")));
+        }
+    }
+
+    /**
+     * 子JVM的类路径：exec:java 在Maven进程内运行，java.class.path 不含项目的类，改用当前类加载器的URL
+     */
+    private static String classpath() throws Exception {
+        ClassLoader loader = ExecutionModeComparison.class.getClassLoader();
+        if (!(loader instanceof URLClassLoader)) {
+            return System.getProperty("java.class.path");
+        }
+        StringBuilder classpath = new StringBuilder();
+        for (URL url : ((URLClassLoader) loader).getURLs()) {
+            if (classpath.length() > 0) {
+                classpath.append(File.pathSeparatorChar);
+            }
+            classpath.append(new File(url.toURI()).getAbsolutePath());
+        }
+        return classpath.toString();
+    }
+}
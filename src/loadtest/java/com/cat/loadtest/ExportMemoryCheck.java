@@ -0,0 +1,135 @@
+package com.cat.loadtest;
+
+import com.cat.service.ProductService;
+import com.cat.util.DatabaseUtil;
+
+import java.io.File;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 全量导出内存检查
+ * 生成指定数量的商品后通过 ProductService.exportProducts 流式导出到一个只计数的Writer，
+ * 每导出 export.sample-every 行执行一次GC并记录已用堆内存。堆增长超过 export.max-growth-mb 时以非0状态退出。
+ * 使用文件模式的H2并开启 LAZY_QUERY_EXECUTION，数据本身不占用堆，H2也不会预先物化结果集。
+ *
+ * 运行：mvn -P loadtest test-compile exec:java -Dloadtest.main=com.cat.loadtest.ExportMemoryCheck
+ * 参数：export.products（默认1000000）/ export.format（ndjson|csv）/ export.sample-every / export.max-growth-mb
+ */
+public class ExportMemoryCheck {
+
+    private static final String DATABASE_PATH = "target/export-check/eshop";
+
+    public static void main(String[] args) throws Exception {
+        int products = Integer.getInteger("export.products", 1_000_000);
+        String format = System.getProperty("export.format", ProductService.FORMAT_NDJSON);
+        long sampleEvery = Long.getLong("export.sample-every", 100_000L);
+        long maxGrowthMb = Long.getLong("export.max-growth-mb", 32L);
+
+        for (String suffix : new String[]{".mv.db", ".trace.db"}) {
+            new File(DATABASE_PATH + suffix).delete();
+        }
+        System.setProperty("eshop.db.url", "jdbc:h2:file:./" + DATABASE_PATH
+                + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;CASE_INSENSITIVE_IDENTIFIERS=TRUE;LAZY_QUERY_EXECUTION=TRUE");
+        System.setProperty("eshop.db.driver", "org.h2.Driver");
+        System.setProperty("eshop.db.username", "sa");
+        System.setProperty("eshop.db.password", "");
+
+        long seedStart = System.nanoTime();
+        Connection connection = null;
+        try {
+            connection = DatabaseUtil.getConnection();
+            SchemaLoader.load(connection);
+        } finally {
+            // 通过 closeConnection 归还，虚拟线程模式下同时释放数据库访问许可
+            DatabaseUtil.closeConnection(connection);
+        }
+        new DataGenerator(42L, 1.07, 500, 10).generateProducts(products);
+        System.out.printf("生成商品 %d 个，耗时 %.1f 秒%n", products, (System.nanoTime() - seedStart) / 1e9);
+
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        List<long[]> samples = new ArrayList<>();
+        long baseline = usedHeapAfterGc(memory);
+        samples.add(new long[]{0, baseline});
+
+        Writer counter = new Writer() {
+            private long bytes;
+            private long lines;
+
+            @Override
+            public void write(char[] buffer, int offset, int length) {
+                bytes += length;
+            }
+
+            @Override
+            public void write(int c) {
+                bytes++;
+                if (c == '\n') {
+                    lineCompleted();
+                }
+            }
+
+            @Override
+            public void write(String text) {
+                bytes += text.length();
+                if (text.endsWith("\n")) {
+                    lineCompleted();
+                }
+            }
+
+            private void lineCompleted() {
+                if (++lines % sampleEvery == 0) {
+                    samples.add(new long[]{lines, usedHeapAfterGc(memory)});
+                }
+            }
+
+            @Override
+            public void flush() {
+                // 无需处理
+            }
+
+            @Override
+            public void close() {
+                // 无需处理
+            }
+
+            @Override
+            public String toString() {
+                return lines + " 行, " + bytes + " 字符";
+            }
+        };
+
+        long exportStart = System.nanoTime();
+        long exported = new ProductService().exportProducts(counter, format, true);
+        double seconds = (System.nanoTime() - exportStart) / 1e9;
+
+        System.out.println();
+        System.out.printf("导出 %d 个商品（%s），输出 %s，耗时 %.1f 秒（%.0f 行/秒）%n",
+                exported, format, counter, seconds, exported / seconds);
+        System.out.printf("%12s %14s %14s%n", "已导出行数", "已用堆(MB)", "较基线(MB)");
+        long maxUsed = baseline;
+        for (long[] sample : samples) {
+            maxUsed = Math.max(maxUsed, sample[1]);
+            System.out.printf("%12d %14.1f %+14.1f%n", sample[0], sample[1] / 1048576.0,
+                    (sample[1] - baseline) / 1048576.0);
+        }
+
+        long growthMb = (maxUsed - baseline) / 1048576;
+        if (exported < products || growthMb > maxGrowthMb) {
+            System.out.printf("检查失败：导出行数 %d / %d，堆增长 %d MB（上限 %d MB）%n",
+                    exported, products, growthMb, maxGrowthMb);
+            System.exit(1);
+        }
+        System.out.printf("检查通过：堆增长 %d MB（上限 %d MB）%n", growthMb, maxGrowthMb);
+        System.exit(0);
+    }
+
+    private static long usedHeapAfterGc(MemoryMXBean memory) {
+        System.gc();
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+}
@@ -0,0 +1,248 @@
+package com.cat.loadtest;
+
+import com.cat.metrics.Histogram;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 压测客户端
+ * 每个并发槽位模拟一个用户（闭环，无思考时间或固定思考时间），按权重选择场景：
+ * browse 浏览列表和商品详情，search 关键字搜索，cart 登录后加购和查看购物车，login 重新登录。
+ * 商品按幂律分布选取，少量热门商品占大部分访问
+ */
+public class LoadDriver {
+
+    private final String baseUrl;
+    private final LoadTestConfig config;
+    private final HttpClient client;
+    private final Map<String, OperationStats> operations = new ConcurrentSkipListMap<>();
+    private final OperationStats total = new OperationStats();
+    private final String[] scenarioTable;
+    private final long maxProductId;
+    private final long firstCustomerId;
+
+    private volatile long measureStartNanos;
+    private volatile long measureEndNanos;
+
+    /**
+     * @param baseUrl 应用地址
+     * @param config 压测参数
+     * @param maxProductId 最大商品ID（商品ID从1开始连续）
+     * @param firstCustomerId 生成的第一个用户ID
+     */
+    public LoadDriver(String baseUrl, LoadTestConfig config, long maxProductId, long firstCustomerId) {
+        this.baseUrl = baseUrl;
+        this.config = config;
+        this.maxProductId = maxProductId;
+        this.firstCustomerId = firstCustomerId;
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        this.scenarioTable = buildScenarioTable(config.getMix());
+    }
+
+    /**
+     * 执行压测（预热 + 正式测量）
+     */
+    public void run() throws InterruptedException {
+        long now = System.nanoTime();
+        measureStartNanos = now + TimeUnit.SECONDS.toNanos(config.getWarmupSeconds());
+        measureEndNanos = measureStartNanos + TimeUnit.SECONDS.toNanos(config.getDurationSeconds());
+
+        ExecutorService workers = Executors.newFixedThreadPool(config.getConcurrency());
+        for (int i = 0; i < config.getConcurrency(); i++) {
+            long seed = config.getSeed() + i;
+            workers.execute(() -> new VirtualUser(seed).loop());
+        }
+        workers.shutdown();
+        workers.awaitTermination(config.getWarmupSeconds() + config.getDurationSeconds() + 60L, TimeUnit.SECONDS);
+    }
+
+    /**
+     * 各操作的统计结果，按名称排序
+     */
+    public Map<String, OperationStats> getOperations() {
+        return operations;
+    }
+
+    /**
+     * 所有操作合计的统计结果
+     */
+    public OperationStats getTotal() {
+        return total;
+    }
+
+    private static String[] buildScenarioTable(Map<String, Integer> mix) {
+        int total = mix.values().stream().mapToInt(Integer::intValue).sum();
+        String[] table = new String[total];
+        int index = 0;
+        for (Map.Entry<String, Integer> entry : mix.entrySet()) {
+            for (int i = 0; i < entry.getValue(); i++) {
+                table[index++] = entry.getKey();
+            }
+        }
+        return table;
+    }
+
+    /**
+     * 模拟用户
+     */
+    private class VirtualUser {
+        private final SplittableRandom random;
+        private String sessionCookie;
+        private int cartAdds;
+
+        VirtualUser(long seed) {
+            this.random = new SplittableRandom(seed);
+        }
+
+        void loop() {
+            while (System.nanoTime() < measureEndNanos) {
+                try {
+                    switch (scenarioTable[random.nextInt(scenarioTable.length)]) {
+                        case "browse":
+                            browse();
+                            break;
+                        case "search":
+                            search();
+                            break;
+                        case "cart":
+                            cart();
+                            break;
+                        case "login":
+                            sessionCookie = null;
+                            login("login");
+                            break;
+                        default:
+                            break;
+                    }
+                    if (config.getThinkTimeMillis() > 0) {
+                        Thread.sleep(config.getThinkTimeMillis());
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+
+        private void browse() throws InterruptedException {
+            int page = 1 + random.nextInt(50);
+            send("browse:list", get("/api/products?page=" + page + "&pageSize=20"));
+            for (int i = 0; i < 3; i++) {
+                send("browse:detail", get("/api/products/" + popularProductId()));
+            }
+            if (random.nextInt(10) == 0) {
+                send("browse:categories", get("/api/products/categories"));
+            }
+        }
+
+        private void search() throws InterruptedException {
+            String keyword = DataGenerator.SEARCH_TERMS[random.nextInt(DataGenerator.SEARCH_TERMS.length)];
+            send("search", get("/api/products/search?keyword=" + URLEncoder.encode(keyword, StandardCharsets.UTF_8)
+                    + "&page=1&pageSize=20"));
+        }
+
+        private void cart() throws InterruptedException {
+            if (sessionCookie == null && !login("cart:login")) {
+                return;
+            }
+            String body = "{\"productId\":" + popularProductId() + ",\"quantity\":1}";
+            send("cart:add", post("/api/cart", body));
+            send("cart:view", get("/api/cart"));
+            if (++cartAdds % 20 == 0) {
+                send("cart:clear", post("/api/cart/clear", ""));
+            }
+        }
+
+        private boolean login(String operation) throws InterruptedException {
+            String username = DataGenerator.username(firstCustomerId + random.nextInt(config.getCustomers()));
+            String body = "{\"username\":\"" + username + "\",\"password\":\"" + DataGenerator.CUSTOMER_PASSWORD + "\"}";
+            HttpResponse<String> response = send(operation, post("/api/customers/login", body));
+            if (response == null || response.statusCode() != 200) {
+                return false;
+            }
+            Optional<String> cookie = response.headers().allValues("Set-Cookie").stream()
+                    .filter(value -> value.startsWith("JSESSIONID="))
+                    .findFirst();
+            cookie.ifPresent(value -> sessionCookie = value.substring(0, value.indexOf(';') > 0 ? value.indexOf(';') : value.length()));
+            return cookie.isPresent();
+        }
+
+        /**
+         * 幂律分布的商品ID：约20%的热门商品获得大部分访问
+         */
+        private long popularProductId() {
+            double u = random.nextDouble();
+            return 1 + (long) (maxProductId * u * u * u);
+        }
+
+        private HttpRequest.Builder get(String path) {
+            return request(path).GET();
+        }
+
+        private HttpRequest.Builder post(String path, String body) {
+            return request(path)
+                    .header("Content-Type", "application/json;charset=UTF-8")
+                    .POST(HttpRequest.BodyPublishers.ofString(body, StandardCharsets.UTF_8));
+        }
+
+        private HttpRequest.Builder request(String path) {
+            HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                    .timeout(Duration.ofSeconds(30));
+            if (sessionCookie != null) {
+                builder.header("Cookie", sessionCookie);
+            }
+            return builder;
+        }
+
+        private HttpResponse<String> send(String operation, HttpRequest.Builder builder) throws InterruptedException {
+            long start = System.nanoTime();
+            HttpResponse<String> response = null;
+            try {
+                response = client.send(builder.build(), HttpResponse.BodyHandlers.ofString());
+            } catch (IOException e) {
+                // 连接错误计为失败
+            }
+            long end = System.nanoTime();
+
+            if (start >= measureStartNanos && end <= measureEndNanos) {
+                OperationStats stats = operations.computeIfAbsent(operation, k -> new OperationStats());
+                stats.latency.record(end - start);
+                total.latency.record(end - start);
+                if (response == null || response.statusCode() >= 400) {
+                    stats.errors.increment();
+                    total.errors.increment();
+                }
+            }
+            return response;
+        }
+    }
+
+    /**
+     * 单个操作的统计
+     */
+    public static class OperationStats {
+        private final Histogram latency = new Histogram();
+        private final LongAdder errors = new LongAdder();
+
+        public Histogram getLatency() { return latency; }
+        public long getErrors() { return errors.sum(); }
+    }
+}
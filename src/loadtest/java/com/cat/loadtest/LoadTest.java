@@ -0,0 +1,136 @@
+package com.cat.loadtest;
+
+import com.cat.config.ExecutionConfig;
+import com.cat.metrics.EndpointSnapshot;
+import com.cat.metrics.Histogram;
+import com.cat.metrics.RequestMetrics;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * 离线压测入口
+ * 使用内嵌Tomcat + H2（MySQL兼容模式）运行完整应用，按 database.sql 建表并用 DataGenerator 生成商品和用户，
+ * 然后以指定并发执行浏览/搜索/购物车/登录混合场景，输出吞吐和延迟分位数。
+ *
+ * 运行：mvn -P loadtest test-compile exec:java [-Dloadtest.concurrency=64 -Dloadtest.duration=120 ...]
+ * 参数见 LoadTestConfig；执行模式由 -Deshop.execution.virtual-threads 决定，两种模式的对比见 ExecutionModeComparison
+ */
+public class LoadTest {
+
+    private static final String JDBC_URL =
+            "jdbc:h2:mem:eshop_loadtest;MODE=MySQL;DATABASE_TO_LOWER=TRUE;CASE_INSENSITIVE_IDENTIFIERS=TRUE;DB_CLOSE_DELAY=-1";
+
+    public static void main(String[] args) throws Exception {
+        LoadTestConfig config = new LoadTestConfig();
+        System.out.println("压测参数: " + config);
+
+        // 应用通过 eshop.* 系统属性改用H2，必须在应用首次访问DatabaseConfig之前设置
+        System.setProperty("eshop.db.url", JDBC_URL);
+        System.setProperty("eshop.db.driver", "org.h2.Driver");
+        System.setProperty("eshop.db.username", "sa");
+        System.setProperty("eshop.db.password", "");
+        // 压测客户端都来自本机同一IP，默认关闭限流，需要时用 -Deshop.ratelimit.enabled=true 打开
+        if (System.getProperty("eshop.ratelimit.enabled") == null) {
+            System.setProperty("eshop.ratelimit.enabled", "false");
+        }
+
+        long seedStart = System.nanoTime();
+        try (Connection connection = DriverManager.getConnection(JDBC_URL, "sa", "")) {
+            int statements = SchemaLoader.load(connection);
+
+            DataGenerator generator = new DataGenerator(config.getSeed(), 1.07, 500, 10);
+            generator.generateCategories(config.getCategoryDepth(), config.getCategoryFanout());
+            generator.generateProducts(config.getProducts());
+            generator.generateCustomers(config.getCustomers());
+            long maxProductId = generator.getFirstProductId() + config.getProducts() - 1;
+            System.out.printf("建表语句 %d 条，生成 %d 级分类（每级 %d 个子分类）、商品 %d 个、用户 %d 个，耗时 %.1f 秒%n",
+                    statements, config.getCategoryDepth(), config.getCategoryFanout(), config.getProducts(),
+                    config.getCustomers(), (System.nanoTime() - seedStart) / 1e9);
+
+            EmbeddedServer server = new EmbeddedServer();
+            int port = server.start(config.getPort());
+            String baseUrl = "http://localhost:" + port;
+            System.out.println("应用已启动: " + baseUrl + "，执行模式: " + executionMode());
+
+            try {
+                LoadDriver driver = new LoadDriver(baseUrl, config, maxProductId, generator.getFirstCustomerId());
+                driver.run();
+                printClientReport(driver.getOperations(), config.getDurationSeconds());
+                printServerReport(RequestMetrics.snapshot());
+                if (config.getResultFile() != null) {
+                    writeResult(config, driver.getTotal());
+                }
+            } finally {
+                server.stop();
+            }
+        }
+    }
+
+    private static String executionMode() {
+        return ExecutionConfig.isVirtualThreadsEnabled() ? "virtual" : "platform";
+    }
+
+    /**
+     * 把合计结果写入 loadtest.result-file（Properties格式），供 ExecutionModeComparison 汇总
+     */
+    private static void writeResult(LoadTestConfig config, LoadDriver.OperationStats total) throws IOException {
+        Histogram latency = total.getLatency();
+        Properties result = new Properties();
+        result.setProperty("mode", executionMode());
+        result.setProperty("concurrency", String.valueOf(config.getConcurrency()));
+        result.setProperty("requests", String.valueOf(latency.getCount()));
+        result.setProperty("errors", String.valueOf(total.getErrors()));
+        result.setProperty("throughput", String.valueOf((double) latency.getCount() / config.getDurationSeconds()));
+        result.setProperty("p50", String.valueOf(latency.getValueAtPercentile(50) / 1e6));
+        result.setProperty("p99", String.valueOf(latency.getValueAtPercentile(99) / 1e6));
+        result.setProperty("max", String.valueOf(latency.getMaxNanos() / 1e6));
+        try (OutputStream out = new FileOutputStream(config.getResultFile())) {
+            result.store(out, null);
+        }
+    }
+
+    private static void printClientReport(Map<String, LoadDriver.OperationStats> operations, int durationSeconds) {
+        System.out.println();
+        System.out.println("== 客户端统计（正式测量 " + durationSeconds + " 秒） ==");
+        System.out.printf("%-20s %10s %8s %10s %10s %10s %10s %10s%n",
+                "操作", "请求数", "错误", "吞吐/s", "p50(ms)", "p95(ms)", "p99(ms)", "max(ms)");
+
+        long totalRequests = 0;
+        long totalErrors = 0;
+        for (Map.Entry<String, LoadDriver.OperationStats> entry : operations.entrySet()) {
+            Histogram latency = entry.getValue().getLatency();
+            long count = latency.getCount();
+            totalRequests += count;
+            totalErrors += entry.getValue().getErrors();
+            printRow(entry.getKey(), count, entry.getValue().getErrors(), durationSeconds, latency);
+        }
+        System.out.printf("%-20s %10d %8d %10.1f%n", "合计", totalRequests, totalErrors,
+                (double) totalRequests / durationSeconds);
+    }
+
+    private static void printRow(String name, long count, long errors, int durationSeconds, Histogram latency) {
+        System.out.printf("%-20s %10d %8d %10.1f %10.2f %10.2f %10.2f %10.2f%n",
+                name, count, errors, (double) count / durationSeconds,
+                latency.getValueAtPercentile(50) / 1e6, latency.getValueAtPercentile(95) / 1e6,
+                latency.getValueAtPercentile(99) / 1e6, latency.getMaxNanos() / 1e6);
+    }
+
+    private static void printServerReport(List<EndpointSnapshot> endpoints) {
+        System.out.println();
+        System.out.println("== 服务端统计（含预热） ==");
+        System.out.printf("%-45s %10s %8s %10s %10s %10s %12s%n",
+                "端点", "请求数", "5xx", "p50(ms)", "p95(ms)", "p99(ms)", "安全p99(ms)");
+        for (EndpointSnapshot endpoint : endpoints) {
+            System.out.printf("%-45s %10d %8d %10.2f %10.2f %10.2f %12.3f%n",
+                    endpoint.getMethod() + " " + endpoint.getRoute(), endpoint.getRequests(), endpoint.getServerErrors(),
+                    endpoint.getP50Ms(), endpoint.getP95Ms(), endpoint.getP99Ms(), endpoint.getSecurityP99Ms());
+        }
+    }
+}
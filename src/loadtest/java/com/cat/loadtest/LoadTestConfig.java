@@ -0,0 +1,65 @@
+package com.cat.loadtest;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 压测参数，均通过系统属性传入（-Dloadtest.xxx=...）
+ */
+public class LoadTestConfig {
+    private final int categoryDepth = Integer.getInteger("loadtest.category-depth", 3);
+    private final int categoryFanout = Integer.getInteger("loadtest.category-fanout", 8);
+    private final int products = Integer.getInteger("loadtest.products", 100_000);
+    private final int customers = Integer.getInteger("loadtest.customers", 10_000);
+    private final int concurrency = Integer.getInteger("loadtest.concurrency", 32);
+    private final int warmupSeconds = Integer.getInteger("loadtest.warmup", 10);
+    private final int durationSeconds = Integer.getInteger("loadtest.duration", 60);
+    private final int thinkTimeMillis = Integer.getInteger("loadtest.think-time-ms", 0);
+    private final int port = Integer.getInteger("loadtest.port", 0);
+    private final long seed = Long.getLong("loadtest.seed", 20240101L);
+    private final String resultFile = System.getProperty("loadtest.result-file");
+    private final Map<String, Integer> mix = parseMix(System.getProperty("loadtest.mix", "browse=60,search=20,cart=15,login=5"));
+
+    private static Map<String, Integer> parseMix(String value) {
+        Map<String, Integer> mix = new LinkedHashMap<>();
+        for (String part : value.split(",")) {
+            String[] pair = part.trim().split("=");
+            if (pair.length != 2) {
+                throw new IllegalArgumentException("loadtest.mix 格式应为 场景=权重,场景=权重: " + value);
+            }
+            String scenario = pair[0].trim();
+            if (!scenario.matches("browse|search|cart|login")) {
+                throw new IllegalArgumentException("未知的压测场景: " + scenario);
+            }
+            int weight = Integer.parseInt(pair[1].trim());
+            if (weight > 0) {
+                mix.put(scenario, weight);
+            }
+        }
+        if (mix.isEmpty()) {
+            throw new IllegalArgumentException("loadtest.mix 至少需要一个权重大于0的场景");
+        }
+        return mix;
+    }
+
+    public int getCategoryDepth() { return categoryDepth; }
+    public int getCategoryFanout() { return categoryFanout; }
+    public int getProducts() { return products; }
+    public int getCustomers() { return customers; }
+    public int getConcurrency() { return concurrency; }
+    public int getWarmupSeconds() { return warmupSeconds; }
+    public int getDurationSeconds() { return durationSeconds; }
+    public int getThinkTimeMillis() { return thinkTimeMillis; }
+    public int getPort() { return port; }
+    public long getSeed() { return seed; }
+    public String getResultFile() { return resultFile; }
+    public Map<String, Integer> getMix() { return mix; }
+
+    @Override
+    public String toString() {
+        return "categories=" + categoryDepth + "x" + categoryFanout + ", products=" + products
+                + ", customers=" + customers + ", concurrency=" + concurrency
+                + ", warmup=" + warmupSeconds + "s, duration=" + durationSeconds + "s, thinkTime=" + thinkTimeMillis
+                + "ms, mix=" + mix;
+    }
+}
@@ -0,0 +1,91 @@
+package com.cat.loadtest;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 把 database.sql 导入H2（MySQL兼容模式）
+ * 跳过建库/USE语句、存储过程和触发器（DELIMITER块）以及结尾的SELECT；
+ * JSON列改为TEXT，表内索引名加上表名前缀（H2的索引名在整个schema内唯一）
+ */
+public class SchemaLoader {
+
+    private static final Pattern CREATE_TABLE = Pattern.compile("^CREATE TABLE (\\w+)", Pattern.CASE_INSENSITIVE);
+    private static final Pattern INLINE_INDEX = Pattern.compile("\\bINDEX (\\w+) \\(");
+    private static final Pattern JSON_COLUMN = Pattern.compile("\\bJSON\\b");
+
+    /**
+     * 执行建表脚本
+     * @param connection 数据库连接
+     * @return 执行的语句数
+     */
+    public static int load(Connection connection) throws IOException, SQLException {
+        int executed = 0;
+        try (Statement statement = connection.createStatement()) {
+            for (String sql : readStatements()) {
+                statement.execute(adapt(sql));
+                executed++;
+            }
+        }
+        return executed;
+    }
+
+    private static List<String> readStatements() throws IOException {
+        List<String> statements = new ArrayList<>();
+        try (InputStream is = SchemaLoader.class.getClassLoader().getResourceAsStream("database.sql")) {
+            if (is == null) {
+                throw new IOException("未找到 database.sql");
+            }
+            BufferedReader reader = new BufferedReader(new InputStreamReader(is, StandardCharsets.UTF_8));
+            StringBuilder current = new StringBuilder();
+            boolean inDelimiterBlock = false;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String trimmed = line.trim();
+                if (trimmed.startsWith("DELIMITER")) {
+                    inDelimiterBlock = !trimmed.equals("DELIMITER ;");
+                    continue;
+                }
+                int comment = line.indexOf("--");
+                String code = (comment >= 0 ? line.substring(0, comment) : line).trim();
+                if (inDelimiterBlock || code.isEmpty()) {
+                    continue;
+                }
+
+                current.append(code).append('\n');
+                if (code.endsWith(";")) {
+                    String sql = current.substring(0, current.length() - 2);
+                    current.setLength(0);
+                    if (!skip(sql)) {
+                        statements.add(sql);
+                    }
+                }
+            }
+        }
+        return statements;
+    }
+
+    private static boolean skip(String sql) {
+        String upper = sql.toUpperCase();
+        return upper.startsWith("CREATE DATABASE") || upper.startsWith("USE ") || upper.startsWith("SELECT ");
+    }
+
+    private static String adapt(String sql) {
+        Matcher table = CREATE_TABLE.matcher(sql);
+        if (!table.find()) {
+            return sql;
+        }
+        String adapted = JSON_COLUMN.matcher(sql).replaceAll("TEXT");
+        return INLINE_INDEX.matcher(adapted).replaceAll("INDEX " + table.group(1) + "_$1 (");
+    }
+}
@@ -0,0 +1,71 @@
+package com.cat.loadtest;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Zipf分布采样器
+ * 排名为k的元素被选中的概率与 1/k^s 成正比；通过累积分布表和二分查找采样。
+ * 排名再经一次随机置换映射到下标，热门商品不会集中在ID最小的一段
+ */
+public class ZipfSampler {
+    private final double[] cumulative;
+    private final int[] rankToIndex;
+    private final int[] indexToRank;
+
+    /**
+     * @param size 元素个数
+     * @param exponent 偏斜指数，越大越集中（1.0左右接近真实商品热度）
+     * @param seed 随机种子（用于排名置换）
+     */
+    public ZipfSampler(int size, double exponent, long seed) {
+        cumulative = new double[size];
+        double sum = 0;
+        for (int rank = 0; rank < size; rank++) {
+            sum += 1.0 / Math.pow(rank + 1, exponent);
+            cumulative[rank] = sum;
+        }
+        for (int rank = 0; rank < size; rank++) {
+            cumulative[rank] /= sum;
+        }
+
+        rankToIndex = new int[size];
+        for (int i = 0; i < size; i++) {
+            rankToIndex[i] = i;
+        }
+        SplittableRandom random = new SplittableRandom(seed);
+        for (int i = size - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int tmp = rankToIndex[i];
+            rankToIndex[i] = rankToIndex[j];
+            rankToIndex[j] = tmp;
+        }
+
+        indexToRank = new int[size];
+        for (int rank = 0; rank < size; rank++) {
+            indexToRank[rankToIndex[rank]] = rank;
+        }
+    }
+
+    /**
+     * 采样一个下标（0 ~ size-1）
+     */
+    public int sample(SplittableRandom random) {
+        int rank = Arrays.binarySearch(cumulative, random.nextDouble());
+        if (rank < 0) {
+            rank = -rank - 1;
+        }
+        return rankToIndex[Math.min(rank, rankToIndex.length - 1)];
+    }
+
+    /**
+     * 下标对应的热度排名（0为最热门）
+     */
+    public int rankOf(int index) {
+        return indexToRank[index];
+    }
+
+    public int size() {
+        return rankToIndex.length;
+    }
+}
@@ -1,5 +1,6 @@
 package com.cat.config;
 
+import com.cat.metrics.PoolMetricsTrackerFactory;
 import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
 import org.slf4j.Logger;
@@ -9,19 +10,23 @@ import javax.sql.DataSource;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.Properties;
+import java.util.concurrent.locks.ReentrantLock;
 
 public class DatabaseConfig {
     private static final Logger logger = LoggerFactory.getLogger(DatabaseConfig.class);
-    private static HikariDataSource dataSource;
+    private static final String SYSTEM_PROPERTY_PREFIX = "eshop.";
+    // 使用ReentrantLock而非synchronized，避免虚拟线程在初始化连接池时被固定(pinning)在载体线程上
+    private static final ReentrantLock initLock = new ReentrantLock();
+    private static volatile HikariDataSource dataSource;
+    private static volatile Properties properties;
     
-    static {
-        initializeDataSource();
-    }
+    // 连接池在第一次getDataSource()时创建（应用启动时由ContextListener触发），
+    // 只读取配置项的代码（如基准测试中的工具类）不会连接数据库
     
     private static void initializeDataSource() {
         try {
             // 加载数据库配置
-            Properties props = loadDatabaseProperties();
+            Properties props = getProperties();
             
             // 配置HikariCP连接池
             HikariConfig config = new HikariConfig();
@@ -41,21 +46,17 @@ public class DatabaseConfig {
             config.setConnectionTestQuery("SELECT 1");
             config.setValidationTimeout(5000);
             
-            // 性能优化配置
-            config.addDataSourceProperty("cachePrepStmts", "true");
-            config.addDataSourceProperty("prepStmtCacheSize", "250");
-            config.addDataSourceProperty("prepStmtCacheSqlLimit", "2048");
-            config.addDataSourceProperty("useServerPrepStmts", "true");
-            config.addDataSourceProperty("useLocalSessionState", "true");
-            config.addDataSourceProperty("rewriteBatchedStatements", "true");
-            config.addDataSourceProperty("cacheResultSetMetadata", "true");
-            config.addDataSourceProperty("cacheServerConfiguration", "true");
-            config.addDataSourceProperty("elideSetAutoCommits", "true");
-            config.addDataSourceProperty("maintainTimeStats", "false");
+            // 性能优化配置（MySQL驱动专用参数，其他驱动如H2会拒绝未知参数）
+            if (config.getJdbcUrl().startsWith("jdbc:mysql:")) {
+                addMySqlDataSourceProperties(config);
+            }
             
             // 设置连接池名称，便于监控
             config.setPoolName("EshopHikariPool");
             
+            // 采集连接池指标（活跃/空闲/等待连接数、获取连接耗时）
+            config.setMetricsTrackerFactory(new PoolMetricsTrackerFactory());
+            
             dataSource = new HikariDataSource(config);
             
             logger.info("数据库连接池初始化成功，连接池名称: {}", config.getPoolName());
@@ -66,6 +67,19 @@ public class DatabaseConfig {
         }
     }
     
+    private static void addMySqlDataSourceProperties(HikariConfig config) {
+        config.addDataSourceProperty("cachePrepStmts", "true");
+        config.addDataSourceProperty("prepStmtCacheSize", "250");
+        config.addDataSourceProperty("prepStmtCacheSqlLimit", "2048");
+        config.addDataSourceProperty("useServerPrepStmts", "true");
+        config.addDataSourceProperty("useLocalSessionState", "true");
+        config.addDataSourceProperty("rewriteBatchedStatements", "true");
+        config.addDataSourceProperty("cacheResultSetMetadata", "true");
+        config.addDataSourceProperty("cacheServerConfiguration", "true");
+        config.addDataSourceProperty("elideSetAutoCommits", "true");
+        config.addDataSourceProperty("maintainTimeStats", "false");
+    }
+    
     private static Properties loadDatabaseProperties() {
         Properties props = new Properties();
         
@@ -83,6 +97,13 @@ public class DatabaseConfig {
             setDefaultProperties(props);
         }
         
+        // 系统属性 eshop.<配置键> 覆盖配置文件，便于压测等场景切换数据库而不修改配置文件
+        for (String name : System.getProperties().stringPropertyNames()) {
+            if (name.startsWith(SYSTEM_PROPERTY_PREFIX)) {
+                props.setProperty(name.substring(SYSTEM_PROPERTY_PREFIX.length()), System.getProperty(name));
+            }
+        }
+        
         return props;
     }
     
@@ -98,12 +119,77 @@ public class DatabaseConfig {
         props.setProperty("db.pool.max-lifetime", "1800000");
     }
     
+    /**
+     * 获取已加载的配置（database.properties），首次调用时加载
+     * @return 配置对象
+     */
+    public static Properties getProperties() {
+        Properties props = properties;
+        if (props == null) {
+            initLock.lock();
+            try {
+                if (properties == null) {
+                    properties = loadDatabaseProperties();
+                }
+                props = properties;
+            } finally {
+                initLock.unlock();
+            }
+        }
+        return props;
+    }
+    
+    /**
+     * 获取配置项
+     * @param key 配置键
+     * @param defaultValue 默认值
+     * @return 配置值
+     */
+    public static String getProperty(String key, String defaultValue) {
+        String value = getProperties().getProperty(key);
+        return value == null || value.trim().isEmpty() ? defaultValue : value.trim();
+    }
+    
+    /**
+     * 获取整数配置项，格式错误时返回默认值
+     */
+    public static int getIntProperty(String key, int defaultValue) {
+        try {
+            return Integer.parseInt(getProperty(key, String.valueOf(defaultValue)));
+        } catch (NumberFormatException e) {
+            logger.warn("配置项格式错误: {}，使用默认值: {}", key, defaultValue);
+            return defaultValue;
+        }
+    }
+    
+    /**
+     * 获取长整数配置项，格式错误时返回默认值
+     */
+    public static long getLongProperty(String key, long defaultValue) {
+        try {
+            return Long.parseLong(getProperty(key, String.valueOf(defaultValue)));
+        } catch (NumberFormatException e) {
+            logger.warn("配置项格式错误: {}，使用默认值: {}", key, defaultValue);
+            return defaultValue;
+        }
+    }
+    
+    /**
+     * 获取布尔配置项
+     */
+    public static boolean getBooleanProperty(String key, boolean defaultValue) {
+        return Boolean.parseBoolean(getProperty(key, String.valueOf(defaultValue)));
+    }
+    
     public static DataSource getDataSource() {
         if (dataSource == null || dataSource.isClosed()) {
-            synchronized (DatabaseConfig.class) {
+            initLock.lock();
+            try {
                 if (dataSource == null || dataSource.isClosed()) {
                     initializeDataSource();
                 }
+            } finally {
+                initLock.unlock();
             }
         }
         return dataSource;
@@ -119,4 +205,16 @@ public class DatabaseConfig {
     public static boolean isDataSourceRunning() {
         return dataSource != null && !dataSource.isClosed();
     }
+    
+    /**
+     * 获取正在等待数据库连接的线程数（连接池未创建时为0）
+     * @return 等待连接的线程数
+     */
+    public static int getThreadsAwaitingConnection() {
+        HikariDataSource current = dataSource;
+        if (current == null || current.isClosed() || current.getHikariPoolMXBean() == null) {
+            return 0;
+        }
+        return current.getHikariPoolMXBean().getThreadsAwaitingConnection();
+    }
 }
\ No newline at end of file
@@ -0,0 +1,128 @@
+package com.cat.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 请求执行模式配置
+ * 开启 execution.virtual-threads 后，Servlet处理逻辑在虚拟线程上执行（需要JDK 21+），
+ * 并用信号量把并发数据库访问限制在连接池大小以内；运行时不支持虚拟线程则回退到容器的平台线程。
+ */
+public class ExecutionConfig {
+    private static final Logger logger = LoggerFactory.getLogger(ExecutionConfig.class);
+
+    private static final ExecutorService executor;
+    private static final Semaphore dbPermits;
+    private static final long dbPermitTimeout;
+    private static final long requestTimeout;
+
+    static {
+        boolean enabled = DatabaseConfig.getBooleanProperty("execution.virtual-threads", false);
+        ExecutorService virtualExecutor = enabled ? createVirtualThreadExecutor() : null;
+
+        executor = virtualExecutor;
+        dbPermits = virtualExecutor != null
+                ? new Semaphore(DatabaseConfig.getIntProperty("db.pool.max-size", 20), true) : null;
+        dbPermitTimeout = DatabaseConfig.getLongProperty("db.pool.connection-timeout", 20000);
+        requestTimeout = DatabaseConfig.getLongProperty("execution.request-timeout", 60000);
+
+        if (virtualExecutor != null) {
+            logger.info("已启用虚拟线程执行模式，数据库并发上限: {}", dbPermits.availablePermits());
+        } else {
+            logger.info("使用平台线程执行模式");
+        }
+    }
+
+    /**
+     * 通过反射创建虚拟线程执行器（项目以Java 17编译，运行时为JDK 21+时才可用）
+     */
+    private static ExecutorService createVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            logger.warn("当前JDK不支持虚拟线程，回退到平台线程执行模式: {}", System.getProperty("java.version"));
+            return null;
+        }
+    }
+
+    /**
+     * 是否启用了虚拟线程执行模式
+     */
+    public static boolean isVirtualThreadsEnabled() {
+        return executor != null;
+    }
+
+    /**
+     * 获取虚拟线程执行器，未启用时返回null
+     */
+    public static ExecutorService getExecutor() {
+        return executor;
+    }
+
+    /**
+     * 异步请求超时时间（毫秒）
+     */
+    public static long getRequestTimeout() {
+        return requestTimeout;
+    }
+
+    /**
+     * 获取数据库访问许可，未启用虚拟线程模式时直接返回
+     * @throws SQLException 等待超时或被中断
+     */
+    public static void acquireDbPermit() throws SQLException {
+        if (dbPermits == null) {
+            return;
+        }
+        try {
+            if (!dbPermits.tryAcquire(dbPermitTimeout, TimeUnit.MILLISECONDS)) {
+                throw new SQLTransientConnectionException("等待数据库访问许可超时");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLTransientConnectionException("等待数据库访问许可被中断", e);
+        }
+    }
+
+    /**
+     * 正在等待数据库访问许可的线程数（未启用虚拟线程模式时为0）
+     * 许可数与连接池大小相同，虚拟线程模式下等待数据库的线程排在这里，而不是连接池中
+     */
+    public static int getDbPermitWaiters() {
+        return dbPermits != null ? dbPermits.getQueueLength() : 0;
+    }
+
+    /**
+     * 释放数据库访问许可
+     */
+    public static void releaseDbPermit() {
+        if (dbPermits != null) {
+            dbPermits.release();
+        }
+    }
+
+    /**
+     * 关闭执行器
+     */
+    public static void shutdown() {
+        if (executor != null) {
+            executor.shutdown();
+            try {
+                if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+                    executor.shutdownNow();
+                }
+            } catch (InterruptedException e) {
+                executor.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+            logger.info("虚拟线程执行器已关闭");
+        }
+    }
+}
@@ -93,8 +93,15 @@ public class CategoryDAO {
      * @return 分类树列表
      */
     public List<Category> findCategoryTree() {
-        List<Category> allCategories = findAllActive();
-        
+        return buildCategoryTree(findAllActive());
+    }
+    
+    /**
+     * 由分类列表构建分类树（包级可见，供基准测试在不连接数据库的情况下调用）
+     * @param allCategories 分类列表
+     * @return 根分类列表
+     */
+    static List<Category> buildCategoryTree(List<Category> allCategories) {
         // 构建分类树
         java.util.Map<Long, Category> categoryMap = new java.util.HashMap<>();
         List<Category> rootCategories = new java.util.ArrayList<>();
@@ -1,17 +1,38 @@
 package com.cat.dao;
 
 import com.cat.model.Product;
+import com.cat.model.ProductSummary;
 import com.cat.util.DatabaseUtil;
+import com.cat.util.JsonColumnCodec;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 public class ProductDAO {
     private static final Logger logger = LoggerFactory.getLogger(ProductDAO.class);
     
+    // 列表类查询只读取摘要所需的列，不读取description、images、dimensions等大字段
+    private static final String SUMMARY_COLUMNS = "id, name, short_description, sku, price, stock_quantity, " +
+                                                  "category_id, image_url, is_featured, created_at";
+    
+    /** upsertBatch 对已存在的SKU可以更新的列 */
+    public static final List<String> UPSERT_COLUMNS = Collections.unmodifiableList(Arrays.asList(
+            "name", "description", "short_description", "price", "cost_price", "stock_quantity", "min_stock_level",
+            "category_id", "image_url", "weight", "dimensions", "is_active", "is_featured"));
+    
     /**
      * 创建商品
      * @param product 商品对象
@@ -34,9 +55,9 @@ public class ProductDAO {
                     product.getMinStockLevel(),
                     product.getCategoryId(),
                     product.getImageUrl(),
-                    product.getImages() != null ? java.util.Arrays.toString(product.getImages().toArray()) : null,
+                    product.getImagesJson(),
                     product.getWeight(),
-                    product.getDimensions(),
+                    JsonColumnCodec.encodeDimensions(product.getDimensions()),
                     product.isActive(),
                     product.isFeatured());
             
@@ -62,6 +83,31 @@ public class ProductDAO {
         return DatabaseUtil.querySingle(sql, this::mapResultSetToProduct, id);
     }
     
+    /**
+     * 按ID批量查找商品（一次 IN 查询）
+     * @param ids 商品ID
+     * @return 商品ID -> 商品，不存在的ID不在结果中
+     */
+    public Map<Long, Product> findByIds(Collection<Long> ids) {
+        Map<Long, Product> products = new HashMap<>();
+        if (ids.isEmpty()) {
+            return products;
+        }
+        
+        StringBuilder sql = new StringBuilder("SELECT id, name, description, short_description, sku, price, cost_price, " +
+                "stock_quantity, min_stock_level, category_id, image_url, images, weight, dimensions, " +
+                "is_active, is_featured, created_at, updated_at FROM products WHERE id IN (");
+        for (int i = 0; i < ids.size(); i++) {
+            sql.append(i == 0 ? "?" : ", ?");
+        }
+        sql.append(")");
+        
+        for (Product product : DatabaseUtil.queryList(sql.toString(), this::mapResultSetToProduct, ids.toArray())) {
+            products.put(product.getId(), product);
+        }
+        return products;
+    }
+    
     /**
      * 根据SKU查找商品
      * @param sku SKU
@@ -108,10 +154,9 @@ public class ProductDAO {
                     product.getMinStockLevel(),
                     product.getCategoryId(),
                     product.getImageUrl(),
-                    product.getImages() != null ? 
-                            java.util.Arrays.toString(product.getImages().toArray()) : null,
+                    product.getImagesJson(),
                     product.getWeight(),
-                    product.getDimensions(),
+                    JsonColumnCodec.encodeDimensions(product.getDimensions()),
                     product.isActive(),
                     product.isFeatured(),
                     product.getId());
@@ -163,13 +208,11 @@ public class ProductDAO {
      * @param offset 偏移量
      * @return 商品列表
      */
-    public List<Product> findAllActive(int limit, int offset) {
-        String sql = "SELECT id, name, description, short_description, sku, price, cost_price, " +
-                     "stock_quantity, min_stock_level, category_id, image_url, images, weight, dimensions, " +
-                     "is_active, is_featured, created_at, updated_at FROM products WHERE is_active = true " +
+    public List<ProductSummary> findAllActive(int limit, int offset) {
+        String sql = "SELECT " + SUMMARY_COLUMNS + " FROM products WHERE is_active = true " +
                      "ORDER BY created_at DESC LIMIT ? OFFSET ?";
         
-        return DatabaseUtil.queryList(sql, this::mapResultSetToProduct, limit, offset);
+        return DatabaseUtil.queryList(sql, this::mapResultSetToSummary, limit, offset);
     }
     
     /**
@@ -179,13 +222,11 @@ public class ProductDAO {
      * @param offset 偏移量
      * @return 商品列表
      */
-    public List<Product> findByCategory(Long categoryId, int limit, int offset) {
-        String sql = "SELECT id, name, description, short_description, sku, price, cost_price, " +
-                     "stock_quantity, min_stock_level, category_id, image_url, images, weight, dimensions, " +
-                     "is_active, is_featured, created_at, updated_at FROM products " +
+    public List<ProductSummary> findByCategory(Long categoryId, int limit, int offset) {
+        String sql = "SELECT " + SUMMARY_COLUMNS + " FROM products " +
                      "WHERE is_active = true AND category_id = ? ORDER BY created_at DESC LIMIT ? OFFSET ?";
         
-        return DatabaseUtil.queryList(sql, this::mapResultSetToProduct, categoryId, limit, offset);
+        return DatabaseUtil.queryList(sql, this::mapResultSetToSummary, categoryId, limit, offset);
     }
     
     /**
@@ -193,13 +234,11 @@ public class ProductDAO {
      * @param limit 限制数量
      * @return 推荐商品列表
      */
-    public List<Product> findFeatured(int limit) {
-        String sql = "SELECT id, name, description, short_description, sku, price, cost_price, " +
-                     "stock_quantity, min_stock_level, category_id, image_url, images, weight, dimensions, " +
-                     "is_active, is_featured, created_at, updated_at FROM products " +
+    public List<ProductSummary> findFeatured(int limit) {
+        String sql = "SELECT " + SUMMARY_COLUMNS + " FROM products " +
                      "WHERE is_active = true AND is_featured = true ORDER BY created_at DESC LIMIT ?";
         
-        return DatabaseUtil.queryList(sql, this::mapResultSetToProduct, limit);
+        return DatabaseUtil.queryList(sql, this::mapResultSetToSummary, limit);
     }
     
     /**
@@ -215,13 +254,11 @@ public class ProductDAO {
      * @param offset 偏移量
      * @return 商品列表
      */
-    public List<Product> searchProducts(String keyword, Long categoryId, Double minPrice, Double maxPrice,
+    public List<ProductSummary> searchProducts(String keyword, Long categoryId, Double minPrice, Double maxPrice,
                                     Boolean inStock, String sortBy, String sortOrder, int limit, int offset) {
         
         StringBuilder sql = new StringBuilder(
-            "SELECT id, name, description, short_description, sku, price, cost_price, " +
-            "stock_quantity, min_stock_level, category_id, image_url, images, weight, dimensions, " +
-            "is_active, is_featured, created_at, updated_at FROM products WHERE is_active = true");
+            "SELECT " + SUMMARY_COLUMNS + " FROM products WHERE is_active = true");
         
         java.util.List<Object> params = new java.util.ArrayList<>();
         
@@ -280,7 +317,7 @@ public class ProductDAO {
         params.add(limit);
         params.add(offset);
         
-        return DatabaseUtil.queryList(sql.toString(), this::mapResultSetToProduct, params.toArray());
+        return DatabaseUtil.queryList(sql.toString(), this::mapResultSetToSummary, params.toArray());
     }
     
     /**
@@ -373,12 +410,100 @@ public class ProductDAO {
     }
     
     /**
-     * 将ResultSet映射为Product对象
+     * 流式读取全部商品（按ID升序），逐个回调，不在内存中保留结果集
+     * @param includeInactive 是否包含已下架商品
+     * @param consumer 商品回调
+     * @return 读取的商品数
+     * @throws IOException 回调写出失败
+     */
+    public long streamAll(boolean includeInactive, ProductConsumer consumer) throws IOException {
+        String sql = "SELECT id, name, description, short_description, sku, price, cost_price, " +
+                     "stock_quantity, min_stock_level, category_id, image_url, images, weight, dimensions, " +
+                     "is_active, is_featured, created_at, updated_at FROM products" +
+                     (includeInactive ? "" : " WHERE is_active = true") + " ORDER BY id";
+        
+        return DatabaseUtil.queryStream(sql, rs -> consumer.accept(mapResultSetToProduct(rs)));
+    }
+    
+    /**
+     * 查询已存在的SKU
+     * @param skus SKU列表
+     * @return 其中已存在于商品表中的SKU
+     */
+    public Set<String> findExistingSkus(List<String> skus) {
+        if (skus.isEmpty()) {
+            return new HashSet<>();
+        }
+        
+        StringBuilder sql = new StringBuilder("SELECT sku FROM products WHERE sku IN (");
+        for (int i = 0; i < skus.size(); i++) {
+            sql.append(i == 0 ? "?" : ", ?");
+        }
+        sql.append(")");
+        
+        return new HashSet<>(DatabaseUtil.queryList(sql.toString(), rs -> rs.getString("sku"), skus.toArray()));
+    }
+    
+    /**
+     * 按SKU批量写入商品：SKU不存在时插入，已存在时只更新 updateColumns 中的列（其余列、images和创建时间保持不变）
+     * 整批拼成一条多行 INSERT ... ON DUPLICATE KEY UPDATE 语句，只需一次往返
+     * @param products 商品列表
+     * @param updateColumns 已存在的SKU要更新的列，取自 UPSERT_COLUMNS
+     * @return 受影响的行数（MySQL中插入计1，更新计2，内容未变计0）
+     */
+    public int upsertBatch(List<Product> products, Collection<String> updateColumns) {
+        if (products.isEmpty()) {
+            return 0;
+        }
+        if (!UPSERT_COLUMNS.containsAll(updateColumns)) {
+            throw new IllegalArgumentException("不支持更新的列: " + updateColumns);
+        }
+        
+        StringBuilder sql = new StringBuilder("INSERT INTO products (name, description, short_description, sku, price, " +
+                "cost_price, stock_quantity, min_stock_level, category_id, image_url, weight, dimensions, " +
+                "is_active, is_featured) VALUES ");
+        List<Object> params = new ArrayList<>(products.size() * 14);
+        for (int i = 0; i < products.size(); i++) {
+            Product product = products.get(i);
+            sql.append(i == 0 ? "" : ", ").append("(?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)");
+            params.add(product.getName());
+            params.add(product.getDescription());
+            params.add(product.getShortDescription());
+            params.add(product.getSku());
+            params.add(product.getPrice());
+            params.add(product.getCostPrice());
+            params.add(product.getStockQuantity());
+            params.add(product.getMinStockLevel());
+            params.add(product.getCategoryId());
+            params.add(product.getImageUrl());
+            params.add(product.getWeight());
+            params.add(JsonColumnCodec.encodeDimensions(product.getDimensions()));
+            params.add(product.isActive());
+            params.add(product.isFeatured());
+        }
+        sql.append(" ON DUPLICATE KEY UPDATE ");
+        for (String column : UPSERT_COLUMNS) {
+            if (updateColumns.contains(column)) {
+                sql.append(column).append(" = VALUES(").append(column).append("), ");
+            }
+        }
+        sql.append("updated_at = CURRENT_TIMESTAMP");
+        
+        try {
+            return DatabaseUtil.executeUpdate(sql.toString(), params.toArray());
+        } catch (Exception e) {
+            logger.error("批量写入商品失败，数量: {}", products.size(), e);
+            throw new RuntimeException("批量写入商品失败", e);
+        }
+    }
+    
+    /**
+     * 将ResultSet映射为Product对象（包级可见，供基准测试直接调用）
      * @param rs ResultSet
      * @return Product对象
      * @throws SQLException SQL异常
      */
-    private Product mapResultSetToProduct(ResultSet rs) throws SQLException {
+    Product mapResultSetToProduct(ResultSet rs) throws SQLException {
         Product product = new Product();
         product.setId(rs.getLong("id"));
         product.setName(rs.getString("name"));
@@ -389,35 +514,12 @@ public class ProductDAO {
         product.setCostPrice(rs.getBigDecimal("cost_price"));
         product.setStockQuantity(rs.getInt("stock_quantity"));
         product.setMinStockLevel(rs.getInt("min_stock_level"));
-        product.setCategoryId(rs.getLong("category_id"));
+        long categoryId = rs.getLong("category_id");
+        product.setCategoryId(rs.wasNull() ? null : categoryId);
         product.setImageUrl(rs.getString("image_url"));
         
-        // 处理images字段（JSON格式）
-        String imagesJson = rs.getString("images");
-        if (imagesJson != null && !imagesJson.isEmpty()) {
-            try {
-                // 简单处理：如果是以[开头和]结尾的数组格式，进行简单解析
-                if (imagesJson.startsWith("[") && imagesJson.endsWith("]")) {
-                    String cleanJson = imagesJson.substring(1, imagesJson.length() - 1);
-                    if (!cleanJson.trim().isEmpty()) {
-                        String[] imageArray = cleanJson.split(",");
-                        java.util.List<String> imageList = new java.util.ArrayList<>();
-                        for (String image : imageArray) {
-                            image = image.trim();
-                            if (image.startsWith("\"") && image.endsWith("\"")) {
-                                image = image.substring(1, image.length() - 1);
-                            }
-                            if (!image.isEmpty()) {
-                                imageList.add(image);
-                            }
-                        }
-                        product.setImages(imageList);
-                    }
-                }
-            } catch (Exception e) {
-                logger.warn("解析商品图片失败: {}", imagesJson, e);
-            }
-        }
+        // images列只保存原始文本，序列化时才解析
+        product.setImagesJson(rs.getString("images"));
         
         product.setWeight(rs.getBigDecimal("weight"));
         product.setDimensions(rs.getString("dimensions"));
@@ -430,4 +532,36 @@ public class ProductDAO {
         
         return product;
     }
-}
\ No newline at end of file
+    
+    /**
+     * 将ResultSet映射为ProductSummary对象（包级可见，供基准测试直接调用）
+     * @param rs ResultSet（须包含SUMMARY_COLUMNS中的列）
+     * @return ProductSummary对象
+     * @throws SQLException SQL异常
+     */
+    ProductSummary mapResultSetToSummary(ResultSet rs) throws SQLException {
+        ProductSummary summary = new ProductSummary();
+        summary.setId(rs.getLong("id"));
+        summary.setName(rs.getString("name"));
+        summary.setShortDescription(rs.getString("short_description"));
+        summary.setSku(rs.getString("sku"));
+        summary.setPrice(rs.getBigDecimal("price"));
+        summary.setStockQuantity(rs.getInt("stock_quantity"));
+        long categoryId = rs.getLong("category_id");
+        summary.setCategoryId(rs.wasNull() ? null : categoryId);
+        summary.setImageUrl(rs.getString("image_url"));
+        summary.setFeatured(rs.getBoolean("is_featured"));
+        Timestamp createdAt = rs.getTimestamp("created_at");
+        summary.setCreatedAt(createdAt != null ? createdAt.toLocalDateTime() : null);
+        
+        return summary;
+    }
+    
+    /**
+     * 流式读取的商品回调接口
+     */
+    @FunctionalInterface
+    public interface ProductConsumer {
+        void accept(Product product) throws IOException;
+    }
+}
@@ -7,7 +7,9 @@ import org.slf4j.LoggerFactory;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 public class ShoppingCartDAO {
     private static final Logger logger = LoggerFactory.getLogger(ShoppingCartDAO.class);
@@ -212,6 +214,143 @@ public class ShoppingCartDAO {
         }
     }
     
+    /**
+     * 批量写入购物车项数量：不存在时插入，已存在时覆盖数量
+     * 整批拼成一条多行 INSERT ... ON DUPLICATE KEY UPDATE 语句（unique_cart_item），只需一次往返
+     * @param items 购物车项（客户ID、商品ID、数量）
+     * @return 受影响的行数
+     */
+    public int saveQuantities(List<ShoppingCart> items) {
+        if (items.isEmpty()) {
+            return 0;
+        }
+        
+        StringBuilder sql = new StringBuilder("INSERT INTO shopping_cart (customer_id, product_id, quantity) VALUES ");
+        List<Object> params = new ArrayList<>(items.size() * 3);
+        for (int i = 0; i < items.size(); i++) {
+            ShoppingCart item = items.get(i);
+            sql.append(i == 0 ? "(?, ?, ?)" : ", (?, ?, ?)");
+            params.add(item.getCustomerId());
+            params.add(item.getProductId());
+            params.add(item.getQuantity());
+        }
+        sql.append(" ON DUPLICATE KEY UPDATE quantity = VALUES(quantity), updated_at = CURRENT_TIMESTAMP");
+        
+        try {
+            return DatabaseUtil.executeUpdate(sql.toString(), params.toArray());
+        } catch (Exception e) {
+            logger.error("批量写入购物车项失败，数量: {}", items.size(), e);
+            throw new RuntimeException("批量写入购物车项失败", e);
+        }
+    }
+    
+    /**
+     * 增加购物车商品数量，不存在时插入：一条 INSERT ... ON DUPLICATE KEY UPDATE 语句（unique_cart_item），
+     * 不需要先查询，并发加入同一商品时也不会因唯一键冲突而失败
+     * @param customerId 客户ID
+     * @param productId 商品ID
+     * @param delta 增加的数量
+     * @param maxQuantity 允许的最大数量（库存），增加后的数量超过时取该值
+     * @return 受影响的行数
+     */
+    public int upsert(Long customerId, Long productId, int delta, int maxQuantity) {
+        String sql = "INSERT INTO shopping_cart (customer_id, product_id, quantity) VALUES (?, ?, ?) " +
+                     "ON DUPLICATE KEY UPDATE quantity = LEAST(quantity + ?, ?), updated_at = CURRENT_TIMESTAMP";
+        
+        try {
+            return DatabaseUtil.executeUpdate(sql, customerId, productId, Math.min(delta, maxQuantity),
+                    delta, maxQuantity);
+        } catch (Exception e) {
+            logger.error("增加购物车商品数量失败，客户ID: {}, 商品ID: {}", customerId, productId, e);
+            throw new RuntimeException("增加购物车商品数量失败", e);
+        }
+    }
+    
+    /**
+     * 批量增加同一客户的购物车商品数量（如合并购物车），语义与 upsert 相同
+     * 整批拼成一条多行语句，每个商品的最大数量通过 CASE product_id 取得，只需一次往返
+     * @param customerId 客户ID
+     * @param deltas 商品ID -> 增加的数量
+     * @param maxQuantities 商品ID -> 允许的最大数量（库存），缺少的商品不写入
+     * @return 受影响的行数
+     */
+    public int upsertAll(Long customerId, Map<Long, Integer> deltas, Map<Long, Integer> maxQuantities) {
+        StringBuilder values = new StringBuilder();
+        StringBuilder limits = new StringBuilder("CASE product_id");
+        List<Object> params = new ArrayList<>(deltas.size() * 5);
+        List<Object> limitParams = new ArrayList<>(deltas.size() * 2);
+        for (Map.Entry<Long, Integer> delta : deltas.entrySet()) {
+            Integer maxQuantity = maxQuantities.get(delta.getKey());
+            if (maxQuantity == null || maxQuantity <= 0 || delta.getValue() <= 0) {
+                continue;
+            }
+            values.append(values.length() == 0 ? "(?, ?, ?)" : ", (?, ?, ?)");
+            params.add(customerId);
+            params.add(delta.getKey());
+            params.add(Math.min(delta.getValue(), maxQuantity));
+            limits.append(" WHEN ? THEN ?");
+            limitParams.add(delta.getKey());
+            limitParams.add(maxQuantity);
+        }
+        if (limitParams.isEmpty()) {
+            return 0;
+        }
+        
+        // VALUES(quantity) 是插入值，已按最大数量截断，不影响与已有数量相加后的结果
+        String sql = "INSERT INTO shopping_cart (customer_id, product_id, quantity) VALUES " + values +
+                     " ON DUPLICATE KEY UPDATE quantity = LEAST(quantity + VALUES(quantity), " + limits + " END), " +
+                     "updated_at = CURRENT_TIMESTAMP";
+        params.addAll(limitParams);
+        
+        try {
+            return DatabaseUtil.executeUpdate(sql, params.toArray());
+        } catch (Exception e) {
+            logger.error("批量增加购物车商品数量失败，客户ID: {}, 商品数: {}", customerId, deltas.size(), e);
+            throw new RuntimeException("批量增加购物车商品数量失败", e);
+        }
+    }
+    
+    /**
+     * 批量删除购物车项
+     * @param items 购物车项（客户ID、商品ID）
+     */
+    public void removeBatch(List<ShoppingCart> items) {
+        if (items.isEmpty()) {
+            return;
+        }
+        
+        String sql = "DELETE FROM shopping_cart WHERE customer_id = ? AND product_id = ?";
+        List<Object[]> paramsList = new ArrayList<>(items.size());
+        for (ShoppingCart item : items) {
+            paramsList.add(new Object[]{item.getCustomerId(), item.getProductId()});
+        }
+        DatabaseUtil.executeBatch(sql, paramsList);
+    }
+    
+    /**
+     * 清空多个客户的购物车
+     * @param customerIds 客户ID列表
+     * @return 删除的行数
+     */
+    public int clearAll(List<Long> customerIds) {
+        if (customerIds.isEmpty()) {
+            return 0;
+        }
+        
+        StringBuilder sql = new StringBuilder("DELETE FROM shopping_cart WHERE customer_id IN (");
+        for (int i = 0; i < customerIds.size(); i++) {
+            sql.append(i == 0 ? "?" : ", ?");
+        }
+        sql.append(")");
+        
+        try {
+            return DatabaseUtil.executeUpdate(sql.toString(), customerIds.toArray());
+        } catch (Exception e) {
+            logger.error("清空购物车失败，客户数: {}", customerIds.size(), e);
+            throw new RuntimeException("清空购物车失败", e);
+        }
+    }
+    
     /**
      * 检查客户购物车中是否包含指定商品
      * @param customerId 客户ID
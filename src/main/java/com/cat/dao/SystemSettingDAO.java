@@ -0,0 +1,86 @@
+package com.cat.dao;
+
+import com.cat.util.DatabaseUtil;
+
+import java.sql.Timestamp;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+public class SystemSettingDAO {
+
+    /**
+     * 获取全部系统配置
+     * @return 配置键 -> 配置值
+     */
+    public Map<String, String> findAll() {
+        String sql = "SELECT setting_key, setting_value FROM system_settings";
+
+        List<String[]> rows = DatabaseUtil.queryList(sql,
+                rs -> new String[]{rs.getString("setting_key"), rs.getString("setting_value")});
+
+        Map<String, String> settings = new HashMap<>();
+        for (String[] row : rows) {
+            settings.put(row[0], row[1]);
+        }
+        return settings;
+    }
+
+    /**
+     * 获取配置表的版本（行数 + 最后修改时间），用于判断是否需要重新加载
+     * @return 当前版本
+     */
+    public Version findVersion() {
+        String sql = "SELECT COUNT(*) AS setting_count, MAX(updated_at) AS last_updated, " +
+                     "CURRENT_TIMESTAMP AS db_now FROM system_settings";
+
+        return DatabaseUtil.querySingle(sql, rs -> new Version(
+                rs.getLong("setting_count"),
+                rs.getTimestamp("last_updated"),
+                rs.getTimestamp("db_now")));
+    }
+
+    /**
+     * 配置表版本
+     * 增删行会改变行数，修改值会更新 updated_at（ON UPDATE CURRENT_TIMESTAMP）
+     */
+    public static class Version {
+        private final long count;
+        private final Timestamp lastUpdated;
+        private final Timestamp databaseTime;
+
+        public Version(long count, Timestamp lastUpdated, Timestamp databaseTime) {
+            this.count = count;
+            this.lastUpdated = lastUpdated;
+            this.databaseTime = databaseTime;
+        }
+
+        /**
+         * updated_at 只精确到秒：最后修改发生在数据库当前这一秒或上一秒时，
+         * 同一秒内可能还有后续修改而时间不变，此时版本不可作为"已加载"的依据
+         */
+        public boolean isSettled() {
+            return lastUpdated == null || databaseTime == null
+                    || databaseTime.getTime() - lastUpdated.getTime() >= 2000;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Version)) return false;
+            Version other = (Version) o;
+            return count == other.count && Objects.equals(lastUpdated, other.lastUpdated);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(count, lastUpdated);
+        }
+
+        @Override
+        public String toString() {
+            return count + "@" + lastUpdated;
+        }
+    }
+}
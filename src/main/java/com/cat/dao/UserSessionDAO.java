@@ -0,0 +1,119 @@
+package com.cat.dao;
+
+import com.cat.model.UserSession;
+import com.cat.util.DatabaseUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 登录会话数据访问
+ * session_id 列保存的是会话ID的摘要（由 SessionStore 计算），不保存原始会话ID
+ */
+public class UserSessionDAO {
+    private static final Logger logger = LoggerFactory.getLogger(UserSessionDAO.class);
+
+    /**
+     * 创建会话记录
+     * @param sessionKey 会话ID摘要
+     * @param session 会话
+     */
+    public void create(String sessionKey, UserSession session) {
+        String sql = "INSERT INTO user_sessions (session_id, user_type, user_id, ip_address, user_agent, " +
+                     "created_at, last_accessed_at, expires_at, is_active) VALUES (?, ?, ?, ?, ?, ?, ?, ?, true)";
+
+        try {
+            DatabaseUtil.executeUpdate(sql,
+                    sessionKey,
+                    session.getUserType(),
+                    session.getUserId(),
+                    session.getIpAddress(),
+                    session.getUserAgent(),
+                    Timestamp.valueOf(session.getCreatedAt()),
+                    Timestamp.valueOf(session.getLastAccessedAt()),
+                    Timestamp.valueOf(session.getExpiresAt()));
+        } catch (Exception e) {
+            logger.error("创建会话记录失败，用户类型: {}, 用户ID: {}", session.getUserType(), session.getUserId(), e);
+            throw new RuntimeException("创建会话记录失败", e);
+        }
+    }
+
+    /**
+     * 查找未过期的会话
+     * @param sessionKey 会话ID摘要
+     * @param now 当前时间
+     * @return 会话，不存在或已过期时返回null
+     */
+    public UserSession findActive(String sessionKey, Timestamp now) {
+        String sql = "SELECT user_type, user_id, ip_address, user_agent, created_at, last_accessed_at, expires_at " +
+                     "FROM user_sessions WHERE session_id = ? AND is_active = true AND expires_at > ?";
+
+        return DatabaseUtil.querySingle(sql, this::mapResultSetToUserSession, sessionKey, now);
+    }
+
+    /**
+     * 批量更新最后访问时间和过期时间
+     * 只会延长过期时间：其他节点已写入更晚的访问时间时不覆盖
+     * @param touches 每项为 {会话ID摘要, 最后访问时间, 过期时间}
+     */
+    public void touchBatch(List<Object[]> touches) {
+        if (touches.isEmpty()) {
+            return;
+        }
+
+        String sql = "UPDATE user_sessions SET last_accessed_at = ?, expires_at = ? " +
+                     "WHERE session_id = ? AND expires_at < ?";
+
+        List<Object[]> paramsList = new ArrayList<>(touches.size());
+        for (Object[] touch : touches) {
+            paramsList.add(new Object[]{touch[1], touch[2], touch[0], touch[2]});
+        }
+        DatabaseUtil.executeBatch(sql, paramsList);
+    }
+
+    /**
+     * 删除会话记录（退出登录）
+     * @param sessionKey 会话ID摘要
+     * @return 是否删除
+     */
+    public boolean delete(String sessionKey) {
+        String sql = "DELETE FROM user_sessions WHERE session_id = ?";
+
+        try {
+            return DatabaseUtil.executeUpdate(sql, sessionKey) > 0;
+        } catch (Exception e) {
+            logger.error("删除会话记录失败", e);
+            throw new RuntimeException("删除会话记录失败", e);
+        }
+    }
+
+    /**
+     * 删除一批已过期的会话（按 idx_expires 范围扫描）
+     * @param now 当前时间
+     * @param limit 本批最多删除的行数
+     * @return 删除的行数
+     */
+    public int deleteExpired(Timestamp now, int limit) {
+        String sql = "DELETE FROM user_sessions WHERE expires_at < ? LIMIT ?";
+
+        return DatabaseUtil.executeUpdate(sql, now, limit);
+    }
+
+    private UserSession mapResultSetToUserSession(ResultSet rs) throws SQLException {
+        UserSession session = new UserSession();
+        session.setUserType(rs.getString("user_type"));
+        session.setUserId(rs.getLong("user_id"));
+        session.setIpAddress(rs.getString("ip_address"));
+        session.setUserAgent(rs.getString("user_agent"));
+        session.setCreatedAt(rs.getTimestamp("created_at") != null ?
+                rs.getTimestamp("created_at").toLocalDateTime() : null);
+        session.setLastAccessedAt(rs.getTimestamp("last_accessed_at").toLocalDateTime());
+        session.setExpiresAt(rs.getTimestamp("expires_at").toLocalDateTime());
+        return session;
+    }
+}
@@ -0,0 +1,26 @@
+package com.cat.dto;
+
+/**
+ * 添加购物车请求
+ */
+public class AddToCartRequest {
+    private Long productId;
+    private Integer quantity;
+    
+    // Getters and Setters
+    public Long getProductId() {
+        return productId;
+    }
+    
+    public void setProductId(Long productId) {
+        this.productId = productId;
+    }
+    
+    public Integer getQuantity() {
+        return quantity;
+    }
+    
+    public void setQuantity(Integer quantity) {
+        this.quantity = quantity;
+    }
+}
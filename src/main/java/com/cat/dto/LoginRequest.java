@@ -0,0 +1,35 @@
+package com.cat.dto;
+
+/**
+ * 登录请求
+ */
+public class LoginRequest {
+    private String username;
+    private String password;
+    private Boolean rememberMe;
+    
+    // Getters and Setters
+    public String getUsername() {
+        return username;
+    }
+    
+    public void setUsername(String username) {
+        this.username = username;
+    }
+    
+    public String getPassword() {
+        return password;
+    }
+    
+    public void setPassword(String password) {
+        this.password = password;
+    }
+    
+    public Boolean getRememberMe() {
+        return rememberMe;
+    }
+    
+    public void setRememberMe(Boolean rememberMe) {
+        this.rememberMe = rememberMe;
+    }
+}
@@ -0,0 +1,167 @@
+package com.cat.dto;
+
+import com.cat.model.Product;
+
+import java.math.BigDecimal;
+
+/**
+ * 商品创建/更新请求
+ */
+public class ProductRequest {
+    private String name;
+    private String description;
+    private String shortDescription;
+    private String sku;
+    private BigDecimal price;
+    private BigDecimal costPrice;
+    private Integer stockQuantity;
+    private Integer minStockLevel;
+    private Long categoryId;
+    private String imageUrl;
+    private BigDecimal weight;
+    private String dimensions;
+    private Boolean isActive;
+    private Boolean isFeatured;
+    
+    // Getters and Setters
+    public String getName() {
+        return name;
+    }
+    
+    public void setName(String name) {
+        this.name = name;
+    }
+    
+    public String getDescription() {
+        return description;
+    }
+    
+    public void setDescription(String description) {
+        this.description = description;
+    }
+    
+    public String getShortDescription() {
+        return shortDescription;
+    }
+    
+    public void setShortDescription(String shortDescription) {
+        this.shortDescription = shortDescription;
+    }
+    
+    public String getSku() {
+        return sku;
+    }
+    
+    public void setSku(String sku) {
+        this.sku = sku;
+    }
+    
+    public BigDecimal getPrice() {
+        return price;
+    }
+    
+    public void setPrice(BigDecimal price) {
+        this.price = price;
+    }
+    
+    public BigDecimal getCostPrice() {
+        return costPrice;
+    }
+    
+    public void setCostPrice(BigDecimal costPrice) {
+        this.costPrice = costPrice;
+    }
+    
+    public Integer getStockQuantity() {
+        return stockQuantity;
+    }
+    
+    public void setStockQuantity(Integer stockQuantity) {
+        this.stockQuantity = stockQuantity;
+    }
+    
+    public Integer getMinStockLevel() {
+        return minStockLevel;
+    }
+    
+    public void setMinStockLevel(Integer minStockLevel) {
+        this.minStockLevel = minStockLevel;
+    }
+    
+    public Long getCategoryId() {
+        return categoryId;
+    }
+    
+    public void setCategoryId(Long categoryId) {
+        this.categoryId = categoryId;
+    }
+    
+    public String getImageUrl() {
+        return imageUrl;
+    }
+    
+    public void setImageUrl(String imageUrl) {
+        this.imageUrl = imageUrl;
+    }
+    
+    public BigDecimal getWeight() {
+        return weight;
+    }
+    
+    public void setWeight(BigDecimal weight) {
+        this.weight = weight;
+    }
+    
+    public String getDimensions() {
+        return dimensions;
+    }
+    
+    public void setDimensions(String dimensions) {
+        this.dimensions = dimensions;
+    }
+    
+    public Boolean getIsActive() {
+        return isActive;
+    }
+    
+    public void setIsActive(Boolean isActive) {
+        this.isActive = isActive;
+    }
+    
+    public Boolean getIsFeatured() {
+        return isFeatured;
+    }
+    
+    public void setIsFeatured(Boolean isFeatured) {
+        this.isFeatured = isFeatured;
+    }
+    
+    /**
+     * 转换为商品对象
+     * @param defaultActive 请求体未指定isActive时的取值
+     * @param defaultFeatured 请求体未指定isFeatured时的取值
+     * @return 商品对象
+     */
+    public Product toProduct(boolean defaultActive, boolean defaultFeatured) {
+        Product product = new Product();
+        product.setName(name);
+        product.setDescription(description);
+        product.setShortDescription(shortDescription);
+        product.setSku(sku);
+        product.setPrice(price);
+        product.setCostPrice(costPrice);
+        if (stockQuantity != null) {
+            product.setStockQuantity(stockQuantity);
+        }
+        if (minStockLevel != null) {
+            product.setMinStockLevel(minStockLevel);
+        }
+        product.setCategoryId(categoryId);
+        product.setImageUrl(imageUrl);
+        product.setWeight(weight);
+        product.setDimensions(dimensions);
+        product.setActive(isActive != null ? isActive : defaultActive);
+        product.setFeatured(isFeatured != null ? isFeatured : defaultFeatured);
+        return product;
+    }
+}
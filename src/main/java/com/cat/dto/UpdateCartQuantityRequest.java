@@ -0,0 +1,17 @@
+package com.cat.dto;
+
+/**
+ * 修改购物车商品数量请求
+ */
+public class UpdateCartQuantityRequest {
+    private Integer quantity;
+    
+    // Getters and Setters
+    public Integer getQuantity() {
+        return quantity;
+    }
+    
+    public void setQuantity(Integer quantity) {
+        this.quantity = quantity;
+    }
+}
@@ -0,0 +1,204 @@
+package com.cat.filter;
+
+import com.cat.config.DatabaseConfig;
+import com.cat.config.ExecutionConfig;
+import com.cat.metrics.MetricsRegistry;
+import com.cat.metrics.RequestMetrics;
+import com.cat.model.UserSession;
+import com.cat.service.SessionStore;
+import com.cat.util.RateLimiter;
+import com.cat.util.RequestUtil;
+import com.cat.util.TrustedProxies;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.servlet.*;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 限流与过载保护过滤器
+ * 先做全局过载保护：进行中的请求数或等待数据库连接的线程数超过阈值时直接返回503，不再排队等待；
+ * 再按路由分类对每个客户端限流（已登录按用户，未登录按客户端IP），超过速率时返回429。
+ * 识别用户只使用会话近端缓存，限流之前不访问数据库（未缓存的会话按IP限流，SecurityFilter 加载后改按用户）。
+ * 需要在web.xml中紧跟 RequestMetricsFilter 注册，被拒绝的请求不经过后面的过滤器，同时仍计入请求指标
+ */
+public class RateLimitFilter implements Filter {
+    private static final Logger logger = LoggerFactory.getLogger(RateLimitFilter.class);
+
+    private static final String DEFAULT_ROUTE_CLASS = "default";
+
+    private boolean enabled;
+    private int maxInFlight;
+    private int maxDbWaiting;
+    private TrustedProxies trustedProxies;
+    // 按前缀长度从长到短排列
+    private final List<Route> routes = new ArrayList<>();
+    private final Map<String, RateLimiter> limiters = new HashMap<>();
+    private final Map<String, LongAdder> rejectedCounters = new HashMap<>();
+    private LongAdder inFlightShed;
+    private LongAdder dbWaitingShed;
+
+    @Override
+    public void init(FilterConfig filterConfig) throws ServletException {
+        enabled = DatabaseConfig.getBooleanProperty("ratelimit.enabled", true);
+        maxInFlight = DatabaseConfig.getIntProperty("ratelimit.max-in-flight", 200);
+        maxDbWaiting = DatabaseConfig.getIntProperty("ratelimit.max-db-waiting", 20);
+        int maxClients = DatabaseConfig.getIntProperty("ratelimit.max-clients", 100000);
+
+        try {
+            trustedProxies = new TrustedProxies(DatabaseConfig.getProperty("ratelimit.trusted-proxies", ""));
+            addRouteClass(DEFAULT_ROUTE_CLASS, maxClients);
+            String config = DatabaseConfig.getProperty("ratelimit.routes", "");
+            for (String item : config.split(",")) {
+                item = item.trim();
+                if (item.isEmpty()) {
+                    continue;
+                }
+                int separator = item.lastIndexOf('=');
+                if (separator <= 0 || separator == item.length() - 1) {
+                    throw new IllegalArgumentException("应为 路径前缀=分类: " + item);
+                }
+                String prefix = item.substring(0, separator).trim();
+                String routeClass = item.substring(separator + 1).trim();
+                if (prefix.endsWith("/")) {
+                    prefix = prefix.substring(0, prefix.length() - 1);
+                }
+                addRouteClass(routeClass, maxClients);
+                routes.add(new Route(prefix, routeClass));
+            }
+        } catch (IllegalArgumentException e) {
+            throw new ServletException("限流配置错误: " + e.getMessage(), e);
+        }
+        routes.sort(Comparator.comparingInt((Route route) -> route.prefix.length()).reversed());
+
+        inFlightShed = MetricsRegistry.counter("eshop_load_shed_total",
+                "Requests rejected with 503 by global load shedding", "reason", "in_flight");
+        dbWaitingShed = MetricsRegistry.counter("eshop_load_shed_total",
+                "Requests rejected with 503 by global load shedding", "reason", "db_waiting");
+
+        logger.info("限流过滤器初始化完成，启用: {}，路由分类: {}，进行中请求上限: {}，等待连接线程上限: {}",
+                enabled, limiters.keySet(), maxInFlight, maxDbWaiting);
+    }
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+            throws IOException, ServletException {
+
+        HttpServletRequest httpRequest = (HttpServletRequest) request;
+        HttpServletResponse httpResponse = (HttpServletResponse) response;
+
+        if (!enabled || "OPTIONS".equals(httpRequest.getMethod())) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        // 全局过载保护：先于识别用户，不为注定要拒绝的请求再访问会话存储
+        if (maxInFlight > 0 && RequestMetrics.getInFlight() > maxInFlight) {
+            inFlightShed.increment();
+            reject(httpResponse, HttpServletResponse.SC_SERVICE_UNAVAILABLE, 1,
+                    "服务器繁忙，请稍后重试", "SERVICE_UNAVAILABLE");
+            return;
+        }
+        // 虚拟线程模式下等待者先排在数据库访问许可的信号量上，连接池的等待数几乎总是0，两者都要计入
+        if (maxDbWaiting > 0
+                && ExecutionConfig.getDbPermitWaiters() + DatabaseConfig.getThreadsAwaitingConnection() > maxDbWaiting) {
+            dbWaitingShed.increment();
+            reject(httpResponse, HttpServletResponse.SC_SERVICE_UNAVAILABLE, 1,
+                    "服务器繁忙，请稍后重试", "SERVICE_UNAVAILABLE");
+            return;
+        }
+
+        String routeClass = classify(httpRequest);
+        long waitNanos = limiters.get(routeClass).tryAcquire(clientKey(httpRequest), System.nanoTime());
+        if (waitNanos > 0) {
+            rejectedCounters.get(routeClass).increment();
+            long retryAfterSeconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + 999_999_999L));
+            reject(httpResponse, 429, retryAfterSeconds, "请求过于频繁，请稍后重试", "TOO_MANY_REQUESTS");
+            return;
+        }
+
+        chain.doFilter(request, response);
+    }
+
+    @Override
+    public void destroy() {
+        // 清理资源
+    }
+
+    private void addRouteClass(String routeClass, int maxClients) {
+        if (limiters.containsKey(routeClass)) {
+            return;
+        }
+        double rate = Double.parseDouble(DatabaseConfig.getProperty("ratelimit." + routeClass + ".rate", "20"));
+        int burst = DatabaseConfig.getIntProperty("ratelimit." + routeClass + ".burst", 50);
+        RateLimiter limiter = new RateLimiter(rate, burst, maxClients);
+        limiters.put(routeClass, limiter);
+        rejectedCounters.put(routeClass, MetricsRegistry.counter("eshop_rate_limited_total",
+                "Requests rejected with 429 by per-client rate limiting", "route_class", routeClass));
+        MetricsRegistry.gauge("eshop_rate_limit_clients", "Clients tracked by the rate limiter",
+                limiter::size, "route_class", routeClass);
+    }
+
+    /**
+     * 按最长前缀确定路由分类，前缀只在路径段边界上匹配
+     * 使用容器规范化后的路径，原始URI中的 .. 或 ;参数 不能把请求归入限额更宽的分类
+     */
+    private String classify(HttpServletRequest request) {
+        String path = RequestUtil.getRequestPath(request);
+        int length = path.length();
+        for (Route route : routes) {
+            int prefixLength = route.prefix.length();
+            if (length >= prefixLength && path.startsWith(route.prefix)
+                    && (length == prefixLength || path.charAt(prefixLength) == '/')) {
+                return route.routeClass;
+            }
+        }
+        return DEFAULT_ROUTE_CLASS;
+    }
+
+    /**
+     * 客户端标识：已登录且会话在近端缓存中时为用户，否则为客户端IP
+     * 客户端IP为连接地址，只有连接方是 ratelimit.trusted-proxies 中的代理时才采用 X-Forwarded-For，
+     * 否则客户端每次请求换一个伪造的地址就能得到新的令牌桶，并很快占满 ratelimit.max-clients
+     * 随机更换会话ID的请求不会触发数据库查询；识别出的会话保存在请求属性中，SecurityFilter 不会重复查找
+     */
+    private String clientKey(HttpServletRequest request) {
+        UserSession session = SessionStore.getCurrentIfCached(request);
+        if (session != null) {
+            return (session.isAdmin() ? "A:" : "C:") + session.getUserId();
+        }
+        return "IP:" + trustedProxies.clientAddress(request);
+    }
+
+    private void reject(HttpServletResponse response, int status, long retryAfterSeconds,
+                        String message, String errorCode) throws IOException {
+        response.setStatus(status);
+        response.setHeader("Retry-After", String.valueOf(retryAfterSeconds));
+        response.setContentType("application/json;charset=UTF-8");
+        response.getWriter().write(
+            "{\"success\":false,\"message\":\"" + message + "\",\"errorCode\":\"" + errorCode + "\"}"
+        );
+    }
+
+    /**
+     * 路由前缀与分类
+     */
+    private static class Route {
+        private final String prefix;
+        private final String routeClass;
+
+        Route(String prefix, String routeClass) {
+            this.prefix = prefix;
+            this.routeClass = routeClass;
+        }
+    }
+}
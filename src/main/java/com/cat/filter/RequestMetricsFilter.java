@@ -0,0 +1,72 @@
+package com.cat.filter;
+
+import com.cat.metrics.RequestMetrics;
+
+import javax.servlet.*;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * 请求指标过滤器
+ * 统计每个请求的总耗时、状态码和并发数。需要在web.xml中注册为第一个过滤器，
+ * 因此不使用@WebFilter注解（注解过滤器的执行顺序不确定，且会与web.xml重复注册）。
+ * 虚拟线程模式下请求以异步方式完成，此时在AsyncListener.onComplete中记录。
+ */
+public class RequestMetricsFilter implements Filter {
+
+    @Override
+    public void init(FilterConfig filterConfig) throws ServletException {
+        // 初始化代码
+    }
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+            throws IOException, ServletException {
+
+        HttpServletRequest httpRequest = (HttpServletRequest) request;
+        HttpServletResponse httpResponse = (HttpServletResponse) response;
+
+        long startNanos = System.nanoTime();
+        RequestMetrics.requestStarted();
+
+        boolean failed = true;
+        try {
+            chain.doFilter(request, response);
+            failed = false;
+        } finally {
+            if (!failed && request.isAsyncStarted()) {
+                // 异步完成在本次分派返回容器之后才生效，此时添加监听器不会错过onComplete
+                request.getAsyncContext().addListener(new AsyncListener() {
+                    @Override
+                    public void onComplete(AsyncEvent event) {
+                        RequestMetrics.requestCompleted(httpRequest, httpResponse.getStatus(), startNanos);
+                    }
+
+                    @Override
+                    public void onTimeout(AsyncEvent event) {
+                        // 超时后容器仍会触发onComplete
+                    }
+
+                    @Override
+                    public void onError(AsyncEvent event) {
+                        // 出错后容器仍会触发onComplete
+                    }
+
+                    @Override
+                    public void onStartAsync(AsyncEvent event) {
+                        // 无需处理
+                    }
+                });
+            } else {
+                int status = failed ? HttpServletResponse.SC_INTERNAL_SERVER_ERROR : httpResponse.getStatus();
+                RequestMetrics.requestCompleted(httpRequest, status, startNanos);
+            }
+        }
+    }
+
+    @Override
+    public void destroy() {
+        // 清理资源
+    }
+}
@@ -1,108 +1,101 @@
 package com.cat.filter;
 
+import com.cat.config.DatabaseConfig;
+import com.cat.metrics.RequestMetrics;
+import com.cat.model.UserSession;
+import com.cat.service.AuthTokenService;
+import com.cat.service.SessionStore;
+import com.cat.util.AccessRuleTable;
+import com.cat.util.RequestUtil;
+
 import javax.servlet.*;
 import javax.servlet.annotation.WebFilter;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
-import javax.servlet.http.HttpSession;
 import java.io.IOException;
-import java.util.Arrays;
-import java.util.List;
 
-@WebFilter("/api/*")
+@WebFilter(urlPatterns = "/api/*", asyncSupported = true)
 public class SecurityFilter implements Filter {
     
-    // 不需要认证的路径
-    private static final List<String> PUBLIC_PATHS = Arrays.asList(
-        "/api/customers/register",
-        "/api/customers/login",
-        "/api/products",
-        "/api/products/featured",
-        "/api/products/search",
-        "/api/products/categories"
-    );
-    
-    // 不需要认证的路径前缀
-    private static final List<String> PUBLIC_PATH_PREFIXES = Arrays.asList(
-        "/api/products/"
-    );
+    // 访问规则（未匹配任何规则的路径需要登录）
+    private AccessRuleTable accessRules;
     
     @Override
     public void init(FilterConfig filterConfig) throws ServletException {
-        // 初始化代码
+        String resource = DatabaseConfig.getProperty("security.access-rules", "access-rules.conf");
+        try {
+            accessRules = AccessRuleTable.load(resource, AccessRuleTable.Access.AUTHENTICATED);
+        } catch (IOException e) {
+            throw new ServletException("加载访问规则失败: " + resource, e);
+        }
     }
 
     @Override
     public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
             throws IOException, ServletException {
 
-        HttpServletRequest httpRequest = (HttpServletRequest) request;
-        HttpServletResponse httpResponse = (HttpServletResponse) response;
-
-        String path = httpRequest.getRequestURI();
-        String contextPath = httpRequest.getContextPath();
-        if (contextPath != null) {
-            path = path.substring(contextPath.length());
-        }
+        long startNanos = System.nanoTime();
+        boolean allowed = authorize((HttpServletRequest) request, (HttpServletResponse) response);
+        RequestMetrics.recordSecurityTime(request, System.nanoTime() - startNanos);
 
-        // 【关键修改】优先放行所有 OPTIONS 请求 (CORS 预检)
-        if ("OPTIONS".equalsIgnoreCase(httpRequest.getMethod())) {
+        if (allowed) {
             chain.doFilter(request, response);
-            return;
-        }
-
-        // 【关键修改】如果是 GET 请求，且访问的是商品相关接口，直接放行
-        // 这样 /api/products, /api/products/1, /api/products/search 统统不需要登录
-        if ("GET".equalsIgnoreCase(httpRequest.getMethod()) && path.startsWith("/api/products")) {
-            chain.doFilter(request, response);
-            return;
         }
+    }
 
-        // 检查公共路径 (保留之前的注册登录接口)
-        if (isPublicPath(path)) {
-            chain.doFilter(request, response);
-            return;
+    /**
+     * 检查请求是否允许访问，拒绝时直接写出401/403响应
+     * @return 是否放行
+     */
+    private boolean authorize(HttpServletRequest httpRequest, HttpServletResponse httpResponse) throws IOException {
+        // 按访问规则分类：CORS 预检、商品浏览、注册登录公开，/api/admin/ 需要管理员，其余需要登录
+        // 使用容器规范化后的路径：原始URI中的 ..、;参数 和编码字符会使规则与实际处理请求的Servlet不一致
+        AccessRuleTable.Access access = accessRules.classify(httpRequest.getMethod(),
+                RequestUtil.getRequestPath(httpRequest));
+        if (access == AccessRuleTable.Access.PUBLIC) {
+            // 令牌模式下携带有效令牌的公开请求也按需换发，只浏览商品和使用购物车的用户不会在令牌到期时被登出
+            if (AuthTokenService.isEnabled() && SessionStore.getCurrent(httpRequest) != null) {
+                AuthTokenService.refreshIfNeeded(httpRequest, httpResponse);
+            }
+            return true;
         }
 
-        // 检查用户是否已登录
-        HttpSession session = httpRequest.getSession(false);
-        if (session == null || session.getAttribute("customerId") == null) {
+        // 检查用户是否已登录（会话存储，常见情况下命中本节点近端缓存）
+        UserSession session = SessionStore.getCurrent(httpRequest);
+        if (session == null) {
             // 用户未登录
             httpResponse.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
             httpResponse.setContentType("application/json;charset=UTF-8");
             httpResponse.getWriter().write(
                 "{\"success\":false,\"message\":\"用户未登录\",\"errorCode\":\"UNAUTHORIZED\"}"
             );
-            return;
+            return false;
         }
 
         // 检查管理员权限的路径
-        if (path.startsWith("/api/admin/")) {
-            String userType = (String) session.getAttribute("userType");
-            if (!"ADMIN".equals(userType)) {
+        if (access == AccessRuleTable.Access.ADMIN) {
+            if (!session.isAdmin()) {
                 // 权限不足
                 httpResponse.setStatus(HttpServletResponse.SC_FORBIDDEN);
                 httpResponse.setContentType("application/json;charset=UTF-8");
                 httpResponse.getWriter().write(
                     "{\"success\":false,\"message\":\"权限不足\",\"errorCode\":\"FORBIDDEN\"}"
                 );
-                return;
+                return false;
             }
         }
 
+        // 令牌模式下按需换发令牌
+        if (AuthTokenService.isEnabled()) {
+            AuthTokenService.refreshIfNeeded(httpRequest, httpResponse);
+        }
+        
         // 通过所有检查，继续处理请求
-        chain.doFilter(request, response);
+        return true;
     }
     
     @Override
     public void destroy() {
         // 清理资源
     }
-    
-    /**
-     * 检查路径是否为公共路径（不需要认证）
-     */
-    private boolean isPublicPath(String path) {
-        return PUBLIC_PATHS.contains(path);
-    }
 }
\ No newline at end of file
@@ -1,6 +1,11 @@
 package com.cat.listener;
 
 import com.cat.config.DatabaseConfig;
+import com.cat.config.ExecutionConfig;
+import com.cat.service.CartStore;
+import com.cat.service.FeaturedProductCache;
+import com.cat.service.SessionStore;
+import com.cat.service.SettingsService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -22,6 +27,18 @@ public class ContextListener implements ServletContextListener {
             DatabaseConfig.getDataSource();
             logger.info("数据库连接池初始化成功");
             
+            // 加载系统配置并启动版本检查
+            SettingsService.start();
+            
+            // 启动会话访问时间写回和过期会话清理
+            SessionStore.start();
+            
+            // 加载推荐商品快照并启动定时重建
+            FeaturedProductCache.start();
+            
+            // 启动购物车定时写回
+            CartStore.start();
+            
             // 设置系统属性
             System.setProperty("file.encoding", "UTF-8");
             
@@ -38,6 +55,17 @@ public class ContextListener implements ServletContextListener {
         logger.info("CAT201电商网站应用关闭中...");
         
         try {
+            // 关闭请求执行器，等待进行中的请求完成
+            ExecutionConfig.shutdown();
+            
+            // 停止推荐商品快照的定时重建和系统配置的版本检查
+            FeaturedProductCache.shutdown();
+            SettingsService.shutdown();
+            
+            // 写回购物车修改和会话访问时间（需在关闭连接池之前）
+            CartStore.shutdown();
+            SessionStore.shutdown();
+            
             // 关闭数据库连接池
             DatabaseConfig.closeDataSource();
             logger.info("数据库连接池已关闭");
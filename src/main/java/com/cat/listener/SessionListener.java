@@ -1,36 +1,234 @@
 package com.cat.listener;
 
+import com.cat.config.DatabaseConfig;
+import com.cat.metrics.MetricsRegistry;
+import com.cat.service.AuthTokenService;
+import com.cat.service.CartStore;
+
 import javax.servlet.annotation.WebListener;
+import javax.servlet.http.HttpSession;
+import javax.servlet.http.HttpSessionAttributeListener;
+import javax.servlet.http.HttpSessionBindingEvent;
 import javax.servlet.http.HttpSessionEvent;
 import javax.servlet.http.HttpSessionListener;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * 在线会话统计
+ * 活跃会话数和各用户类型的已登录会话数使用LongAdder计数，容器线程并发创建/销毁会话时不互相争用，也不会丢失更新。
+ * 每个本节点创建的会话保存一个不可序列化的跟踪对象，记录该会话计入的用户类型：
+ * 容器重启后恢复的会话不带跟踪对象，不参与计数，销毁时也不会把计数减成负数。
+ * 逐个事件的日志为DEBUG级别，INFO级别只按 session.log-interval-seconds 间隔输出汇总。
+ * auth.mode=token 时登录状态保存在无状态令牌中，会话不带用户类型，无法统计已登录用户：
+ * 此时只发布 eshop_sessions_active，不发布 eshop_sessions_authenticated 和 eshop_sessions_anonymous
+ */
 @WebListener
-public class SessionListener implements HttpSessionListener {
-    
+public class SessionListener implements HttpSessionListener, HttpSessionAttributeListener {
+
     private static final Logger logger = LoggerFactory.getLogger(SessionListener.class);
-    private static int activeSessionCount = 0;
-    
+
+    private static final String TRACKER_ATTRIBUTE = SessionListener.class.getName() + ".tracker";
+    private static final String USER_TYPE_ATTRIBUTE = "userType";
+
+    // 令牌认证时会话不记录登录状态，不发布按登录状态划分的指标
+    private static final boolean TRACK_AUTHENTICATED = !AuthTokenService.isEnabled();
+
+    private static final long LOG_INTERVAL_MILLIS = DatabaseConfig.getIntProperty("session.log-interval-seconds", 60) * 1000L;
+
+    private static final LongAdder activeSessions = new LongAdder();
+    private static final Map<String, LongAdder> authenticatedSessions = new ConcurrentHashMap<>();
+    private static final AtomicLong lastSummaryMillis = new AtomicLong();
+
+    static {
+        MetricsRegistry.gauge("eshop_sessions_active", "Active HTTP sessions on this node",
+                SessionListener::getActiveSessionCount);
+        if (TRACK_AUTHENTICATED) {
+            MetricsRegistry.gauge("eshop_sessions_anonymous", "Active HTTP sessions without a logged-in user",
+                    SessionListener::getAnonymousSessionCount);
+            authenticatedCounter("CUSTOMER");
+            authenticatedCounter("ADMIN");
+        }
+    }
+
     @Override
     public void sessionCreated(HttpSessionEvent se) {
-        activeSessionCount++;
-        logger.info("Session创建成功，SessionID: {}, 当前活跃Session数: {}", 
-                    se.getSession().getId(), activeSessionCount);
+        HttpSession session = se.getSession();
+        session.setAttribute(TRACKER_ATTRIBUTE, new Tracker());
+        activeSessions.increment();
+        logger.debug("Session创建成功，SessionID: {}", session.getId());
+        logSummaryIfDue();
     }
-    
+
     @Override
     public void sessionDestroyed(HttpSessionEvent se) {
-        activeSessionCount--;
-        logger.info("Session销毁成功，SessionID: {}, 当前活跃Session数: {}", 
-                    se.getSession().getId(), activeSessionCount);
+        HttpSession session = se.getSession();
+        // 会话过期时由购物车存储的后台线程写回并移出内存，不在容器的会话过期线程上访问数据库
+        Object customerId = session.getAttribute("customerId");
+        if (customerId instanceof Long) {
+            CartStore.release((Long) customerId);
+        }
+
+        Tracker tracker = tracker(session);
+        if (tracker == null) {
+            // 不是本节点创建的会话（如容器重启后恢复的会话），创建时没有计数
+            return;
+        }
+        synchronized (tracker) {
+            if (tracker.destroyed) {
+                return;
+            }
+            tracker.destroyed = true;
+            countUserType(tracker.userType, -1);
+            tracker.userType = null;
+        }
+        activeSessions.decrement();
+        logger.debug("Session销毁成功，SessionID: {}", session.getId());
+        logSummaryIfDue();
     }
-    
+
+    @Override
+    public void attributeAdded(HttpSessionBindingEvent event) {
+        if (USER_TYPE_ATTRIBUTE.equals(event.getName())) {
+            updateUserType(event.getSession(), event.getValue());
+        }
+    }
+
+    @Override
+    public void attributeReplaced(HttpSessionBindingEvent event) {
+        if (USER_TYPE_ATTRIBUTE.equals(event.getName())) {
+            // event.getValue() 为被替换的旧值，新值需要从会话读取
+            updateUserType(event.getSession(), event.getSession().getAttribute(USER_TYPE_ATTRIBUTE));
+        }
+    }
+
+    @Override
+    public void attributeRemoved(HttpSessionBindingEvent event) {
+        if (USER_TYPE_ATTRIBUTE.equals(event.getName())) {
+            updateUserType(event.getSession(), null);
+        }
+    }
+
     /**
      * 获取当前活跃Session数量
      * @return 活跃Session数量
      */
     public static int getActiveSessionCount() {
-        return activeSessionCount;
+        return (int) Math.max(0, activeSessions.sum());
+    }
+
+    /**
+     * 获取当前已登录的Session数量
+     * @return 已登录Session数量
+     */
+    public static int getAuthenticatedSessionCount() {
+        long total = 0;
+        for (LongAdder counter : authenticatedSessions.values()) {
+            total += counter.sum();
+        }
+        return (int) Math.max(0, total);
+    }
+
+    /**
+     * 获取当前未登录的Session数量
+     * 两个计数分别读取，并发变化时可能有瞬时偏差，不会小于0
+     * @return 未登录Session数量
+     */
+    public static int getAnonymousSessionCount() {
+        return Math.max(0, getActiveSessionCount() - getAuthenticatedSessionCount());
+    }
+
+    /**
+     * 获取指定用户类型的已登录Session数量
+     * @param userType 用户类型（CUSTOMER/ADMIN）
+     * @return 已登录Session数量
+     */
+    public static int getAuthenticatedSessionCount(String userType) {
+        LongAdder counter = authenticatedSessions.get(userType);
+        return counter == null ? 0 : (int) Math.max(0, counter.sum());
+    }
+
+    private static void updateUserType(HttpSession session, Object value) {
+        Tracker tracker;
+        try {
+            tracker = tracker(session);
+        } catch (IllegalStateException e) {
+            // 会话已失效，销毁时已经处理过计数
+            return;
+        }
+        if (tracker == null) {
+            return;
+        }
+        String userType = value != null ? value.toString() : null;
+        synchronized (tracker) {
+            if (tracker.destroyed || Objects.equals(tracker.userType, userType)) {
+                return;
+            }
+            countUserType(tracker.userType, -1);
+            countUserType(userType, 1);
+            tracker.userType = userType;
+        }
+    }
+
+    private static void countUserType(String userType, int delta) {
+        if (userType != null) {
+            authenticatedCounter(userType).add(delta);
+        }
+    }
+
+    private static LongAdder authenticatedCounter(String userType) {
+        LongAdder counter = authenticatedSessions.get(userType);
+        if (counter != null) {
+            return counter;
+        }
+        return authenticatedSessions.computeIfAbsent(userType, type -> {
+            LongAdder created = new LongAdder();
+            if (!TRACK_AUTHENTICATED) {
+                return created;
+            }
+            MetricsRegistry.gauge("eshop_sessions_authenticated", "Active HTTP sessions with a logged-in user, by user type",
+                    () -> Math.max(0, created.sum()), "user_type", type);
+            return created;
+        });
+    }
+
+    private static Tracker tracker(HttpSession session) {
+        Object attribute = session.getAttribute(TRACKER_ATTRIBUTE);
+        return attribute instanceof Tracker ? (Tracker) attribute : null;
+    }
+
+    /**
+     * 距上次汇总超过间隔时输出一次INFO汇总，同一时刻只有一个线程输出
+     */
+    private static void logSummaryIfDue() {
+        if (!logger.isInfoEnabled()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        long last = lastSummaryMillis.get();
+        if (now - last < LOG_INTERVAL_MILLIS || !lastSummaryMillis.compareAndSet(last, now)) {
+            return;
+        }
+        if (!TRACK_AUTHENTICATED) {
+            logger.info("当前活跃Session数: {}（令牌认证，不统计已登录用户）", getActiveSessionCount());
+            return;
+        }
+        logger.info("当前活跃Session数: {}，已登录: {}（顾客: {}，管理员: {}），未登录: {}",
+                getActiveSessionCount(), getAuthenticatedSessionCount(),
+                getAuthenticatedSessionCount("CUSTOMER"), getAuthenticatedSessionCount("ADMIN"),
+                getAnonymousSessionCount());
+    }
+
+    /**
+     * 会话跟踪对象，不实现Serializable：会话持久化时被丢弃，恢复的会话不参与计数
+     */
+    private static final class Tracker {
+        private String userType;
+        private boolean destroyed;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,126 @@
+package com.cat.metrics;
+
+/**
+ * 单个接口端点的统计快照（用于管理接口输出）
+ * 延迟单位为毫秒，吞吐为自启动以来的平均值；需要按时间窗口计算时请使用Prometheus的rate()
+ */
+public class EndpointSnapshot {
+    private String method;
+    private String route;
+    private long requests;
+    private long clientErrors;
+    private long serverErrors;
+    private double errorRate;
+    private double requestsPerSecond;
+    private double p50Ms;
+    private double p95Ms;
+    private double p99Ms;
+    private double maxMs;
+    private double securityP99Ms;
+    private double handlerP99Ms;
+
+    // Getters and Setters
+    public String getMethod() {
+        return method;
+    }
+
+    public void setMethod(String method) {
+        this.method = method;
+    }
+
+    public String getRoute() {
+        return route;
+    }
+
+    public void setRoute(String route) {
+        this.route = route;
+    }
+
+    public long getRequests() {
+        return requests;
+    }
+
+    public void setRequests(long requests) {
+        this.requests = requests;
+    }
+
+    public long getClientErrors() {
+        return clientErrors;
+    }
+
+    public void setClientErrors(long clientErrors) {
+        this.clientErrors = clientErrors;
+    }
+
+    public long getServerErrors() {
+        return serverErrors;
+    }
+
+    public void setServerErrors(long serverErrors) {
+        this.serverErrors = serverErrors;
+    }
+
+    public double getErrorRate() {
+        return errorRate;
+    }
+
+    public void setErrorRate(double errorRate) {
+        this.errorRate = errorRate;
+    }
+
+    public double getRequestsPerSecond() {
+        return requestsPerSecond;
+    }
+
+    public void setRequestsPerSecond(double requestsPerSecond) {
+        this.requestsPerSecond = requestsPerSecond;
+    }
+
+    public double getP50Ms() {
+        return p50Ms;
+    }
+
+    public void setP50Ms(double p50Ms) {
+        this.p50Ms = p50Ms;
+    }
+
+    public double getP95Ms() {
+        return p95Ms;
+    }
+
+    public void setP95Ms(double p95Ms) {
+        this.p95Ms = p95Ms;
+    }
+
+    public double getP99Ms() {
+        return p99Ms;
+    }
+
+    public void setP99Ms(double p99Ms) {
+        this.p99Ms = p99Ms;
+    }
+
+    public double getMaxMs() {
+        return maxMs;
+    }
+
+    public void setMaxMs(double maxMs) {
+        this.maxMs = maxMs;
+    }
+
+    public double getSecurityP99Ms() {
+        return securityP99Ms;
+    }
+
+    public void setSecurityP99Ms(double securityP99Ms) {
+        this.securityP99Ms = securityP99Ms;
+    }
+
+    public double getHandlerP99Ms() {
+        return handlerP99Ms;
+    }
+
+    public void setHandlerP99Ms(double handlerP99Ms) {
+        this.handlerP99Ms = handlerP99Ms;
+    }
+}
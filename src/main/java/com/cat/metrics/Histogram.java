@@ -0,0 +1,155 @@
+package com.cat.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 延迟直方图（HdrHistogram风格的对数-线性分桶）
+ * 以纳秒记录，每个2的幂区间再均分为16个子桶，相对误差不超过6.25%，可直接计算任意分位数。
+ * 记录操作只做一次位运算定位和一次原子自增，无锁，可被多个线程并发调用。
+ * 输出Prometheus文本时折算到固定的桶边界，便于用 histogram_quantile 聚合。
+ */
+public class Histogram {
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKET_HALF = 1 << SUB_BUCKET_BITS;         // 16
+    private static final int LINEAR_LIMIT = SUB_BUCKET_HALF << 1;            // 32
+    // 最大可记录值约为2^40纳秒（约18分钟），超过按最大值计
+    private static final int MAX_EXPONENT = 40;
+    private static final long MAX_VALUE = (1L << (MAX_EXPONENT + 1)) - 1;
+    private static final int BUCKET_COUNT = indexOf(MAX_VALUE) + 1;
+    
+    // Prometheus输出桶上界（秒）
+    private static final double[] EXPORT_BUCKETS = {
+        0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10
+    };
+    
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final LongAdder sumNanos = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+    
+    /**
+     * 记录一次耗时
+     * @param nanos 耗时（纳秒）
+     */
+    public void record(long nanos) {
+        long value = nanos < 0 ? 0 : Math.min(nanos, MAX_VALUE);
+        counts.incrementAndGet(indexOf(value));
+        sumNanos.add(value);
+        
+        long max = maxNanos.get();
+        while (value > max && !maxNanos.compareAndSet(max, value)) {
+            max = maxNanos.get();
+        }
+    }
+    
+    /**
+     * 计算桶下标：小于32的值每个值一个桶，之后每个2的幂区间16个桶
+     */
+    private static int indexOf(long value) {
+        if (value < LINEAR_LIMIT) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int shift = exponent - SUB_BUCKET_BITS;
+        int subBucket = (int) (value >>> shift);
+        return LINEAR_LIMIT + (shift - 1) * SUB_BUCKET_HALF + (subBucket - SUB_BUCKET_HALF);
+    }
+    
+    /**
+     * 桶内的最大值
+     */
+    private static long upperBoundOf(int index) {
+        if (index < LINEAR_LIMIT) {
+            return index;
+        }
+        int offset = index - LINEAR_LIMIT;
+        int shift = offset / SUB_BUCKET_HALF + 1;
+        long subBucket = offset % SUB_BUCKET_HALF + SUB_BUCKET_HALF;
+        return ((subBucket + 1) << shift) - 1;
+    }
+    
+    /**
+     * 获取记录总数
+     */
+    public long getCount() {
+        long total = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            total += counts.get(i);
+        }
+        return total;
+    }
+    
+    /**
+     * 获取最大值（纳秒）
+     */
+    public long getMaxNanos() {
+        return maxNanos.get();
+    }
+    
+    /**
+     * 获取平均值（纳秒）
+     */
+    public double getMeanNanos() {
+        long count = getCount();
+        return count == 0 ? 0 : (double) sumNanos.sum() / count;
+    }
+    
+    /**
+     * 计算分位数
+     * @param percentile 百分位（0-100）
+     * @return 对应的耗时上界（纳秒），没有记录时返回0
+     */
+    public long getValueAtPercentile(double percentile) {
+        long[] snapshot = new long[BUCKET_COUNT];
+        long total = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            snapshot[i] = counts.get(i);
+            total += snapshot[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        
+        long target = Math.max(1, (long) Math.ceil(total * Math.min(percentile, 100.0) / 100.0));
+        long cumulative = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            cumulative += snapshot[i];
+            if (cumulative >= target) {
+                return Math.min(upperBoundOf(i), maxNanos.get());
+            }
+        }
+        return maxNanos.get();
+    }
+    
+    /**
+     * 以Prometheus文本格式输出
+     * @param out 输出缓冲
+     * @param name 指标名称
+     * @param labels 已格式化的标签（不含花括号），可为空字符串
+     */
+    void writePrometheus(StringBuilder out, String name, String labels) {
+        String separator = labels.isEmpty() ? "" : ",";
+        long cumulative = 0;
+        int index = 0;
+        for (double bucket : EXPORT_BUCKETS) {
+            long limitNanos = (long) (bucket * 1_000_000_000L);
+            while (index < BUCKET_COUNT && upperBoundOf(index) <= limitNanos) {
+                cumulative += counts.get(index++);
+            }
+            out.append(name).append("_bucket{").append(labels).append(separator)
+               .append("le=\"").append(bucket).append("\"} ").append(cumulative).append('\n');
+        }
+        while (index < BUCKET_COUNT) {
+            cumulative += counts.get(index++);
+        }
+        out.append(name).append("_bucket{").append(labels).append(separator)
+           .append("le=\"+Inf\"} ").append(cumulative).append('\n');
+        out.append(name).append("_sum");
+        MetricsRegistry.appendLabels(out, labels);
+        out.append(' ').append(sumNanos.sum() / 1e9).append('\n');
+        out.append(name).append("_count");
+        MetricsRegistry.appendLabels(out, labels);
+        out.append(' ').append(cumulative).append('\n');
+    }
+}
@@ -0,0 +1,171 @@
+package com.cat.metrics;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+import java.util.function.Supplier;
+
+/**
+ * 指标注册中心
+ * 维护计数器、仪表和直方图，并以Prometheus文本格式输出。
+ * 指标对象应由调用方缓存复用，热点路径上不要每次都通过名称查找。
+ */
+public class MetricsRegistry {
+    private static final Logger logger = LoggerFactory.getLogger(MetricsRegistry.class);
+    
+    // 每个指标族最多的标签组合数，超出后归入 "other"，防止基数爆炸
+    private static final int MAX_SERIES_PER_FAMILY = 500;
+    
+    private static final Map<String, Family> families = new ConcurrentSkipListMap<>();
+    
+    /**
+     * 获取或创建直方图
+     * @param name 指标名称
+     * @param help 说明
+     * @param labels 标签，按 名称, 值, 名称, 值 ... 的顺序传入
+     * @return 直方图
+     */
+    public static Histogram histogram(String name, String help, String... labels) {
+        return (Histogram) family(name, help, "histogram").series(labels, Histogram::new);
+    }
+    
+    /**
+     * 获取或创建计数器
+     * @param name 指标名称
+     * @param help 说明
+     * @param labels 标签，按 名称, 值, 名称, 值 ... 的顺序传入
+     * @return 计数器
+     */
+    public static LongAdder counter(String name, String help, String... labels) {
+        return (LongAdder) family(name, help, "counter").series(labels, LongAdder::new);
+    }
+    
+    /**
+     * 注册仪表，输出时调用supplier读取当前值；重复注册同一标签组合会覆盖之前的supplier
+     * @param name 指标名称
+     * @param help 说明
+     * @param supplier 取值函数
+     * @param labels 标签，按 名称, 值, 名称, 值 ... 的顺序传入
+     */
+    public static void gauge(String name, String help, DoubleSupplier supplier, String... labels) {
+        family(name, help, "gauge").series.put(formatLabels(labels), supplier);
+    }
+    
+    /**
+     * 以Prometheus文本格式输出所有指标
+     * @return 指标文本
+     */
+    public static String scrape() {
+        StringBuilder out = new StringBuilder(4096);
+        for (Family family : families.values()) {
+            out.append("# HELP ").append(family.name).append(' ').append(family.help).append('\n');
+            out.append("# TYPE ").append(family.name).append(' ').append(family.type).append('\n');
+            
+            for (Map.Entry<String, Object> entry : family.series.entrySet()) {
+                String labels = entry.getKey();
+                Object metric = entry.getValue();
+                
+                if (metric instanceof Histogram) {
+                    ((Histogram) metric).writePrometheus(out, family.name, labels);
+                } else if (metric instanceof LongAdder) {
+                    out.append(family.name);
+                    appendLabels(out, labels);
+                    out.append(' ').append(((LongAdder) metric).sum()).append('\n');
+                } else if (metric instanceof DoubleSupplier) {
+                    double value;
+                    try {
+                        value = ((DoubleSupplier) metric).getAsDouble();
+                    } catch (RuntimeException e) {
+                        logger.warn("读取指标失败: {}", family.name, e);
+                        continue;
+                    }
+                    out.append(family.name);
+                    appendLabels(out, labels);
+                    out.append(' ').append(value).append('\n');
+                }
+            }
+        }
+        return out.toString();
+    }
+    
+    private static Family family(String name, String help, String type) {
+        Family family = families.computeIfAbsent(name, k -> new Family(name, help, type));
+        if (!family.type.equals(type)) {
+            throw new IllegalArgumentException("指标类型冲突: " + name);
+        }
+        return family;
+    }
+    
+    /**
+     * 将标签格式化为 k1="v1",k2="v2"
+     */
+    static String formatLabels(String... labels) {
+        if (labels.length % 2 != 0) {
+            throw new IllegalArgumentException("标签必须成对出现");
+        }
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < labels.length; i += 2) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append(labels[i]).append("=\"");
+            String value = labels[i + 1] == null ? "" : labels[i + 1];
+            for (int j = 0; j < value.length(); j++) {
+                char c = value.charAt(j);
+                if (c == '\\' || c == '"') {
+                    sb.append('\\').append(c);
+                } else if (c == '\n') {
+                    sb.append("\\n");
+                } else {
+                    sb.append(c);
+                }
+            }
+            sb.append('"');
+        }
+        return sb.toString();
+    }
+    
+    static void appendLabels(StringBuilder out, String labels) {
+        if (!labels.isEmpty()) {
+            out.append('{').append(labels).append('}');
+        }
+    }
+    
+    /**
+     * 指标族
+     */
+    private static class Family {
+        private final String name;
+        private final String help;
+        private final String type;
+        private final Map<String, Object> series = new ConcurrentHashMap<>();
+        
+        Family(String name, String help, String type) {
+            this.name = name;
+            this.help = help;
+            this.type = type;
+        }
+        
+        Object series(String[] labels, Supplier<Object> factory) {
+            String key = formatLabels(labels);
+            Object metric = series.get(key);
+            if (metric != null) {
+                return metric;
+            }
+            
+            if (series.size() >= MAX_SERIES_PER_FAMILY) {
+                String[] overflow = labels.clone();
+                for (int i = 1; i < overflow.length; i += 2) {
+                    overflow[i] = "other";
+                }
+                key = formatLabels(overflow);
+            }
+            return series.computeIfAbsent(key, k -> factory.get());
+        }
+    }
+}
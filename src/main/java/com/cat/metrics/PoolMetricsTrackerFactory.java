@@ -0,0 +1,72 @@
+package com.cat.metrics;
+
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * HikariCP连接池指标采集
+ * 由连接池在获取、使用、创建连接以及获取超时时回调，同时把连接池状态注册为仪表
+ */
+public class PoolMetricsTrackerFactory implements MetricsTrackerFactory {
+    
+    private static volatile PoolStats poolStats;
+    
+    @Override
+    public IMetricsTracker create(String poolName, PoolStats stats) {
+        poolStats = stats;
+        
+        String[] pool = {"pool", poolName};
+        MetricsRegistry.gauge("eshop_db_pool_active_connections", "Active connections in use",
+                () -> stats.getActiveConnections(), pool);
+        MetricsRegistry.gauge("eshop_db_pool_idle_connections", "Idle connections",
+                () -> stats.getIdleConnections(), pool);
+        MetricsRegistry.gauge("eshop_db_pool_total_connections", "Total connections",
+                () -> stats.getTotalConnections(), pool);
+        MetricsRegistry.gauge("eshop_db_pool_pending_threads", "Threads waiting for a connection",
+                () -> stats.getPendingThreads(), pool);
+        MetricsRegistry.gauge("eshop_db_pool_max_connections", "Maximum pool size",
+                () -> stats.getMaxConnections(), pool);
+        
+        Histogram acquire = MetricsRegistry.histogram("eshop_db_pool_acquire_seconds",
+                "Time spent waiting to check out a connection", pool);
+        Histogram usage = MetricsRegistry.histogram("eshop_db_pool_usage_seconds",
+                "Time a connection was held before being returned", pool);
+        Histogram creation = MetricsRegistry.histogram("eshop_db_pool_creation_seconds",
+                "Time taken to create a new physical connection", pool);
+        LongAdder timeouts = MetricsRegistry.counter("eshop_db_pool_timeouts_total",
+                "Connection checkout timeouts", pool);
+        
+        return new IMetricsTracker() {
+            @Override
+            public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+                acquire.record(elapsedAcquiredNanos);
+            }
+            
+            @Override
+            public void recordConnectionUsageMillis(long elapsedBorrowedMillis) {
+                usage.record(TimeUnit.MILLISECONDS.toNanos(elapsedBorrowedMillis));
+            }
+            
+            @Override
+            public void recordConnectionCreatedMillis(long connectionCreatedMillis) {
+                creation.record(TimeUnit.MILLISECONDS.toNanos(connectionCreatedMillis));
+            }
+            
+            @Override
+            public void recordConnectionTimeout() {
+                timeouts.increment();
+            }
+        };
+    }
+    
+    /**
+     * 获取当前连接池状态，连接池未初始化时返回null
+     */
+    public static PoolStats getPoolStats() {
+        return poolStats;
+    }
+}
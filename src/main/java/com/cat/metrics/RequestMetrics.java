@@ -0,0 +1,189 @@
+package com.cat.metrics;
+
+import javax.servlet.ServletRequest;
+import javax.servlet.http.HttpServletRequest;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 接口请求指标
+ * 按 HTTP方法 + 规范化路由模板（如 GET /api/products/{id:long}）统计延迟、吞吐和错误数，
+ * 并把SecurityFilter的耗时与其余处理耗时分开记录。
+ * 路由模板由Servlet在路由匹配后通过 setRoute 写入请求属性，未匹配的请求归入 unmatched / static。
+ */
+public class RequestMetrics {
+
+    private static final String ROUTE_ATTRIBUTE = "com.cat.metrics.route";
+    private static final String SECURITY_NANOS_ATTRIBUTE = "com.cat.metrics.securityNanos";
+
+    // 最多统计的端点数，超出后归入 other，防止异常路径导致基数爆炸
+    private static final int MAX_ENDPOINTS = 200;
+
+    private static final AtomicInteger inFlight = new AtomicInteger();
+    private static final ConcurrentHashMap<String, EndpointStats> endpoints = new ConcurrentHashMap<>();
+    private static final long startNanos = System.nanoTime();
+
+    static {
+        MetricsRegistry.gauge("eshop_http_requests_in_flight", "HTTP requests currently being processed",
+                inFlight::get);
+    }
+
+    /**
+     * 请求开始处理
+     */
+    public static void requestStarted() {
+        inFlight.incrementAndGet();
+    }
+
+    /**
+     * 请求处理结束，记录耗时和状态码
+     * @param request HTTP请求对象
+     * @param status 响应状态码
+     * @param requestStartNanos 请求开始时间
+     */
+    public static void requestCompleted(HttpServletRequest request, int status, long requestStartNanos) {
+        long elapsed = System.nanoTime() - requestStartNanos;
+        inFlight.decrementAndGet();
+
+        Object securityAttribute = request.getAttribute(SECURITY_NANOS_ATTRIBUTE);
+        long securityNanos = securityAttribute instanceof Long ? (Long) securityAttribute : 0;
+
+        EndpointStats stats = endpointStats(request.getMethod(), routeOf(request));
+        stats.latency.record(elapsed);
+        if (securityAttribute != null) {
+            stats.security.record(securityNanos);
+        }
+        stats.handler.record(Math.max(0, elapsed - securityNanos));
+        stats.countStatus(status);
+    }
+
+    /**
+     * 记录路由模板，由Servlet在路由匹配成功后调用
+     * @param request HTTP请求对象
+     * @param template 路由表中的模板（相对于Servlet路径）
+     */
+    public static void setRoute(HttpServletRequest request, String template) {
+        request.setAttribute(ROUTE_ATTRIBUTE, request.getServletPath() + template);
+    }
+
+    /**
+     * 累加SecurityFilter的耗时
+     * @param request 请求对象
+     * @param nanos 耗时（纳秒）
+     */
+    public static void recordSecurityTime(ServletRequest request, long nanos) {
+        Object previous = request.getAttribute(SECURITY_NANOS_ATTRIBUTE);
+        long total = previous instanceof Long ? (Long) previous + nanos : nanos;
+        request.setAttribute(SECURITY_NANOS_ATTRIBUTE, total);
+    }
+
+    /**
+     * 当前正在处理的请求数
+     */
+    public static int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * 获取所有端点的统计快照，按请求数倒序
+     */
+    public static List<EndpointSnapshot> snapshot() {
+        double uptimeSeconds = Math.max(1e-9, (System.nanoTime() - startNanos) / 1e9);
+        List<EndpointSnapshot> result = new ArrayList<>(endpoints.size());
+        for (EndpointStats stats : endpoints.values()) {
+            result.add(stats.snapshot(uptimeSeconds));
+        }
+        result.sort(Comparator.comparingLong(EndpointSnapshot::getRequests).reversed());
+        return result;
+    }
+
+    private static String routeOf(HttpServletRequest request) {
+        Object route = request.getAttribute(ROUTE_ATTRIBUTE);
+        if (route != null) {
+            return (String) route;
+        }
+        return request.getServletPath().startsWith("/api") ? "unmatched" : "static";
+    }
+
+    private static EndpointStats endpointStats(String method, String route) {
+        String key = method + ' ' + route;
+        EndpointStats stats = endpoints.get(key);
+        if (stats != null) {
+            return stats;
+        }
+        if (endpoints.size() >= MAX_ENDPOINTS) {
+            return endpoints.computeIfAbsent("other other", k -> new EndpointStats("other", "other"));
+        }
+        return endpoints.computeIfAbsent(key, k -> new EndpointStats(method, route));
+    }
+
+    /**
+     * 单个端点的统计项
+     */
+    private static class EndpointStats {
+        private final String method;
+        private final String route;
+        private final Histogram latency;
+        private final Histogram security;
+        private final Histogram handler;
+        private final LongAdder success;
+        private final LongAdder clientErrors;
+        private final LongAdder serverErrors;
+
+        EndpointStats(String method, String route) {
+            this.method = method;
+            this.route = route;
+            this.latency = MetricsRegistry.histogram("eshop_http_request_seconds",
+                    "HTTP request latency", "method", method, "route", route);
+            this.security = MetricsRegistry.histogram("eshop_http_security_filter_seconds",
+                    "Time spent in SecurityFilter checks", "method", method, "route", route);
+            this.handler = MetricsRegistry.histogram("eshop_http_handler_seconds",
+                    "HTTP request latency excluding SecurityFilter", "method", method, "route", route);
+            this.success = requestCounter("2xx");
+            this.clientErrors = requestCounter("4xx");
+            this.serverErrors = requestCounter("5xx");
+        }
+
+        private LongAdder requestCounter(String statusClass) {
+            return MetricsRegistry.counter("eshop_http_requests_total", "HTTP requests by status class",
+                    "method", method, "route", route, "status", statusClass);
+        }
+
+        void countStatus(int status) {
+            if (status >= 500) {
+                serverErrors.increment();
+            } else if (status >= 400) {
+                clientErrors.increment();
+            } else {
+                success.increment();
+            }
+        }
+
+        EndpointSnapshot snapshot(double uptimeSeconds) {
+            long ok = success.sum();
+            long client = clientErrors.sum();
+            long server = serverErrors.sum();
+            long requests = ok + client + server;
+
+            EndpointSnapshot snapshot = new EndpointSnapshot();
+            snapshot.setMethod(method);
+            snapshot.setRoute(route);
+            snapshot.setRequests(requests);
+            snapshot.setClientErrors(client);
+            snapshot.setServerErrors(server);
+            snapshot.setErrorRate(requests == 0 ? 0 : (double) server / requests);
+            snapshot.setRequestsPerSecond(requests / uptimeSeconds);
+            snapshot.setP50Ms(latency.getValueAtPercentile(50) / 1e6);
+            snapshot.setP95Ms(latency.getValueAtPercentile(95) / 1e6);
+            snapshot.setP99Ms(latency.getValueAtPercentile(99) / 1e6);
+            snapshot.setMaxMs(latency.getMaxNanos() / 1e6);
+            snapshot.setSecurityP99Ms(security.getValueAtPercentile(99) / 1e6);
+            snapshot.setHandlerP99Ms(handler.getValueAtPercentile(99) / 1e6);
+            return snapshot;
+        }
+    }
+}
@@ -1,5 +1,8 @@
 package com.cat.model;
 
+import com.cat.util.JsonColumnCodec;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
@@ -17,6 +20,7 @@ public class Product {
     private Long categoryId;
     private String imageUrl;
     private List<String> images; // 多张图片URL列表
+    private String imagesJson; // images列的原始JSON文本，首次访问图片列表时才解析
     private BigDecimal weight;
     private String dimensions; // 尺寸信息，可以是JSON字符串
     private boolean isActive;
@@ -129,11 +133,28 @@ public class Product {
     }
     
     public List<String> getImages() {
+        if (images == null && imagesJson != null) {
+            images = JsonColumnCodec.decodeImages(imagesJson);
+        }
         return images;
     }
     
     public void setImages(List<String> images) {
         this.images = images;
+        this.imagesJson = null;
+    }
+    
+    /**
+     * images列的JSON文本：从数据库读取且未修改时直接返回原文，否则由图片列表编码
+     */
+    @JsonIgnore
+    public String getImagesJson() {
+        return imagesJson != null ? imagesJson : JsonColumnCodec.encodeImages(images);
+    }
+    
+    public void setImagesJson(String imagesJson) {
+        this.imagesJson = imagesJson;
+        this.images = null;
     }
     
     public BigDecimal getWeight() {
@@ -0,0 +1,121 @@
+package com.cat.model;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * 商品摘要（列表、推荐和搜索结果使用）
+ * 只包含列表页展示需要的列，不读取description、images、dimensions等大字段；商品详情仍使用Product
+ */
+public class ProductSummary {
+    private Long id;
+    private String name;
+    private String shortDescription;
+    private String sku;
+    private BigDecimal price;
+    private int stockQuantity;
+    private Long categoryId;
+    private String imageUrl;
+    private boolean isFeatured;
+    private LocalDateTime createdAt;
+    
+    // 关联的分类信息
+    private Category category;
+    
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+    
+    public void setId(Long id) {
+        this.id = id;
+    }
+    
+    public String getName() {
+        return name;
+    }
+    
+    public void setName(String name) {
+        this.name = name;
+    }
+    
+    public String getShortDescription() {
+        return shortDescription;
+    }
+    
+    public void setShortDescription(String shortDescription) {
+        this.shortDescription = shortDescription;
+    }
+    
+    public String getSku() {
+        return sku;
+    }
+    
+    public void setSku(String sku) {
+        this.sku = sku;
+    }
+    
+    public BigDecimal getPrice() {
+        return price;
+    }
+    
+    public void setPrice(BigDecimal price) {
+        this.price = price;
+    }
+    
+    public int getStockQuantity() {
+        return stockQuantity;
+    }
+    
+    public void setStockQuantity(int stockQuantity) {
+        this.stockQuantity = stockQuantity;
+    }
+    
+    public Long getCategoryId() {
+        return categoryId;
+    }
+    
+    public void setCategoryId(Long categoryId) {
+        this.categoryId = categoryId;
+    }
+    
+    public String getImageUrl() {
+        return imageUrl;
+    }
+    
+    public void setImageUrl(String imageUrl) {
+        this.imageUrl = imageUrl;
+    }
+    
+    public boolean isFeatured() {
+        return isFeatured;
+    }
+    
+    public void setFeatured(boolean featured) {
+        isFeatured = featured;
+    }
+    
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+    
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+    
+    public Category getCategory() {
+        return category;
+    }
+    
+    public void setCategory(Category category) {
+        this.category = category;
+    }
+    
+    /**
+     * 检查是否有库存
+     * @return 是否有库存
+     */
+    public boolean isInStock() {
+        return stockQuantity > 0;
+    }
+}
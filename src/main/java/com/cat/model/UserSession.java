@@ -0,0 +1,104 @@
+package com.cat.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * 登录会话（user_sessions表）
+ */
+public class UserSession {
+    private String sessionId;
+    private String userType;
+    private Long userId;
+    private String ipAddress;
+    private String userAgent;
+    private LocalDateTime createdAt;
+    private LocalDateTime lastAccessedAt;
+    private LocalDateTime expiresAt;
+
+    public UserSession() {}
+
+    public UserSession(String sessionId, String userType, Long userId) {
+        this.sessionId = sessionId;
+        this.userType = userType;
+        this.userId = userId;
+    }
+
+    // Getters and Setters
+    public String getSessionId() {
+        return sessionId;
+    }
+
+    public void setSessionId(String sessionId) {
+        this.sessionId = sessionId;
+    }
+
+    public String getUserType() {
+        return userType;
+    }
+
+    public void setUserType(String userType) {
+        this.userType = userType;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public String getIpAddress() {
+        return ipAddress;
+    }
+
+    public void setIpAddress(String ipAddress) {
+        this.ipAddress = ipAddress;
+    }
+
+    public String getUserAgent() {
+        return userAgent;
+    }
+
+    public void setUserAgent(String userAgent) {
+        this.userAgent = userAgent;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public LocalDateTime getLastAccessedAt() {
+        return lastAccessedAt;
+    }
+
+    public void setLastAccessedAt(LocalDateTime lastAccessedAt) {
+        this.lastAccessedAt = lastAccessedAt;
+    }
+
+    public LocalDateTime getExpiresAt() {
+        return expiresAt;
+    }
+
+    public void setExpiresAt(LocalDateTime expiresAt) {
+        this.expiresAt = expiresAt;
+    }
+
+    // 业务方法
+    public boolean isAdmin() {
+        return "ADMIN".equals(userType);
+    }
+
+    @Override
+    public String toString() {
+        return "UserSession{" +
+                "userType='" + userType + '\'' +
+                ", userId=" + userId +
+                ", expiresAt=" + expiresAt +
+                '}';
+    }
+}
@@ -0,0 +1,29 @@
+package com.cat.pricing;
+
+/**
+ * 多件折扣：同一商品的数量达到门槛时，该购物车项按比例打折
+ */
+public class BulkDiscountRule implements PromotionRule {
+    private final int minQuantity;
+    private final long rate;
+
+    /**
+     * @param minQuantity 数量门槛
+     * @param rate 折扣比例（百万分之一，如100000表示减免10%）
+     */
+    public BulkDiscountRule(int minQuantity, long rate) {
+        if (minQuantity < 1 || rate < 0 || rate > Money.RATE_UNIT) {
+            throw new IllegalArgumentException("多件折扣参数无效: " + minQuantity + "/" + rate);
+        }
+        this.minQuantity = minQuantity;
+        this.rate = rate;
+    }
+
+    @Override
+    public long lineDiscount(long productId, long unitPrice, int quantity) {
+        if (quantity < minQuantity) {
+            return 0;
+        }
+        return Money.applyRate(Math.multiplyExact(unitPrice, quantity), rate);
+    }
+}
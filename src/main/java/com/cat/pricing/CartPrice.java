@@ -0,0 +1,31 @@
+package com.cat.pricing;
+
+/**
+ * 购物车计价结果（金额单位为分）
+ * 应付金额 = 小计 - 折扣 + 运费 + 税费
+ */
+public final class CartPrice {
+    /** 空购物车 */
+    public static final CartPrice EMPTY = new CartPrice(0, 0, 0, 0, 0);
+
+    private final int totalQuantity;
+    private final long subtotal;
+    private final long discount;
+    private final long shipping;
+    private final long tax;
+
+    public CartPrice(int totalQuantity, long subtotal, long discount, long shipping, long tax) {
+        this.totalQuantity = totalQuantity;
+        this.subtotal = subtotal;
+        this.discount = discount;
+        this.shipping = shipping;
+        this.tax = tax;
+    }
+
+    public int getTotalQuantity() { return totalQuantity; }
+    public long getSubtotal() { return subtotal; }
+    public long getDiscount() { return discount; }
+    public long getShipping() { return shipping; }
+    public long getTax() { return tax; }
+    public long getPayable() { return subtotal - discount + shipping + tax; }
+}
@@ -0,0 +1,53 @@
+package com.cat.pricing;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * 金额换算：计价引擎内部以"分"（两位小数的最小货币单位）为单位的long计算，只在接口边界与BigDecimal互相转换。
+ * 数据库中的金额为 DECIMAL(10,2)，转换为分是精确的
+ */
+public final class Money {
+    /** 金额的小数位数 */
+    public static final int SCALE = 2;
+
+    /** 比率（税率等）的精度：百万分之一 */
+    public static final long RATE_UNIT = 1_000_000L;
+
+    private Money() {
+    }
+
+    /**
+     * 金额转换为分，超过两位小数时四舍五入
+     */
+    public static long toMinor(BigDecimal amount) {
+        return amount.setScale(SCALE, RoundingMode.HALF_UP).movePointRight(SCALE).longValueExact();
+    }
+
+    /**
+     * 分转换为金额（两位小数）
+     */
+    public static BigDecimal toDecimal(long minor) {
+        return BigDecimal.valueOf(minor, SCALE);
+    }
+
+    /**
+     * 比率转换为百万分之一的整数（如0.06转换为60000），超过六位小数时四舍五入
+     */
+    public static long toRate(BigDecimal rate) {
+        return rate.movePointRight(6).setScale(0, RoundingMode.HALF_UP).longValueExact();
+    }
+
+    /**
+     * 金额乘以比率，结果四舍五入到分（与 BigDecimal.multiply(rate).setScale(2, HALF_UP) 的结果相同）
+     * @param minor 金额（分）
+     * @param rate 比率（百万分之一）
+     * @return 结果（分）
+     */
+    public static long applyRate(long minor, long rate) {
+        if (minor < 0) {
+            return -applyRate(-minor, rate);
+        }
+        return (Math.multiplyExact(minor, rate) + RATE_UNIT / 2) / RATE_UNIT;
+    }
+}
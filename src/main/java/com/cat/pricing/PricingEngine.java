@@ -0,0 +1,84 @@
+package com.cat.pricing;
+
+import java.util.List;
+
+/**
+ * 购物车计价引擎
+ * 全部以分为单位的long计算（溢出时抛出ArithmeticException，不会静默出错），一遍循环算出小计、数量和购物车项折扣，
+ * 再依次计算整单折扣、运费和税费：
+ * 折扣合计不超过小计；运费按扣除折扣后的商品金额是否达到免运费门槛决定；税费按扣除折扣后的商品金额计算，四舍五入到分。
+ * 不可变，多个线程共享同一实例
+ */
+public final class PricingEngine {
+    private final PromotionRule[] rules;
+    private final long taxRate;
+    private final long freeShippingThreshold;
+    private final long shippingFee;
+
+    /**
+     * @param rules 促销规则，按顺序应用
+     * @param taxRate 税率（百万分之一）
+     * @param freeShippingThreshold 免运费门槛（分）
+     * @param shippingFee 运费（分）
+     */
+    public PricingEngine(List<PromotionRule> rules, long taxRate, long freeShippingThreshold, long shippingFee) {
+        this.rules = rules.toArray(new PromotionRule[0]);
+        this.taxRate = taxRate;
+        this.freeShippingThreshold = freeShippingThreshold;
+        this.shippingFee = shippingFee;
+    }
+
+    /**
+     * 计算整个购物车
+     * @param productIds 商品ID
+     * @param unitPrices 单价（分）
+     * @param quantities 数量
+     * @param count 购物车项数（数组可以更长）
+     * @return 计价结果
+     */
+    public CartPrice price(long[] productIds, long[] unitPrices, int[] quantities, int count) {
+        long subtotal = 0;
+        long lineDiscount = 0;
+        int totalQuantity = 0;
+        for (int i = 0; i < count; i++) {
+            subtotal = Math.addExact(subtotal, Math.multiplyExact(unitPrices[i], quantities[i]));
+            totalQuantity += quantities[i];
+            if (rules.length > 0) {
+                lineDiscount += lineDiscount(productIds[i], unitPrices[i], quantities[i]);
+            }
+        }
+        return total(subtotal, lineDiscount, totalQuantity);
+    }
+
+    /**
+     * 一个购物车项的折扣（各规则之和，不超过该项金额）
+     * 购物车存储按项增量维护合计时单独调用
+     */
+    public long lineDiscount(long productId, long unitPrice, int quantity) {
+        long discount = 0;
+        for (PromotionRule rule : rules) {
+            discount += rule.lineDiscount(productId, unitPrice, quantity);
+        }
+        return Math.max(0, Math.min(discount, Math.multiplyExact(unitPrice, quantity)));
+    }
+
+    /**
+     * 由小计和购物车项折扣合计计算整单折扣、运费和税费
+     * @param subtotal 小计（分）
+     * @param lineDiscount 购物车项折扣合计（分）
+     * @param totalQuantity 商品总数量
+     * @return 计价结果
+     */
+    public CartPrice total(long subtotal, long lineDiscount, int totalQuantity) {
+        long discount = lineDiscount;
+        for (PromotionRule rule : rules) {
+            discount += rule.orderDiscount(subtotal, lineDiscount, totalQuantity);
+        }
+        discount = Math.max(0, Math.min(discount, subtotal));
+
+        long goods = subtotal - discount;
+        long shipping = totalQuantity == 0 || goods >= freeShippingThreshold ? 0 : shippingFee;
+        long tax = Money.applyRate(goods, taxRate);
+        return new CartPrice(totalQuantity, subtotal, discount, shipping, tax);
+    }
+}
@@ -0,0 +1,32 @@
+package com.cat.pricing;
+
+/**
+ * 促销规则（计价引擎插件）
+ * 金额单位均为分。lineDiscount 在计算小计的同一遍循环中对每个购物车项调用一次，
+ * orderDiscount 在循环结束后调用一次；两者都不应分配对象或访问外部资源。
+ * 规则实例在多个线程间共享，必须是无状态或不可变的
+ */
+public interface PromotionRule {
+
+    /**
+     * 购物车项的折扣
+     * @param productId 商品ID
+     * @param unitPrice 单价（分）
+     * @param quantity 数量
+     * @return 折扣金额（分），不打折时为0
+     */
+    default long lineDiscount(long productId, long unitPrice, int quantity) {
+        return 0;
+    }
+
+    /**
+     * 整单折扣，各规则看到的都是同一组输入，不叠加其他整单规则的结果
+     * @param subtotal 小计（分）
+     * @param lineDiscount 购物车项折扣合计（分）
+     * @param totalQuantity 商品总数量
+     * @return 折扣金额（分），不打折时为0
+     */
+    default long orderDiscount(long subtotal, long lineDiscount, int totalQuantity) {
+        return 0;
+    }
+}
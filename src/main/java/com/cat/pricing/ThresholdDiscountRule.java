@@ -0,0 +1,26 @@
+package com.cat.pricing;
+
+/**
+ * 满减：扣除购物车项折扣后的金额达到门槛时减去固定金额
+ */
+public class ThresholdDiscountRule implements PromotionRule {
+    private final long threshold;
+    private final long discount;
+
+    /**
+     * @param threshold 门槛金额（分）
+     * @param discount 减免金额（分）
+     */
+    public ThresholdDiscountRule(long threshold, long discount) {
+        if (threshold < 0 || discount < 0) {
+            throw new IllegalArgumentException("满减金额无效: " + threshold + "/" + discount);
+        }
+        this.threshold = threshold;
+        this.discount = discount;
+    }
+
+    @Override
+    public long orderDiscount(long subtotal, long lineDiscount, int totalQuantity) {
+        return subtotal - lineDiscount >= threshold ? discount : 0;
+    }
+}
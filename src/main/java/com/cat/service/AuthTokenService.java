@@ -0,0 +1,215 @@
+package com.cat.service;
+
+import com.cat.config.DatabaseConfig;
+import com.cat.metrics.MetricsRegistry;
+import com.cat.model.UserSession;
+import com.cat.util.SignedToken;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 无状态令牌认证（auth.mode=token 时启用）
+ * 登录时签发HMAC签名令牌（用户ID、用户类型、过期时间），通过 HttpOnly Cookie 或 Authorization: Bearer 传递。
+ * 校验只需计算一次HMAC，不访问数据库也不依赖容器会话，任意节点都能识别。
+ * 令牌使用过半有效期后，下一次请求会换发新令牌，活跃用户不会在有效期结束时被登出。
+ * 令牌带有登录ID，换发的新令牌沿用原登录ID；退出登录时按登录ID吊销，该次登录换发过的所有令牌一并失效。
+ * 吊销记录保留到该次登录可能签发的最晚令牌过期为止，列表最多 auth.revocation-max-entries 项；
+ * 其他节点不知道该吊销，多节点部署时应保持较短的有效期
+ */
+public class AuthTokenService {
+    private static final Logger logger = LoggerFactory.getLogger(AuthTokenService.class);
+
+    public static final String COOKIE_NAME = "ESHOP_TOKEN";
+
+    /** 请求属性：已校验的令牌内容 */
+    private static final String CLAIMS_ATTRIBUTE = AuthTokenService.class.getName() + ".claims";
+
+    private static final boolean ENABLED = "token".equalsIgnoreCase(DatabaseConfig.getProperty("auth.mode", "session"));
+    private static final int REVOCATION_MAX_ENTRIES = DatabaseConfig.getIntProperty("auth.revocation-max-entries", 100000);
+
+    private static final SecureRandom random = new SecureRandom();
+    private static final SignedToken signer = new SignedToken(loadSecret());
+
+    // 登录ID -> 吊销记录的过期时间（epoch秒）
+    private static final ConcurrentHashMap<Long, Long> revoked = new ConcurrentHashMap<>();
+
+    private static final LongAdder accepted = verificationCounter("accepted");
+    private static final LongAdder rejected = verificationCounter("rejected");
+    private static final LongAdder revokedHits = verificationCounter("revoked");
+
+    static {
+        MetricsRegistry.gauge("eshop_auth_revoked_tokens", "Revoked tokens held by this node", revoked::size);
+    }
+
+    /**
+     * 是否启用无状态令牌认证
+     */
+    public static boolean isEnabled() {
+        return ENABLED;
+    }
+
+    /**
+     * 签发令牌
+     * @param userId 用户ID
+     * @param userType 用户类型（CUSTOMER/ADMIN）
+     * @param timeoutSeconds 有效期（秒）
+     * @return 令牌文本
+     */
+    public static String issue(Long userId, String userType, int timeoutSeconds) {
+        return issue(userId, userType, timeoutSeconds, random.nextLong());
+    }
+
+    private static String issue(long userId, String userType, int timeoutSeconds, long loginId) {
+        long now = System.currentTimeMillis() / 1000;
+        return signer.issue(new SignedToken.Claims(userId, userType, now, now + timeoutSeconds, loginId));
+    }
+
+    /**
+     * 以 HttpOnly Cookie 写出令牌
+     * @param maxAgeSeconds Cookie有效期，-1表示浏览器关闭时失效
+     */
+    public static void writeCookie(HttpServletRequest request, HttpServletResponse response,
+                                   String token, int maxAgeSeconds) {
+        Cookie cookie = new Cookie(COOKIE_NAME, token);
+        cookie.setHttpOnly(true);
+        cookie.setSecure(request.isSecure());
+        cookie.setPath(request.getContextPath().isEmpty() ? "/" : request.getContextPath());
+        cookie.setMaxAge(maxAgeSeconds);
+        response.addCookie(cookie);
+    }
+
+    /**
+     * 校验请求携带的令牌
+     * @param request 当前请求
+     * @return 令牌对应的会话，未携带令牌、令牌无效、已过期或已吊销时返回null
+     */
+    public static UserSession authenticate(HttpServletRequest request) {
+        String token = readToken(request);
+        if (token == null) {
+            return null;
+        }
+
+        long now = System.currentTimeMillis() / 1000;
+        SignedToken.Claims claims = signer.verify(token, now);
+        if (claims == null) {
+            rejected.increment();
+            return null;
+        }
+        if (!revoked.isEmpty() && revoked.containsKey(claims.getLoginId())) {
+            revokedHits.increment();
+            return null;
+        }
+
+        accepted.increment();
+        request.setAttribute(CLAIMS_ATTRIBUTE, claims);
+        return new UserSession(null, claims.getUserType(), claims.getUserId());
+    }
+
+    /**
+     * 令牌已使用过半有效期时换发新令牌（有效期和登录ID与原令牌相同），需在 authenticate 之后调用
+     * @param request 当前请求
+     * @param response 当前响应
+     */
+    public static void refreshIfNeeded(HttpServletRequest request, HttpServletResponse response) {
+        Object attribute = request.getAttribute(CLAIMS_ATTRIBUTE);
+        if (!(attribute instanceof SignedToken.Claims)) {
+            return;
+        }
+        SignedToken.Claims claims = (SignedToken.Claims) attribute;
+        long now = System.currentTimeMillis() / 1000;
+        long lifetime = claims.getExpiresAt() - claims.getIssuedAt();
+        if (now - claims.getIssuedAt() < lifetime / 2) {
+            return;
+        }
+
+        // 浏览器不回传Cookie的有效期，有效期长于会话超时的令牌视为"记住我"登录，继续使用持久Cookie
+        boolean persistent = lifetime > SettingsService.getSessionTimeoutMinutes() * 60L;
+        String token = issue(claims.getUserId(), claims.getUserType(), (int) lifetime, claims.getLoginId());
+        writeCookie(request, response, token, persistent ? (int) lifetime : -1);
+        response.setHeader("X-Auth-Token", token);
+    }
+
+    /**
+     * 吊销请求携带的令牌所属的登录并清除Cookie（退出登录）
+     * 之前换发的令牌和其他客户端持有的同一次登录的令牌一并失效
+     */
+    public static void revoke(HttpServletRequest request, HttpServletResponse response) {
+        String token = readToken(request);
+        long now = System.currentTimeMillis() / 1000;
+        SignedToken.Claims claims = token != null ? signer.verify(token, now) : null;
+        if (claims != null) {
+            if (revoked.size() >= REVOCATION_MAX_ENTRIES) {
+                evictRevoked();
+            }
+            // 同一次登录此前签发的令牌最晚在 now + 有效期 过期
+            long lifetime = claims.getExpiresAt() - claims.getIssuedAt();
+            revoked.merge(claims.getLoginId(), now + lifetime, Math::max);
+        }
+        writeCookie(request, response, "", 0);
+    }
+
+    /**
+     * 吊销列表已满时先删除已过期的项；仍然已满时删除最早过期的项，保证内存有上限
+     */
+    private static synchronized void evictRevoked() {
+        long now = System.currentTimeMillis() / 1000;
+        revoked.values().removeIf(expiresAt -> expiresAt <= now);
+        if (revoked.size() < REVOCATION_MAX_ENTRIES) {
+            return;
+        }
+
+        Map.Entry<Long, Long> earliest = null;
+        for (Map.Entry<Long, Long> entry : revoked.entrySet()) {
+            if (earliest == null || entry.getValue() < earliest.getValue()) {
+                earliest = entry;
+            }
+        }
+        if (earliest != null) {
+            revoked.remove(earliest.getKey());
+            logger.warn("令牌吊销列表已满（{}项），提前移除最早过期的吊销记录", REVOCATION_MAX_ENTRIES);
+        }
+    }
+
+    private static String readToken(HttpServletRequest request) {
+        String authorization = request.getHeader("Authorization");
+        if (authorization != null && authorization.regionMatches(true, 0, "Bearer ", 0, 7)) {
+            return authorization.substring(7).trim();
+        }
+        Cookie[] cookies = request.getCookies();
+        if (cookies != null) {
+            for (Cookie cookie : cookies) {
+                if (COOKIE_NAME.equals(cookie.getName())) {
+                    return cookie.getValue();
+                }
+            }
+        }
+        return null;
+    }
+
+    private static byte[] loadSecret() {
+        String secret = DatabaseConfig.getProperty("auth.token-secret", "");
+        if (!secret.isEmpty()) {
+            return Base64.getDecoder().decode(secret);
+        }
+        byte[] generated = new byte[32];
+        random.nextBytes(generated);
+        if (ENABLED) {
+            logger.warn("未配置auth.token-secret，使用随机密钥：重启后已签发的令牌失效，多个节点之间的令牌也不能互认");
+        }
+        return generated;
+    }
+
+    private static LongAdder verificationCounter(String result) {
+        return MetricsRegistry.counter("eshop_auth_token_verifications_total",
+                "Token verifications by result", "result", result);
+    }
+}
@@ -0,0 +1,940 @@
+package com.cat.service;
+
+import com.cat.config.DatabaseConfig;
+import com.cat.dao.ShoppingCartDAO;
+import com.cat.metrics.MetricsRegistry;
+import com.cat.model.Product;
+import com.cat.model.ShoppingCart;
+import com.cat.pricing.Money;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * 购物车存储（写后回写）
+ * 活跃顾客的购物车保存在本节点内存中，读取和修改都在内存中完成，以内存中的内容为准；
+ * 修改只记录每个商品的最新数量（多次修改合并为一次），由后台线程每 cart.flush-interval-millis 毫秒
+ * 把所有待写回的购物车合并为几条批量语句写入 shopping_cart。
+ * 结算前（校验、库存检查）、退出登录和应用关闭时立即写回；会话过期时交给后台线程写回后移出内存。
+ * 购物车按顾客ID分段加锁（ReentrantLock），不同顾客之间互不阻塞；分段锁内只操作内存，加载购物车等数据库访问在锁外进行，
+ * 同一顾客同时只有一个加载或合并在访问数据库，其他请求等待它完成。超过 cart.idle-seconds 未访问、已写回的购物车从内存中移除。
+ * 内存中的购物车带有版本号（每次修改递增，全局单调，移出后重新加载也不会重复）和增量维护的合计：
+ * 每个购物车项缓存最近一次查询到的商品，修改时只调整该项对合计的贡献，返回 CartChange，不需要重新读取整个购物车。
+ * 内存中的购物车只对本节点可见，因此写后回写是可选模式（cart.write-behind=true），只能在单节点或按顾客粘性路由时开启。
+ * 默认（cart.write-behind=false）不使用内存，每次读取和修改都直接访问数据库，每个修改只执行一条语句（增加数量为一条 upsert）
+ */
+public class CartStore {
+    private static final Logger logger = LoggerFactory.getLogger(CartStore.class);
+
+    private static final boolean WRITE_BEHIND = DatabaseConfig.getBooleanProperty("cart.write-behind", false);
+    private static final long FLUSH_INTERVAL_MILLIS = DatabaseConfig.getLongProperty("cart.flush-interval-millis", 1000);
+    private static final int FLUSH_BATCH_SIZE = DatabaseConfig.getIntProperty("cart.flush-batch-size", 500);
+    private static final long IDLE_MILLIS = DatabaseConfig.getLongProperty("cart.idle-seconds", 1800) * 1000;
+    private static final int MAX_CUSTOMERS = DatabaseConfig.getIntProperty("cart.max-customers", 50000);
+    private static final long EVICTION_INTERVAL_SECONDS = 60;
+    // 同一购物车连续写回失败的次数上限，超过后放弃内存中的修改，以数据库为准
+    private static final int MAX_FLUSH_ATTEMPTS = 3;
+    private static final int STRIPES = 128;
+
+    private static final ShoppingCartDAO shoppingCartDAO = new ShoppingCartDAO();
+
+    private static final ReentrantLock[] locks = new ReentrantLock[STRIPES];
+    // 顾客ID -> 购物车
+    private static final ConcurrentHashMap<Long, Cart> carts = new ConcurrentHashMap<>();
+    // 购物车不在内存中时正在访问数据库（加载或合并）的顾客ID -> 完成通知
+    private static final ConcurrentHashMap<Long, CompletableFuture<Void>> loading = new ConcurrentHashMap<>();
+    // 有待写回修改的顾客ID
+    private static final Set<Long> dirtyCustomers = ConcurrentHashMap.newKeySet();
+    // 会话已结束、写回后移出内存的顾客ID
+    private static final Set<Long> releasedCustomers = ConcurrentHashMap.newKeySet();
+    // 购物车版本号：所有购物车共用一个递增序列，以启动时间（微秒）为起点，重启后也不会重复使用旧的版本号
+    private static final AtomicLong versions = new AtomicLong(System.currentTimeMillis() * 1000);
+
+    private static final LongAdder cacheHits = lookupCounter("hit");
+    private static final LongAdder cacheLoads = lookupCounter("load");
+    private static final LongAdder flushedRows = MetricsRegistry.counter("eshop_cart_flushed_changes_total",
+            "Cart line changes written back to shopping_cart");
+    private static final LongAdder flushFailures = MetricsRegistry.counter("eshop_cart_flush_failures_total",
+            "Failed cart write-backs");
+
+    private static volatile ScheduledExecutorService scheduler;
+
+    static {
+        for (int i = 0; i < STRIPES; i++) {
+            locks[i] = new ReentrantLock();
+        }
+        MetricsRegistry.gauge("eshop_cart_store_carts", "Carts held in memory", carts::size);
+        MetricsRegistry.gauge("eshop_cart_store_dirty", "Carts with changes not yet written back", dirtyCustomers::size);
+    }
+
+    /**
+     * 启动定时写回和空闲购物车回收（应用启动时调用）
+     */
+    public static synchronized void start() {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "cart-store");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long flushPeriodMillis = Math.max(FLUSH_INTERVAL_MILLIS, 10);
+        scheduler.scheduleWithFixedDelay(CartStore::flushQuietly,
+                flushPeriodMillis, flushPeriodMillis, TimeUnit.MILLISECONDS);
+        scheduler.scheduleWithFixedDelay(CartStore::evictQuietly,
+                EVICTION_INTERVAL_SECONDS, EVICTION_INTERVAL_SECONDS, TimeUnit.SECONDS);
+        logger.info("购物车存储已启动，写后回写: {}，写回间隔: {} 毫秒", WRITE_BEHIND, flushPeriodMillis);
+    }
+
+    /**
+     * 停止后台任务并写回所有修改（应用关闭时调用，需在关闭连接池之前）
+     */
+    public static synchronized void shutdown() {
+        if (scheduler != null) {
+            // 等待进行中的写回完成，不中断
+            scheduler.shutdown();
+            try {
+                scheduler.awaitTermination(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            scheduler = null;
+        }
+        flushQuietly();
+        if (!dirtyCustomers.isEmpty()) {
+            logger.error("应用关闭时仍有 {} 个购物车的修改未能写回", dirtyCustomers.size());
+        }
+    }
+
+    /**
+     * 获取购物车项（按加入时间倒序，商品为缓存的商品信息，可能为空或已过期）
+     * @param customerId 客户ID
+     * @return 购物车项副本
+     */
+    public static List<ShoppingCart> getItems(Long customerId) {
+        if (!WRITE_BEHIND) {
+            return shoppingCartDAO.findByCustomerId(customerId);
+        }
+        List<ShoppingCart> items = withCart(customerId, cart -> {
+            List<ShoppingCart> copy = new ArrayList<>(cart.lines.size());
+            for (Line line : cart.lines.values()) {
+                copy.add(line.toShoppingCart(cart.customerId));
+            }
+            return copy;
+        });
+        Collections.reverse(items);
+        return items;
+    }
+
+    /**
+     * 获取购物车项（按加入时间倒序）及版本号和合计
+     * @param customerId 客户ID
+     * @return 购物车内容；写直达模式下没有版本号和合计
+     */
+    public static CartView getCart(Long customerId) {
+        if (!WRITE_BEHIND) {
+            return new CartView(shoppingCartDAO.findByCustomerId(customerId), Totals.UNTRACKED);
+        }
+        return withCart(customerId, cart -> {
+            List<ShoppingCart> items = new ArrayList<>(cart.lines.size());
+            for (Line line : cart.lines.values()) {
+                items.add(line.toShoppingCart(cart.customerId));
+            }
+            Collections.reverse(items);
+            return new CartView(items, cart.totals());
+        });
+    }
+
+    /**
+     * 用查询到的商品更新购物车项缓存的商品并重新计算合计，不改变版本号
+     * @param customerId 客户ID
+     * @param productIds 查询的商品ID
+     * @param products 查询结果，不包含的商品视为不存在
+     * @return 更新后的合计；写直达模式下没有合计
+     */
+    public static Totals attachProducts(Long customerId, Collection<Long> productIds, Map<Long, Product> products) {
+        if (!WRITE_BEHIND) {
+            return Totals.UNTRACKED;
+        }
+        return withCart(customerId, cart -> {
+            for (Long productId : productIds) {
+                Line line = cart.lines.get(productId);
+                if (line != null) {
+                    cart.unaccount(line);
+                    line.attach(products.get(productId));
+                    cart.account(line);
+                }
+            }
+            return cart.totals();
+        });
+    }
+
+    /**
+     * 获取购物车中某商品的数量
+     * @return 数量，不在购物车中时为0
+     */
+    public static int getQuantity(Long customerId, Long productId) {
+        if (!WRITE_BEHIND) {
+            ShoppingCart item = shoppingCartDAO.findByCustomerAndProduct(customerId, productId);
+            return item != null ? item.getQuantity() : 0;
+        }
+        return withCart(customerId, cart -> {
+            Line line = cart.lines.get(productId);
+            return line != null ? line.quantity : 0;
+        });
+    }
+
+    /**
+     * 获取购物车商品总数量
+     */
+    public static int getTotalQuantity(Long customerId) {
+        if (!WRITE_BEHIND) {
+            return shoppingCartDAO.getTotalQuantityByCustomerId(customerId);
+        }
+        return withCart(customerId, cart -> {
+            int sum = 0;
+            for (Line line : cart.lines.values()) {
+                sum += line.quantity;
+            }
+            return sum;
+        });
+    }
+
+    /**
+     * 增加商品数量（不在购物车中时加入），增加后的数量不超过最大数量，与 ShoppingCartDAO.upsert 的语义相同
+     * @param customerId 客户ID
+     * @param productId 商品ID
+     * @param delta 增加的数量
+     * @param maxQuantity 允许的最大数量（库存）
+     * @param product 刚查询到的商品，用于计算合计，可以为null
+     * @return 修改结果；写直达模式下只执行一条 upsert，不读取结果，数量为-1
+     */
+    public static CartChange add(Long customerId, Long productId, int delta, int maxQuantity, Product product) {
+        if (!WRITE_BEHIND) {
+            shoppingCartDAO.upsert(customerId, productId, delta, maxQuantity);
+            return new CartChange(productId, -1, null, 0, Totals.UNTRACKED);
+        }
+        return withCart(customerId, cart -> {
+            long baseVersion = cart.version;
+            Line line = cart.lines.get(productId);
+            int quantity = line != null ? line.quantity : 0;
+            int newQuantity = Math.min(quantity + delta, maxQuantity);
+            if (line == null) {
+                line = new Line(productId, null, LocalDateTime.now());
+                cart.lines.put(productId, line);
+                cart.unpricedLines++;
+            } else if (newQuantity == quantity) {
+                return new CartChange(productId, quantity, line.toShoppingCart(customerId), baseVersion, cart.totals());
+            }
+            cart.unaccount(line);
+            line.setQuantity(newQuantity);
+            if (product != null) {
+                line.attach(product);
+            }
+            cart.account(line);
+            cart.changed(productId, newQuantity);
+            return new CartChange(productId, newQuantity, line.toShoppingCart(customerId), baseVersion, cart.totals());
+        });
+    }
+
+    /**
+     * 批量增加商品数量（合并游客购物车），每个商品的语义与 add 相同
+     * 购物车不在内存中时（登录时的通常情况）不加载，用一条 ShoppingCartDAO.upsertAll 直接写入数据库，期间同一顾客的加载等待写入完成；
+     * 已在内存中时（如同一顾客在本节点的其他会话）在内存中合并，随下一次写回写入
+     * @param customerId 客户ID
+     * @param deltas 商品ID -> 增加的数量
+     * @param maxQuantities 商品ID -> 允许的最大数量（库存），缺少的商品不合并
+     */
+    public static void merge(Long customerId, Map<Long, Integer> deltas, Map<Long, Integer> maxQuantities) {
+        if (!WRITE_BEHIND) {
+            shoppingCartDAO.upsertAll(customerId, deltas, maxQuantities);
+            return;
+        }
+        while (!carts.containsKey(customerId)) {
+            CompletableFuture<Void> done = new CompletableFuture<>();
+            CompletableFuture<Void> inFlight = loading.putIfAbsent(customerId, done);
+            if (inFlight != null) {
+                awaitQuietly(inFlight);
+                continue;
+            }
+            try {
+                if (carts.containsKey(customerId)) {
+                    break;
+                }
+                // 只有已写回的购物车才会被移出内存，数据库中的内容就是最新的；写入完成前不会被加载
+                shoppingCartDAO.upsertAll(customerId, deltas, maxQuantities);
+                return;
+            } finally {
+                loading.remove(customerId, done);
+                done.complete(null);
+            }
+        }
+        for (Map.Entry<Long, Integer> delta : deltas.entrySet()) {
+            Integer maxQuantity = maxQuantities.get(delta.getKey());
+            if (maxQuantity != null && maxQuantity > 0 && delta.getValue() > 0) {
+                add(customerId, delta.getKey(), delta.getValue(), maxQuantity, null);
+            }
+        }
+    }
+
+    /**
+     * 设置商品数量，数量为0时移除
+     * @param product 刚查询到的商品，用于计算合计，可以为null
+     * @return 修改结果，商品不在购物车中时返回null
+     */
+    public static CartChange setQuantity(Long customerId, Long productId, int quantity, Product product) {
+        if (!WRITE_BEHIND) {
+            boolean updated = quantity == 0
+                    ? shoppingCartDAO.remove(customerId, productId)
+                    : shoppingCartDAO.update(new ShoppingCart(customerId, productId, quantity));
+            return updated ? new CartChange(productId, quantity, null, 0, Totals.UNTRACKED) : null;
+        }
+        return withCart(customerId, cart -> {
+            long baseVersion = cart.version;
+            Line line = cart.lines.get(productId);
+            if (line == null) {
+                return null;
+            }
+            cart.unaccount(line);
+            if (quantity == 0) {
+                cart.lines.remove(productId);
+            } else {
+                line.setQuantity(quantity);
+                if (product != null) {
+                    line.attach(product);
+                }
+                cart.account(line);
+            }
+            cart.changed(productId, quantity);
+            ShoppingCart item = quantity == 0 ? null : line.toShoppingCart(customerId);
+            return new CartChange(productId, quantity, item, baseVersion, cart.totals());
+        });
+    }
+
+    /**
+     * 移除商品
+     * @return 修改结果，商品不在购物车中时返回null
+     */
+    public static CartChange remove(Long customerId, Long productId) {
+        return setQuantity(customerId, productId, 0, null);
+    }
+
+    /**
+     * 清空购物车
+     * @return 是否清空（购物车原本为空时返回false）
+     */
+    public static boolean clear(Long customerId) {
+        if (!WRITE_BEHIND) {
+            return shoppingCartDAO.clear(customerId);
+        }
+        return withCart(customerId, cart -> {
+            if (cart.lines.isEmpty()) {
+                return false;
+            }
+            cart.lines.clear();
+            cart.pending.clear();
+            cart.clearPending = true;
+            cart.totalQuantity = 0;
+            cart.subtotal = 0;
+            cart.lineDiscount = 0;
+            cart.unpricedLines = 0;
+            cart.version = versions.incrementAndGet();
+            dirtyCustomers.add(cart.customerId);
+            return true;
+        });
+    }
+
+    /**
+     * 立即写回该顾客的修改（结算前调用）
+     * @return 是否已全部写回
+     */
+    public static boolean flush(Long customerId) {
+        Cart cart = carts.get(customerId);
+        if (cart == null) {
+            return true;
+        }
+        cart.flushLock.lock();
+        try {
+            Snapshot snapshot = snapshot(cart);
+            if (snapshot == null) {
+                return true;
+            }
+            List<Snapshot> batch = Collections.singletonList(snapshot);
+            try {
+                write(batch);
+                return true;
+            } catch (Exception e) {
+                logger.error("写回购物车失败，客户ID: {}", customerId, e);
+                restore(batch);
+                return false;
+            }
+        } finally {
+            cart.flushLock.unlock();
+        }
+    }
+
+    /**
+     * 立即写回该顾客的修改并移出内存（退出登录、会话过期时调用）
+     */
+    public static void flushAndEvict(Long customerId) {
+        if (customerId == null) {
+            return;
+        }
+        if (flush(customerId)) {
+            evict(customerId);
+        }
+    }
+
+    /**
+     * 会话结束（过期）时调用：不在调用线程上访问数据库，由后台写回线程写回修改后移出内存
+     */
+    public static void release(Long customerId) {
+        if (customerId != null && carts.containsKey(customerId)) {
+            releasedCustomers.add(customerId);
+        }
+    }
+
+    /**
+     * 写回所有待写回的修改，每 cart.flush-batch-size 个购物车合并写入一次
+     */
+    public static void flush() {
+        List<Snapshot> batch = new ArrayList<>();
+        try {
+            for (Long customerId : new ArrayList<>(dirtyCustomers)) {
+                dirtyCustomers.remove(customerId);
+                Cart cart = carts.get(customerId);
+                if (cart == null) {
+                    continue;
+                }
+                if (!cart.flushLock.tryLock()) {
+                    // 正在被同步写回，下一轮再处理
+                    dirtyCustomers.add(customerId);
+                    continue;
+                }
+                Snapshot snapshot = snapshot(cart);
+                if (snapshot == null) {
+                    cart.flushLock.unlock();
+                    continue;
+                }
+                batch.add(snapshot);
+                if (batch.size() >= FLUSH_BATCH_SIZE) {
+                    writeBatch(batch);
+                    batch = new ArrayList<>();
+                }
+            }
+        } finally {
+            writeBatch(batch);
+        }
+    }
+
+    /**
+     * 在顾客对应的分段锁内操作购物车，不在内存中时先在锁外从数据库加载
+     */
+    private static <T> T withCart(Long customerId, Function<Cart, T> action) {
+        boolean loaded = false;
+        while (true) {
+            ReentrantLock lock = lock(customerId);
+            lock.lock();
+            try {
+                Cart cart = carts.get(customerId);
+                if (cart != null) {
+                    if (!loaded) {
+                        cacheHits.increment();
+                    }
+                    cart.lastAccessMillis = System.currentTimeMillis();
+                    return action.apply(cart);
+                }
+            } finally {
+                lock.unlock();
+            }
+            loadIfAbsent(customerId);
+            loaded = true;
+        }
+    }
+
+    /**
+     * 从数据库加载购物车放入内存；同一顾客已有加载或合并在进行时等待它完成
+     * 购物车只有在已写回且没有写回进行中时才会被移出，不在内存中时数据库里的内容就是最新的，
+     * 除合并外没有其他写入，因此加载到的总是最新内容
+     */
+    private static void loadIfAbsent(Long customerId) {
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        CompletableFuture<Void> inFlight = loading.putIfAbsent(customerId, done);
+        if (inFlight != null) {
+            awaitQuietly(inFlight);
+            return;
+        }
+        try {
+            if (carts.containsKey(customerId)) {
+                return;
+            }
+            Cart cart = load(customerId);
+            ReentrantLock lock = lock(customerId);
+            lock.lock();
+            try {
+                carts.putIfAbsent(customerId, cart);
+            } finally {
+                lock.unlock();
+            }
+            cacheLoads.increment();
+        } finally {
+            loading.remove(customerId, done);
+            done.complete(null);
+        }
+    }
+
+    /**
+     * 等待其他线程对同一顾客的加载或合并完成，之后由调用方重新检查；失败由执行它的线程处理
+     */
+    private static void awaitQuietly(CompletableFuture<Void> inFlight) {
+        try {
+            inFlight.join();
+        } catch (RuntimeException e) {
+            // 只作为完成通知，不传递结果
+        }
+    }
+
+    private static Cart load(Long customerId) {
+        List<ShoppingCart> rows = shoppingCartDAO.findByCustomerId(customerId);
+        Cart cart = new Cart(customerId);
+        // 查询结果按加入时间倒序，内存中按加入顺序保存
+        for (int i = rows.size() - 1; i >= 0; i--) {
+            ShoppingCart row = rows.get(i);
+            Line line = new Line(row.getProductId(), row.getId(), row.getCreatedAt());
+            line.quantity = row.getQuantity();
+            line.updatedAt = row.getUpdatedAt();
+            cart.lines.put(row.getProductId(), line);
+        }
+        // 加载时不查询商品，合计在第一次查询商品后才完整（attachProducts）
+        cart.unpricedLines = cart.lines.size();
+        cart.version = versions.incrementAndGet();
+        return cart;
+    }
+
+    /**
+     * 移出已写回的购物车，有待写回的修改或写回进行中时保留
+     * @return 是否已不在内存中
+     */
+    private static boolean evict(Long customerId) {
+        ReentrantLock lock = lock(customerId);
+        lock.lock();
+        try {
+            Cart cart = carts.get(customerId);
+            if (cart != null && cart.isClean()) {
+                carts.remove(customerId);
+            }
+            return !carts.containsKey(customerId);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 取出待写回的修改，需持有购物车的写回锁
+     * @return 修改快照，没有修改时返回null
+     */
+    private static Snapshot snapshot(Cart cart) {
+        ReentrantLock lock = lock(cart.customerId);
+        lock.lock();
+        try {
+            if (carts.get(cart.customerId) != cart || (!cart.clearPending && cart.pending.isEmpty())) {
+                return null;
+            }
+            Snapshot snapshot = new Snapshot(cart, cart.clearPending, cart.pending);
+            cart.pending = new HashMap<>();
+            cart.clearPending = false;
+            dirtyCustomers.remove(cart.customerId);
+            return snapshot;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 写入一批快照并释放写回锁；整批失败时逐个购物车重试，仍失败的把修改放回待写回
+     */
+    private static void writeBatch(List<Snapshot> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            try {
+                write(batch);
+                return;
+            } catch (Exception e) {
+                logger.warn("批量写回购物车失败，逐个重试，购物车数: {}", batch.size(), e);
+            }
+            for (Snapshot snapshot : batch) {
+                List<Snapshot> single = Collections.singletonList(snapshot);
+                try {
+                    write(single);
+                } catch (Exception e) {
+                    logger.error("写回购物车失败，客户ID: {}", snapshot.cart.customerId, e);
+                    restore(single);
+                }
+            }
+        } finally {
+            for (Snapshot snapshot : batch) {
+                snapshot.cart.flushLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * 按 清空 -> 删除 -> 写入数量 的顺序写入；数量为绝对值，失败后整体重放不会重复累加
+     */
+    private static void write(List<Snapshot> batch) {
+        List<Long> cleared = new ArrayList<>();
+        List<ShoppingCart> removed = new ArrayList<>();
+        List<ShoppingCart> saved = new ArrayList<>();
+        for (Snapshot snapshot : batch) {
+            Long customerId = snapshot.cart.customerId;
+            if (snapshot.clear) {
+                cleared.add(customerId);
+            }
+            for (Map.Entry<Long, Integer> change : snapshot.changes.entrySet()) {
+                ShoppingCart item = new ShoppingCart(customerId, change.getKey(), change.getValue());
+                (change.getValue() > 0 ? saved : removed).add(item);
+            }
+        }
+
+        shoppingCartDAO.clearAll(cleared);
+        shoppingCartDAO.removeBatch(removed);
+        shoppingCartDAO.saveQuantities(saved);
+
+        flushedRows.add(removed.size() + saved.size());
+        for (Snapshot snapshot : batch) {
+            snapshot.cart.failedFlushes = 0;
+        }
+    }
+
+    /**
+     * 写回失败后把修改放回待写回，晚于快照的修改优先；连续失败超过上限时放弃修改，以数据库为准
+     */
+    private static void restore(List<Snapshot> batch) {
+        for (Snapshot snapshot : batch) {
+            Cart cart = snapshot.cart;
+            flushFailures.increment();
+            ReentrantLock lock = lock(cart.customerId);
+            lock.lock();
+            try {
+                if (carts.get(cart.customerId) != cart) {
+                    continue;
+                }
+                if (++cart.failedFlushes >= MAX_FLUSH_ATTEMPTS) {
+                    logger.error("购物车连续 {} 次写回失败，放弃内存中的修改，客户ID: {}",
+                            cart.failedFlushes, cart.customerId);
+                    carts.remove(cart.customerId);
+                    dirtyCustomers.remove(cart.customerId);
+                    continue;
+                }
+                if (!cart.clearPending) {
+                    // 快照之后没有再清空：先应用快照，再应用之后的修改
+                    cart.clearPending = snapshot.clear;
+                    for (Map.Entry<Long, Integer> change : snapshot.changes.entrySet()) {
+                        cart.pending.putIfAbsent(change.getKey(), change.getValue());
+                    }
+                }
+                dirtyCustomers.add(cart.customerId);
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * 移出空闲的购物车；超过 cart.max-customers 时再移出其他已写回的购物车
+     */
+    private static void evictIdle() {
+        long now = System.currentTimeMillis();
+        for (Iterator<Map.Entry<Long, Cart>> iterator = carts.entrySet().iterator(); iterator.hasNext(); ) {
+            Map.Entry<Long, Cart> entry = iterator.next();
+            boolean overCapacity = carts.size() > MAX_CUSTOMERS;
+            Cart cart = entry.getValue();
+            if (overCapacity || now - cart.lastAccessMillis > IDLE_MILLIS) {
+                ReentrantLock lock = lock(entry.getKey());
+                lock.lock();
+                try {
+                    if (cart.isClean() && (overCapacity || now - cart.lastAccessMillis > IDLE_MILLIS)) {
+                        carts.remove(entry.getKey(), cart);
+                    }
+                } finally {
+                    lock.unlock();
+                }
+            }
+        }
+    }
+
+    private static void flushQuietly() {
+        try {
+            flush();
+        } catch (Exception e) {
+            logger.warn("写回购物车失败", e);
+        }
+        evictReleased();
+    }
+
+    /**
+     * 移出会话已结束且已写回的购物车，写回失败的留到下一轮
+     */
+    private static void evictReleased() {
+        for (Long customerId : new ArrayList<>(releasedCustomers)) {
+            releasedCustomers.remove(customerId);
+            if (!evict(customerId)) {
+                releasedCustomers.add(customerId);
+            }
+        }
+    }
+
+    private static void evictQuietly() {
+        try {
+            evictIdle();
+        } catch (Exception e) {
+            logger.warn("回收空闲购物车失败", e);
+        }
+    }
+
+    private static ReentrantLock lock(Long customerId) {
+        return locks[(Long.hashCode(customerId) * 0x9E3779B9 >>> 16) & (STRIPES - 1)];
+    }
+
+    private static LongAdder lookupCounter(String result) {
+        return MetricsRegistry.counter("eshop_cart_store_lookups_total",
+                "Cart store lookups by result", "result", result);
+    }
+
+    /**
+     * 内存中的购物车，字段只在分段锁内访问
+     */
+    private static final class Cart {
+        private final Long customerId;
+        // 商品ID -> 购物车项，按加入顺序
+        private final LinkedHashMap<Long, Line> lines = new LinkedHashMap<>();
+        // 待写回的修改：商品ID -> 最新数量（0表示删除）
+        private Map<Long, Integer> pending = new HashMap<>();
+        // 待写回的清空（先于 pending 执行）
+        private boolean clearPending;
+        private int failedFlushes;
+        private long lastAccessMillis;
+        // 写回锁：保证同一购物车的写回按顺序执行，持有期间不会被移出内存
+        private final ReentrantLock flushLock = new ReentrantLock();
+        private long version;
+        // 已知商品且商品有效的购物车项的合计（金额单位为分）
+        private int totalQuantity;
+        private long subtotal;
+        private long lineDiscount;
+        // 尚未查询商品的购物车项数，大于0时合计不完整
+        private int unpricedLines;
+
+        Cart(Long customerId) {
+            this.customerId = customerId;
+        }
+
+        void changed(Long productId, int quantity) {
+            pending.put(productId, quantity);
+            version = versions.incrementAndGet();
+            dirtyCustomers.add(customerId);
+        }
+
+        /**
+         * 从合计中减去购物车项当前的贡献
+         */
+        void unaccount(Line line) {
+            if (!line.priced) {
+                unpricedLines--;
+            } else if (line.counted()) {
+                totalQuantity -= line.quantity;
+                subtotal -= line.unitPrice * line.quantity;
+                lineDiscount -= line.discount;
+            }
+        }
+
+        /**
+         * 把购物车项当前的贡献加入合计
+         */
+        void account(Line line) {
+            if (!line.priced) {
+                unpricedLines++;
+            } else if (line.counted()) {
+                // 按加入合计时的折扣记录，减去时不受规则变化影响
+                line.discount = PricingService.engine().lineDiscount(line.productId, line.unitPrice, line.quantity);
+                totalQuantity += line.quantity;
+                subtotal += line.unitPrice * line.quantity;
+                lineDiscount += line.discount;
+            }
+        }
+
+        Totals totals() {
+            if (unpricedLines == 0) {
+                return new Totals(version, totalQuantity, subtotal, lineDiscount, Collections.emptyList());
+            }
+            List<Long> unpriced = new ArrayList<>(unpricedLines);
+            for (Line line : lines.values()) {
+                if (!line.priced) {
+                    unpriced.add(line.productId);
+                }
+            }
+            return new Totals(version, totalQuantity, subtotal, lineDiscount, unpriced);
+        }
+
+        boolean isClean() {
+            return !clearPending && pending.isEmpty() && !flushLock.isLocked();
+        }
+    }
+
+    /**
+     * 购物车项
+     */
+    private static final class Line {
+        private final Long productId;
+        private final Long id;
+        private final LocalDateTime createdAt;
+        private LocalDateTime updatedAt;
+        private int quantity;
+        // 是否已查询过商品；已查询但商品不存在时 product 为null
+        private boolean priced;
+        private Product product;
+        // 单价和计入合计的折扣（分）
+        private long unitPrice;
+        private long discount;
+
+        Line(Long productId, Long id, LocalDateTime createdAt) {
+            this.productId = productId;
+            this.id = id;
+            this.createdAt = createdAt;
+        }
+
+        void setQuantity(int quantity) {
+            this.quantity = quantity;
+            this.updatedAt = LocalDateTime.now();
+        }
+
+        void attach(Product product) {
+            this.product = product;
+            this.priced = true;
+            this.unitPrice = product != null && product.getPrice() != null ? Money.toMinor(product.getPrice()) : 0;
+        }
+
+        /**
+         * 是否计入合计：商品存在且未下架
+         */
+        boolean counted() {
+            return product != null && product.isActive() && product.getPrice() != null;
+        }
+
+        ShoppingCart toShoppingCart(Long customerId) {
+            ShoppingCart item = new ShoppingCart(customerId, productId, quantity);
+            item.setProduct(product);
+            item.setId(id);
+            item.setCreatedAt(createdAt);
+            item.setUpdatedAt(updatedAt);
+            return item;
+        }
+    }
+
+    /**
+     * 一个购物车取出的待写回修改
+     */
+    private static final class Snapshot {
+        private final Cart cart;
+        private final boolean clear;
+        private final Map<Long, Integer> changes;
+
+        Snapshot(Cart cart, boolean clear, Map<Long, Integer> changes) {
+            this.cart = cart;
+            this.clear = clear;
+            this.changes = changes;
+        }
+    }
+
+    /**
+     * 购物车版本号和合计（金额单位为分，整单折扣、运费和税费由 PricingEngine.total 计算）
+     * 版本号为0表示不跟踪版本（写直达模式）；unpricedProductIds 不为空时合计不包含这些商品
+     */
+    public static final class Totals {
+        static final Totals UNTRACKED = new Totals(0, 0, 0, 0, Collections.emptyList());
+
+        private final long version;
+        private final int totalQuantity;
+        private final long subtotal;
+        private final long lineDiscount;
+        private final List<Long> unpricedProductIds;
+
+        Totals(long version, int totalQuantity, long subtotal, long lineDiscount, List<Long> unpricedProductIds) {
+            this.version = version;
+            this.totalQuantity = totalQuantity;
+            this.subtotal = subtotal;
+            this.lineDiscount = lineDiscount;
+            this.unpricedProductIds = unpricedProductIds;
+        }
+
+        public long getVersion() { return version; }
+        public int getTotalQuantity() { return totalQuantity; }
+        public long getSubtotal() { return subtotal; }
+        public long getLineDiscount() { return lineDiscount; }
+        public List<Long> getUnpricedProductIds() { return unpricedProductIds; }
+        public boolean isTracked() { return version > 0; }
+        public boolean isComplete() { return isTracked() && unpricedProductIds.isEmpty(); }
+    }
+
+    /**
+     * 购物车内容
+     */
+    public static final class CartView {
+        private final List<ShoppingCart> items;
+        private final Totals totals;
+
+        CartView(List<ShoppingCart> items, Totals totals) {
+            this.items = items;
+            this.totals = totals;
+        }
+
+        public List<ShoppingCart> getItems() { return items; }
+        public Totals getTotals() { return totals; }
+    }
+
+    /**
+     * 一次修改的结果：修改后的购物车项（已移除时为null）、修改前的版本号和修改后的合计
+     */
+    public static final class CartChange {
+        private final Long productId;
+        private final int quantity;
+        private final ShoppingCart item;
+        private final long baseVersion;
+        private final Totals totals;
+
+        CartChange(Long productId, int quantity, ShoppingCart item, long baseVersion, Totals totals) {
+            this.productId = productId;
+            this.quantity = quantity;
+            this.item = item;
+            this.baseVersion = baseVersion;
+            this.totals = totals;
+        }
+
+        public Long getProductId() { return productId; }
+        public int getQuantity() { return quantity; }
+        public ShoppingCart getItem() { return item; }
+        public long getBaseVersion() { return baseVersion; }
+        public Totals getTotals() { return totals; }
+    }
+}
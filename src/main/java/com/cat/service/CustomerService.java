@@ -1,15 +1,36 @@
 package com.cat.service;
 
+import com.cat.config.DatabaseConfig;
 import com.cat.dao.CustomerDAO;
+import com.cat.metrics.MetricsRegistry;
 import com.cat.model.Customer;
 import com.cat.util.PasswordUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
 
 public class CustomerService {
     private static final Logger logger = LoggerFactory.getLogger(CustomerService.class);
+    
+    private static final long LOCKOUT_MILLIS = DatabaseConfig.getLongProperty("login.lockout-seconds", 900) * 1000;
+    private static final int MAX_TRACKED_LOGINS = DatabaseConfig.getIntProperty("login.max-tracked", 100000);
+    
+    // 本节点的连续登录失败记录，键为小写的用户名或邮箱；按访问顺序排列，超过 login.max-tracked 项时移除最久未访问的记录，
+    // 当前的失败总能记入。访问需持有 failedLogins 的锁（只在登录时访问，与BCrypt校验相比开销可忽略）
+    private static final Map<String, FailedLogins> failedLogins = new LinkedHashMap<String, FailedLogins>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, FailedLogins> eldest) {
+            return size() > MAX_TRACKED_LOGINS;
+        }
+    };
+    private static final LongAdder lockedOutAttempts = MetricsRegistry.counter("eshop_login_locked_out_total",
+            "Login attempts rejected because the account had too many consecutive failures");
+    
     private final CustomerDAO customerDAO;
     
     public CustomerService() {
@@ -85,6 +106,14 @@ public class CustomerService {
             return new LoginResult(false, "密码不能为空", null);
         }
 
+        // 连续失败次数达到 max_login_attempts 时在锁定期内直接拒绝，不再查询数据库和校验密码
+        String loginKey = username.trim().toLowerCase(Locale.ROOT);
+        if (isLockedOut(loginKey)) {
+            lockedOutAttempts.increment();
+            logger.warn("登录失败次数过多，暂时拒绝登录: [{}]", username);
+            return new LoginResult(false, "登录失败次数过多，请稍后再试", null);
+        }
+        
         try {
             // 【调试日志 1】
             logger.info("正在尝试登录用户: [{}]", username);
@@ -94,6 +123,7 @@ public class CustomerService {
             if (customer == null) {
                 // 【调试日志 2】
                 logger.error("登录失败: 数据库未找到用户 [{}] (或该用户未激活)", username);
+                recordFailedLogin(loginKey);
                 return new LoginResult(false, "用户名或密码错误", null);
             }
 
@@ -105,6 +135,7 @@ public class CustomerService {
             if (!passwordMatch) {
                 // 【调试日志 4】
                 logger.error("登录失败: 密码验证不通过");
+                recordFailedLogin(loginKey);
                 return new LoginResult(false, "用户名或密码错误", null);
             }
             
@@ -113,6 +144,9 @@ public class CustomerService {
                 return new LoginResult(false, "账户已被禁用，请联系管理员", null);
             }
             
+            synchronized (failedLogins) {
+                failedLogins.remove(loginKey);
+            }
             logger.info("用户登录成功，ID: {}, 用户名: {}", customer.getId(), customer.getUsername());
             return new LoginResult(true, "登录成功", customer);
             
@@ -122,6 +156,34 @@ public class CustomerService {
         }
     }
     
+    /**
+     * 是否处于登录锁定期（max_login_attempts 不大于0时不锁定）
+     */
+    private static boolean isLockedOut(String loginKey) {
+        FailedLogins failed;
+        synchronized (failedLogins) {
+            failed = failedLogins.get(loginKey);
+        }
+        int maxAttempts = SettingsService.getMaxLoginAttempts();
+        return failed != null && maxAttempts > 0 && failed.count >= maxAttempts
+                && System.currentTimeMillis() - failed.lastFailedAt < LOCKOUT_MILLIS;
+    }
+    
+    /**
+     * 记录一次登录失败，距上次失败超过锁定时间时重新计数；记录已满时移除最久未访问的记录
+     */
+    private static void recordFailedLogin(String loginKey) {
+        long now = System.currentTimeMillis();
+        synchronized (failedLogins) {
+            FailedLogins failed = failedLogins.get(loginKey);
+            if (failed == null || now - failed.lastFailedAt >= LOCKOUT_MILLIS) {
+                failedLogins.put(loginKey, new FailedLogins(1, now));
+            } else {
+                failedLogins.put(loginKey, new FailedLogins(failed.count + 1, now));
+            }
+        }
+    }
+    
     /**
      * 获取客户信息
      * @param customerId 客户ID
@@ -400,6 +462,19 @@ public class CustomerService {
         public Customer getCustomer() { return customer; }
     }
     
+    /**
+     * 连续登录失败记录
+     */
+    private static class FailedLogins {
+        private final int count;
+        private final long lastFailedAt;
+        
+        FailedLogins(int count, long lastFailedAt) {
+            this.count = count;
+            this.lastFailedAt = lastFailedAt;
+        }
+    }
+    
     /**
      * 更新结果类
      */
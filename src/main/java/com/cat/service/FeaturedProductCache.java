@@ -0,0 +1,207 @@
+package com.cat.service;
+
+import com.cat.config.DatabaseConfig;
+import com.cat.dao.CategoryDAO;
+import com.cat.dao.ProductDAO;
+import com.cat.dto.ApiResponse;
+import com.cat.metrics.MetricsRegistry;
+import com.cat.model.Category;
+import com.cat.model.ProductSummary;
+import com.cat.util.JsonUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 推荐商品快照
+ * 首页推荐商品从内存中的不可变快照读取，正常情况下不访问数据库。快照由后台线程每
+ * featured.refresh-interval-seconds 秒重建一次；本节点上商品的推荐/上架状态或推荐商品内容变化时立即安排重建。
+ * 多节点部署时其他节点的修改在下一次定时重建后可见。
+ * 快照中的商品对象为共享实例，调用方不得修改
+ */
+public class FeaturedProductCache {
+    private static final Logger logger = LoggerFactory.getLogger(FeaturedProductCache.class);
+
+    /** 快照保存的最大商品数（推荐接口limit的上限） */
+    public static final int MAX_FEATURED = 50;
+
+    private static final long REFRESH_INTERVAL_SECONDS =
+            DatabaseConfig.getLongProperty("featured.refresh-interval-seconds", 60);
+
+    private static final ProductDAO productDAO = new ProductDAO();
+    private static final CategoryDAO categoryDAO = new CategoryDAO();
+    private static final AtomicBoolean refreshPending = new AtomicBoolean();
+    // 首次加载在持有锁时查询数据库，用ReentrantLock，虚拟线程等待时不会固定载体线程
+    private static final ReentrantLock loadLock = new ReentrantLock();
+
+    private static volatile Snapshot snapshot;
+    private static volatile ScheduledExecutorService scheduler;
+
+    static {
+        MetricsRegistry.gauge("eshop_featured_snapshot_age_seconds", "Age of the featured products snapshot",
+                () -> {
+                    Snapshot current = snapshot;
+                    return current != null ? (System.currentTimeMillis() - current.loadedAt) / 1000.0 : -1;
+                });
+    }
+
+    /**
+     * 加载首个快照并启动定时重建（应用启动时调用）
+     * 首次加载失败不影响启动，第一次读取时会再次尝试
+     */
+    public static synchronized void start() {
+        if (scheduler != null) {
+            return;
+        }
+        try {
+            refresh();
+        } catch (Exception e) {
+            logger.error("加载推荐商品快照失败", e);
+        }
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "featured-products-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(FeaturedProductCache::refreshQuietly,
+                REFRESH_INTERVAL_SECONDS, REFRESH_INTERVAL_SECONDS, TimeUnit.SECONDS);
+        logger.info("推荐商品快照已启动，定时重建间隔: {} 秒", REFRESH_INTERVAL_SECONDS);
+    }
+
+    /**
+     * 停止定时重建（应用关闭时调用）
+     */
+    public static synchronized void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    /**
+     * 获取推荐商品
+     * @param limit 数量限制（不超过MAX_FEATURED）
+     * @return 不可变的推荐商品列表
+     */
+    public static List<ProductSummary> getFeatured(int limit) {
+        return current().products(limit);
+    }
+
+    /**
+     * 获取推荐商品接口的完整响应JSON（ApiResponse），同一快照内每个limit只序列化一次
+     * @param limit 数量限制（不超过MAX_FEATURED）
+     * @return 响应JSON
+     */
+    public static String getFeaturedJson(int limit) {
+        return current().json(limit);
+    }
+
+    /**
+     * 安排一次立即重建，在后台线程执行；重建尚未开始时重复调用只执行一次
+     * 未启动定时重建时（如未经ContextListener初始化）丢弃快照，下次读取时同步加载
+     */
+    public static void requestRefresh() {
+        ScheduledExecutorService current = scheduler;
+        if (current == null) {
+            snapshot = null;
+            return;
+        }
+        if (refreshPending.compareAndSet(false, true)) {
+            try {
+                current.execute(() -> {
+                    refreshPending.set(false);
+                    refreshQuietly();
+                });
+            } catch (RuntimeException e) {
+                // 正在关闭
+                refreshPending.set(false);
+            }
+        }
+    }
+
+    /**
+     * 从数据库重建快照
+     */
+    public static void refresh() {
+        long startNanos = System.nanoTime();
+        List<ProductSummary> products = productDAO.findFeatured(MAX_FEATURED);
+
+        // 每个分类只查询一次
+        Map<Long, Category> categories = new HashMap<>();
+        for (ProductSummary product : products) {
+            Long categoryId = product.getCategoryId();
+            if (categoryId != null) {
+                product.setCategory(categories.computeIfAbsent(categoryId, categoryDAO::findById));
+            }
+        }
+
+        snapshot = new Snapshot(Collections.unmodifiableList(products));
+        logger.debug("推荐商品快照已重建，数量: {}, 耗时: {} ms", products.size(),
+                (System.nanoTime() - startNanos) / 1_000_000);
+    }
+
+    private static void refreshQuietly() {
+        try {
+            refresh();
+        } catch (Exception e) {
+            // 保留旧快照，等待下一次重建
+            logger.warn("重建推荐商品快照失败，继续使用旧快照", e);
+        }
+    }
+
+    private static Snapshot current() {
+        Snapshot current = snapshot;
+        if (current == null) {
+            loadLock.lock();
+            try {
+                current = snapshot;
+                if (current == null) {
+                    refresh();
+                    current = snapshot;
+                }
+            } finally {
+                loadLock.unlock();
+            }
+        }
+        return current;
+    }
+
+    /**
+     * 不可变快照
+     */
+    private static class Snapshot {
+        private final List<ProductSummary> products;
+        private final AtomicReferenceArray<String> jsonByLimit = new AtomicReferenceArray<>(MAX_FEATURED + 1);
+        private final long loadedAt = System.currentTimeMillis();
+
+        Snapshot(List<ProductSummary> products) {
+            this.products = products;
+        }
+
+        List<ProductSummary> products(int limit) {
+            return products.subList(0, Math.max(0, Math.min(limit, products.size())));
+        }
+
+        String json(int limit) {
+            int index = Math.max(0, Math.min(limit, MAX_FEATURED));
+            String json = jsonByLimit.get(index);
+            if (json == null) {
+                // 并发时可能重复序列化，结果相同，不需要加锁
+                json = JsonUtil.toJson(ApiResponse.success("获取成功", products(index)));
+                jsonByLimit.set(index, json);
+            }
+            return json;
+        }
+    }
+}
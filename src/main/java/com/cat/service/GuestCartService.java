@@ -0,0 +1,130 @@
+package com.cat.service;
+
+import com.cat.config.DatabaseConfig;
+import com.cat.metrics.MetricsRegistry;
+import com.cat.util.SignedCart;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 游客购物车
+ * 未登录时购物车内容保存在客户端的签名Cookie中（SignedCart），服务端不保存任何状态，也不访问 shopping_cart，
+ * 大量不登录的客户端（如爬虫）不会产生数据库记录或占用内存；任意节点都能读取。
+ * 登录时由 CustomerServlet 一次合并到顾客购物车并清除Cookie。
+ * 每个游客购物车最多 cart.guest-max-lines 种商品，Cookie有效期为 cart.guest-max-age-days 天
+ */
+public class GuestCartService {
+    private static final Logger logger = LoggerFactory.getLogger(GuestCartService.class);
+
+    public static final String COOKIE_NAME = "ESHOP_GUEST_CART";
+
+    /** 请求属性：已解码的游客购物车 */
+    private static final String LINES_ATTRIBUTE = GuestCartService.class.getName() + ".lines";
+
+    private static final int MAX_LINES = Math.max(1, DatabaseConfig.getIntProperty("cart.guest-max-lines", 50));
+    private static final int MAX_AGE_SECONDS = DatabaseConfig.getIntProperty("cart.guest-max-age-days", 30) * 24 * 60 * 60;
+
+    private static final SignedCart codec = new SignedCart(loadSecret(), MAX_LINES);
+
+    private static final LongAdder rejected = MetricsRegistry.counter("eshop_guest_cart_rejected_total",
+            "Guest cart cookies rejected as malformed, tampered or expired");
+
+    /**
+     * 游客购物车最多的商品种数
+     */
+    public static int getMaxLines() {
+        return MAX_LINES;
+    }
+
+    /**
+     * 读取请求携带的游客购物车
+     * @param request 当前请求
+     * @return 商品ID -> 数量（按加入顺序，可修改）；没有Cookie或Cookie无效时为空
+     */
+    @SuppressWarnings("unchecked")
+    public static Map<Long, Integer> read(HttpServletRequest request) {
+        Object cached = request.getAttribute(LINES_ATTRIBUTE);
+        if (cached instanceof Map) {
+            return (Map<Long, Integer>) cached;
+        }
+
+        Map<Long, Integer> lines = null;
+        String value = readCookie(request);
+        if (value != null && !value.isEmpty()) {
+            lines = codec.decode(value, System.currentTimeMillis() / 1000);
+            if (lines == null) {
+                rejected.increment();
+                logger.debug("忽略无效的游客购物车Cookie");
+            }
+        }
+        if (lines == null) {
+            lines = new LinkedHashMap<>();
+        }
+        request.setAttribute(LINES_ATTRIBUTE, lines);
+        return lines;
+    }
+
+    /**
+     * 把游客购物车写入Cookie，购物车为空时清除Cookie；需在写出响应体之前调用
+     * @param lines 商品ID -> 数量（按加入顺序）
+     */
+    public static void write(HttpServletRequest request, HttpServletResponse response, Map<Long, Integer> lines) {
+        if (lines.isEmpty()) {
+            clear(request, response);
+            return;
+        }
+        long expiresAt = System.currentTimeMillis() / 1000 + MAX_AGE_SECONDS;
+        writeCookie(request, response, codec.encode(lines, expiresAt), MAX_AGE_SECONDS);
+        request.setAttribute(LINES_ATTRIBUTE, lines);
+    }
+
+    /**
+     * 清除游客购物车Cookie（清空购物车或登录合并后调用）
+     */
+    public static void clear(HttpServletRequest request, HttpServletResponse response) {
+        writeCookie(request, response, "", 0);
+        request.setAttribute(LINES_ATTRIBUTE, new LinkedHashMap<Long, Integer>());
+    }
+
+    private static void writeCookie(HttpServletRequest request, HttpServletResponse response,
+                                    String value, int maxAgeSeconds) {
+        Cookie cookie = new Cookie(COOKIE_NAME, value);
+        cookie.setHttpOnly(true);
+        cookie.setSecure(request.isSecure());
+        cookie.setPath(request.getContextPath().isEmpty() ? "/" : request.getContextPath());
+        cookie.setMaxAge(maxAgeSeconds);
+        response.addCookie(cookie);
+    }
+
+    private static String readCookie(HttpServletRequest request) {
+        Cookie[] cookies = request.getCookies();
+        if (cookies != null) {
+            for (Cookie cookie : cookies) {
+                if (COOKIE_NAME.equals(cookie.getName())) {
+                    return cookie.getValue();
+                }
+            }
+        }
+        return null;
+    }
+
+    private static byte[] loadSecret() {
+        String secret = DatabaseConfig.getProperty("cart.guest-secret", "");
+        if (!secret.isEmpty()) {
+            return Base64.getDecoder().decode(secret);
+        }
+        byte[] generated = new byte[32];
+        new SecureRandom().nextBytes(generated);
+        logger.warn("未配置cart.guest-secret，使用随机密钥：重启后游客购物车失效，多个节点之间也不能互认");
+        return generated;
+    }
+}
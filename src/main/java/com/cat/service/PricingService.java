@@ -0,0 +1,112 @@
+package com.cat.service;
+
+import com.cat.config.DatabaseConfig;
+import com.cat.pricing.BulkDiscountRule;
+import com.cat.pricing.Money;
+import com.cat.pricing.PricingEngine;
+import com.cat.pricing.PromotionRule;
+import com.cat.pricing.ThresholdDiscountRule;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 计价引擎配置
+ * 税率、免运费门槛和运费取自系统配置快照（SettingsService），快照更新后下一次调用重新构建引擎；
+ * 促销规则取自 pricing.promotions，逗号分隔，每项为以下之一：
+ * threshold:满额:减额（满减，金额为元）、bulk:件数:折扣百分比（同一商品达到件数时该项打折）、
+ * class:类名（自定义 PromotionRule 实现，需要无参构造函数）。格式错误的规则记录错误日志后忽略
+ */
+public class PricingService {
+    private static final Logger logger = LoggerFactory.getLogger(PricingService.class);
+
+    private static final List<PromotionRule> RULES = loadRules(DatabaseConfig.getProperty("pricing.promotions", ""));
+
+    private static volatile Cached cached;
+
+    /**
+     * 获取当前配置对应的计价引擎
+     */
+    public static PricingEngine engine() {
+        BigDecimal taxRate = SettingsService.getTaxRate();
+        BigDecimal freeShippingThreshold = SettingsService.getFreeShippingThreshold();
+        BigDecimal shippingFee = SettingsService.getDefaultShippingFee();
+
+        Cached current = cached;
+        // 同一快照返回的是同一组对象，按引用比较即可
+        if (current == null || current.taxRate != taxRate || current.freeShippingThreshold != freeShippingThreshold
+                || current.shippingFee != shippingFee) {
+            PricingEngine engine = new PricingEngine(RULES, Money.toRate(taxRate),
+                    Money.toMinor(freeShippingThreshold), Money.toMinor(shippingFee));
+            current = new Cached(taxRate, freeShippingThreshold, shippingFee, engine);
+            cached = current;
+        }
+        return current.engine;
+    }
+
+    private static List<PromotionRule> loadRules(String config) {
+        List<PromotionRule> rules = new ArrayList<>();
+        for (String item : config.split(",")) {
+            item = item.trim();
+            if (item.isEmpty()) {
+                continue;
+            }
+            try {
+                rules.add(parseRule(item));
+            } catch (Exception e) {
+                logger.error("促销规则配置错误，已忽略: {}", item, e);
+            }
+        }
+        if (!rules.isEmpty()) {
+            logger.info("已加载 {} 条促销规则", rules.size());
+        }
+        return Collections.unmodifiableList(rules);
+    }
+
+    private static PromotionRule parseRule(String item) throws ReflectiveOperationException {
+        String[] parts = item.split(":");
+        switch (parts[0].trim()) {
+            case "threshold":
+                requireParts(item, parts, 3);
+                return new ThresholdDiscountRule(Money.toMinor(new BigDecimal(parts[1].trim())),
+                        Money.toMinor(new BigDecimal(parts[2].trim())));
+            case "bulk":
+                requireParts(item, parts, 3);
+                return new BulkDiscountRule(Integer.parseInt(parts[1].trim()),
+                        Money.toRate(new BigDecimal(parts[2].trim()).movePointLeft(2)));
+            case "class":
+                requireParts(item, parts, 2);
+                return Class.forName(parts[1].trim()).asSubclass(PromotionRule.class)
+                        .getDeclaredConstructor().newInstance();
+            default:
+                throw new IllegalArgumentException("未知的促销规则类型: " + parts[0]);
+        }
+    }
+
+    private static void requireParts(String item, String[] parts, int expected) {
+        if (parts.length != expected) {
+            throw new IllegalArgumentException("促销规则格式错误: " + item);
+        }
+    }
+
+    /**
+     * 计价引擎及构建它时的配置
+     */
+    private static final class Cached {
+        private final BigDecimal taxRate;
+        private final BigDecimal freeShippingThreshold;
+        private final BigDecimal shippingFee;
+        private final PricingEngine engine;
+
+        Cached(BigDecimal taxRate, BigDecimal freeShippingThreshold, BigDecimal shippingFee, PricingEngine engine) {
+            this.taxRate = taxRate;
+            this.freeShippingThreshold = freeShippingThreshold;
+            this.shippingFee = shippingFee;
+            this.engine = engine;
+        }
+    }
+}
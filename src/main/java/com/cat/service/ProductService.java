@@ -1,17 +1,50 @@
 package com.cat.service;
 
+import com.cat.config.DatabaseConfig;
 import com.cat.dao.CategoryDAO;
 import com.cat.dao.ProductDAO;
+import com.cat.dto.ProductRequest;
 import com.cat.model.Category;
 import com.cat.model.Product;
+import com.cat.model.ProductSummary;
+import com.cat.util.CsvReader;
+import com.cat.util.CsvWriter;
+import com.cat.util.JsonUtil;
+import com.cat.util.LineReader;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 public class ProductService {
     private static final Logger logger = LoggerFactory.getLogger(ProductService.class);
+    
+    /** 导入/导出格式 */
+    public static final String FORMAT_CSV = "csv";
+    public static final String FORMAT_NDJSON = "ndjson";
+    private static final int IMPORT_BATCH_SIZE = DatabaseConfig.getIntProperty("import.batch-size", 500);
+    private static final int MAX_IMPORT_ERRORS = DatabaseConfig.getIntProperty("import.max-errors", 1000);
+    private static final int MAX_IMPORT_LINE_LENGTH = DatabaseConfig.getIntProperty("import.max-line-length", 65536);
+    private static final String[] EXPORT_CSV_COLUMNS = {
+            "id", "name", "description", "shortDescription", "sku", "price", "costPrice", "stockQuantity",
+            "minStockLevel", "categoryId", "imageUrl", "weight", "dimensions", "isActive", "isFeatured",
+            "createdAt", "updatedAt"
+    };
+    
     private final ProductDAO productDAO;
     private final CategoryDAO categoryDAO;
     
@@ -50,6 +83,9 @@ public class ProductService {
             product.setId(productId);
             
             logger.info("商品创建成功，ID: {}, 名称: {}", productId, product.getName());
+            if (product.isFeatured()) {
+                FeaturedProductCache.requestRefresh();
+            }
             return new CreationResult(true, "商品创建成功", product);
             
         } catch (Exception e) {
@@ -95,6 +131,10 @@ public class ProductService {
             
             if (success) {
                 logger.info("商品信息更新成功，ID: {}", product.getId());
+                // 推荐状态、上架状态或推荐商品本身的内容变化都会影响推荐列表
+                if (existingProduct.isFeatured() || product.isFeatured()) {
+                    FeaturedProductCache.requestRefresh();
+                }
                 return new UpdateResult(true, "商品信息更新成功");
             } else {
                 return new UpdateResult(false, "商品信息更新失败");
@@ -123,6 +163,9 @@ public class ProductService {
             
             if (success) {
                 logger.info("商品删除成功，ID: {}", productId);
+                if (product.isFeatured()) {
+                    FeaturedProductCache.requestRefresh();
+                }
                 return new UpdateResult(true, "商品删除成功");
             } else {
                 return new UpdateResult(false, "商品删除失败");
@@ -174,13 +217,13 @@ public class ProductService {
      * @param pageSize 每页大小
      * @return 商品列表
      */
-    public List<Product> getProductList(int page, int pageSize) {
+    public List<ProductSummary> getProductList(int page, int pageSize) {
         try {
             int offset = (page - 1) * pageSize;
-            List<Product> products = productDAO.findAllActive(pageSize, offset);
+            List<ProductSummary> products = productDAO.findAllActive(pageSize, offset);
             
             // 为每个商品加载分类信息
-            for (Product product : products) {
+            for (ProductSummary product : products) {
                 if (product.getCategoryId() != null) {
                     Category category = categoryDAO.findById(product.getCategoryId());
                     product.setCategory(category);
@@ -201,14 +244,14 @@ public class ProductService {
      * @param pageSize 每页大小
      * @return 商品列表
      */
-    public List<Product> getProductsByCategory(Long categoryId, int page, int pageSize) {
+    public List<ProductSummary> getProductsByCategory(Long categoryId, int page, int pageSize) {
         try {
             int offset = (page - 1) * pageSize;
-            List<Product> products = productDAO.findByCategory(categoryId, pageSize, offset);
+            List<ProductSummary> products = productDAO.findByCategory(categoryId, pageSize, offset);
             
             // 为每个商品加载分类信息
             Category category = categoryDAO.findById(categoryId);
-            for (Product product : products) {
+            for (ProductSummary product : products) {
                 product.setCategory(category);
             }
             
@@ -224,19 +267,23 @@ public class ProductService {
      * @param limit 数量限制
      * @return 推荐商品列表
      */
-    public List<Product> getFeaturedProducts(int limit) {
+    public List<ProductSummary> getFeaturedProducts(int limit) {
         try {
-            List<Product> products = productDAO.findFeatured(limit);
-            
-            // 为每个商品加载分类信息
-            for (Product product : products) {
-                if (product.getCategoryId() != null) {
-                    Category category = categoryDAO.findById(product.getCategoryId());
-                    product.setCategory(category);
-                }
-            }
-            
-            return products;
+            return FeaturedProductCache.getFeatured(limit);
+        } catch (Exception e) {
+            logger.error("获取推荐商品失败，限制: {}", limit, e);
+            throw new RuntimeException("获取推荐商品失败", e);
+        }
+    }
+    
+    /**
+     * 获取推荐商品接口的响应JSON（从推荐商品快照读取，已预先序列化）
+     * @param limit 数量限制
+     * @return 响应JSON
+     */
+    public String getFeaturedProductsJson(int limit) {
+        try {
+            return FeaturedProductCache.getFeaturedJson(limit);
         } catch (Exception e) {
             logger.error("获取推荐商品失败，限制: {}", limit, e);
             throw new RuntimeException("获取推荐商品失败", e);
@@ -250,7 +297,7 @@ public class ProductService {
      */
     public SearchResult searchProducts(SearchParams searchParams) {
         try {
-            List<Product> products = productDAO.searchProducts(
+            List<ProductSummary> products = productDAO.searchProducts(
                 searchParams.getKeyword(),
                 searchParams.getCategoryId(),
                 searchParams.getMinPrice(),
@@ -263,7 +310,7 @@ public class ProductService {
             );
             
             // 为每个商品加载分类信息
-            for (Product product : products) {
+            for (ProductSummary product : products) {
                 if (product.getCategoryId() != null) {
                     Category category = categoryDAO.findById(product.getCategoryId());
                     product.setCategory(category);
@@ -336,6 +383,9 @@ public class ProductService {
             
             if (success) {
                 logger.info("商品库存更新成功，ID: {}, 新库存: {}", productId, quantity);
+                if (product.isFeatured()) {
+                    FeaturedProductCache.requestRefresh();
+                }
                 return new UpdateResult(true, "商品库存更新成功");
             } else {
                 return new UpdateResult(false, "商品库存更新失败");
@@ -347,6 +397,315 @@ public class ProductService {
         }
     }
     
+    /**
+     * 批量导入商品（按SKU插入或更新）
+     * 逐行读取，不会把整个文件读进内存；每行单独校验，校验或写入失败的行记入错误列表，不影响其他行。
+     * 通过校验的行每 import.batch-size 行合并为一条 INSERT ... ON DUPLICATE KEY UPDATE 写入，
+     * 整批失败时逐行重试以定位出错的行。已存在的SKU只更新该行提供了的字段，未提供的字段（包括上架、推荐标志）保持原值。
+     * 请求体不受 request.max-body-size 限制，单行（CSV为单条记录）超过 import.max-line-length 个字符时不解析，记为该行的错误
+     * @param reader 输入内容（UTF-8文本）
+     * @param format 格式：csv（首行为列名，列名可用 stockQuantity 或 stock_quantity 形式）或 ndjson（每行一个JSON对象）
+     * @return 导入结果
+     * @throws IOException 读取失败或CSV格式错误
+     */
+    public ImportResult importProducts(Reader reader, String format) throws IOException {
+        ImportResult result = new ImportResult(MAX_IMPORT_ERRORS);
+        
+        // 分类只查一次，逐行校验时直接查集合
+        Set<Long> activeCategoryIds = new HashSet<>();
+        for (Category category : categoryDAO.findAllActive()) {
+            activeCategoryIds.add(category.getId());
+        }
+        
+        List<ImportRow> batch = new ArrayList<>(IMPORT_BATCH_SIZE);
+        ObjectMapper objectMapper = JsonUtil.getObjectMapper();
+        
+        if (FORMAT_CSV.equals(format)) {
+            CsvReader csvReader = new CsvReader(reader, MAX_IMPORT_LINE_LENGTH);
+            List<String> header = csvReader.readRecord();
+            if (header == null) {
+                return result;
+            }
+            if (csvReader.isRecordTooLong()) {
+                throw new IOException("列名行超过 " + MAX_IMPORT_LINE_LENGTH + " 个字符");
+            }
+            List<String> fields = new ArrayList<>(header.size());
+            for (String column : header) {
+                fields.add(toFieldName(column));
+            }
+            
+            long row = 0;
+            List<String> record;
+            while ((record = csvReader.readRecord()) != null) {
+                row++;
+                if (csvReader.isRecordTooLong()) {
+                    result.totalRows++;
+                    result.addError(row, null, "该行超过 " + MAX_IMPORT_LINE_LENGTH + " 个字符");
+                    continue;
+                }
+                if (record.size() == 1 && record.get(0).trim().isEmpty()) {
+                    continue;
+                }
+                result.totalRows++;
+                
+                Map<String, String> values = new HashMap<>();
+                for (int i = 0; i < fields.size() && i < record.size(); i++) {
+                    String value = record.get(i).trim();
+                    if (!value.isEmpty()) {
+                        values.put(fields.get(i), value);
+                    }
+                }
+                
+                ProductRequest productRequest;
+                try {
+                    productRequest = objectMapper.convertValue(values, ProductRequest.class);
+                } catch (IllegalArgumentException e) {
+                    result.addError(row, values.get("sku"), "字段格式错误");
+                    continue;
+                }
+                addImportRow(row, productRequest, activeCategoryIds, batch, result);
+            }
+        } else {
+            LineReader lineReader = new LineReader(reader, MAX_IMPORT_LINE_LENGTH);
+            long row = 0;
+            String line;
+            while ((line = lineReader.readLine()) != null) {
+                row++;
+                if (lineReader.isLineTooLong()) {
+                    result.totalRows++;
+                    result.addError(row, null, "该行超过 " + MAX_IMPORT_LINE_LENGTH + " 个字符");
+                    continue;
+                }
+                if (row == 1 && line.startsWith("\uFEFF")) {
+                    line = line.substring(1);
+                }
+                if (line.trim().isEmpty()) {
+                    continue;
+                }
+                result.totalRows++;
+                
+                ProductRequest productRequest;
+                try {
+                    productRequest = objectMapper.readValue(line, ProductRequest.class);
+                } catch (JsonProcessingException e) {
+                    result.addError(row, null, "JSON格式错误");
+                    continue;
+                }
+                addImportRow(row, productRequest, activeCategoryIds, batch, result);
+            }
+        }
+        
+        flushImportBatch(batch, result);
+        
+        if (result.getCreated() + result.getUpdated() > 0) {
+            FeaturedProductCache.requestRefresh();
+        }
+        
+        logger.info("商品导入完成，总行数: {}, 新增: {}, 更新: {}, 失败: {}",
+                result.getTotalRows(), result.getCreated(), result.getUpdated(), result.getFailed());
+        return result;
+    }
+    
+    /**
+     * 全量导出商品
+     * 通过流式查询逐行写出，内存占用与商品总数无关。CSV的列名与导入接口一致，导出文件可直接重新导入
+     * @param writer 输出目标
+     * @param format 格式：csv 或 ndjson（每行一个商品JSON）
+     * @param includeInactive 是否包含已下架商品
+     * @return 导出的商品数
+     * @throws IOException 写出失败（如客户端断开）
+     */
+    public long exportProducts(Writer writer, String format, boolean includeInactive) throws IOException {
+        long startNanos = System.nanoTime();
+        long count;
+        
+        if (FORMAT_CSV.equals(format)) {
+            CsvWriter csvWriter = new CsvWriter(writer);
+            csvWriter.writeRecord((Object[]) EXPORT_CSV_COLUMNS);
+            count = productDAO.streamAll(includeInactive, product -> csvWriter.writeRecord(
+                    product.getId(),
+                    product.getName(),
+                    product.getDescription(),
+                    product.getShortDescription(),
+                    product.getSku(),
+                    product.getPrice(),
+                    product.getCostPrice(),
+                    product.getStockQuantity(),
+                    product.getMinStockLevel(),
+                    product.getCategoryId(),
+                    product.getImageUrl(),
+                    product.getWeight(),
+                    product.getDimensions(),
+                    product.isActive(),
+                    product.isFeatured(),
+                    product.getCreatedAt(),
+                    product.getUpdatedAt()));
+        } else {
+            ObjectWriter objectWriter = JsonUtil.getObjectMapper().writerFor(Product.class);
+            count = productDAO.streamAll(includeInactive, product -> {
+                writer.write(objectWriter.writeValueAsString(product));
+                writer.write('\n');
+            });
+        }
+        writer.flush();
+        
+        logger.info("商品导出完成，格式: {}, 数量: {}, 耗时: {} ms", format, count,
+                (System.nanoTime() - startNanos) / 1_000_000);
+        return count;
+    }
+    
+    /**
+     * 校验一行导入数据，通过后加入当前批次，批次满时写入数据库
+     */
+    private void addImportRow(long row, ProductRequest productRequest, Set<Long> activeCategoryIds,
+                              List<ImportRow> batch, ImportResult result) {
+        if (productRequest == null) {
+            result.addError(row, null, "商品信息不能为空");
+            return;
+        }
+        
+        Product product = productRequest.toProduct(true, false);
+        String validationError = validateProductInput(product);
+        if (validationError == null && product.getCategoryId() != null
+                && !activeCategoryIds.contains(product.getCategoryId())) {
+            validationError = "指定的分类不存在或已禁用";
+        }
+        if (validationError != null) {
+            result.addError(row, product.getSku(), validationError);
+            return;
+        }
+        
+        batch.add(new ImportRow(row, product, importColumns(productRequest)));
+        if (batch.size() >= IMPORT_BATCH_SIZE) {
+            flushImportBatch(batch, result);
+        }
+    }
+    
+    /**
+     * 导入行提供了的字段对应的列，已存在的SKU只更新这些列（名称和价格必填，总是更新）
+     */
+    private static List<String> importColumns(ProductRequest request) {
+        List<String> columns = new ArrayList<>(ProductDAO.UPSERT_COLUMNS.size());
+        columns.add("name");
+        addIfPresent(columns, "description", request.getDescription());
+        addIfPresent(columns, "short_description", request.getShortDescription());
+        columns.add("price");
+        addIfPresent(columns, "cost_price", request.getCostPrice());
+        addIfPresent(columns, "stock_quantity", request.getStockQuantity());
+        addIfPresent(columns, "min_stock_level", request.getMinStockLevel());
+        addIfPresent(columns, "category_id", request.getCategoryId());
+        addIfPresent(columns, "image_url", request.getImageUrl());
+        addIfPresent(columns, "weight", request.getWeight());
+        addIfPresent(columns, "dimensions", request.getDimensions());
+        addIfPresent(columns, "is_active", request.getIsActive());
+        addIfPresent(columns, "is_featured", request.getIsFeatured());
+        return columns;
+    }
+    
+    private static void addIfPresent(List<String> columns, String column, Object value) {
+        if (value != null) {
+            columns.add(column);
+        }
+    }
+    
+    /**
+     * 写入当前批次并清空
+     * 按提供的字段分组，每组一条语句；CSV各行的字段相同，一个批次只有一组
+     */
+    private void flushImportBatch(List<ImportRow> batch, ImportResult result) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        
+        try {
+            Map<List<String>, List<ImportRow>> groups = new LinkedHashMap<>();
+            List<String> skus = new ArrayList<>(batch.size());
+            for (ImportRow importRow : batch) {
+                groups.computeIfAbsent(importRow.columns, columns -> new ArrayList<>()).add(importRow);
+                skus.add(importRow.product.getSku());
+            }
+            Set<String> seen = productDAO.findExistingSkus(skus);
+            
+            for (Map.Entry<List<String>, List<ImportRow>> group : groups.entrySet()) {
+                List<ImportRow> rows = group.getValue();
+                List<Product> products = new ArrayList<>(rows.size());
+                for (ImportRow importRow : rows) {
+                    products.add(importRow.product);
+                }
+                try {
+                    productDAO.upsertBatch(products, group.getKey());
+                    countImported(rows, seen, result);
+                } catch (Exception e) {
+                    logger.warn("商品导入批次写入失败，逐行重试，批次大小: {}", rows.size());
+                    for (ImportRow importRow : rows) {
+                        importSingle(importRow, result);
+                    }
+                }
+            }
+        } catch (Exception e) {
+            logger.warn("商品导入批次写入失败，逐行重试，批次大小: {}", batch.size());
+            for (ImportRow importRow : batch) {
+                importSingle(importRow, result);
+            }
+        } finally {
+            batch.clear();
+        }
+    }
+    
+    /**
+     * 单独写入一行，失败时记入错误列表
+     */
+    private void importSingle(ImportRow importRow, ImportResult result) {
+        Product product = importRow.product;
+        try {
+            boolean exists = productDAO.existsBySku(product.getSku());
+            productDAO.upsertBatch(Collections.singletonList(product), importRow.columns);
+            if (exists) {
+                result.updated++;
+            } else {
+                result.created++;
+            }
+        } catch (Exception rowException) {
+            result.addError(importRow.row, product.getSku(), "写入数据库失败");
+        }
+    }
+    
+    /**
+     * 统计新增和更新的行数；同一批次内重复出现的SKU，第二次起按更新计
+     * @param seen 批次开始时已存在的SKU，以及本批次已写入的SKU
+     */
+    private void countImported(List<ImportRow> rows, Set<String> seen, ImportResult result) {
+        for (ImportRow importRow : rows) {
+            String sku = importRow.product.getSku();
+            if (seen.add(sku)) {
+                result.created++;
+            } else {
+                result.updated++;
+            }
+        }
+    }
+    
+    /**
+     * CSV列名转换为请求字段名：stock_quantity -> stockQuantity
+     */
+    private static String toFieldName(String column) {
+        String name = column.trim();
+        StringBuilder fieldName = new StringBuilder(name.length());
+        boolean upperNext = false;
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (c == '_' || c == '-' || c == ' ') {
+                upperNext = fieldName.length() > 0;
+            } else if (upperNext) {
+                fieldName.append(Character.toUpperCase(c));
+                upperNext = false;
+            } else {
+                fieldName.append(c);
+            }
+        }
+        return fieldName.toString();
+    }
+    
     /**
      * 验证商品输入参数
      */
@@ -421,6 +780,71 @@ public class ProductService {
         public String getMessage() { return message; }
     }
     
+    /**
+     * 通过校验、等待写入的一行导入数据
+     */
+    private static final class ImportRow {
+        private final long row;
+        private final Product product;
+        private final List<String> columns;
+        
+        ImportRow(long row, Product product, List<String> columns) {
+            this.row = row;
+            this.product = product;
+            this.columns = columns;
+        }
+    }
+    
+    /**
+     * 导入结果类
+     * 行号为数据行的序号（CSV不含列名行，空行计入行号但不计入总数）；错误列表最多保留 import.max-errors 条，超出部分只计入 failed
+     */
+    public static class ImportResult {
+        private final int maxErrors;
+        private final List<ImportError> errors = new ArrayList<>();
+        private long totalRows;
+        private long created;
+        private long updated;
+        private long failed;
+        
+        public ImportResult(int maxErrors) {
+            this.maxErrors = maxErrors;
+        }
+        
+        void addError(long row, String sku, String message) {
+            failed++;
+            if (errors.size() < maxErrors) {
+                errors.add(new ImportError(row, sku, message));
+            }
+        }
+        
+        public long getTotalRows() { return totalRows; }
+        public long getCreated() { return created; }
+        public long getUpdated() { return updated; }
+        public long getFailed() { return failed; }
+        public List<ImportError> getErrors() { return errors; }
+        public boolean isErrorsTruncated() { return failed > errors.size(); }
+    }
+    
+    /**
+     * 导入失败的行
+     */
+    public static class ImportError {
+        private final long row;
+        private final String sku;
+        private final String message;
+        
+        public ImportError(long row, String sku, String message) {
+            this.row = row;
+            this.sku = sku;
+            this.message = message;
+        }
+        
+        public long getRow() { return row; }
+        public String getSku() { return sku; }
+        public String getMessage() { return message; }
+    }
+    
     /**
      * 搜索参数类
      */
@@ -468,13 +892,13 @@ public class ProductService {
      * 搜索结果类
      */
     public static class SearchResult {
-        private final List<Product> products;
+        private final List<ProductSummary> products;
         private final long totalCount;
         private final int currentPage;
         private final int pageSize;
         private final long totalPages;
         
-        public SearchResult(List<Product> products, long totalCount, int currentPage, int pageSize) {
+        public SearchResult(List<ProductSummary> products, long totalCount, int currentPage, int pageSize) {
             this.products = products;
             this.totalCount = totalCount;
             this.currentPage = currentPage;
@@ -482,7 +906,7 @@ public class ProductService {
             this.totalPages = (totalCount + pageSize - 1) / pageSize;
         }
         
-        public List<Product> getProducts() { return products; }
+        public List<ProductSummary> getProducts() { return products; }
         public long getTotalCount() { return totalCount; }
         public int getCurrentPage() { return currentPage; }
         public int getPageSize() { return pageSize; }
@@ -0,0 +1,393 @@
+package com.cat.service;
+
+import com.cat.config.DatabaseConfig;
+import com.cat.dao.UserSessionDAO;
+import com.cat.metrics.MetricsRegistry;
+import com.cat.model.UserSession;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.servlet.http.HttpServletRequest;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 登录会话存储（user_sessions表）
+ * 会话记录保存在数据库中，任意节点都能根据请求携带的会话ID识别用户，不依赖粘性会话。
+ * 每个节点在内存中缓存最近使用的会话（近端缓存），缓存在 session.cache-ttl-seconds 内有效，
+ * 常见情况下识别会话不访问数据库；其他节点上的退出登录最迟在缓存过期后生效。
+ * 数据库中不存在的会话ID（退出或超时后浏览器仍携带的ID、未登录的容器会话、伪造的Cookie）
+ * 也在 session.negative-ttl-seconds 内记住，期间不再查询数据库；登录时会话ID会更换，不受影响。
+ * 最后访问时间先记录在内存中，每个会话每 session.touch-interval-seconds 秒最多写回一次，由后台线程批量写入。
+ * 过期会话由后台线程按 expires_at（idx_expires）分批删除
+ */
+public class SessionStore {
+    private static final Logger logger = LoggerFactory.getLogger(SessionStore.class);
+
+    /** 请求属性：SecurityFilter 识别出的当前会话 */
+    public static final String REQUEST_ATTRIBUTE = SessionStore.class.getName() + ".session";
+
+    private static final long TOUCH_INTERVAL_MILLIS =
+            DatabaseConfig.getLongProperty("session.touch-interval-seconds", 60) * 1000;
+    private static final long CACHE_TTL_MILLIS =
+            DatabaseConfig.getLongProperty("session.cache-ttl-seconds", 30) * 1000;
+    private static final int CACHE_MAX_ENTRIES = DatabaseConfig.getIntProperty("session.cache-max-entries", 100000);
+    private static final long NEGATIVE_TTL_MILLIS =
+            DatabaseConfig.getLongProperty("session.negative-ttl-seconds", 10) * 1000;
+    private static final long SWEEP_INTERVAL_SECONDS =
+            DatabaseConfig.getLongProperty("session.sweep-interval-seconds", 300);
+    private static final int SWEEP_BATCH_SIZE = DatabaseConfig.getIntProperty("session.sweep-batch-size", 1000);
+    private static final int MAX_USER_AGENT_LENGTH = 500;
+
+    private static final UserSessionDAO userSessionDAO = new UserSessionDAO();
+
+    // 会话ID -> 缓存项
+    private static final ConcurrentHashMap<String, Entry> cache = new ConcurrentHashMap<>();
+    // 数据库中不存在的会话ID -> 记录的截止时间
+    private static final ConcurrentHashMap<String, Long> missing = new ConcurrentHashMap<>();
+    // 等待写回最后访问时间的缓存项
+    private static final ConcurrentHashMap<String, Entry> pendingTouches = new ConcurrentHashMap<>();
+
+    private static final LongAdder cacheHits = lookupCounter("hit");
+    private static final LongAdder cacheLoads = lookupCounter("load");
+    private static final LongAdder cacheMisses = lookupCounter("miss");
+    private static final LongAdder cacheNegativeHits = lookupCounter("negative_hit");
+
+    private static volatile ScheduledExecutorService scheduler;
+
+    static {
+        MetricsRegistry.gauge("eshop_session_cache_entries", "Sessions held in the local near-cache", cache::size);
+        MetricsRegistry.gauge("eshop_session_negative_cache_entries",
+                "Unknown session ids remembered by the local near-cache", missing::size);
+    }
+
+    /**
+     * 启动最后访问时间写回和过期会话清理（应用启动时调用）
+     */
+    public static synchronized void start() {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "session-store");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long flushPeriodMillis = Math.max(TOUCH_INTERVAL_MILLIS, 1000);
+        long sweepPeriodSeconds = Math.max(SWEEP_INTERVAL_SECONDS, 1);
+        scheduler.scheduleWithFixedDelay(SessionStore::flushQuietly,
+                flushPeriodMillis, flushPeriodMillis, TimeUnit.MILLISECONDS);
+        scheduler.scheduleWithFixedDelay(SessionStore::sweepQuietly,
+                sweepPeriodSeconds, sweepPeriodSeconds, TimeUnit.SECONDS);
+        logger.info("会话存储已启动，访问时间写回间隔: {} 秒，近端缓存有效期: {} 秒",
+                TOUCH_INTERVAL_MILLIS / 1000, CACHE_TTL_MILLIS / 1000);
+    }
+
+    /**
+     * 停止后台任务并写回尚未保存的访问时间（应用关闭时调用，需在关闭连接池之前）
+     */
+    public static synchronized void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+        flushQuietly();
+    }
+
+    /**
+     * 创建会话（登录成功后调用）
+     * @param sessionId 会话ID（容器会话ID）
+     * @param userType 用户类型（CUSTOMER/ADMIN）
+     * @param userId 用户ID
+     * @param request 当前请求，用于记录IP和User-Agent
+     * @param timeoutSeconds 空闲超时（秒），每次访问后顺延
+     * @return 会话
+     */
+    public static UserSession create(String sessionId, String userType, Long userId,
+                                     HttpServletRequest request, int timeoutSeconds) {
+        long now = System.currentTimeMillis();
+        long timeoutMillis = timeoutSeconds * 1000L;
+
+        UserSession session = new UserSession(sessionId, userType, userId);
+        session.setIpAddress(request.getRemoteAddr());
+        String userAgent = request.getHeader("User-Agent");
+        if (userAgent != null && userAgent.length() > MAX_USER_AGENT_LENGTH) {
+            userAgent = userAgent.substring(0, MAX_USER_AGENT_LENGTH);
+        }
+        session.setUserAgent(userAgent);
+        session.setCreatedAt(new Timestamp(now).toLocalDateTime());
+        session.setLastAccessedAt(session.getCreatedAt());
+        session.setExpiresAt(new Timestamp(now + timeoutMillis).toLocalDateTime());
+
+        String key = sessionKey(sessionId);
+        userSessionDAO.create(key, session);
+
+        Entry entry = new Entry(session, key, timeoutMillis, now, now);
+        missing.remove(sessionId);
+        if (cache.size() < CACHE_MAX_ENTRIES) {
+            cache.put(sessionId, entry);
+        }
+        logger.debug("创建会话，用户类型: {}, 用户ID: {}", userType, userId);
+        return session;
+    }
+
+    /**
+     * 根据会话ID查找会话并记录一次访问
+     * 返回的对象在线程间共享且不随访问更新，调用方不得修改，也不应依赖其中的时间字段
+     * @param sessionId 会话ID
+     * @return 会话，不存在或已过期时返回null
+     */
+    public static UserSession find(String sessionId) {
+        if (sessionId == null || sessionId.isEmpty()) {
+            return null;
+        }
+
+        long now = System.currentTimeMillis();
+        Entry entry = cache.get(sessionId);
+        if (entry != null && now - entry.loadedAt < CACHE_TTL_MILLIS && now < entry.expiresAt()) {
+            cacheHits.increment();
+            touch(sessionId, entry, now);
+            return entry.session;
+        }
+        if (entry == null) {
+            Long missingUntil = missing.get(sessionId);
+            if (missingUntil != null && now < missingUntil) {
+                cacheNegativeHits.increment();
+                return null;
+            }
+        }
+
+        // 未缓存、缓存已过有效期或本地看来已过期（其他节点可能已顺延）时以数据库为准
+        String key = entry != null ? entry.key : sessionKey(sessionId);
+        UserSession session = userSessionDAO.findActive(key, new Timestamp(now));
+        if (session == null) {
+            cacheMisses.increment();
+            cache.remove(sessionId);
+            pendingTouches.remove(sessionId);
+            rememberMissing(sessionId, now);
+            return null;
+        }
+
+        cacheLoads.increment();
+        session.setSessionId(sessionId);
+        long persistedAccess = Timestamp.valueOf(session.getLastAccessedAt()).getTime();
+        long timeoutMillis = Timestamp.valueOf(session.getExpiresAt()).getTime() - persistedAccess;
+        Entry loaded = new Entry(session, key, timeoutMillis, now, persistedAccess);
+        if (entry != null && entry.lastAccessed > persistedAccess) {
+            // 保留本节点尚未写回的访问时间
+            loaded.lastAccessed = entry.lastAccessed;
+        }
+        if (entry != null || cache.size() < CACHE_MAX_ENTRIES) {
+            cache.put(sessionId, loaded);
+        }
+        touch(sessionId, loaded, now);
+        return session;
+    }
+
+    /**
+     * 获取当前请求的会话：优先使用 SecurityFilter 已识别的结果，否则按请求携带的会话ID查找，
+     * 无状态令牌模式下校验请求携带的令牌
+     * @param request 当前请求
+     * @return 会话，未登录时返回null
+     */
+    public static UserSession getCurrent(HttpServletRequest request) {
+        Object resolved = request.getAttribute(REQUEST_ATTRIBUTE);
+        if (resolved instanceof UserSession) {
+            return (UserSession) resolved;
+        }
+        UserSession session = AuthTokenService.isEnabled()
+                ? AuthTokenService.authenticate(request)
+                : find(request.getRequestedSessionId());
+        if (session != null) {
+            request.setAttribute(REQUEST_ATTRIBUTE, session);
+        }
+        return session;
+    }
+
+    /**
+     * 获取当前请求的会话，不访问数据库：会话模式下只查本节点近端缓存，令牌模式下校验令牌（本身不访问数据库）。
+     * 供在 SecurityFilter 之前运行、必须先于任何数据库查询限制请求的组件使用（RateLimitFilter）；
+     * 未命中时返回null，调用方按未登录处理，之后 getCurrent 仍以数据库为准
+     * @param request 当前请求
+     * @return 会话，未登录或未缓存时返回null
+     */
+    public static UserSession getCurrentIfCached(HttpServletRequest request) {
+        Object resolved = request.getAttribute(REQUEST_ATTRIBUTE);
+        if (resolved instanceof UserSession) {
+            return (UserSession) resolved;
+        }
+        UserSession session;
+        if (AuthTokenService.isEnabled()) {
+            session = AuthTokenService.authenticate(request);
+        } else {
+            String sessionId = request.getRequestedSessionId();
+            long now = System.currentTimeMillis();
+            Entry entry = sessionId != null ? cache.get(sessionId) : null;
+            if (entry == null || now - entry.loadedAt >= CACHE_TTL_MILLIS || now >= entry.expiresAt()) {
+                return null;
+            }
+            cacheHits.increment();
+            touch(sessionId, entry, now);
+            session = entry.session;
+        }
+        if (session != null) {
+            request.setAttribute(REQUEST_ATTRIBUTE, session);
+        }
+        return session;
+    }
+
+    /**
+     * 删除会话（退出登录）
+     * @param sessionId 会话ID
+     */
+    public static void remove(String sessionId) {
+        if (sessionId == null || sessionId.isEmpty()) {
+            return;
+        }
+        Entry entry = cache.remove(sessionId);
+        pendingTouches.remove(sessionId);
+        userSessionDAO.delete(entry != null ? entry.key : sessionKey(sessionId));
+        // 退出后浏览器通常仍携带该会话ID
+        rememberMissing(sessionId, System.currentTimeMillis());
+    }
+
+    /**
+     * 批量写回待保存的最后访问时间
+     * @return 写回的会话数
+     */
+    public static int flush() {
+        List<Object[]> touches = new ArrayList<>();
+        List<Entry> flushed = new ArrayList<>();
+        Iterator<Entry> iterator = pendingTouches.values().iterator();
+        while (iterator.hasNext()) {
+            Entry entry = iterator.next();
+            iterator.remove();
+            long lastAccessed = entry.lastAccessed;
+            touches.add(new Object[]{entry.key, new Timestamp(lastAccessed),
+                    new Timestamp(lastAccessed + entry.timeoutMillis)});
+            flushed.add(entry);
+        }
+
+        if (!touches.isEmpty()) {
+            userSessionDAO.touchBatch(touches);
+            for (int i = 0; i < flushed.size(); i++) {
+                flushed.get(i).persistedAccess = ((Timestamp) touches.get(i)[1]).getTime();
+            }
+        }
+
+        // 顺带清理已过有效期的缓存项，下次访问时重新从数据库加载
+        long now = System.currentTimeMillis();
+        cache.entrySet().removeIf(e -> now - e.getValue().loadedAt >= CACHE_TTL_MILLIS
+                && !pendingTouches.containsKey(e.getKey()));
+        missing.values().removeIf(missingUntil -> now >= missingUntil);
+        return touches.size();
+    }
+
+    /**
+     * 分批删除已过期的会话，每批最多 session.sweep-batch-size 行
+     * @return 删除的会话数
+     */
+    public static int sweepExpired() {
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        int total = 0;
+        int deleted;
+        do {
+            deleted = userSessionDAO.deleteExpired(now, SWEEP_BATCH_SIZE);
+            total += deleted;
+        } while (deleted >= SWEEP_BATCH_SIZE);
+
+        if (total > 0) {
+            logger.info("已清理过期会话: {}", total);
+        }
+        return total;
+    }
+
+    private static void touch(String sessionId, Entry entry, long now) {
+        // 同一秒内的重复访问不再写入，减少共享缓存项上的写竞争
+        if (now - entry.lastAccessed >= 1000) {
+            entry.lastAccessed = now;
+        }
+        if (now - entry.persistedAccess >= TOUCH_INTERVAL_MILLIS && pendingTouches.get(sessionId) != entry) {
+            pendingTouches.put(sessionId, entry);
+        }
+    }
+
+    private static void rememberMissing(String sessionId, long now) {
+        if (NEGATIVE_TTL_MILLIS > 0 && missing.size() < CACHE_MAX_ENTRIES) {
+            missing.put(sessionId, now + NEGATIVE_TTL_MILLIS);
+        }
+    }
+
+    private static void flushQuietly() {
+        try {
+            flush();
+        } catch (Exception e) {
+            // 未写回的访问时间在下一次访问时重新登记
+            logger.warn("写回会话访问时间失败", e);
+        }
+    }
+
+    private static void sweepQuietly() {
+        try {
+            sweepExpired();
+        } catch (Exception e) {
+            logger.warn("清理过期会话失败", e);
+        }
+    }
+
+    private static LongAdder lookupCounter(String result) {
+        return MetricsRegistry.counter("eshop_session_lookups_total",
+                "Session lookups by near-cache result", "result", result);
+    }
+
+    /**
+     * 会话ID摘要（SHA-256），数据库中不保存可直接使用的会话ID
+     */
+    private static String sessionKey(String sessionId) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(sessionId.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256不可用", e);
+        }
+    }
+
+    /**
+     * 近端缓存项
+     */
+    private static class Entry {
+        private final UserSession session;
+        private final String key;
+        private final long timeoutMillis;
+        private final long loadedAt;
+        private volatile long lastAccessed;
+        private volatile long persistedAccess;
+
+        Entry(UserSession session, String key, long timeoutMillis, long loadedAt, long persistedAccess) {
+            this.session = session;
+            this.key = key;
+            this.timeoutMillis = timeoutMillis;
+            this.loadedAt = loadedAt;
+            this.persistedAccess = persistedAccess;
+            this.lastAccessed = persistedAccess;
+        }
+
+        long expiresAt() {
+            return lastAccessed + timeoutMillis;
+        }
+    }
+}
@@ -0,0 +1,281 @@
+package com.cat.service;
+
+import com.cat.config.DatabaseConfig;
+import com.cat.dao.SystemSettingDAO;
+import com.cat.metrics.MetricsRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 系统配置服务（system_settings表）
+ * 配置一次性加载为不可变快照，读取时只读一次volatile引用，不加锁也不访问数据库；常用配置在加载时解析好。
+ * 后台线程每 settings.reload-interval-seconds 秒查询一次配置表版本（行数 + MAX(updated_at)），
+ * 版本变化时重新加载，修改配置不需要重启。
+ * 配置表中没有的配置项依次回退到 database.properties（同名键，或将下划线换成点的键）和代码中的默认值
+ */
+public class SettingsService {
+    private static final Logger logger = LoggerFactory.getLogger(SettingsService.class);
+
+    public static final String TAX_RATE = "tax_rate";
+    public static final String FREE_SHIPPING_THRESHOLD = "free_shipping_threshold";
+    public static final String DEFAULT_SHIPPING_FEE = "default_shipping_fee";
+    public static final String MAX_LOGIN_ATTEMPTS = "max_login_attempts";
+    public static final String SESSION_TIMEOUT = "session_timeout";
+    public static final String CURRENCY = "currency";
+    public static final String SITE_NAME = "site_name";
+
+    private static final long RELOAD_INTERVAL_SECONDS =
+            DatabaseConfig.getLongProperty("settings.reload-interval-seconds", 30);
+
+    private static final SystemSettingDAO systemSettingDAO = new SystemSettingDAO();
+    // 重新加载时持有锁查询数据库，用ReentrantLock，虚拟线程在这里等待时不会固定载体线程
+    private static final ReentrantLock loadLock = new ReentrantLock();
+
+    private static volatile Snapshot snapshot;
+    private static volatile ScheduledExecutorService scheduler;
+    // 当前快照对应的配置表版本，null表示下一次检查时必须重新加载
+    private static SystemSettingDAO.Version loadedVersion;
+
+    static {
+        MetricsRegistry.gauge("eshop_settings_snapshot_age_seconds", "Age of the system settings snapshot",
+                () -> {
+                    Snapshot current = snapshot;
+                    return current != null ? (System.currentTimeMillis() - current.loadedAt) / 1000.0 : -1;
+                });
+    }
+
+    /**
+     * 加载配置并启动定时版本检查（应用启动时调用）
+     * 数据库不可用时先使用配置文件中的值，下一次检查时再从数据库加载
+     */
+    public static synchronized void start() {
+        if (scheduler != null) {
+            return;
+        }
+        reloadQuietly();
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "settings-reload");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(SettingsService::reloadQuietly,
+                RELOAD_INTERVAL_SECONDS, RELOAD_INTERVAL_SECONDS, TimeUnit.SECONDS);
+        logger.info("系统配置已加载，版本检查间隔: {} 秒", RELOAD_INTERVAL_SECONDS);
+    }
+
+    /**
+     * 停止定时版本检查（应用关闭时调用）
+     */
+    public static synchronized void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    /**
+     * 检查配置表版本，变化时重新加载快照
+     * @return 是否重新加载
+     */
+    public static boolean reloadIfChanged() {
+        loadLock.lock();
+        try {
+            SystemSettingDAO.Version version = systemSettingDAO.findVersion();
+            if (snapshot != null && version != null && version.equals(loadedVersion)) {
+                return false;
+            }
+
+            // 先取版本再读数据：读取期间发生的修改会使下一次检查的版本不同
+            Map<String, String> values = systemSettingDAO.findAll();
+            snapshot = new Snapshot(values);
+            loadedVersion = version != null && version.isSettled() ? version : null;
+            logger.info("系统配置已重新加载，配置项: {}，版本: {}", values.size(), version);
+            return true;
+        } finally {
+            loadLock.unlock();
+        }
+    }
+
+    private static void reloadQuietly() {
+        try {
+            reloadIfChanged();
+        } catch (Exception e) {
+            loadLock.lock();
+            try {
+                if (snapshot == null) {
+                    snapshot = new Snapshot(Collections.emptyMap());
+                    logger.warn("从数据库加载系统配置失败，暂时使用配置文件中的值", e);
+                    return;
+                }
+            } finally {
+                loadLock.unlock();
+            }
+            // 保留旧快照，等待下一次检查
+            logger.warn("检查系统配置版本失败，继续使用旧配置", e);
+        }
+    }
+
+    private static Snapshot current() {
+        Snapshot current = snapshot;
+        if (current == null) {
+            // 未经ContextListener启动时（如离线工具）在第一次读取时加载，不启动版本检查
+            reloadQuietly();
+            current = snapshot;
+        }
+        return current;
+    }
+
+    /**
+     * 税率（如0.06表示6%）
+     */
+    public static BigDecimal getTaxRate() {
+        return current().taxRate;
+    }
+
+    /**
+     * 免运费门槛金额
+     */
+    public static BigDecimal getFreeShippingThreshold() {
+        return current().freeShippingThreshold;
+    }
+
+    /**
+     * 默认运费
+     */
+    public static BigDecimal getDefaultShippingFee() {
+        return current().defaultShippingFee;
+    }
+
+    /**
+     * 最大登录尝试次数
+     */
+    public static int getMaxLoginAttempts() {
+        return current().maxLoginAttempts;
+    }
+
+    /**
+     * 会话超时时间（分钟）
+     */
+    public static int getSessionTimeoutMinutes() {
+        return current().sessionTimeoutMinutes;
+    }
+
+    /**
+     * 货币代码
+     */
+    public static String getCurrency() {
+        return current().currency;
+    }
+
+    /**
+     * 获取字符串配置
+     * @param key 配置键（system_settings.setting_key）
+     * @param defaultValue 默认值
+     * @return 配置值
+     */
+    public static String getString(String key, String defaultValue) {
+        return current().getString(key, defaultValue);
+    }
+
+    /**
+     * 获取整数配置，格式错误时返回默认值
+     */
+    public static int getInt(String key, int defaultValue) {
+        return current().getInt(key, defaultValue);
+    }
+
+    /**
+     * 获取金额/小数配置，格式错误时返回默认值
+     */
+    public static BigDecimal getDecimal(String key, BigDecimal defaultValue) {
+        return current().getDecimal(key, defaultValue);
+    }
+
+    /**
+     * 获取布尔配置
+     */
+    public static boolean getBoolean(String key, boolean defaultValue) {
+        return Boolean.parseBoolean(current().getString(key, String.valueOf(defaultValue)));
+    }
+
+    /**
+     * 不可变快照
+     */
+    private static class Snapshot {
+        private final Map<String, String> values;
+        // 配置键 -> 回退后的最终值，每个键只查找一次配置文件
+        private final ConcurrentHashMap<String, String> resolved = new ConcurrentHashMap<>();
+        private final long loadedAt = System.currentTimeMillis();
+
+        private final BigDecimal taxRate;
+        private final BigDecimal freeShippingThreshold;
+        private final BigDecimal defaultShippingFee;
+        private final int maxLoginAttempts;
+        private final int sessionTimeoutMinutes;
+        private final String currency;
+
+        Snapshot(Map<String, String> values) {
+            this.values = values;
+            this.taxRate = getDecimal(TAX_RATE, new BigDecimal("0.06"));
+            this.freeShippingThreshold = getDecimal(FREE_SHIPPING_THRESHOLD, new BigDecimal("200.00"));
+            this.defaultShippingFee = getDecimal(DEFAULT_SHIPPING_FEE, new BigDecimal("10.00"));
+            this.maxLoginAttempts = getInt(MAX_LOGIN_ATTEMPTS, 5);
+            this.sessionTimeoutMinutes = getInt(SESSION_TIMEOUT, 30);
+            this.currency = getString(CURRENCY, "MYR");
+        }
+
+        String getString(String key, String defaultValue) {
+            String value = resolved.computeIfAbsent(key, this::resolve);
+            return value.isEmpty() ? defaultValue : value;
+        }
+
+        // 未配置时返回空字符串，以便缓存"不存在"的结果
+        private String resolve(String key) {
+            String value = values.get(key);
+            if (value != null && !value.trim().isEmpty()) {
+                return value.trim();
+            }
+            value = DatabaseConfig.getProperty(key, null);
+            if (value != null) {
+                return value;
+            }
+            return DatabaseConfig.getProperty(key.replace('_', '.'), "");
+        }
+
+        int getInt(String key, int defaultValue) {
+            String value = getString(key, null);
+            if (value == null) {
+                return defaultValue;
+            }
+            try {
+                return Integer.parseInt(value);
+            } catch (NumberFormatException e) {
+                logger.warn("系统配置格式错误: {}={}，使用默认值: {}", key, value, defaultValue);
+                return defaultValue;
+            }
+        }
+
+        BigDecimal getDecimal(String key, BigDecimal defaultValue) {
+            String value = getString(key, null);
+            if (value == null) {
+                return defaultValue;
+            }
+            try {
+                return new BigDecimal(value);
+            } catch (NumberFormatException e) {
+                logger.warn("系统配置格式错误: {}={}，使用默认值: {}", key, value, defaultValue);
+                return defaultValue;
+            }
+        }
+    }
+}
@@ -1,22 +1,31 @@
 package com.cat.service;
 
 import com.cat.dao.ProductDAO;
-import com.cat.dao.ShoppingCartDAO;
 import com.cat.model.Product;
 import com.cat.model.ShoppingCart;
+import com.cat.pricing.CartPrice;
+import com.cat.pricing.Money;
+import com.cat.pricing.PricingEngine;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
+/**
+ * 购物车服务
+ * 购物车内容由 CartStore 在内存中维护并异步写回 shopping_cart，商品信息每次按ID批量查询；
+ * 未登录时使用游客购物车（GuestCartService 签名Cookie），登录时合并到顾客购物车
+ */
 public class ShoppingCartService {
     private static final Logger logger = LoggerFactory.getLogger(ShoppingCartService.class);
-    private final ShoppingCartDAO shoppingCartDAO;
     private final ProductDAO productDAO;
     
     public ShoppingCartService() {
-        this.shoppingCartDAO = new ShoppingCartDAO();
         this.productDAO = new ProductDAO();
     }
     
@@ -33,56 +42,23 @@ public class ShoppingCartService {
             return new OperationResult(false, "参数无效");
         }
         
-        // 检查商品是否存在
+        // 检查商品是否存在、库存是否足够
         Product product = productDAO.findById(productId);
-        if (product == null || !product.isActive()) {
-            return new OperationResult(false, "商品不存在或已下架");
-        }
-        
-        // 检查库存
-        if (!product.isInStock()) {
-            return new OperationResult(false, "商品暂时缺货");
-        }
-        
-        if (quantity > product.getStockQuantity()) {
-            return new OperationResult(false, "库存不足，当前库存: " + product.getStockQuantity());
+        OperationResult invalid = checkProduct(product, quantity);
+        if (invalid != null) {
+            return invalid;
         }
         
         try {
-            // 检查购物车中是否已有该商品
-            ShoppingCart existingItem = shoppingCartDAO.findByCustomerAndProduct(customerId, productId);
+            // 与已有数量合计超过库存时按库存截断，不再拒绝
+            CartStore.CartChange change = CartStore.add(customerId, productId, quantity, product.getStockQuantity(), product);
+            int newQuantity = change.getQuantity();
             
-            if (existingItem != null) {
-                // 更新现有商品数量
-                int newQuantity = existingItem.getQuantity() + quantity;
-                
-                if (newQuantity > product.getStockQuantity()) {
-                    return new OperationResult(false, "库存不足，当前库存: " + product.getStockQuantity());
-                }
-                
-                existingItem.setQuantity(newQuantity);
-                boolean success = shoppingCartDAO.update(existingItem);
-                
-                if (success) {
-                    logger.info("更新购物车商品数量成功，客户ID: {}, 商品ID: {}, 新数量: {}", 
-                            customerId, productId, newQuantity);
-                    return new OperationResult(true, "商品数量已更新");
-                } else {
-                    return new OperationResult(false, "更新商品数量失败");
-                }
-            } else {
-                // 添加新商品到购物车
-                ShoppingCart shoppingCart = new ShoppingCart(customerId, productId, quantity);
-                Long cartItemId = shoppingCartDAO.add(shoppingCart);
-                
-                if (cartItemId != null) {
-                    logger.info("添加商品到购物车成功，客户ID: {}, 商品ID: {}, 数量: {}", 
-                            customerId, productId, quantity);
-                    return new OperationResult(true, "商品已添加到购物车");
-                } else {
-                    return new OperationResult(false, "添加商品到购物车失败");
-                }
+            logger.debug("添加商品到购物车成功，客户ID: {}, 商品ID: {}, 新数量: {}", customerId, productId, newQuantity);
+            if (newQuantity == product.getStockQuantity()) {
+                return new OperationResult(true, "购物车中该商品数量已达到库存上限: " + newQuantity, change);
             }
+            return new OperationResult(true, newQuantity < 0 || newQuantity == quantity ? "商品已添加到购物车" : "商品数量已更新", change);
             
         } catch (Exception e) {
             logger.error("添加商品到购物车失败，客户ID: {}, 商品ID: {}, 数量: {}", 
@@ -104,12 +80,6 @@ public class ShoppingCartService {
             return new OperationResult(false, "参数无效");
         }
         
-        // 检查购物车项是否存在
-        ShoppingCart cartItem = shoppingCartDAO.findByCustomerAndProduct(customerId, productId);
-        if (cartItem == null) {
-            return new OperationResult(false, "购物车中不存在该商品");
-        }
-        
         // 如果数量为0，则删除该商品
         if (quantity == 0) {
             return removeFromCart(customerId, productId);
@@ -126,15 +96,14 @@ public class ShoppingCartService {
         }
         
         try {
-            cartItem.setQuantity(quantity);
-            boolean success = shoppingCartDAO.update(cartItem);
+            CartStore.CartChange change = CartStore.setQuantity(customerId, productId, quantity, product);
             
-            if (success) {
-                logger.info("更新购物车商品数量成功，客户ID: {}, 商品ID: {}, 新数量: {}", 
+            if (change != null) {
+                logger.debug("更新购物车商品数量成功，客户ID: {}, 商品ID: {}, 新数量: {}", 
                         customerId, productId, quantity);
-                return new OperationResult(true, "商品数量已更新");
+                return new OperationResult(true, "商品数量已更新", change);
             } else {
-                return new OperationResult(false, "更新商品数量失败");
+                return new OperationResult(false, "购物车中不存在该商品");
             }
             
         } catch (Exception e) {
@@ -157,11 +126,11 @@ public class ShoppingCartService {
         }
         
         try {
-            boolean success = shoppingCartDAO.remove(customerId, productId);
+            CartStore.CartChange change = CartStore.remove(customerId, productId);
             
-            if (success) {
-                logger.info("从购物车移除商品成功，客户ID: {}, 商品ID: {}", customerId, productId);
-                return new OperationResult(true, "商品已从购物车移除");
+            if (change != null) {
+                logger.debug("从购物车移除商品成功，客户ID: {}, 商品ID: {}", customerId, productId);
+                return new OperationResult(true, "商品已从购物车移除", change);
             } else {
                 return new OperationResult(false, "购物车中不存在该商品");
             }
@@ -184,10 +153,10 @@ public class ShoppingCartService {
         }
         
         try {
-            boolean success = shoppingCartDAO.clear(customerId);
+            boolean success = CartStore.clear(customerId);
             
             if (success) {
-                logger.info("清空购物车成功，客户ID: {}", customerId);
+                logger.debug("清空购物车成功，客户ID: {}", customerId);
                 return new OperationResult(true, "购物车已清空");
             } else {
                 return new OperationResult(false, "购物车已经是空的");
@@ -207,35 +176,191 @@ public class ShoppingCartService {
     public ShoppingCartResult getCustomerCart(Long customerId) {
         // 验证参数
         if (customerId == null) {
-            return new ShoppingCartResult(null, 0, BigDecimal.ZERO, "参数无效");
+            return new ShoppingCartResult(null, CartPrice.EMPTY, "参数无效");
         }
         
         try {
-            List<ShoppingCart> cartItems = shoppingCartDAO.findByCustomerId(customerId);
-            
-            // 为每个购物车项加载商品信息
-            BigDecimal totalAmount = BigDecimal.ZERO;
-            int totalQuantity = 0;
-            
+            CartStore.CartView cart = CartStore.getCart(customerId);
+            List<ShoppingCart> cartItems = cart.getItems();
+            List<Long> productIds = new ArrayList<>(cartItems.size());
             for (ShoppingCart item : cartItems) {
-                Product product = productDAO.findById(item.getProductId());
-                if (product != null && product.isActive()) {
-                    item.setProduct(product);
-                    totalAmount = totalAmount.add(item.getSubtotal());
-                    totalQuantity += item.getQuantity();
-                } else {
-                    // 商品不存在或已下架，可以考虑从购物车中移除
-                    logger.warn("购物车中的商品不存在或已下架，客户ID: {}, 商品ID: {}", 
-                            customerId, item.getProductId());
-                }
+                productIds.add(item.getProductId());
             }
+            Map<Long, Product> products = productDAO.findByIds(productIds);
+            // 刷新购物车存储缓存的商品，之后的修改可以增量计算合计
+            CartStore.attachProducts(customerId, productIds, products);
             
-            return new ShoppingCartResult(cartItems, totalQuantity, totalAmount, "获取成功");
-            
+            CartStore.Totals totals = cart.getTotals();
+            return buildCart(cartItems, products, totals.isTracked() ? totals.getVersion() : null);
         } catch (Exception e) {
             logger.error("获取客户购物车失败，客户ID: {}", customerId, e);
-            return new ShoppingCartResult(null, 0, BigDecimal.ZERO, "获取购物车失败，请稍后重试");
+            return new ShoppingCartResult(null, CartPrice.EMPTY, "获取购物车失败，请稍后重试");
+        }
+    }
+    
+    /**
+     * 获取一次修改后的增量结果：修改的购物车项和修改后的合计，不重新读取整个购物车
+     * 购物车中有尚未查询过商品的项时（如刚从数据库加载），只查询这些商品
+     * @param customerId 客户ID
+     * @param result 修改操作的结果
+     * @return 增量结果；不跟踪版本时（写直达模式）返回null，调用方应返回完整购物车
+     */
+    public CartDeltaResult getCartDelta(Long customerId, OperationResult result) {
+        CartStore.CartChange change = result.getChange();
+        if (customerId == null || change == null || !change.getTotals().isTracked()) {
+            return null;
+        }
+        
+        try {
+            CartStore.Totals totals = change.getTotals();
+            if (!totals.isComplete()) {
+                List<Long> productIds = totals.getUnpricedProductIds();
+                totals = CartStore.attachProducts(customerId, productIds, productDAO.findByIds(productIds));
+                if (!totals.isComplete()) {
+                    return null;
+                }
+            }
+            return new CartDeltaResult(change, totals);
+        } catch (Exception e) {
+            logger.error("计算购物车增量结果失败，客户ID: {}", customerId, e);
+            return null;
+        }
+    }
+    
+    /**
+     * 添加商品到游客购物车，与已有数量合计超过库存时按库存截断
+     * @param lines 游客购物车（商品ID -> 数量），成功时被修改
+     * @param productId 商品ID
+     * @param quantity 数量
+     * @return 操作结果
+     */
+    public OperationResult addToGuestCart(Map<Long, Integer> lines, Long productId, int quantity) {
+        if (productId == null || quantity <= 0) {
+            return new OperationResult(false, "参数无效");
+        }
+        if (!lines.containsKey(productId) && lines.size() >= GuestCartService.getMaxLines()) {
+            return new OperationResult(false, "购物车商品种类已达上限，请登录后继续添加");
+        }
+        
+        Product product = productDAO.findById(productId);
+        OperationResult invalid = checkProduct(product, quantity);
+        if (invalid != null) {
+            return invalid;
+        }
+        
+        Integer existing = lines.get(productId);
+        int newQuantity = Math.min((existing != null ? existing : 0) + quantity, product.getStockQuantity());
+        lines.put(productId, newQuantity);
+        if (newQuantity == product.getStockQuantity()) {
+            return new OperationResult(true, "购物车中该商品数量已达到库存上限: " + newQuantity);
+        }
+        return new OperationResult(true, existing == null ? "商品已添加到购物车" : "商品数量已更新");
+    }
+    
+    /**
+     * 更新游客购物车商品数量，数量为0时移除
+     * @param lines 游客购物车（商品ID -> 数量），成功时被修改
+     * @param productId 商品ID
+     * @param quantity 新数量
+     * @return 操作结果
+     */
+    public OperationResult updateGuestQuantity(Map<Long, Integer> lines, Long productId, int quantity) {
+        if (productId == null || quantity < 0) {
+            return new OperationResult(false, "参数无效");
+        }
+        if (!lines.containsKey(productId)) {
+            return new OperationResult(false, "购物车中不存在该商品");
+        }
+        if (quantity == 0) {
+            return removeFromGuestCart(lines, productId);
+        }
+        
+        Product product = productDAO.findById(productId);
+        if (product == null || !product.isActive()) {
+            return new OperationResult(false, "商品不存在或已下架");
+        }
+        if (quantity > product.getStockQuantity()) {
+            return new OperationResult(false, "库存不足，当前库存: " + product.getStockQuantity());
+        }
+        
+        lines.put(productId, quantity);
+        return new OperationResult(true, "商品数量已更新");
+    }
+    
+    /**
+     * 从游客购物车中移除商品
+     * @param lines 游客购物车（商品ID -> 数量），成功时被修改
+     * @param productId 商品ID
+     * @return 操作结果
+     */
+    public OperationResult removeFromGuestCart(Map<Long, Integer> lines, Long productId) {
+        if (productId == null) {
+            return new OperationResult(false, "参数无效");
+        }
+        if (lines.remove(productId) == null) {
+            return new OperationResult(false, "购物车中不存在该商品");
+        }
+        return new OperationResult(true, "商品已从购物车移除");
+    }
+    
+    /**
+     * 获取游客购物车（包含商品信息），只查询商品，不访问 shopping_cart
+     * @param lines 游客购物车（商品ID -> 数量）
+     * @return 购物车项列表（按加入时间倒序）
+     */
+    public ShoppingCartResult getGuestCart(Map<Long, Integer> lines) {
+        List<ShoppingCart> cartItems = new ArrayList<>(lines.size());
+        for (Map.Entry<Long, Integer> line : lines.entrySet()) {
+            cartItems.add(new ShoppingCart(null, line.getKey(), line.getValue()));
+        }
+        Collections.reverse(cartItems);
+        
+        try {
+            return buildCart(cartItems, findProducts(cartItems), null);
+        } catch (Exception e) {
+            logger.error("获取游客购物车失败", e);
+            return new ShoppingCartResult(null, CartPrice.EMPTY, "获取购物车失败，请稍后重试");
+        }
+    }
+    
+    /**
+     * 获取游客购物车商品总数量
+     */
+    public int getGuestCartItemCount(Map<Long, Integer> lines) {
+        int total = 0;
+        for (int quantity : lines.values()) {
+            total += quantity;
         }
+        return total;
+    }
+    
+    /**
+     * 把游客购物车合并到顾客购物车（登录时调用）
+     * 与顾客已有的数量相加，按当前库存截断；已下架或缺货的商品不合并。
+     * 商品信息一次批量查询，购物车一条多行 upsert 写入（见 CartStore.merge）
+     * @param customerId 客户ID
+     * @param lines 游客购物车（商品ID -> 数量）
+     * @return 合并的商品种数
+     */
+    public int mergeGuestCart(Long customerId, Map<Long, Integer> lines) {
+        if (customerId == null || lines.isEmpty()) {
+            return 0;
+        }
+        
+        Map<Long, Product> products = productDAO.findByIds(lines.keySet());
+        Map<Long, Integer> maxQuantities = new HashMap<>();
+        for (Product product : products.values()) {
+            if (product.isActive() && product.isInStock()) {
+                maxQuantities.put(product.getId(), product.getStockQuantity());
+            }
+        }
+        if (maxQuantities.isEmpty()) {
+            return 0;
+        }
+        
+        CartStore.merge(customerId, lines, maxQuantities);
+        logger.debug("合并游客购物车成功，客户ID: {}, 商品种数: {}", customerId, maxQuantities.size());
+        return maxQuantities.size();
     }
     
     /**
@@ -249,7 +374,7 @@ public class ShoppingCartService {
         }
         
         try {
-            return shoppingCartDAO.getTotalQuantityByCustomerId(customerId);
+            return CartStore.getTotalQuantity(customerId);
         } catch (Exception e) {
             logger.error("获取购物车商品数量失败，客户ID: {}", customerId, e);
             return 0;
@@ -262,10 +387,13 @@ public class ShoppingCartService {
      * @return 检查结果
      */
     public StockCheckResult checkCartStock(Long customerId) {
-        List<ShoppingCart> cartItems = shoppingCartDAO.findByCustomerId(customerId);
+        // 结算前确保购物车已写回数据库
+        CartStore.flush(customerId);
+        List<ShoppingCart> cartItems = CartStore.getItems(customerId);
+        Map<Long, Product> products = findProducts(cartItems);
         
         for (ShoppingCart item : cartItems) {
-            Product product = productDAO.findById(item.getProductId());
+            Product product = products.get(item.getProductId());
             if (product == null || !product.isActive()) {
                 return new StockCheckResult(false, "商品 " + product.getName() + " 不存在或已下架");
             }
@@ -288,10 +416,13 @@ public class ShoppingCartService {
      * @return 验证结果
      */
     public ValidationResult validateCart(Long customerId) {
-        List<ShoppingCart> cartItems = shoppingCartDAO.findByCustomerId(customerId);
+        // 结算前确保购物车已写回数据库
+        CartStore.flush(customerId);
+        List<ShoppingCart> cartItems = CartStore.getItems(customerId);
+        Map<Long, Product> products = findProducts(cartItems);
         
         for (ShoppingCart item : cartItems) {
-            Product product = productDAO.findById(item.getProductId());
+            Product product = products.get(item.getProductId());
             if (product == null || !product.isActive()) {
                 return new ValidationResult(false, "购物车中包含无效商品");
             }
@@ -308,45 +439,152 @@ public class ShoppingCartService {
         return new ValidationResult(true, "购物车数据有效");
     }
     
+    /**
+     * 检查商品是否可以加入购物车
+     * @return 不可加入时的结果，可以加入时返回null
+     */
+    private OperationResult checkProduct(Product product, int quantity) {
+        if (product == null || !product.isActive()) {
+            return new OperationResult(false, "商品不存在或已下架");
+        }
+        if (!product.isInStock()) {
+            return new OperationResult(false, "商品暂时缺货");
+        }
+        if (quantity > product.getStockQuantity()) {
+            return new OperationResult(false, "库存不足，当前库存: " + product.getStockQuantity());
+        }
+        return null;
+    }
+    
+    /**
+     * 为购物车项填充商品信息并计算合计，商品信息一次批量查询
+     * 不存在或已下架的商品保留在列表中，但不计入合计；金额由计价引擎按分计算
+     */
+    private ShoppingCartResult buildCart(List<ShoppingCart> cartItems, Map<Long, Product> products, Long version) {
+        int size = cartItems.size();
+        long[] productIds = new long[size];
+        long[] unitPrices = new long[size];
+        int[] quantities = new int[size];
+        int count = 0;
+        
+        for (ShoppingCart item : cartItems) {
+            Product product = products.get(item.getProductId());
+            if (product != null && product.isActive()) {
+                item.setProduct(product);
+                productIds[count] = item.getProductId();
+                unitPrices[count] = product.getPrice() != null ? Money.toMinor(product.getPrice()) : 0;
+                quantities[count] = item.getQuantity();
+                count++;
+            } else {
+                // 商品不存在或已下架，可以考虑从购物车中移除
+                logger.warn("购物车中的商品不存在或已下架，客户ID: {}, 商品ID: {}", 
+                        item.getCustomerId(), item.getProductId());
+            }
+        }
+        
+        CartPrice price = PricingService.engine().price(productIds, unitPrices, quantities, count);
+        return new ShoppingCartResult(cartItems, price, "获取成功", version);
+    }
+    
+    /**
+     * 按ID批量查询购物车项的商品
+     */
+    private Map<Long, Product> findProducts(List<ShoppingCart> cartItems) {
+        List<Long> productIds = new ArrayList<>(cartItems.size());
+        for (ShoppingCart item : cartItems) {
+            productIds.add(item.getProductId());
+        }
+        return productDAO.findByIds(productIds);
+    }
+    
     /**
      * 操作结果类
      */
     public static class OperationResult {
         private final boolean success;
         private final String message;
+        private final CartStore.CartChange change;
         
         public OperationResult(boolean success, String message) {
+            this(success, message, null);
+        }
+        
+        public OperationResult(boolean success, String message, CartStore.CartChange change) {
             this.success = success;
             this.message = message;
+            this.change = change;
         }
         
         public boolean isSuccess() { return success; }
         public String getMessage() { return message; }
+        public CartStore.CartChange getChange() { return change; }
     }
     
     /**
-     * 购物车结果类
+     * 购物车结果类（金额在此转换为元）
      */
     public static class ShoppingCartResult {
         private final List<ShoppingCart> cartItems;
-        private final int totalQuantity;
-        private final BigDecimal totalAmount;
+        private final CartPrice price;
         private final String message;
+        private final Long version;
         
-        public ShoppingCartResult(List<ShoppingCart> cartItems, int totalQuantity, BigDecimal totalAmount, String message) {
+        public ShoppingCartResult(List<ShoppingCart> cartItems, CartPrice price, String message) {
+            this(cartItems, price, message, null);
+        }
+        
+        public ShoppingCartResult(List<ShoppingCart> cartItems, CartPrice price, String message, Long version) {
             this.cartItems = cartItems;
-            this.totalQuantity = totalQuantity;
-            this.totalAmount = totalAmount;
+            this.price = price;
             this.message = message;
+            this.version = version;
         }
         
         public List<ShoppingCart> getCartItems() { return cartItems; }
-        public int getTotalQuantity() { return totalQuantity; }
-        public BigDecimal getTotalAmount() { return totalAmount; }
+        public int getTotalQuantity() { return price.getTotalQuantity(); }
+        public BigDecimal getTotalAmount() { return Money.toDecimal(price.getSubtotal()); }
+        public BigDecimal getDiscountAmount() { return Money.toDecimal(price.getDiscount()); }
+        public BigDecimal getShippingFee() { return Money.toDecimal(price.getShipping()); }
+        public BigDecimal getTaxAmount() { return Money.toDecimal(price.getTax()); }
+        public BigDecimal getPayableAmount() { return Money.toDecimal(price.getPayable()); }
         public String getMessage() { return message; }
+        public Long getVersion() { return version; }
         public boolean isSuccess() { return cartItems != null; }
     }
     
+    /**
+     * 购物车增量结果类：修改的购物车项（已移除时为null）、修改前后的版本号和修改后的合计
+     * 客户端持有的版本号等于 baseVersion 时可以直接应用，否则应重新获取完整购物车
+     */
+    public static class CartDeltaResult {
+        private final Long productId;
+        private final ShoppingCart item;
+        private final long baseVersion;
+        private final long version;
+        private final CartPrice price;
+        
+        public CartDeltaResult(CartStore.CartChange change, CartStore.Totals totals) {
+            this.productId = change.getProductId();
+            this.item = change.getItem();
+            this.baseVersion = change.getBaseVersion();
+            this.version = totals.getVersion();
+            // 小计和购物车项折扣已由购物车存储增量维护，这里只计算整单折扣、运费和税费
+            PricingEngine engine = PricingService.engine();
+            this.price = engine.total(totals.getSubtotal(), totals.getLineDiscount(), totals.getTotalQuantity());
+        }
+        
+        public Long getProductId() { return productId; }
+        public ShoppingCart getItem() { return item; }
+        public long getBaseVersion() { return baseVersion; }
+        public long getVersion() { return version; }
+        public int getTotalQuantity() { return price.getTotalQuantity(); }
+        public BigDecimal getTotalAmount() { return Money.toDecimal(price.getSubtotal()); }
+        public BigDecimal getDiscountAmount() { return Money.toDecimal(price.getDiscount()); }
+        public BigDecimal getShippingFee() { return Money.toDecimal(price.getShipping()); }
+        public BigDecimal getTaxAmount() { return Money.toDecimal(price.getTax()); }
+        public BigDecimal getPayableAmount() { return Money.toDecimal(price.getPayable()); }
+    }
+    
     /**
      * 库存检查结果类
      */
@@ -0,0 +1,201 @@
+package com.cat.servlet;
+
+import com.cat.dto.ApiResponse;
+import com.cat.metrics.MetricsRegistry;
+import com.cat.metrics.RequestMetrics;
+import com.cat.service.ProductService;
+import com.cat.util.ExecutionUtil;
+import com.cat.util.JsonUtil;
+import com.cat.util.RequestUtil;
+import com.cat.util.Router;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.servlet.ServletException;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 管理接口（监控指标、商品批量导入导出），访问权限由SecurityFilter的 /api/admin/ 检查保证
+ */
+@WebServlet(urlPatterns = "/api/admin/*", asyncSupported = true)
+public class AdminServlet extends HttpServlet {
+    private static final Logger logger = LoggerFactory.getLogger(AdminServlet.class);
+    
+    private final Router<Router.RouteHandler> routes = new Router<Router.RouteHandler>()
+            .add("GET", "/metrics", (request, response, vars) -> handleGetMetrics(request, response))
+            .add("GET", "/endpoints", (request, response, vars) -> handleGetEndpoints(request, response))
+            .add("GET", "/products/export", (request, response, vars) -> handleExportProducts(request, response))
+            .add("POST", "/products/import", (request, response, vars) -> handleImportProducts(request, response));
+    
+    private final ProductService productService = new ProductService();
+    
+    private void writeJsonResponse(HttpServletResponse response, Object obj) throws IOException {
+        response.getWriter().write(JsonUtil.toJson(obj));
+    }
+    
+    @Override
+    protected void service(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException {
+        ExecutionUtil.execute(request, response, super::service);
+    }
+    
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        dispatch("GET", request, response);
+    }
+    
+    @Override
+    protected void doPost(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        dispatch("POST", request, response);
+    }
+    
+    /**
+     * 根据路由表分发请求
+     */
+    private void dispatch(String method, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        response.setContentType("application/json;charset=UTF-8");
+        response.setCharacterEncoding("UTF-8");
+        
+        try {
+            Router.Match<Router.RouteHandler> match = routes.match(method, request.getPathInfo());
+            
+            if (match != null) {
+                RequestMetrics.setRoute(request, match.getTemplate());
+                match.getHandler().handle(request, response, match.getPathVariables());
+            } else {
+                response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+                writeJsonResponse(response, ApiResponse.error("未找到对应的API端点"));
+            }
+            
+        } catch (Exception e) {
+            response.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+            writeJsonResponse(response, ApiResponse.error("服务器内部错误"));
+        }
+    }
+    
+    /**
+     * 处理获取监控指标（Prometheus文本格式）
+     */
+    private void handleGetMetrics(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        response.setContentType("text/plain; version=0.0.4; charset=UTF-8");
+        response.getWriter().write(MetricsRegistry.scrape());
+    }
+    
+    /**
+     * 处理获取各接口端点的延迟、吞吐和错误率统计
+     */
+    private void handleGetEndpoints(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        Map<String, Object> responseData = new HashMap<>();
+        responseData.put("inFlight", RequestMetrics.getInFlight());
+        responseData.put("endpoints", RequestMetrics.snapshot());
+        
+        ApiResponse<Map<String, Object>> responseObj = ApiResponse.success("获取成功", responseData);
+        writeJsonResponse(response, responseObj);
+    }
+    
+    /**
+     * 处理商品批量导入
+     * 请求体为CSV（Content-Type: text/csv）或NDJSON（application/x-ndjson），也可用 format 参数指定。
+     * 请求体按流读取，不受 request.max-body-size 限制，单行长度受 import.max-line-length 限制
+     */
+    private void handleImportProducts(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        String format = resolveImportFormat(request);
+        if (format == null) {
+            response.setStatus(HttpServletResponse.SC_UNSUPPORTED_MEDIA_TYPE);
+            writeJsonResponse(response, ApiResponse.error("仅支持CSV或NDJSON格式"));
+            return;
+        }
+        
+        // 大文件导入耗时可能超过 execution.request-timeout
+        if (request.isAsyncStarted()) {
+            request.getAsyncContext().setTimeout(0);
+        }
+        
+        ProductService.ImportResult result;
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(request.getInputStream(), StandardCharsets.UTF_8))) {
+            result = productService.importProducts(reader, format);
+        } catch (IOException e) {
+            response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            writeJsonResponse(response, ApiResponse.error("读取导入数据失败: " + e.getMessage()));
+            return;
+        }
+        
+        ApiResponse<ProductService.ImportResult> responseObj = ApiResponse.success("导入完成", result);
+        writeJsonResponse(response, responseObj);
+    }
+    
+    /**
+     * 处理商品全量导出
+     * format 参数为 ndjson（默认）或 csv，includeInactive=true 时包含已下架商品。
+     * 结果直接写入响应流，内存占用与商品总数无关
+     */
+    private void handleExportProducts(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        String format = request.getParameter("format");
+        if (format == null || ProductService.FORMAT_NDJSON.equalsIgnoreCase(format)) {
+            format = ProductService.FORMAT_NDJSON;
+        } else if (ProductService.FORMAT_CSV.equalsIgnoreCase(format)) {
+            format = ProductService.FORMAT_CSV;
+        } else {
+            response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            writeJsonResponse(response, ApiResponse.error("仅支持CSV或NDJSON格式"));
+            return;
+        }
+        boolean includeInactive = RequestUtil.getBooleanParameter(request, "includeInactive", false);
+        
+        // 全量导出耗时可能超过 execution.request-timeout
+        if (request.isAsyncStarted()) {
+            request.getAsyncContext().setTimeout(0);
+        }
+        
+        boolean csv = ProductService.FORMAT_CSV.equals(format);
+        response.setContentType(csv ? "text/csv;charset=UTF-8" : "application/x-ndjson;charset=UTF-8");
+        response.setHeader("Content-Disposition", "attachment; filename=\"products-"
+                + LocalDate.now().format(DateTimeFormatter.BASIC_ISO_DATE) + (csv ? ".csv" : ".ndjson") + "\"");
+        
+        try {
+            productService.exportProducts(response.getWriter(), format, includeInactive);
+        } catch (IOException e) {
+            // 客户端中途断开，已写出的部分无法撤回
+            logger.warn("商品导出中断: {}", e.getMessage());
+        }
+    }
+    
+    /**
+     * 确定导入格式：format 参数优先，其次根据Content-Type判断
+     */
+    private String resolveImportFormat(HttpServletRequest request) {
+        String format = request.getParameter("format");
+        if (format == null) {
+            String contentType = request.getContentType();
+            if (contentType == null) {
+                return null;
+            }
+            contentType = contentType.toLowerCase();
+            if (contentType.startsWith("text/csv")) {
+                format = ProductService.FORMAT_CSV;
+            } else if (contentType.startsWith("application/x-ndjson") || contentType.startsWith("application/jsonl")) {
+                format = ProductService.FORMAT_NDJSON;
+            }
+        }
+        
+        if (ProductService.FORMAT_CSV.equalsIgnoreCase(format)) {
+            return ProductService.FORMAT_CSV;
+        }
+        if (ProductService.FORMAT_NDJSON.equalsIgnoreCase(format)) {
+            return ProductService.FORMAT_NDJSON;
+        }
+        return null;
+    }
+}
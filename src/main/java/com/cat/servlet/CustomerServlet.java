@@ -1,11 +1,26 @@
 package com.cat.servlet;
 
 import com.cat.dto.ApiResponse;
+import com.cat.dto.LoginRequest;
+import com.cat.dto.RegisterRequest;
+import com.cat.metrics.RequestMetrics;
 import com.cat.model.Customer;
+import com.cat.model.UserSession;
+import com.cat.service.AuthTokenService;
+import com.cat.service.CartStore;
 import com.cat.service.CustomerService;
+import com.cat.service.GuestCartService;
+import com.cat.service.SessionStore;
+import com.cat.service.SettingsService;
+import com.cat.service.ShoppingCartService;
+import com.cat.util.ExecutionUtil;
 import com.cat.util.JsonUtil;
 import com.cat.util.RequestUtil;
+import com.cat.util.Router;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import javax.servlet.ServletException;
 import javax.servlet.annotation.WebServlet;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
@@ -16,77 +31,61 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
-@WebServlet("/api/customers/*")
+@WebServlet(urlPatterns = "/api/customers/*", asyncSupported = true)
 public class CustomerServlet extends HttpServlet {
+    private static final Logger logger = LoggerFactory.getLogger(CustomerServlet.class);
     private final CustomerService customerService = new CustomerService();
+    private final ShoppingCartService shoppingCartService = new ShoppingCartService();
+    
+    private final Router<Router.RouteHandler> routes = new Router<Router.RouteHandler>()
+            .add("GET", "/", (request, response, vars) -> handleGetCustomers(request, response))
+            .add("GET", "/profile", (request, response, vars) -> handleGetProfile(request, response))
+            .add("GET", "/{id:long}", this::handleGetCustomerById)
+            .add("POST", "/", (request, response, vars) -> handleRegister(request, response))
+            .add("POST", "/register", (request, response, vars) -> handleRegister(request, response))
+            .add("POST", "/login", (request, response, vars) -> handleLogin(request, response))
+            .add("POST", "/logout", (request, response, vars) -> handleLogout(request, response))
+            .add("PUT", "/profile", (request, response, vars) -> handleUpdateProfile(request, response))
+            .add("PUT", "/password", (request, response, vars) -> handleChangePassword(request, response));
     
     private void writeJsonResponse(HttpServletResponse response, Object obj) throws IOException {
         response.getWriter().write(JsonUtil.toJson(obj));
     }
     
+    @Override
+    protected void service(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException {
+        ExecutionUtil.execute(request, response, super::service);
+    }
+    
     @Override
     protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
-        response.setContentType("application/json;charset=UTF-8");
-        response.setCharacterEncoding("UTF-8");
-        
-        try {
-            String pathInfo = request.getPathInfo();
-            
-            if (pathInfo == null || pathInfo.equals("/")) {
-                handleGetCustomers(request, response);
-            } else if (pathInfo.startsWith("/profile")) {
-                handleGetProfile(request, response);
-            } else if (pathInfo.matches("/\\d+")) {
-                handleGetCustomerById(request, response, pathInfo);
-            } else {
-                response.setStatus(HttpServletResponse.SC_NOT_FOUND);
-                writeJsonResponse(response, ApiResponse.error("未找到对应的API端点"));
-            }
-            
-        } catch (Exception e) {
-            response.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
-            writeJsonResponse(response, ApiResponse.error("服务器内部错误"));
-        }
+        dispatch("GET", request, response);
     }
-
+    
     @Override
     protected void doPost(HttpServletRequest request, HttpServletResponse response) throws IOException {
-        response.setContentType("application/json;charset=UTF-8");
-        response.setCharacterEncoding("UTF-8");
-
-        try {
-            String pathInfo = request.getPathInfo();
-
-            // 修改点：同时支持 "/" 和 "/register" 作为注册接口
-            if (pathInfo == null || pathInfo.equals("/") || pathInfo.equals("/register")) {
-                handleRegister(request, response);
-            } else if (pathInfo.equals("/login")) {
-                handleLogin(request, response);
-            } else if (pathInfo.equals("/logout")) {
-                handleLogout(request, response);
-            } else {
-                response.setStatus(HttpServletResponse.SC_NOT_FOUND);
-                writeJsonResponse(response, ApiResponse.error("未找到对应的API端点"));
-            }
-
-        } catch (Exception e) {
-            response.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
-            writeJsonResponse(response, ApiResponse.error("服务器内部错误"));
-        }
+        dispatch("POST", request, response);
     }
     
     @Override
     protected void doPut(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        dispatch("PUT", request, response);
+    }
+    
+    /**
+     * 根据路由表分发请求
+     */
+    private void dispatch(String method, HttpServletRequest request, HttpServletResponse response) throws IOException {
         response.setContentType("application/json;charset=UTF-8");
         response.setCharacterEncoding("UTF-8");
         
         try {
-            String pathInfo = request.getPathInfo();
+            Router.Match<Router.RouteHandler> match = routes.match(method, request.getPathInfo());
             
-            if (pathInfo != null && pathInfo.equals("/profile")) {
-                handleUpdateProfile(request, response);
-            } else if (pathInfo != null && pathInfo.equals("/password")) {
-                handleChangePassword(request, response);
+            if (match != null) {
+                RequestMetrics.setRoute(request, match.getTemplate());
+                match.getHandler().handle(request, response, match.getPathVariables());
             } else {
                 response.setStatus(HttpServletResponse.SC_NOT_FOUND);
                 writeJsonResponse(response, ApiResponse.error("未找到对应的API端点"));
@@ -100,19 +99,11 @@ public class CustomerServlet extends HttpServlet {
     
     private void handleRegister(HttpServletRequest request, HttpServletResponse response) throws IOException {
         try {
-            String requestBody = RequestUtil.getRequestBody(request);
-            @SuppressWarnings("unchecked")
-            Map<String, Object> requestData = JsonUtil.fromJsonToMap(requestBody);
-            
-            String username = (String) requestData.get("username");
-            String email = (String) requestData.get("email");
-            String password = (String) requestData.get("password");
-            String firstName = (String) requestData.get("firstName");
-            String lastName = (String) requestData.get("lastName");
-            String phone = (String) requestData.get("phone");
+            RegisterRequest registerRequest = RequestUtil.readJsonBody(request, RegisterRequest.class);
             
             CustomerService.RegistrationResult result = customerService.register(
-                username, email, password, firstName, lastName, phone);
+                registerRequest.getUsername(), registerRequest.getEmail(), registerRequest.getPassword(),
+                registerRequest.getFirstName(), registerRequest.getLastName(), registerRequest.getPhone());
             
             if (result.isSuccess()) {
                 ApiResponse<Customer> responseObj = ApiResponse.success("注册成功", result.getCustomer());
@@ -122,6 +113,9 @@ public class CustomerServlet extends HttpServlet {
                 writeJsonResponse(response, ApiResponse.error(result.getMessage()));
             }
             
+        } catch (RequestUtil.RequestBodyTooLargeException e) {
+            response.setStatus(HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE);
+            writeJsonResponse(response, ApiResponse.error("请求体过大"));
         } catch (Exception e) {
             response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
             writeJsonResponse(response, ApiResponse.error("请求参数格式错误"));
@@ -130,29 +124,15 @@ public class CustomerServlet extends HttpServlet {
     
     private void handleLogin(HttpServletRequest request, HttpServletResponse response) throws IOException {
         try {
-            String requestBody = RequestUtil.getRequestBody(request);
-            @SuppressWarnings("unchecked")
-            Map<String, Object> requestData = JsonUtil.fromJsonToMap(requestBody);
+            LoginRequest loginRequest = RequestUtil.readJsonBody(request, LoginRequest.class);
+            boolean rememberMe = Boolean.TRUE.equals(loginRequest.getRememberMe());
             
-            String username = (String) requestData.get("username");
-            String password = (String) requestData.get("password");
-            boolean rememberMe = Boolean.parseBoolean(String.valueOf(requestData.get("rememberMe")));
-            
-            CustomerService.LoginResult result = customerService.login(username, password);
+            CustomerService.LoginResult result = customerService.login(
+                loginRequest.getUsername(), loginRequest.getPassword());
             
             if (result.isSuccess()) {
                 Customer customer = result.getCustomer();
-                
-                HttpSession session = request.getSession();
-                session.setAttribute("customerId", customer.getId());
-                session.setAttribute("username", customer.getUsername());
-                session.setAttribute("userType", "CUSTOMER");
-                
-                if (rememberMe) {
-                    session.setMaxInactiveInterval(30 * 24 * 60 * 60);
-                } else {
-                    session.setMaxInactiveInterval(30 * 60);
-                }
+                int timeoutSeconds = rememberMe ? 30 * 24 * 60 * 60 : SettingsService.getSessionTimeoutMinutes() * 60;
                 
                 Map<String, Object> customerData = new HashMap<>();
                 customerData.put("id", customer.getId());
@@ -163,6 +143,41 @@ public class CustomerServlet extends HttpServlet {
                 customerData.put("phone", customer.getPhone());
                 customerData.put("fullName", customer.getFullName());
                 
+                // 合并登录前的游客购物车
+                mergeGuestCart(request, response, customer.getId());
+                
+                if (AuthTokenService.isEnabled()) {
+                    // 无状态令牌模式：不创建容器会话
+                    String token = AuthTokenService.issue(customer.getId(), "CUSTOMER", timeoutSeconds);
+                    AuthTokenService.writeCookie(request, response, token, rememberMe ? timeoutSeconds : -1);
+                    customerData.put("token", token);
+                    writeJsonResponse(response, ApiResponse.success("登录成功", customerData));
+                    return;
+                }
+                
+                // 登录时更换会话ID，旧ID（可能由他人预先设置）及其会话记录不再有效
+                HttpSession existing = request.getSession(false);
+                if (existing != null) {
+                    SessionStore.remove(existing.getId());
+                    request.changeSessionId();
+                }
+                HttpSession session = request.getSession();
+                session.setAttribute("customerId", customer.getId());
+                session.setAttribute("username", customer.getUsername());
+                session.setAttribute("userType", "CUSTOMER");
+                session.setMaxInactiveInterval(timeoutSeconds);
+                
+                // 会话记录写入数据库，其他节点也能识别该会话
+                try {
+                    SessionStore.create(session.getId(), "CUSTOMER", customer.getId(), request, timeoutSeconds);
+                } catch (Exception e) {
+                    logger.error("保存登录会话失败，客户ID: {}", customer.getId(), e);
+                    session.invalidate();
+                    response.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+                    writeJsonResponse(response, ApiResponse.error("登录失败，请稍后重试"));
+                    return;
+                }
+                
                 ApiResponse<Map<String, Object>> responseObj = ApiResponse.success("登录成功", customerData);
                 writeJsonResponse(response, responseObj);
             } else {
@@ -170,13 +185,44 @@ public class CustomerServlet extends HttpServlet {
                 writeJsonResponse(response, ApiResponse.error(result.getMessage()));
             }
             
+        } catch (RequestUtil.RequestBodyTooLargeException e) {
+            response.setStatus(HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE);
+            writeJsonResponse(response, ApiResponse.error("请求体过大"));
         } catch (Exception e) {
             response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
             writeJsonResponse(response, ApiResponse.error("请求参数格式错误"));
         }
     }
     
+    /**
+     * 把游客购物车合并到顾客购物车并清除游客购物车Cookie，合并失败时保留Cookie，不影响登录
+     */
+    private void mergeGuestCart(HttpServletRequest request, HttpServletResponse response, Long customerId) {
+        Map<Long, Integer> guestLines = GuestCartService.read(request);
+        if (guestLines.isEmpty()) {
+            return;
+        }
+        try {
+            shoppingCartService.mergeGuestCart(customerId, guestLines);
+            GuestCartService.clear(request, response);
+        } catch (Exception e) {
+            logger.error("合并游客购物车失败，客户ID: {}", customerId, e);
+        }
+    }
+    
     private void handleLogout(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        // 退出前把购物车写回数据库
+        UserSession current = SessionStore.getCurrent(request);
+        if (current != null && !current.isAdmin()) {
+            CartStore.flushAndEvict(current.getUserId());
+        }
+        
+        if (AuthTokenService.isEnabled()) {
+            AuthTokenService.revoke(request, response);
+        } else {
+            SessionStore.remove(request.getRequestedSessionId());
+        }
+        
         HttpSession session = request.getSession(false);
         if (session != null) {
             session.invalidate();
@@ -186,14 +232,14 @@ public class CustomerServlet extends HttpServlet {
     }
     
     private void handleGetProfile(HttpServletRequest request, HttpServletResponse response) throws IOException {
-        HttpSession session = request.getSession(false);
-        if (session == null || session.getAttribute("customerId") == null) {
+        UserSession session = SessionStore.getCurrent(request);
+        if (session == null) {
             response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
             writeJsonResponse(response, ApiResponse.error("用户未登录"));
             return;
         }
         
-        Long customerId = (Long) session.getAttribute("customerId");
+        Long customerId = session.getUserId();
         Customer customer = customerService.getCustomerById(customerId);
         
         if (customer != null) {
@@ -216,8 +262,8 @@ public class CustomerServlet extends HttpServlet {
     }
     
     private void handleUpdateProfile(HttpServletRequest request, HttpServletResponse response) throws IOException {
-        HttpSession session = request.getSession(false);
-        if (session == null || session.getAttribute("customerId") == null) {
+        UserSession session = SessionStore.getCurrent(request);
+        if (session == null) {
             response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
             writeJsonResponse(response, ApiResponse.error("用户未登录"));
             return;
@@ -228,7 +274,7 @@ public class CustomerServlet extends HttpServlet {
             @SuppressWarnings("unchecked")
             Map<String, Object> requestData = JsonUtil.fromJsonToMap(requestBody);
             
-            Long customerId = (Long) session.getAttribute("customerId");
+            Long customerId = session.getUserId();
             
             Customer customer = new Customer();
             customer.setId(customerId);
@@ -254,8 +300,8 @@ public class CustomerServlet extends HttpServlet {
     }
     
     private void handleChangePassword(HttpServletRequest request, HttpServletResponse response) throws IOException {
-        HttpSession session = request.getSession(false);
-        if (session == null || session.getAttribute("customerId") == null) {
+        UserSession session = SessionStore.getCurrent(request);
+        if (session == null) {
             response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
             writeJsonResponse(response, ApiResponse.error("用户未登录"));
             return;
@@ -266,7 +312,7 @@ public class CustomerServlet extends HttpServlet {
             @SuppressWarnings("unchecked")
             Map<String, Object> requestData = JsonUtil.fromJsonToMap(requestBody);
             
-            Long customerId = (Long) session.getAttribute("customerId");
+            Long customerId = session.getUserId();
             String currentPassword = (String) requestData.get("currentPassword");
             String newPassword = (String) requestData.get("newPassword");
             
@@ -287,8 +333,8 @@ public class CustomerServlet extends HttpServlet {
     }
     
     private void handleGetCustomers(HttpServletRequest request, HttpServletResponse response) throws IOException {
-        HttpSession session = request.getSession(false);
-        if (session == null || !"ADMIN".equals(session.getAttribute("userType"))) {
+        UserSession session = SessionStore.getCurrent(request);
+        if (session == null || !session.isAdmin()) {
             response.setStatus(HttpServletResponse.SC_FORBIDDEN);
             writeJsonResponse(response, ApiResponse.error("权限不足"));
             return;
@@ -332,16 +378,16 @@ public class CustomerServlet extends HttpServlet {
         }
     }
     
-    private void handleGetCustomerById(HttpServletRequest request, HttpServletResponse response, String pathInfo) throws IOException {
-        HttpSession session = request.getSession(false);
-        if (session == null || !"ADMIN".equals(session.getAttribute("userType"))) {
+    private void handleGetCustomerById(HttpServletRequest request, HttpServletResponse response, Router.PathVariables pathVariables) throws IOException {
+        UserSession session = SessionStore.getCurrent(request);
+        if (session == null || !session.isAdmin()) {
             response.setStatus(HttpServletResponse.SC_FORBIDDEN);
             writeJsonResponse(response, ApiResponse.error("权限不足"));
             return;
         }
         
         try {
-            Long customerId = Long.parseLong(pathInfo.substring(1));
+            Long customerId = pathVariables.getLong("id");
             Customer customer = customerService.getCustomerById(customerId);
             
             if (customer != null) {
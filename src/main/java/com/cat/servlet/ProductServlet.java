@@ -2,12 +2,18 @@ package com.cat.servlet;
 
 import com.cat.dao.CategoryDAO;
 import com.cat.dto.ApiResponse;
+import com.cat.dto.ProductRequest;
+import com.cat.metrics.RequestMetrics;
 import com.cat.model.Category;
 import com.cat.model.Product;
+import com.cat.model.ProductSummary;
 import com.cat.service.ProductService;
+import com.cat.util.ExecutionUtil;
 import com.cat.util.JsonUtil;
 import com.cat.util.RequestUtil;
+import com.cat.util.Router;
 
+import javax.servlet.ServletException;
 import javax.servlet.annotation.WebServlet;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
@@ -17,100 +23,66 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
-@WebServlet("/api/products/*")
+@WebServlet(urlPatterns = "/api/products/*", asyncSupported = true)
 public class ProductServlet extends HttpServlet {
     private final ProductService productService = new ProductService();
     private final CategoryDAO categoryDAO = new CategoryDAO();
     
+    private final Router<Router.RouteHandler> routes = new Router<Router.RouteHandler>()
+            .add("GET", "/", (request, response, vars) -> handleGetProducts(request, response))
+            .add("GET", "/featured", (request, response, vars) -> handleGetFeaturedProducts(request, response))
+            .add("GET", "/search", (request, response, vars) -> handleSearchProducts(request, response))
+            .add("GET", "/categories", (request, response, vars) -> handleGetCategories(request, response))
+            .add("GET", "/{id:long}", this::handleGetProductById)
+            .add("GET", "/category/{id:long}", this::handleGetProductsByCategory)
+            .add("POST", "/", (request, response, vars) -> handleCreateProduct(request, response))
+            .add("PUT", "/{id:long}", this::handleUpdateProduct)
+            .add("PUT", "/{id:long}/stock", this::handleUpdateProductStock)
+            .add("DELETE", "/{id:long}", this::handleDeleteProduct);
+    
     private void writeJsonResponse(HttpServletResponse response, Object obj) throws IOException {
         response.getWriter().write(JsonUtil.toJson(obj));
     }
     
+    @Override
+    protected void service(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException {
+        ExecutionUtil.execute(request, response, super::service);
+    }
+    
     @Override
     protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
-        response.setContentType("application/json;charset=UTF-8");
-        response.setCharacterEncoding("UTF-8");
-        
-        try {
-            String pathInfo = request.getPathInfo();
-            
-            if (pathInfo == null || pathInfo.equals("/")) {
-                handleGetProducts(request, response);
-            } else if (pathInfo.equals("/featured")) {
-                handleGetFeaturedProducts(request, response);
-            } else if (pathInfo.equals("/search")) {
-                handleSearchProducts(request, response);
-            } else if (pathInfo.equals("/categories")) {
-                handleGetCategories(request, response);
-            } else if (pathInfo.matches("/\\d+")) {
-                handleGetProductById(request, response, pathInfo);
-            } else if (pathInfo.equals("/category/\\d+")) {
-                handleGetProductsByCategory(request, response, pathInfo);
-            } else {
-                response.setStatus(HttpServletResponse.SC_NOT_FOUND);
-                writeJsonResponse(response, ApiResponse.error("未找到对应的API端点"));
-            }
-            
-        } catch (Exception e) {
-            response.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
-            writeJsonResponse(response, ApiResponse.error("服务器内部错误"));
-        }
+        dispatch("GET", request, response);
     }
     
     @Override
     protected void doPost(HttpServletRequest request, HttpServletResponse response) throws IOException {
-        response.setContentType("application/json;charset=UTF-8");
-        response.setCharacterEncoding("UTF-8");
-        
-        try {
-            String pathInfo = request.getPathInfo();
-            
-            if (pathInfo == null || pathInfo.equals("/")) {
-                handleCreateProduct(request, response);
-            } else {
-                response.setStatus(HttpServletResponse.SC_NOT_FOUND);
-                writeJsonResponse(response, ApiResponse.error("未找到对应的API端点"));
-            }
-            
-        } catch (Exception e) {
-            response.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
-            writeJsonResponse(response, ApiResponse.error("服务器内部错误"));
-        }
+        dispatch("POST", request, response);
     }
     
     @Override
     protected void doPut(HttpServletRequest request, HttpServletResponse response) throws IOException {
-        response.setContentType("application/json;charset=UTF-8");
-        response.setCharacterEncoding("UTF-8");
-        
-        try {
-            String pathInfo = request.getPathInfo();
-            
-            if (pathInfo != null && pathInfo.matches("/\\d+")) {
-                handleUpdateProduct(request, response, pathInfo);
-            } else if (pathInfo != null && pathInfo.matches("/\\d+/stock")) {
-                handleUpdateProductStock(request, response, pathInfo);
-            } else {
-                response.setStatus(HttpServletResponse.SC_NOT_FOUND);
-                writeJsonResponse(response, ApiResponse.error("未找到对应的API端点"));
-            }
-            
-        } catch (Exception e) {
-            response.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
-            writeJsonResponse(response, ApiResponse.error("服务器内部错误"));
-        }
+        dispatch("PUT", request, response);
     }
     
     @Override
     protected void doDelete(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        dispatch("DELETE", request, response);
+    }
+    
+    /**
+     * 根据路由表分发请求
+     */
+    private void dispatch(String method, HttpServletRequest request, HttpServletResponse response) throws IOException {
         response.setContentType("application/json;charset=UTF-8");
         response.setCharacterEncoding("UTF-8");
         
         try {
-            String pathInfo = request.getPathInfo();
+            Router.Match<Router.RouteHandler> match = routes.match(method, request.getPathInfo());
             
-            if (pathInfo != null && pathInfo.matches("/\\d+")) {
-                handleDeleteProduct(request, response, pathInfo);
+            if (match != null) {
+                RequestMetrics.setRoute(request, match.getTemplate());
+                match.getHandler().handle(request, response, match.getPathVariables());
             } else {
                 response.setStatus(HttpServletResponse.SC_NOT_FOUND);
                 writeJsonResponse(response, ApiResponse.error("未找到对应的API端点"));
@@ -133,7 +105,7 @@ public class ProductServlet extends HttpServlet {
             if (page < 1) page = 1;
             if (pageSize < 1 || pageSize > 100) pageSize = 10;
             
-            List<Product> products = productService.getProductList(page, pageSize);
+            List<ProductSummary> products = productService.getProductList(page, pageSize);
             long totalCount = productService.getProductCount();
             
             Map<String, Object> pageInfo = new HashMap<>();
@@ -163,9 +135,8 @@ public class ProductServlet extends HttpServlet {
             int limit = RequestUtil.getIntParameter(request, "limit", 10);
             if (limit < 1 || limit > 50) limit = 10;
             
-            List<Product> products = productService.getFeaturedProducts(limit);
-            ApiResponse<List<Product>> responseObj = ApiResponse.success("获取成功", products);
-            writeJsonResponse(response, responseObj);
+            // 直接输出推荐商品快照中预先序列化的响应
+            response.getWriter().write(productService.getFeaturedProductsJson(limit));
             
         } catch (Exception e) {
             response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
@@ -251,10 +222,10 @@ public class ProductServlet extends HttpServlet {
     /**
      * 处理根据分类获取商品
      */
-    private void handleGetProductsByCategory(HttpServletRequest request, HttpServletResponse response, String pathInfo) throws IOException {
+    private void handleGetProductsByCategory(HttpServletRequest request, HttpServletResponse response, Router.PathVariables pathVariables) throws IOException {
         try {
             // 从路径中提取分类ID
-            Long categoryId = Long.parseLong(pathInfo.substring("/category/".length()));
+            Long categoryId = pathVariables.getLong("id");
             
             int page = RequestUtil.getIntParameter(request, "page", 1);
             int pageSize = RequestUtil.getIntParameter(request, "pageSize", 10);
@@ -262,7 +233,7 @@ public class ProductServlet extends HttpServlet {
             if (page < 1) page = 1;
             if (pageSize < 1 || pageSize > 100) pageSize = 10;
             
-            List<Product> products = productService.getProductsByCategory(categoryId, page, pageSize);
+            List<ProductSummary> products = productService.getProductsByCategory(categoryId, page, pageSize);
             long totalCount = productService.getProductCountByCategory(categoryId);
             
             Map<String, Object> pageInfo = new HashMap<>();
@@ -291,9 +262,9 @@ public class ProductServlet extends HttpServlet {
     /**
      * 处理获取指定商品详情
      */
-    private void handleGetProductById(HttpServletRequest request, HttpServletResponse response, String pathInfo) throws IOException {
+    private void handleGetProductById(HttpServletRequest request, HttpServletResponse response, Router.PathVariables pathVariables) throws IOException {
         try {
-            Long productId = Long.parseLong(pathInfo.substring(1));
+            Long productId = pathVariables.getLong("id");
             Product product = productService.getProductById(productId);
             
             if (product != null) {
@@ -315,51 +286,10 @@ public class ProductServlet extends HttpServlet {
      */
     private void handleCreateProduct(HttpServletRequest request, HttpServletResponse response) throws IOException {
         try {
-            String requestBody = RequestUtil.getRequestBody(request);
-            @SuppressWarnings("unchecked")
-            Map<String, Object> requestData = JsonUtil.fromJsonToMap(requestBody);
-            
-            Product product = new Product();
-            product.setName((String) requestData.get("name"));
-            product.setDescription((String) requestData.get("description"));
-            product.setShortDescription((String) requestData.get("shortDescription"));
-            product.setSku((String) requestData.get("sku"));
-            
-            String priceStr = (String) requestData.get("price");
-            if (priceStr != null) {
-                product.setPrice(new java.math.BigDecimal(priceStr));
-            }
-            
-            String costPriceStr = (String) requestData.get("costPrice");
-            if (costPriceStr != null) {
-                product.setCostPrice(new java.math.BigDecimal(costPriceStr));
-            }
-            
-            Object stockQuantityObj = requestData.get("stockQuantity");
-            if (stockQuantityObj != null) {
-                product.setStockQuantity(((Number) stockQuantityObj).intValue());
-            }
-            
-            Object minStockLevelObj = requestData.get("minStockLevel");
-            if (minStockLevelObj != null) {
-                product.setMinStockLevel(((Number) minStockLevelObj).intValue());
-            }
-            
-            Object categoryIdObj = requestData.get("categoryId");
-            if (categoryIdObj != null) {
-                product.setCategoryId(((Number) categoryIdObj).longValue());
-            }
-            
-            product.setImageUrl((String) requestData.get("imageUrl"));
-            
-            String weightStr = (String) requestData.get("weight");
-            if (weightStr != null) {
-                product.setWeight(new java.math.BigDecimal(weightStr));
-            }
-            
-            product.setDimensions((String) requestData.get("dimensions"));
-            product.setActive(RequestUtil.getBooleanParameter(request, "isActive", true));
-            product.setFeatured(RequestUtil.getBooleanParameter(request, "isFeatured", false));
+            ProductRequest productRequest = RequestUtil.readJsonBody(request, ProductRequest.class);
+            Product product = productRequest.toProduct(
+                    RequestUtil.getBooleanParameter(request, "isActive", true),
+                    RequestUtil.getBooleanParameter(request, "isFeatured", false));
             
             ProductService.CreationResult result = productService.createProduct(product);
             
@@ -371,6 +301,9 @@ public class ProductServlet extends HttpServlet {
                 writeJsonResponse(response, ApiResponse.error(result.getMessage()));
             }
             
+        } catch (RequestUtil.RequestBodyTooLargeException e) {
+            response.setStatus(HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE);
+            writeJsonResponse(response, ApiResponse.error("请求体过大"));
         } catch (Exception e) {
             response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
             writeJsonResponse(response, ApiResponse.error("请求参数格式错误"));
@@ -380,56 +313,15 @@ public class ProductServlet extends HttpServlet {
     /**
      * 处理更新商品信息
      */
-    private void handleUpdateProduct(HttpServletRequest request, HttpServletResponse response, String pathInfo) throws IOException {
+    private void handleUpdateProduct(HttpServletRequest request, HttpServletResponse response, Router.PathVariables pathVariables) throws IOException {
         try {
-            Long productId = Long.parseLong(pathInfo.substring(1));
+            Long productId = pathVariables.getLong("id");
             
-            String requestBody = RequestUtil.getRequestBody(request);
-            @SuppressWarnings("unchecked")
-            Map<String, Object> requestData = JsonUtil.fromJsonToMap(requestBody);
-            
-            Product product = new Product();
+            ProductRequest productRequest = RequestUtil.readJsonBody(request, ProductRequest.class);
+            Product product = productRequest.toProduct(
+                    RequestUtil.getBooleanParameter(request, "isActive", true),
+                    RequestUtil.getBooleanParameter(request, "isFeatured", false));
             product.setId(productId);
-            product.setName((String) requestData.get("name"));
-            product.setDescription((String) requestData.get("description"));
-            product.setShortDescription((String) requestData.get("shortDescription"));
-            product.setSku((String) requestData.get("sku"));
-            
-            String priceStr = (String) requestData.get("price");
-            if (priceStr != null) {
-                product.setPrice(new java.math.BigDecimal(priceStr));
-            }
-            
-            String costPriceStr = (String) requestData.get("costPrice");
-            if (costPriceStr != null) {
-                product.setCostPrice(new java.math.BigDecimal(costPriceStr));
-            }
-            
-            Object stockQuantityObj = requestData.get("stockQuantity");
-            if (stockQuantityObj != null) {
-                product.setStockQuantity(((Number) stockQuantityObj).intValue());
-            }
-            
-            Object minStockLevelObj = requestData.get("minStockLevel");
-            if (minStockLevelObj != null) {
-                product.setMinStockLevel(((Number) minStockLevelObj).intValue());
-            }
-            
-            Object categoryIdObj = requestData.get("categoryId");
-            if (categoryIdObj != null) {
-                product.setCategoryId(((Number) categoryIdObj).longValue());
-            }
-            
-            product.setImageUrl((String) requestData.get("imageUrl"));
-            
-            String weightStr = (String) requestData.get("weight");
-            if (weightStr != null) {
-                product.setWeight(new java.math.BigDecimal(weightStr));
-            }
-            
-            product.setDimensions((String) requestData.get("dimensions"));
-            product.setActive(RequestUtil.getBooleanParameter(request, "isActive", true));
-            product.setFeatured(RequestUtil.getBooleanParameter(request, "isFeatured", false));
             
             ProductService.UpdateResult result = productService.updateProduct(product);
             
@@ -443,6 +335,9 @@ public class ProductServlet extends HttpServlet {
         } catch (NumberFormatException e) {
             response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
             writeJsonResponse(response, ApiResponse.error("商品ID格式错误"));
+        } catch (RequestUtil.RequestBodyTooLargeException e) {
+            response.setStatus(HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE);
+            writeJsonResponse(response, ApiResponse.error("请求体过大"));
         } catch (Exception e) {
             response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
             writeJsonResponse(response, ApiResponse.error("请求参数格式错误"));
@@ -452,9 +347,9 @@ public class ProductServlet extends HttpServlet {
     /**
      * 处理更新商品库存
      */
-    private void handleUpdateProductStock(HttpServletRequest request, HttpServletResponse response, String pathInfo) throws IOException {
+    private void handleUpdateProductStock(HttpServletRequest request, HttpServletResponse response, Router.PathVariables pathVariables) throws IOException {
         try {
-            Long productId = Long.parseLong(pathInfo.substring(1, pathInfo.indexOf("/stock")));
+            Long productId = pathVariables.getLong("id");
             
             String requestBody = RequestUtil.getRequestBody(request);
             @SuppressWarnings("unchecked")
@@ -490,9 +385,9 @@ public class ProductServlet extends HttpServlet {
     /**
      * 处理删除商品
      */
-    private void handleDeleteProduct(HttpServletRequest request, HttpServletResponse response, String pathInfo) throws IOException {
+    private void handleDeleteProduct(HttpServletRequest request, HttpServletResponse response, Router.PathVariables pathVariables) throws IOException {
         try {
-            Long productId = Long.parseLong(pathInfo.substring(1));
+            Long productId = pathVariables.getLong("id");
             
             ProductService.UpdateResult result = productService.deleteProduct(productId);
             
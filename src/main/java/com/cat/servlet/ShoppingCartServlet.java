@@ -1,123 +1,171 @@
 package com.cat.servlet;
 
+import com.cat.dto.AddToCartRequest;
 import com.cat.dto.ApiResponse;
+import com.cat.dto.UpdateCartQuantityRequest;
+import com.cat.metrics.RequestMetrics;
 import com.cat.model.ShoppingCart;
+import com.cat.model.UserSession;
+import com.cat.pricing.CartPrice;
+import com.cat.service.GuestCartService;
+import com.cat.service.SessionStore;
 import com.cat.service.ShoppingCartService;
+import com.cat.util.ExecutionUtil;
 import com.cat.util.JsonUtil;
 import com.cat.util.RequestUtil;
+import com.cat.util.Router;
 
+import javax.servlet.ServletException;
 import javax.servlet.annotation.WebServlet;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
-import javax.servlet.http.HttpSession;
 import java.io.IOException;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
-@WebServlet("/api/cart/*")
+@WebServlet(urlPatterns = "/api/cart/*", asyncSupported = true)
 public class ShoppingCartServlet extends HttpServlet {
     private final ShoppingCartService shoppingCartService = new ShoppingCartService();
     
+    private final Router<Router.RouteHandler> routes = new Router<Router.RouteHandler>()
+            .add("GET", "/", (request, response, vars) -> handleGetCart(request, response))
+            .add("GET", "/count", (request, response, vars) -> handleGetCartCount(request, response))
+            .add("GET", "/validate", (request, response, vars) -> handleValidateCart(request, response))
+            .add("GET", "/stock-check", (request, response, vars) -> handleStockCheck(request, response))
+            .add("POST", "/", (request, response, vars) -> handleAddToCart(request, response))
+            .add("POST", "/clear", (request, response, vars) -> handleClearCart(request, response))
+            .add("PUT", "/{id:long}", this::handleUpdateQuantity)
+            .add("DELETE", "/{id:long}", this::handleRemoveFromCart);
+    
     private void writeJsonResponse(HttpServletResponse response, Object obj) throws IOException {
         response.getWriter().write(JsonUtil.toJson(obj));
     }
     
     /**
-     * 检查用户是否登录并获取客户ID
+     * 获取已登录用户的客户ID，未登录时返回null（使用游客购物车）
+     */
+    private Long getCustomerId(HttpServletRequest request) {
+        UserSession session = SessionStore.getCurrent(request);
+        return session != null ? session.getUserId() : null;
+    }
+    
+    /**
+     * 构建购物车响应数据
+     */
+    private Map<String, Object> toResponseData(ShoppingCartService.ShoppingCartResult cartResult) {
+        Map<String, Object> responseData = new HashMap<>();
+        responseData.put("cartItems", cartResult.getCartItems());
+        responseData.put("totalQuantity", cartResult.getTotalQuantity());
+        responseData.put("totalAmount", cartResult.getTotalAmount());
+        responseData.put("discountAmount", cartResult.getDiscountAmount());
+        responseData.put("shippingFee", cartResult.getShippingFee());
+        responseData.put("taxAmount", cartResult.getTaxAmount());
+        responseData.put("payableAmount", cartResult.getPayableAmount());
+        if (cartResult.getVersion() != null) {
+            responseData.put("version", cartResult.getVersion());
+        }
+        return responseData;
+    }
+    
+    /**
+     * 构建购物车增量响应数据
+     */
+    private Map<String, Object> toResponseData(ShoppingCartService.CartDeltaResult delta) {
+        Map<String, Object> responseData = new HashMap<>();
+        responseData.put("delta", true);
+        responseData.put("productId", delta.getProductId());
+        responseData.put("cartItem", delta.getItem());
+        responseData.put("baseVersion", delta.getBaseVersion());
+        responseData.put("version", delta.getVersion());
+        responseData.put("totalQuantity", delta.getTotalQuantity());
+        responseData.put("totalAmount", delta.getTotalAmount());
+        responseData.put("discountAmount", delta.getDiscountAmount());
+        responseData.put("shippingFee", delta.getShippingFee());
+        responseData.put("taxAmount", delta.getTaxAmount());
+        responseData.put("payableAmount", delta.getPayableAmount());
+        return responseData;
+    }
+    
+    /**
+     * 修改成功后返回购物车
+     * 请求带 mode=delta 时只返回修改的购物车项和合计（不重新读取购物车），无法增量计算时（写直达模式、游客购物车）返回完整购物车
+     */
+    private void writeChangedCart(HttpServletRequest request, HttpServletResponse response, Long customerId,
+                                  Map<Long, Integer> guestLines, ShoppingCartService.OperationResult result) throws IOException {
+        if (customerId == null) {
+            GuestCartService.write(request, response, guestLines);
+            ShoppingCartService.ShoppingCartResult cartResult = shoppingCartService.getGuestCart(guestLines);
+            writeJsonResponse(response, ApiResponse.success(result.getMessage(), toResponseData(cartResult)));
+            return;
+        }
+        
+        if ("delta".equals(request.getParameter("mode"))) {
+            ShoppingCartService.CartDeltaResult delta = shoppingCartService.getCartDelta(customerId, result);
+            if (delta != null) {
+                writeJsonResponse(response, ApiResponse.success(result.getMessage(), toResponseData(delta)));
+                return;
+            }
+        }
+        
+        ShoppingCartService.ShoppingCartResult cartResult = shoppingCartService.getCustomerCart(customerId);
+        writeJsonResponse(response, ApiResponse.success(result.getMessage(), toResponseData(cartResult)));
+    }
+    
+    /**
+     * 检查用户是否登录并获取客户ID（结算相关接口）
      */
     private Long getAuthenticatedCustomerId(HttpServletRequest request, HttpServletResponse response) throws IOException {
-        HttpSession session = request.getSession(false);
-        if (session == null || session.getAttribute("customerId") == null) {
+        UserSession session = SessionStore.getCurrent(request);
+        if (session == null) {
             response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
             writeJsonResponse(response, ApiResponse.error("用户未登录"));
             return null;
         }
-        return (Long) session.getAttribute("customerId");
+        return session.getUserId();
+    }
+    
+    @Override
+    protected void service(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException {
+        ExecutionUtil.execute(request, response, super::service);
     }
     
     @Override
     protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
-        response.setContentType("application/json;charset=UTF-8");
-        response.setCharacterEncoding("UTF-8");
-        
-        try {
-            String pathInfo = request.getPathInfo();
-            
-            if (pathInfo == null || pathInfo.equals("/")) {
-                handleGetCart(request, response);
-            } else if (pathInfo.equals("/count")) {
-                handleGetCartCount(request, response);
-            } else if (pathInfo.equals("/validate")) {
-                handleValidateCart(request, response);
-            } else if (pathInfo.equals("/stock-check")) {
-                handleStockCheck(request, response);
-            } else {
-                response.setStatus(HttpServletResponse.SC_NOT_FOUND);
-                writeJsonResponse(response, ApiResponse.error("未找到对应的API端点"));
-            }
-            
-        } catch (Exception e) {
-            response.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
-            writeJsonResponse(response, ApiResponse.error("服务器内部错误"));
-        }
+        dispatch("GET", request, response);
     }
     
     @Override
     protected void doPost(HttpServletRequest request, HttpServletResponse response) throws IOException {
-        response.setContentType("application/json;charset=UTF-8");
-        response.setCharacterEncoding("UTF-8");
-        
-        try {
-            String pathInfo = request.getPathInfo();
-            
-            if (pathInfo == null || pathInfo.equals("/")) {
-                handleAddToCart(request, response);
-            } else if (pathInfo.equals("/clear")) {
-                handleClearCart(request, response);
-            } else {
-                response.setStatus(HttpServletResponse.SC_NOT_FOUND);
-                writeJsonResponse(response, ApiResponse.error("未找到对应的API端点"));
-            }
-            
-        } catch (Exception e) {
-            response.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
-            writeJsonResponse(response, ApiResponse.error("服务器内部错误"));
-        }
+        dispatch("POST", request, response);
     }
     
     @Override
     protected void doPut(HttpServletRequest request, HttpServletResponse response) throws IOException {
-        response.setContentType("application/json;charset=UTF-8");
-        response.setCharacterEncoding("UTF-8");
-        
-        try {
-            String pathInfo = request.getPathInfo();
-            
-            if (pathInfo != null && pathInfo.matches("/\\d+")) {
-                handleUpdateQuantity(request, response, pathInfo);
-            } else {
-                response.setStatus(HttpServletResponse.SC_NOT_FOUND);
-                writeJsonResponse(response, ApiResponse.error("未找到对应的API端点"));
-            }
-            
-        } catch (Exception e) {
-            response.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
-            writeJsonResponse(response, ApiResponse.error("服务器内部错误"));
-        }
+        dispatch("PUT", request, response);
     }
     
     @Override
     protected void doDelete(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        dispatch("DELETE", request, response);
+    }
+    
+    /**
+     * 根据路由表分发请求
+     */
+    private void dispatch(String method, HttpServletRequest request, HttpServletResponse response) throws IOException {
         response.setContentType("application/json;charset=UTF-8");
         response.setCharacterEncoding("UTF-8");
         
         try {
-            String pathInfo = request.getPathInfo();
+            Router.Match<Router.RouteHandler> match = routes.match(method, request.getPathInfo());
             
-            if (pathInfo != null && pathInfo.matches("/\\d+")) {
-                handleRemoveFromCart(request, response, pathInfo);
+            if (match != null) {
+                RequestMetrics.setRoute(request, match.getTemplate());
+                match.getHandler().handle(request, response, match.getPathVariables());
             } else {
                 response.setStatus(HttpServletResponse.SC_NOT_FOUND);
                 writeJsonResponse(response, ApiResponse.error("未找到对应的API端点"));
@@ -133,19 +181,14 @@ public class ShoppingCartServlet extends HttpServlet {
      * 处理获取购物车
      */
     private void handleGetCart(HttpServletRequest request, HttpServletResponse response) throws IOException {
-        Long customerId = getAuthenticatedCustomerId(request, response);
-        if (customerId == null) return;
+        Long customerId = getCustomerId(request);
         
-        ShoppingCartService.ShoppingCartResult cartResult = shoppingCartService.getCustomerCart(customerId);
+        ShoppingCartService.ShoppingCartResult cartResult = customerId != null
+                ? shoppingCartService.getCustomerCart(customerId)
+                : shoppingCartService.getGuestCart(GuestCartService.read(request));
         
         if (cartResult.isSuccess()) {
-            // 构建响应数据
-            Map<String, Object> responseData = new HashMap<>();
-            responseData.put("cartItems", cartResult.getCartItems());
-            responseData.put("totalQuantity", cartResult.getTotalQuantity());
-            responseData.put("totalAmount", cartResult.getTotalAmount());
-            
-            ApiResponse<Map<String, Object>> responseObj = ApiResponse.success(cartResult.getMessage(), responseData);
+            ApiResponse<Map<String, Object>> responseObj = ApiResponse.success(cartResult.getMessage(), toResponseData(cartResult));
             writeJsonResponse(response, responseObj);
         } else {
             response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
@@ -157,10 +200,11 @@ public class ShoppingCartServlet extends HttpServlet {
      * 处理获取购物车商品数量
      */
     private void handleGetCartCount(HttpServletRequest request, HttpServletResponse response) throws IOException {
-        Long customerId = getAuthenticatedCustomerId(request, response);
-        if (customerId == null) return;
+        Long customerId = getCustomerId(request);
         
-        int itemCount = shoppingCartService.getCartItemCount(customerId);
+        int itemCount = customerId != null
+                ? shoppingCartService.getCartItemCount(customerId)
+                : shoppingCartService.getGuestCartItemCount(GuestCartService.read(request));
         
         Map<String, Object> responseData = new HashMap<>();
         responseData.put("itemCount", itemCount);
@@ -173,43 +217,35 @@ public class ShoppingCartServlet extends HttpServlet {
      * 处理添加商品到购物车
      */
     private void handleAddToCart(HttpServletRequest request, HttpServletResponse response) throws IOException {
-        Long customerId = getAuthenticatedCustomerId(request, response);
-        if (customerId == null) return;
+        Long customerId = getCustomerId(request);
         
         try {
-            String requestBody = RequestUtil.getRequestBody(request);
-            @SuppressWarnings("unchecked")
-            Map<String, Object> requestData = JsonUtil.fromJsonToMap(requestBody);
+            AddToCartRequest addToCartRequest = RequestUtil.readJsonBody(request, AddToCartRequest.class);
             
-            Object productIdObj = requestData.get("productId");
-            Object quantityObj = requestData.get("quantity");
-            
-            if (productIdObj == null || quantityObj == null) {
+            if (addToCartRequest.getProductId() == null || addToCartRequest.getQuantity() == null) {
                 response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
                 writeJsonResponse(response, ApiResponse.error("商品ID和数量不能为空"));
                 return;
             }
             
-            Long productId = ((Number) productIdObj).longValue();
-            int quantity = ((Number) quantityObj).intValue();
+            Long productId = addToCartRequest.getProductId();
+            int quantity = addToCartRequest.getQuantity();
             
-            ShoppingCartService.OperationResult result = shoppingCartService.addToCart(customerId, productId, quantity);
+            Map<Long, Integer> guestLines = customerId == null ? GuestCartService.read(request) : null;
+            ShoppingCartService.OperationResult result = customerId != null
+                    ? shoppingCartService.addToCart(customerId, productId, quantity)
+                    : shoppingCartService.addToGuestCart(guestLines, productId, quantity);
             
             if (result.isSuccess()) {
-                // 返回更新后的购物车信息
-                ShoppingCartService.ShoppingCartResult cartResult = shoppingCartService.getCustomerCart(customerId);
-                Map<String, Object> responseData = new HashMap<>();
-                responseData.put("cartItems", cartResult.getCartItems());
-                responseData.put("totalQuantity", cartResult.getTotalQuantity());
-                responseData.put("totalAmount", cartResult.getTotalAmount());
-                
-                ApiResponse<Map<String, Object>> responseObj = ApiResponse.success(result.getMessage(), responseData);
-                writeJsonResponse(response, responseObj);
+                writeChangedCart(request, response, customerId, guestLines, result);
             } else {
                 response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
                 writeJsonResponse(response, ApiResponse.error(result.getMessage()));
             }
             
+        } catch (RequestUtil.RequestBodyTooLargeException e) {
+            response.setStatus(HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE);
+            writeJsonResponse(response, ApiResponse.error("请求体过大"));
         } catch (Exception e) {
             response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
             writeJsonResponse(response, ApiResponse.error("请求参数格式错误"));
@@ -219,39 +255,29 @@ public class ShoppingCartServlet extends HttpServlet {
     /**
      * 处理更新购物车商品数量
      */
-    private void handleUpdateQuantity(HttpServletRequest request, HttpServletResponse response, String pathInfo) throws IOException {
-        Long customerId = getAuthenticatedCustomerId(request, response);
-        if (customerId == null) return;
+    private void handleUpdateQuantity(HttpServletRequest request, HttpServletResponse response, Router.PathVariables pathVariables) throws IOException {
+        Long customerId = getCustomerId(request);
         
         try {
             // 从路径中提取商品ID
-            Long productId = Long.parseLong(pathInfo.substring(1));
+            Long productId = pathVariables.getLong("id");
             
-            String requestBody = RequestUtil.getRequestBody(request);
-            @SuppressWarnings("unchecked")
-            Map<String, Object> requestData = JsonUtil.fromJsonToMap(requestBody);
-            
-            Object quantityObj = requestData.get("quantity");
-            if (quantityObj == null) {
+            UpdateCartQuantityRequest updateRequest = RequestUtil.readJsonBody(request, UpdateCartQuantityRequest.class);
+            if (updateRequest.getQuantity() == null) {
                 response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
                 writeJsonResponse(response, ApiResponse.error("数量不能为空"));
                 return;
             }
             
-            int quantity = ((Number) quantityObj).intValue();
+            int quantity = updateRequest.getQuantity();
             
-            ShoppingCartService.OperationResult result = shoppingCartService.updateQuantity(customerId, productId, quantity);
+            Map<Long, Integer> guestLines = customerId == null ? GuestCartService.read(request) : null;
+            ShoppingCartService.OperationResult result = customerId != null
+                    ? shoppingCartService.updateQuantity(customerId, productId, quantity)
+                    : shoppingCartService.updateGuestQuantity(guestLines, productId, quantity);
             
             if (result.isSuccess()) {
-                // 返回更新后的购物车信息
-                ShoppingCartService.ShoppingCartResult cartResult = shoppingCartService.getCustomerCart(customerId);
-                Map<String, Object> responseData = new HashMap<>();
-                responseData.put("cartItems", cartResult.getCartItems());
-                responseData.put("totalQuantity", cartResult.getTotalQuantity());
-                responseData.put("totalAmount", cartResult.getTotalAmount());
-                
-                ApiResponse<Map<String, Object>> responseObj = ApiResponse.success(result.getMessage(), responseData);
-                writeJsonResponse(response, responseObj);
+                writeChangedCart(request, response, customerId, guestLines, result);
             } else {
                 response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
                 writeJsonResponse(response, ApiResponse.error(result.getMessage()));
@@ -260,6 +286,9 @@ public class ShoppingCartServlet extends HttpServlet {
         } catch (NumberFormatException e) {
             response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
             writeJsonResponse(response, ApiResponse.error("商品ID格式错误"));
+        } catch (RequestUtil.RequestBodyTooLargeException e) {
+            response.setStatus(HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE);
+            writeJsonResponse(response, ApiResponse.error("请求体过大"));
         } catch (Exception e) {
             response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
             writeJsonResponse(response, ApiResponse.error("请求参数格式错误"));
@@ -269,25 +298,19 @@ public class ShoppingCartServlet extends HttpServlet {
     /**
      * 处理从购物车移除商品
      */
-    private void handleRemoveFromCart(HttpServletRequest request, HttpServletResponse response, String pathInfo) throws IOException {
-        Long customerId = getAuthenticatedCustomerId(request, response);
-        if (customerId == null) return;
+    private void handleRemoveFromCart(HttpServletRequest request, HttpServletResponse response, Router.PathVariables pathVariables) throws IOException {
+        Long customerId = getCustomerId(request);
         
         try {
-            Long productId = Long.parseLong(pathInfo.substring(1));
+            Long productId = pathVariables.getLong("id");
             
-            ShoppingCartService.OperationResult result = shoppingCartService.removeFromCart(customerId, productId);
+            Map<Long, Integer> guestLines = customerId == null ? GuestCartService.read(request) : null;
+            ShoppingCartService.OperationResult result = customerId != null
+                    ? shoppingCartService.removeFromCart(customerId, productId)
+                    : shoppingCartService.removeFromGuestCart(guestLines, productId);
             
             if (result.isSuccess()) {
-                // 返回更新后的购物车信息
-                ShoppingCartService.ShoppingCartResult cartResult = shoppingCartService.getCustomerCart(customerId);
-                Map<String, Object> responseData = new HashMap<>();
-                responseData.put("cartItems", cartResult.getCartItems());
-                responseData.put("totalQuantity", cartResult.getTotalQuantity());
-                responseData.put("totalAmount", cartResult.getTotalAmount());
-                
-                ApiResponse<Map<String, Object>> responseObj = ApiResponse.success(result.getMessage(), responseData);
-                writeJsonResponse(response, responseObj);
+                writeChangedCart(request, response, customerId, guestLines, result);
             } else {
                 response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
                 writeJsonResponse(response, ApiResponse.error(result.getMessage()));
@@ -303,19 +326,24 @@ public class ShoppingCartServlet extends HttpServlet {
      * 处理清空购物车
      */
     private void handleClearCart(HttpServletRequest request, HttpServletResponse response) throws IOException {
-        Long customerId = getAuthenticatedCustomerId(request, response);
-        if (customerId == null) return;
+        Long customerId = getCustomerId(request);
         
-        ShoppingCartService.OperationResult result = shoppingCartService.clearCart(customerId);
+        ShoppingCartService.OperationResult result;
+        if (customerId != null) {
+            result = shoppingCartService.clearCart(customerId);
+        } else if (GuestCartService.read(request).isEmpty()) {
+            result = new ShoppingCartService.OperationResult(false, "购物车已经是空的");
+        } else {
+            GuestCartService.clear(request, response);
+            result = new ShoppingCartService.OperationResult(true, "购物车已清空");
+        }
         
         if (result.isSuccess()) {
-            Map<String, Object> responseData = new HashMap<>();
-            responseData.put("cartItems", new java.util.ArrayList<>());
-            responseData.put("totalQuantity", 0);
-            responseData.put("totalAmount", java.math.BigDecimal.ZERO);
-            
-            ApiResponse<Map<String, Object>> responseObj = ApiResponse.success(result.getMessage(), responseData);
-            writeJsonResponse(response, responseObj);
+            // 与添加、修改、删除返回相同的结构：清空后的版本号和全部为0的合计
+            ShoppingCartService.ShoppingCartResult cartResult = customerId != null
+                    ? shoppingCartService.getCustomerCart(customerId)
+                    : new ShoppingCartService.ShoppingCartResult(Collections.emptyList(), CartPrice.EMPTY, result.getMessage());
+            writeJsonResponse(response, ApiResponse.success(result.getMessage(), toResponseData(cartResult)));
         } else {
             response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
             writeJsonResponse(response, ApiResponse.error(result.getMessage()));
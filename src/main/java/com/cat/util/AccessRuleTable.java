@@ -0,0 +1,240 @@
+package com.cat.util;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 访问规则表
+ * 规则为 "方法 路径模式 访问级别"，方法可以是 *；路径模式按段匹配，* 匹配任意一段，** 匹配剩余的零段或多段（只能位于末尾）。
+ * 规则在加载时编译为按方法分组、按路径段组织的前缀树，分类时对请求路径只扫描一遍，不创建子字符串。
+ * 优先级：先查请求方法自己的规则，没有匹配时再查方法为 * 的规则，都没有匹配时使用默认级别；
+ * 同一方法内字面段优先于 *，* 优先于 **。
+ * 编译完成后只读，可被多个请求线程并发使用
+ */
+public class AccessRuleTable {
+
+    /**
+     * 访问级别
+     */
+    public enum Access {
+        /** 无需登录 */
+        PUBLIC,
+        /** 需要登录 */
+        AUTHENTICATED,
+        /** 需要管理员 */
+        ADMIN
+    }
+
+    private static final String ANY_METHOD = "*";
+
+    private final Map<String, Node> roots = new HashMap<>();
+    private final Access defaultAccess;
+
+    public AccessRuleTable(Access defaultAccess) {
+        this.defaultAccess = defaultAccess;
+    }
+
+    /**
+     * 从类路径资源加载规则
+     * @param resource 资源名
+     * @param defaultAccess 没有规则匹配时的访问级别
+     * @return 规则表
+     * @throws IOException 资源不存在或读取失败
+     */
+    public static AccessRuleTable load(String resource, Access defaultAccess) throws IOException {
+        InputStream input = AccessRuleTable.class.getClassLoader().getResourceAsStream(resource);
+        if (input == null) {
+            throw new IOException("未找到访问规则文件: " + resource);
+        }
+        try (Reader reader = new InputStreamReader(input, StandardCharsets.UTF_8)) {
+            return parse(reader, resource, defaultAccess);
+        }
+    }
+
+    /**
+     * 解析规则文本，每行一条规则，# 开头为注释
+     * @param reader 规则文本
+     * @param source 来源名称，用于错误信息
+     * @param defaultAccess 没有规则匹配时的访问级别
+     * @return 规则表
+     * @throws IOException 读取失败或规则格式错误
+     */
+    public static AccessRuleTable parse(Reader reader, String source, Access defaultAccess) throws IOException {
+        AccessRuleTable table = new AccessRuleTable(defaultAccess);
+        BufferedReader lines = new BufferedReader(reader);
+        String line;
+        int lineNumber = 0;
+        while ((line = lines.readLine()) != null) {
+            lineNumber++;
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+
+            String[] parts = line.split("\\s+");
+            try {
+                if (parts.length != 3) {
+                    throw new IllegalArgumentException("应为 \"方法 路径模式 访问级别\"");
+                }
+                table.add(parts[0], parts[1], Access.valueOf(parts[2].toUpperCase()));
+            } catch (IllegalArgumentException e) {
+                throw new IOException("访问规则格式错误 " + source + ":" + lineNumber + ": " + line + "（" + e.getMessage() + "）", e);
+            }
+        }
+        return table;
+    }
+
+    /**
+     * 添加规则
+     * @param method HTTP方法或 *
+     * @param pattern 路径模式
+     * @param access 访问级别
+     * @return 当前规则表，便于链式添加
+     */
+    public AccessRuleTable add(String method, String pattern, Access access) {
+        Node node = roots.computeIfAbsent(method.toUpperCase(), k -> new Node());
+        String[] segments = pattern.split("/");
+        for (int i = 0; i < segments.length; i++) {
+            String segment = segments[i];
+            if (segment.isEmpty()) {
+                continue;
+            }
+            if ("**".equals(segment)) {
+                if (i != segments.length - 1) {
+                    throw new IllegalArgumentException("** 只能位于路径模式末尾: " + pattern);
+                }
+                if (node.restAccess != null) {
+                    throw new IllegalArgumentException("重复的访问规则: " + method + " " + pattern);
+                }
+                node.restAccess = access;
+                return this;
+            }
+            node = "*".equals(segment) ? node.anySegmentChild() : node.literalChild(segment);
+        }
+
+        if (node.access != null) {
+            throw new IllegalArgumentException("重复的访问规则: " + method + " " + pattern);
+        }
+        node.access = access;
+        return this;
+    }
+
+    /**
+     * 对请求分类
+     * @param method HTTP方法（大写）
+     * @param uri 请求URI
+     * @param offset 路径在URI中的起始位置（上下文路径的长度）
+     * @return 访问级别
+     */
+    public Access classify(String method, String uri, int offset) {
+        Node root = roots.get(method);
+        if (root != null) {
+            Access access = match(root, uri, offset);
+            if (access != null) {
+                return access;
+            }
+        }
+        Node any = roots.get(ANY_METHOD);
+        if (any != null) {
+            Access access = match(any, uri, offset);
+            if (access != null) {
+                return access;
+            }
+        }
+        return defaultAccess;
+    }
+
+    /**
+     * 对请求分类
+     * @param method HTTP方法（大写）
+     * @param path 请求路径
+     * @return 访问级别
+     */
+    public Access classify(String method, String path) {
+        return classify(method, path, 0);
+    }
+
+    private static Access match(Node node, String path, int start) {
+        int length = path.length();
+        while (start < length && path.charAt(start) == '/') {
+            start++;
+        }
+        if (start >= length) {
+            return node.access != null ? node.access : node.restAccess;
+        }
+
+        int end = path.indexOf('/', start);
+        if (end < 0) {
+            end = length;
+        }
+
+        Node literal = node.findLiteral(path, start, end);
+        if (literal != null) {
+            Access access = match(literal, path, end);
+            if (access != null) {
+                return access;
+            }
+        }
+        if (node.anySegment != null) {
+            Access access = match(node.anySegment, path, end);
+            if (access != null) {
+                return access;
+            }
+        }
+        return node.restAccess;
+    }
+
+    /**
+     * 前缀树节点
+     * 字面子节点数量很少，用数组顺序比较代替HashMap，匹配时不需要截取路径段
+     */
+    private static class Node {
+        private String[] literals = new String[0];
+        private Node[] literalNodes = new Node[0];
+        private Node anySegment;
+        private Access access;
+        private Access restAccess;
+
+        Node literalChild(String segment) {
+            for (int i = 0; i < literals.length; i++) {
+                if (literals[i].equals(segment)) {
+                    return literalNodes[i];
+                }
+            }
+            List<String> names = new ArrayList<>(List.of(literals));
+            List<Node> nodes = new ArrayList<>(List.of(literalNodes));
+            Node child = new Node();
+            names.add(segment);
+            nodes.add(child);
+            literals = names.toArray(new String[0]);
+            literalNodes = nodes.toArray(new Node[0]);
+            return child;
+        }
+
+        Node anySegmentChild() {
+            if (anySegment == null) {
+                anySegment = new Node();
+            }
+            return anySegment;
+        }
+
+        Node findLiteral(String path, int start, int end) {
+            int length = end - start;
+            for (int i = 0; i < literals.length; i++) {
+                String literal = literals[i];
+                if (literal.length() == length && path.regionMatches(start, literal, 0, length)) {
+                    return literalNodes[i];
+                }
+            }
+            return null;
+        }
+    }
+}
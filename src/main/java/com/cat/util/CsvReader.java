@@ -0,0 +1,170 @@
+package com.cat.util;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 流式CSV读取器（RFC 4180）
+ * 逐条读取记录，支持双引号包裹的字段、字段内的逗号/换行以及 "" 转义；开头的UTF-8 BOM会被忽略。
+ * 只缓存当前记录，适合读取大文件；单条记录超过最大长度时不再缓存其内容，读到记录末尾后返回空记录，
+ * 由 isRecordTooLong 区分（超长的记录只占用固定的内存，后续记录照常读取）
+ */
+public class CsvReader {
+    private final Reader reader;
+    private final char[] buffer = new char[8192];
+    private int position;
+    private int limit;
+    private long lineNumber = 1;
+    private boolean started;
+    private final int maxRecordLength;
+    private int recordLength;
+    private boolean recordTooLong;
+
+    public CsvReader(Reader reader) {
+        this(reader, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @param reader 输入
+     * @param maxRecordLength 单条记录最多的字符数（含逗号，不含包裹字段的引号和换行），也是单个字段的上限
+     */
+    public CsvReader(Reader reader, int maxRecordLength) {
+        this.reader = reader;
+        this.maxRecordLength = maxRecordLength;
+    }
+
+    /**
+     * 读取下一条记录
+     * @return 字段列表，已到文件末尾返回null；记录超长时返回空列表
+     * @throws IOException 读取失败或引号未闭合
+     */
+    public List<String> readRecord() throws IOException {
+        recordLength = 0;
+        recordTooLong = false;
+        int c = read();
+        if (!started) {
+            started = true;
+            if (c == '\uFEFF') {
+                c = read();
+            }
+        }
+        if (c == -1) {
+            return null;
+        }
+
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        boolean fieldStart = true;
+
+        while (true) {
+            if (quoted) {
+                if (c == -1) {
+                    throw new IOException("第 " + lineNumber + " 行引号未闭合");
+                }
+                if (c == '"') {
+                    int next = read();
+                    if (next == '"') {
+                        append(field, '"');
+                    } else {
+                        quoted = false;
+                        c = next;
+                        continue;
+                    }
+                } else {
+                    if (c == '\n') {
+                        lineNumber++;
+                    }
+                    append(field, (char) c);
+                }
+            } else if (c == '"' && fieldStart) {
+                quoted = true;
+                fieldStart = false;
+            } else if (c == ',') {
+                if (count()) {
+                    fields.add(field.toString());
+                }
+                field.setLength(0);
+                fieldStart = true;
+            } else if (c == '\n' || c == -1) {
+                if (c == '\n') {
+                    lineNumber++;
+                }
+                return endRecord(fields, field);
+            } else if (c == '\r') {
+                int next = read();
+                if (next != '\n') {
+                    // 单独的\r按换行处理
+                    unread();
+                }
+                lineNumber++;
+                return endRecord(fields, field);
+            } else {
+                append(field, (char) c);
+                fieldStart = false;
+            }
+            c = read();
+        }
+    }
+
+    /**
+     * 最近读取的记录是否超过最大长度
+     */
+    public boolean isRecordTooLong() {
+        return recordTooLong;
+    }
+
+    /**
+     * 下一条记录开始的行号（从1开始）
+     */
+    public long getLineNumber() {
+        return lineNumber;
+    }
+
+    private void append(StringBuilder field, char c) {
+        if (count()) {
+            field.append(c);
+        } else {
+            field.setLength(0);
+        }
+    }
+
+    /**
+     * 计入当前记录的一个字符
+     * @return 是否仍未超过最大长度
+     */
+    private boolean count() {
+        if (!recordTooLong && ++recordLength > maxRecordLength) {
+            recordTooLong = true;
+        }
+        return !recordTooLong;
+    }
+
+    private List<String> endRecord(List<String> fields, StringBuilder field) {
+        if (recordTooLong) {
+            return new ArrayList<>();
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    private int read() throws IOException {
+        if (position == limit) {
+            limit = reader.read(buffer, 0, buffer.length);
+            position = 0;
+            if (limit <= 0) {
+                limit = 0;
+                return -1;
+            }
+        }
+        return buffer[position++];
+    }
+
+    private void unread() {
+        if (position > 0) {
+            position--;
+        }
+    }
+}
@@ -1,23 +1,54 @@
 package com.cat.util;
 
 import com.cat.config.DatabaseConfig;
+import com.cat.config.ExecutionConfig;
+import com.cat.metrics.Histogram;
+import com.cat.metrics.MetricsRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
 
 public class DatabaseUtil {
     private static final Logger logger = LoggerFactory.getLogger(DatabaseUtil.class);
     
+    private static final Logger slowQueryLogger = LoggerFactory.getLogger("com.cat.sql.slow");
+    
+    // 慢查询阈值（含获取连接的时间），小于等于0时记录全部语句
+    private static final long SLOW_QUERY_THRESHOLD_NANOS =
+            DatabaseConfig.getLongProperty("db.slow-query-threshold-ms", 500) * 1_000_000L;
+    private static final int MAX_CACHED_STATEMENTS = 1000;
+    // 非MySQL数据库流式查询时每次读取的行数
+    private static final int STREAM_FETCH_SIZE = DatabaseConfig.getIntProperty("db.stream-fetch-size", 1000);
+    
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final Pattern PLACEHOLDER_LIST = Pattern.compile("\\(\\s*\\?(\\s*,\\s*\\?)+\\s*\\)");
+    private static final Pattern REPEATED_ROWS = Pattern.compile("(\\(\\?\\+\\))(\\s*,\\s*\\(\\?\\+\\))+");
+    
+    // 原始SQL -> 统计项，命中时执行路径上只有一次哈希查找
+    private static final ConcurrentHashMap<String, StatementStats> statementStats = new ConcurrentHashMap<>();
+    // SQL模板 -> 统计项
+    private static final ConcurrentHashMap<String, StatementStats> templateStats = new ConcurrentHashMap<>();
+    
     /**
      * 获取数据库连接
+     * 虚拟线程模式下先获取数据库访问许可，连接须通过closeConnection归还以释放许可
      * @return 数据库连接
      * @throws SQLException 数据库异常
      */
     public static Connection getConnection() throws SQLException {
-        return DatabaseConfig.getDataSource().getConnection();
+        ExecutionConfig.acquireDbPermit();
+        try {
+            return DatabaseConfig.getDataSource().getConnection();
+        } catch (SQLException | RuntimeException e) {
+            ExecutionConfig.releaseDbPermit();
+            throw e;
+        }
     }
     
     /**
@@ -28,7 +59,11 @@ public class DatabaseUtil {
         if (connection != null) {
             try {
                 if (!connection.isClosed()) {
-                    connection.close();
+                    try {
+                        connection.close();
+                    } finally {
+                        ExecutionConfig.releaseDbPermit();
+                    }
                 }
             } catch (SQLException e) {
                 logger.error("关闭数据库连接失败", e);
@@ -83,12 +118,16 @@ public class DatabaseUtil {
      * @return 单个结果，如果没有返回null
      */
     public static <T> T querySingle(String sql, ResultSetHandler<T> handler, Object... params) {
+        long startNanos = System.nanoTime();
+        long acquiredNanos = 0;
+        long rows = 0;
         Connection connection = null;
         PreparedStatement statement = null;
         ResultSet resultSet = null;
         
         try {
             connection = getConnection();
+            acquiredNanos = System.nanoTime();
             statement = connection.prepareStatement(sql);
             
             // 设置参数
@@ -99,6 +138,7 @@ public class DatabaseUtil {
             resultSet = statement.executeQuery();
             
             if (resultSet.next()) {
+                rows = 1;
                 return handler.handle(resultSet);
             }
             
@@ -108,6 +148,7 @@ public class DatabaseUtil {
             logger.error("执行查询失败: {}", sql, e);
             throw new RuntimeException("执行查询失败", e);
         } finally {
+            recordStatement("query", sql, params.length, rows, startNanos, acquiredNanos);
             closeResources(connection, statement, resultSet);
         }
     }
@@ -119,6 +160,9 @@ public class DatabaseUtil {
      * @return 结果列表
      */
     public static <T> List<T> queryList(String sql, ResultSetHandler<T> handler, Object... params) {
+        long startNanos = System.nanoTime();
+        long acquiredNanos = 0;
+        long rows = 0;
         Connection connection = null;
         PreparedStatement statement = null;
         ResultSet resultSet = null;
@@ -126,6 +170,7 @@ public class DatabaseUtil {
         
         try {
             connection = getConnection();
+            acquiredNanos = System.nanoTime();
             statement = connection.prepareStatement(sql);
             
             // 设置参数
@@ -138,6 +183,7 @@ public class DatabaseUtil {
             while (resultSet.next()) {
                 result.add(handler.handle(resultSet));
             }
+            rows = result.size();
             
             return result;
             
@@ -145,6 +191,56 @@ public class DatabaseUtil {
             logger.error("执行查询失败: {}", sql, e);
             throw new RuntimeException("执行查询失败", e);
         } finally {
+            recordStatement("query", sql, params.length, rows, startNanos, acquiredNanos);
+            closeResources(connection, statement, resultSet);
+        }
+    }
+    
+    /**
+     * 流式查询，逐行回调而不把结果集放进内存（用于全量导出等大结果集）
+     * 使用只进、只读结果集：MySQL下fetchSize为Integer.MIN_VALUE，驱动逐行从服务器读取；
+     * 其他数据库使用 db.stream-fetch-size 作为每次读取的行数。
+     * 回调期间一直占用同一个连接，MySQL流式读取时该连接上不能执行其他语句，回调中需要查询时请另取连接
+     * @param sql SQL语句
+     * @param handler 行回调，每行调用一次
+     * @param params 参数
+     * @return 处理的行数
+     * @throws IOException 回调写出失败（如客户端断开）
+     */
+    public static long queryStream(String sql, RowCallback handler, Object... params) throws IOException {
+        long startNanos = System.nanoTime();
+        long acquiredNanos = 0;
+        long rows = 0;
+        Connection connection = null;
+        PreparedStatement statement = null;
+        ResultSet resultSet = null;
+        
+        try {
+            connection = getConnection();
+            acquiredNanos = System.nanoTime();
+            statement = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            boolean mysql = connection.getMetaData().getURL().startsWith("jdbc:mysql:");
+            statement.setFetchSize(mysql ? Integer.MIN_VALUE : STREAM_FETCH_SIZE);
+            
+            // 设置参数
+            for (int i = 0; i < params.length; i++) {
+                statement.setObject(i + 1, params[i]);
+            }
+            
+            resultSet = statement.executeQuery();
+            
+            while (resultSet.next()) {
+                handler.handle(resultSet);
+                rows++;
+            }
+            
+            return rows;
+        
+        } catch (SQLException e) {
+            logger.error("执行流式查询失败: {}", sql, e);
+            throw new RuntimeException("执行流式查询失败", e);
+        } finally {
+            recordStatement("stream", sql, params.length, rows, startNanos, acquiredNanos);
             closeResources(connection, statement, resultSet);
         }
     }
@@ -156,11 +252,15 @@ public class DatabaseUtil {
      * @return 受影响的行数
      */
     public static int executeUpdate(String sql, Object... params) {
+        long startNanos = System.nanoTime();
+        long acquiredNanos = 0;
+        long rows = 0;
         Connection connection = null;
         PreparedStatement statement = null;
         
         try {
             connection = getConnection();
+            acquiredNanos = System.nanoTime();
             statement = connection.prepareStatement(sql);
             
             // 设置参数
@@ -168,12 +268,14 @@ public class DatabaseUtil {
                 statement.setObject(i + 1, params[i]);
             }
             
-            return statement.executeUpdate();
+            rows = statement.executeUpdate();
+            return (int) rows;
             
         } catch (SQLException e) {
             logger.error("执行更新失败: {}", sql, e);
             throw new RuntimeException("执行更新失败", e);
         } finally {
+            recordStatement("update", sql, params.length, rows, startNanos, acquiredNanos);
             closeResources(connection, statement, null);
         }
     }
@@ -185,12 +287,16 @@ public class DatabaseUtil {
      * @return 生成的主键
      */
     public static long executeInsert(String sql, Object... params) {
+        long startNanos = System.nanoTime();
+        long acquiredNanos = 0;
+        long rows = 0;
         Connection connection = null;
         PreparedStatement statement = null;
         ResultSet resultSet = null;
         
         try {
             connection = getConnection();
+            acquiredNanos = System.nanoTime();
             statement = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
             
             // 设置参数
@@ -199,6 +305,7 @@ public class DatabaseUtil {
             }
             
             int affectedRows = statement.executeUpdate();
+            rows = affectedRows;
             
             if (affectedRows == 0) {
                 throw new SQLException("插入操作失败，没有影响任何行");
@@ -215,6 +322,7 @@ public class DatabaseUtil {
             logger.error("执行插入失败: {}", sql, e);
             throw new RuntimeException("执行插入失败", e);
         } finally {
+            recordStatement("insert", sql, params.length, rows, startNanos, acquiredNanos);
             closeResources(connection, statement, resultSet);
         }
     }
@@ -226,11 +334,15 @@ public class DatabaseUtil {
      * @return 每个操作影响的行数数组
      */
     public static int[] executeBatch(String sql, List<Object[]> paramsList) {
+        long startNanos = System.nanoTime();
+        long acquiredNanos = 0;
+        long rows = 0;
         Connection connection = null;
         PreparedStatement statement = null;
         
         try {
             connection = getConnection();
+            acquiredNanos = System.nanoTime();
             connection.setAutoCommit(false);
             statement = connection.prepareStatement(sql);
             
@@ -244,6 +356,7 @@ public class DatabaseUtil {
             
             int[] results = statement.executeBatch();
             connection.commit();
+            rows = affectedRowCount(results);
             
             return results;
             
@@ -258,6 +371,7 @@ public class DatabaseUtil {
             }
             throw new RuntimeException("执行批量更新失败", e);
         } finally {
+            recordStatement("batch", sql, batchParameterCount(paramsList), rows, startNanos, acquiredNanos);
             if (connection != null) {
                 try {
                     connection.setAutoCommit(true);
@@ -276,12 +390,16 @@ public class DatabaseUtil {
      * @return 是否存在记录
      */
     public static boolean exists(String sql, Object... params) {
+        long startNanos = System.nanoTime();
+        long acquiredNanos = 0;
+        long rows = 0;
         Connection connection = null;
         PreparedStatement statement = null;
         ResultSet resultSet = null;
         
         try {
             connection = getConnection();
+            acquiredNanos = System.nanoTime();
             statement = connection.prepareStatement(sql);
             
             // 设置参数
@@ -290,12 +408,15 @@ public class DatabaseUtil {
             }
             
             resultSet = statement.executeQuery();
-            return resultSet.next();
+            boolean found = resultSet.next();
+            rows = found ? 1 : 0;
+            return found;
             
         } catch (SQLException e) {
             logger.error("检查记录存在性失败: {}", sql, e);
             throw new RuntimeException("检查记录存在性失败", e);
         } finally {
+            recordStatement("exists", sql, params.length, rows, startNanos, acquiredNanos);
             closeResources(connection, statement, resultSet);
         }
     }
@@ -307,12 +428,16 @@ public class DatabaseUtil {
      * @return 记录总数
      */
     public static long count(String sql, Object... params) {
+        long startNanos = System.nanoTime();
+        long acquiredNanos = 0;
+        long rows = 0;
         Connection connection = null;
         PreparedStatement statement = null;
         ResultSet resultSet = null;
         
         try {
             connection = getConnection();
+            acquiredNanos = System.nanoTime();
             statement = connection.prepareStatement(sql);
             
             // 设置参数
@@ -323,6 +448,7 @@ public class DatabaseUtil {
             resultSet = statement.executeQuery();
             
             if (resultSet.next()) {
+                rows = 1;
                 return resultSet.getLong(1);
             }
             
@@ -332,10 +458,102 @@ public class DatabaseUtil {
             logger.error("获取记录总数失败: {}", sql, e);
             throw new RuntimeException("获取记录总数失败", e);
         } finally {
+            recordStatement("count", sql, params.length, rows, startNanos, acquiredNanos);
             closeResources(connection, statement, resultSet);
         }
     }
     
+    /**
+     * 记录SQL语句执行耗时（含获取连接的时间），超过慢查询阈值时输出结构化日志
+     * @param operation 操作类型
+     * @param sql SQL语句
+     * @param parameterCount 绑定参数个数
+     * @param rows 返回或影响的行数
+     * @param startNanos 开始时间
+     * @param acquiredNanos 取得连接的时间，获取连接失败时为0
+     */
+    private static void recordStatement(String operation, String sql, int parameterCount, long rows,
+                                        long startNanos, long acquiredNanos) {
+        long endNanos = System.nanoTime();
+        long elapsed = endNanos - startNanos;
+        StatementStats stats = statementStats.get(sql);
+        if (stats == null) {
+            stats = resolveStatementStats(operation, sql);
+        }
+        stats.histogram.record(elapsed);
+        
+        if (elapsed >= SLOW_QUERY_THRESHOLD_NANOS) {
+            long poolWait = (acquiredNanos == 0 ? endNanos : acquiredNanos) - startNanos;
+            slowQueryLogger.warn("slow_query operation={} elapsed_ms={} pool_wait_ms={} rows={} params={} sql=\"{}\"",
+                    operation, elapsed / 1_000_000, poolWait / 1_000_000, rows, parameterCount, stats.template);
+        }
+    }
+    
+    /**
+     * 查找或创建SQL模板对应的统计项
+     * 动态拼接的SQL（IN列表、多行VALUES）先归一化为模板，共用同一个直方图；
+     * 原始SQL缓存有上限，超出后每次归一化后再查找，避免无界增长
+     */
+    private static StatementStats resolveStatementStats(String operation, String sql) {
+        String template = normalizeSql(sql);
+        StatementStats stats = templateStats.computeIfAbsent(template, k -> new StatementStats(k,
+                MetricsRegistry.histogram("eshop_db_statement_seconds",
+                        "SQL statement latency including connection checkout",
+                        "operation", operation, "sql", k)));
+        if (statementStats.size() < MAX_CACHED_STATEMENTS) {
+            statementStats.putIfAbsent(sql, stats);
+        }
+        return stats;
+    }
+    
+    /**
+     * 把SQL归一化为模板：合并空白，把占位符列表 (?, ?, ?) 折叠为 (?+)，多行VALUES折叠为一行
+     */
+    private static String normalizeSql(String sql) {
+        String template = WHITESPACE.matcher(sql.trim()).replaceAll(" ");
+        template = PLACEHOLDER_LIST.matcher(template).replaceAll("(?+)");
+        return REPEATED_ROWS.matcher(template).replaceAll("$1");
+    }
+    
+    /**
+     * 批量执行的绑定参数总数
+     */
+    private static int batchParameterCount(List<Object[]> paramsList) {
+        int total = 0;
+        for (Object[] params : paramsList) {
+            total += params.length;
+        }
+        return total;
+    }
+    
+    /**
+     * 批量执行影响的总行数（驱动返回 SUCCESS_NO_INFO 时按1行计）
+     */
+    private static long affectedRowCount(int[] results) {
+        long total = 0;
+        for (int result : results) {
+            if (result > 0) {
+                total += result;
+            } else if (result == Statement.SUCCESS_NO_INFO) {
+                total++;
+            }
+        }
+        return total;
+    }
+    
+    /**
+     * SQL模板统计项
+     */
+    private static class StatementStats {
+        private final String template;
+        private final Histogram histogram;
+        
+        StatementStats(String template, Histogram histogram) {
+            this.template = template;
+            this.histogram = histogram;
+        }
+    }
+    
     /**
      * ResultSet处理接口
      * @param <T> 返回类型
@@ -344,4 +562,12 @@ public class DatabaseUtil {
     public interface ResultSetHandler<T> {
         T handle(ResultSet resultSet) throws SQLException;
     }
+    
+    /**
+     * 流式查询的行回调接口
+     */
+    @FunctionalInterface
+    public interface RowCallback {
+        void handle(ResultSet resultSet) throws SQLException, IOException;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,121 @@
+package com.cat.util;
+
+import com.cat.config.ExecutionConfig;
+import com.cat.metrics.MetricsRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+public class ExecutionUtil {
+    private static final Logger logger = LoggerFactory.getLogger(ExecutionUtil.class);
+
+    private static final LongAdder abandoned = MetricsRegistry.counter("eshop_execution_abandoned_total",
+            "Requests whose async context timed out or failed before their virtual thread started");
+
+    /**
+     * 执行请求处理逻辑
+     * 启用虚拟线程模式时，开启异步上下文并在虚拟线程上执行，否则直接在当前容器线程上执行
+     * @param request HTTP请求对象
+     * @param response HTTP响应对象
+     * @param handler 请求处理逻辑
+     */
+    public static void execute(HttpServletRequest request, HttpServletResponse response, RequestHandler handler)
+            throws ServletException, IOException {
+        if (!ExecutionConfig.isVirtualThreadsEnabled() || !request.isAsyncSupported()) {
+            handler.handle(request, response);
+            return;
+        }
+
+        AsyncContext asyncContext = request.startAsync(request, response);
+        asyncContext.setTimeout(ExecutionConfig.getRequestTimeout());
+        // 超时或客户端断开时容器会结束异步请求并回收request/response，尚未开始的任务不能再使用它们
+        AtomicBoolean finished = new AtomicBoolean();
+        asyncContext.addListener(new FinishListener(finished));
+
+        try {
+            ExecutionConfig.getExecutor().execute(() -> {
+                if (finished.get()) {
+                    abandoned.increment();
+                    return;
+                }
+                try {
+                    handler.handle(request, response);
+                } catch (Exception e) {
+                    if (finished.get()) {
+                        abandoned.increment();
+                        return;
+                    }
+                    logger.error("虚拟线程处理请求失败: {} {}", request.getMethod(), request.getRequestURI(), e);
+                    if (!response.isCommitted()) {
+                        response.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+                    }
+                } finally {
+                    if (!finished.get()) {
+                        complete(asyncContext);
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            logger.warn("虚拟线程执行器已关闭，拒绝请求: {}", request.getRequestURI());
+            response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            asyncContext.complete();
+        }
+    }
+
+    private static void complete(AsyncContext asyncContext) {
+        try {
+            asyncContext.complete();
+        } catch (IllegalStateException e) {
+            // 处理期间容器已结束该请求（超时或客户端断开）
+            abandoned.increment();
+        }
+    }
+
+    /**
+     * 异步请求结束（完成、超时或出错）时设置标记
+     */
+    private static class FinishListener implements AsyncListener {
+        private final AtomicBoolean finished;
+
+        FinishListener(AtomicBoolean finished) {
+            this.finished = finished;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            finished.set(true);
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            finished.set(true);
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            finished.set(true);
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+    }
+
+    /**
+     * 请求处理接口
+     */
+    @FunctionalInterface
+    public interface RequestHandler {
+        void handle(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException;
+    }
+}
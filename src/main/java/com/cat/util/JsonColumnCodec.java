@@ -0,0 +1,120 @@
+package com.cat.util;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * JSON列编解码工具（products.images / products.dimensions）
+ * 写入时总是生成合法JSON；读取时商品只保存列的原始文本，直到图片列表第一次被访问（通常是序列化响应时）才解析。
+ * 解析结果为不可变列表，按列文本缓存：同一商品版本的文本相同，重复读取不再解析，内容相同的列表也共享同一实例
+ */
+public class JsonColumnCodec {
+    private static final Logger logger = LoggerFactory.getLogger(JsonColumnCodec.class);
+
+    private static final int MAX_CACHED_VALUES = 10000;
+    private static final TypeReference<List<String>> STRING_LIST = new TypeReference<List<String>>() {};
+    // 要求整段文本是一个JSON值，避免 "10 20" 这类输入只解析出开头部分
+    private static final ObjectReader TREE_READER = JsonUtil.getObjectMapper()
+            .readerFor(JsonNode.class).with(DeserializationFeature.FAIL_ON_TRAILING_TOKENS);
+
+    // 列文本 -> 解析后的不可变列表
+    private static final ConcurrentHashMap<String, List<String>> imagesCache = new ConcurrentHashMap<>();
+
+    /**
+     * 图片列表编码为JSON数组
+     * @param images 图片URL列表
+     * @return JSON文本，列表为null时返回null
+     */
+    public static String encodeImages(List<String> images) {
+        if (images == null) {
+            return null;
+        }
+        return JsonUtil.toJson(images);
+    }
+
+    /**
+     * 解析images列
+     * 兼容旧版本以 Arrays.toString 写入的非JSON数据（如 [a.jpg, b.jpg]）
+     * @param json 列文本
+     * @return 不可变的图片URL列表，列为空时返回null
+     */
+    public static List<String> decodeImages(String json) {
+        if (json == null || json.isEmpty()) {
+            return null;
+        }
+
+        List<String> cached = imagesCache.get(json);
+        if (cached != null) {
+            return cached;
+        }
+
+        List<String> images;
+        try {
+            List<String> parsed = JsonUtil.getObjectMapper().readValue(json, STRING_LIST);
+            images = parsed != null ? Collections.unmodifiableList(parsed) : Collections.emptyList();
+        } catch (JsonProcessingException e) {
+            images = decodeLegacyImages(json);
+        }
+
+        if (imagesCache.size() < MAX_CACHED_VALUES) {
+            List<String> existing = imagesCache.putIfAbsent(json, images);
+            if (existing != null) {
+                return existing;
+            }
+        }
+        return images;
+    }
+
+    /**
+     * 尺寸信息编码为JSON
+     * 已是合法JSON（如 {"length":10,"width":20,"height":5}）时按紧凑格式写入，否则作为JSON字符串写入，
+     * 保证MySQL的JSON列能够接受
+     * @param dimensions 尺寸信息
+     * @return JSON文本，为空时返回null
+     */
+    public static String encodeDimensions(String dimensions) {
+        if (dimensions == null || dimensions.trim().isEmpty()) {
+            return null;
+        }
+
+        try {
+            JsonNode node = TREE_READER.readTree(dimensions);
+            if (node != null && !node.isMissingNode()) {
+                return node.toString();
+            }
+        } catch (JsonProcessingException e) {
+            // 不是JSON，按普通字符串处理
+        }
+        return JsonUtil.toJson(dimensions.trim());
+    }
+
+    private static List<String> decodeLegacyImages(String text) {
+        String content = text.trim();
+        if (content.startsWith("[") && content.endsWith("]")) {
+            content = content.substring(1, content.length() - 1);
+        }
+
+        List<String> images = new ArrayList<>();
+        for (String image : content.split(",")) {
+            image = image.trim();
+            if (image.length() >= 2 && image.startsWith("\"") && image.endsWith("\"")) {
+                image = image.substring(1, image.length() - 1);
+            }
+            if (!image.isEmpty()) {
+                images.add(image);
+            }
+        }
+        logger.warn("images列不是合法JSON，已按旧格式解析: {}", text);
+        return Collections.unmodifiableList(images);
+    }
+}
@@ -11,6 +11,8 @@ import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
 import java.util.Map;
 
@@ -87,6 +89,17 @@ public class JsonUtil {
         }
     }
 
+    /**
+     * 从输入流直接解析JSON为对象，不经过中间字符串
+     * @param inputStream 输入流
+     * @param clazz 目标类型
+     * @return 对象
+     * @throws IOException 读取失败或JSON格式错误
+     */
+    public static <T> T fromJson(InputStream inputStream, Class<T> clazz) throws IOException {
+        return objectMapper.readValue(inputStream, clazz);
+    }
+
     public static Map<String, Object> fromJsonToMap(String json) {
         return fromJson(json, new TypeReference<Map<String, Object>>() {});
     }
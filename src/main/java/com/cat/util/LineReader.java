@@ -0,0 +1,87 @@
+package com.cat.util;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * 有长度上限的流式行读取器
+ * 与 BufferedReader.readLine 一样按 \n、\r\n 或单独的 \r 分行，但单行超过最大长度时不再缓存其内容，
+ * 读到行尾后返回空行，由 isLineTooLong 区分（超长的行只占用固定的内存，后续行照常读取）
+ */
+public class LineReader {
+    private final Reader reader;
+    private final char[] buffer = new char[8192];
+    private final int maxLineLength;
+    private final StringBuilder line = new StringBuilder();
+    private int position;
+    private int limit;
+    private boolean lineTooLong;
+
+    /**
+     * @param reader 输入
+     * @param maxLineLength 单行最多的字符数（不含换行）
+     */
+    public LineReader(Reader reader, int maxLineLength) {
+        this.reader = reader;
+        this.maxLineLength = maxLineLength;
+    }
+
+    /**
+     * 读取下一行
+     * @return 行内容（不含换行），已到文件末尾返回null；行超长时返回空字符串
+     * @throws IOException 读取失败
+     */
+    public String readLine() throws IOException {
+        line.setLength(0);
+        lineTooLong = false;
+        int c = read();
+        if (c == -1) {
+            return null;
+        }
+
+        int length = 0;
+        while (c != -1 && c != '\n') {
+            if (c == '\r') {
+                if (read() != '\n') {
+                    unread();
+                }
+                break;
+            }
+            if (!lineTooLong) {
+                if (++length > maxLineLength) {
+                    lineTooLong = true;
+                    line.setLength(0);
+                } else {
+                    line.append((char) c);
+                }
+            }
+            c = read();
+        }
+        return lineTooLong ? "" : line.toString();
+    }
+
+    /**
+     * 最近读取的行是否超过最大长度
+     */
+    public boolean isLineTooLong() {
+        return lineTooLong;
+    }
+
+    private int read() throws IOException {
+        if (position == limit) {
+            limit = reader.read(buffer, 0, buffer.length);
+            position = 0;
+            if (limit <= 0) {
+                limit = 0;
+                return -1;
+            }
+        }
+        return buffer[position++];
+    }
+
+    private void unread() {
+        if (position > 0) {
+            position--;
+        }
+    }
+}
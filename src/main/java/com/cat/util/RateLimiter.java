@@ -0,0 +1,127 @@
+package com.cat.util;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 按客户端限流的令牌桶（GCRA算法实现）
+ * 每个客户端只保存一个"理论到达时间"（TAT），请求到达时用CAS推进一个发放间隔，不加锁：
+ * 允许的条件为 TAT - 当前时间 <= (突发容量 - 1) × 发放间隔，效果等同于容量为突发容量、按速率补充的令牌桶。
+ * TAT 不晚于当前时间的桶已经补满，与新建的桶没有区别，可以直接删除，因此空闲客户端的回收不会放宽限流。
+ * 桶的数量不超过 maxClients：达到上限时先回收空闲的桶，仍然已满时新客户端共用一个溢出桶
+ * （溢出桶对所有新客户端合计限流，宁可误伤也不让伪造大量客户端标识的请求绕过限流）
+ */
+public class RateLimiter {
+    private static final long EVICTION_INTERVAL_NANOS = 60_000_000_000L;
+    // 已满时两次回收之间的最小间隔，避免大量新客户端在已满时每个请求都扫描一遍
+    private static final long FULL_EVICTION_INTERVAL_NANOS = 1_000_000_000L;
+
+    private final long emissionIntervalNanos;
+    private final long toleranceNanos;
+    private final int maxClients;
+
+    private final ConcurrentHashMap<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+    private final AtomicLong overflow;
+    private final AtomicBoolean evicting = new AtomicBoolean();
+    private volatile long lastEvictionNanos;
+    private volatile long nextEvictionNanos;
+
+    /**
+     * @param permitsPerSecond 每秒补充的请求数
+     * @param burst 突发容量（空闲客户端可连续发出的请求数），至少为1
+     * @param maxClients 最多保存的客户端数
+     */
+    public RateLimiter(double permitsPerSecond, int burst, int maxClients) {
+        if (permitsPerSecond <= 0 || burst < 1 || maxClients < 1) {
+            throw new IllegalArgumentException("限流参数无效: rate=" + permitsPerSecond + ", burst=" + burst
+                    + ", maxClients=" + maxClients);
+        }
+        this.emissionIntervalNanos = Math.max(1, (long) (1_000_000_000L / permitsPerSecond));
+        this.toleranceNanos = emissionIntervalNanos * (burst - 1);
+        this.maxClients = maxClients;
+        long now = System.nanoTime();
+        this.overflow = new AtomicLong(now);
+        this.lastEvictionNanos = now;
+        this.nextEvictionNanos = now + EVICTION_INTERVAL_NANOS;
+    }
+
+    /**
+     * 为客户端申请一次请求
+     * @param client 客户端标识
+     * @param nowNanos 当前时间（System.nanoTime()）
+     * @return 0表示允许；大于0表示被拒绝，值为还需等待的纳秒数
+     */
+    public long tryAcquire(String client, long nowNanos) {
+        if (nowNanos - nextEvictionNanos >= 0) {
+            evictIdle(nowNanos);
+        }
+
+        AtomicLong bucket = buckets.get(client);
+        if (bucket == null) {
+            bucket = newBucket(client, nowNanos);
+        }
+
+        while (true) {
+            long tat = bucket.get();
+            long base = tat - nowNanos < 0 ? nowNanos : tat;
+            long wait = base - nowNanos - toleranceNanos;
+            if (wait > 0) {
+                return wait;
+            }
+            if (bucket.compareAndSet(tat, base + emissionIntervalNanos)) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * 删除已经补满的桶
+     * 与申请并发时，刚取到桶的请求可能记在已删除的桶上，该客户端下一次请求按新桶计算，最多多放行一次突发
+     * @param nowNanos 当前时间（System.nanoTime()）
+     * @return 删除的桶数
+     */
+    public int evictIdle(long nowNanos) {
+        if (!evicting.compareAndSet(false, true)) {
+            return 0;
+        }
+        try {
+            lastEvictionNanos = nowNanos;
+            nextEvictionNanos = nowNanos + EVICTION_INTERVAL_NANOS;
+            int removed = 0;
+            Iterator<Map.Entry<String, AtomicLong>> iterator = buckets.entrySet().iterator();
+            while (iterator.hasNext()) {
+                if (iterator.next().getValue().get() - nowNanos <= 0) {
+                    iterator.remove();
+                    removed++;
+                }
+            }
+            return removed;
+        } finally {
+            evicting.set(false);
+        }
+    }
+
+    /**
+     * 当前保存的客户端数
+     */
+    public int size() {
+        return buckets.size();
+    }
+
+    private AtomicLong newBucket(String client, long nowNanos) {
+        if (buckets.size() >= maxClients) {
+            if (nowNanos - lastEvictionNanos >= FULL_EVICTION_INTERVAL_NANOS) {
+                evictIdle(nowNanos);
+            }
+            if (buckets.size() >= maxClients) {
+                return overflow;
+            }
+        }
+        AtomicLong created = new AtomicLong(nowNanos);
+        AtomicLong existing = buckets.putIfAbsent(client, created);
+        return existing != null ? existing : created;
+    }
+}
@@ -1,13 +1,20 @@
 package com.cat.util;
 
+import com.cat.config.DatabaseConfig;
+
 import javax.servlet.http.HttpServletRequest;
 import java.io.BufferedReader;
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.HashMap;
 import java.util.Map;
 
 public class RequestUtil {
     
+    // 请求体最大字节数
+    private static final long MAX_BODY_SIZE = DatabaseConfig.getLongProperty("request.max-body-size", 1048576);
+    
     /**
      * 获取客户端IP地址
      * @param request HTTP请求对象
@@ -84,6 +91,26 @@ public class RequestUtil {
         return stringBuilder.toString();
     }
     
+    /**
+     * 从请求输入流直接解析JSON请求体为DTO
+     * 读取前先按Content-Length检查请求体大小，读取过程中也会限制实际读取的字节数
+     * @param request HTTP请求对象
+     * @param clazz DTO类型
+     * @return DTO对象
+     * @throws RequestBodyTooLargeException 请求体超过限制
+     * @throws IOException 读取失败或JSON格式错误
+     */
+    public static <T> T readJsonBody(HttpServletRequest request, Class<T> clazz) throws IOException {
+        long contentLength = request.getContentLengthLong();
+        if (contentLength > MAX_BODY_SIZE) {
+            throw new RequestBodyTooLargeException(contentLength, MAX_BODY_SIZE);
+        }
+        
+        try (InputStream inputStream = new LimitedInputStream(request.getInputStream(), MAX_BODY_SIZE)) {
+            return JsonUtil.fromJson(inputStream, clazz);
+        }
+    }
+    
     /**
      * 获取请求参数Map
      * @param request HTTP请求对象
@@ -197,6 +224,19 @@ public class RequestUtil {
         return request.getContextPath();
     }
     
+    /**
+     * 获取应用内的请求路径（servletPath + pathInfo）
+     * 容器已对其解码、去掉 ;参数 并规范化 . 和 .. 段，与容器选择Servlet使用的路径一致；
+     * 按路径做访问控制或分类时必须使用它，不能使用原始的 getRequestURI()
+     * @param request HTTP请求对象
+     * @return 请求路径，如 /api/cart/12
+     */
+    public static String getRequestPath(HttpServletRequest request) {
+        String servletPath = request.getServletPath();
+        String pathInfo = request.getPathInfo();
+        return pathInfo == null ? servletPath : servletPath + pathInfo;
+    }
+    
     /**
      * 获取应用基础URL
      * @param request HTTP请求对象
@@ -327,4 +367,51 @@ public class RequestUtil {
         
         return "true".equalsIgnoreCase(value.trim()) || "1".equals(value.trim()) || "yes".equalsIgnoreCase(value.trim());
     }
-}
\ No newline at end of file
+    
+    /**
+     * 限制读取字节数的输入流
+     */
+    private static class LimitedInputStream extends FilterInputStream {
+        private final long limit;
+        private long count;
+        
+        LimitedInputStream(InputStream in, long limit) {
+            super(in);
+            this.limit = limit;
+        }
+        
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                checkLimit(1);
+            }
+            return b;
+        }
+        
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                checkLimit(n);
+            }
+            return n;
+        }
+        
+        private void checkLimit(int n) throws RequestBodyTooLargeException {
+            count += n;
+            if (count > limit) {
+                throw new RequestBodyTooLargeException(count, limit);
+            }
+        }
+    }
+    
+    /**
+     * 请求体过大异常
+     */
+    public static class RequestBodyTooLargeException extends IOException {
+        public RequestBodyTooLargeException(long size, long limit) {
+            super("请求体过大: " + size + " 字节，最大允许 " + limit + " 字节");
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package com.cat.util;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 路由表
+ * 路由模板（如 /category/{id:long}、/{id:long}/stock）在注册时编译为按路径段组织的前缀树，
+ * 请求分发时逐段匹配并提取路径变量，不再对每个请求执行正则匹配。
+ * 路径变量支持 {name}（任意非空段）和 {name:long}（仅数字段）两种形式。
+ * 注册应在Servlet初始化期间完成，之后只读，可被多个请求线程并发使用。
+ * @param <H> 处理器类型
+ */
+public class Router<H> {
+    private final Map<String, Node<H>> roots = new HashMap<>();
+
+    /**
+     * 注册路由
+     * @param method HTTP方法
+     * @param template 路由模板
+     * @param handler 处理器
+     * @return 当前路由表，便于链式注册
+     */
+    public Router<H> add(String method, String template, H handler) {
+        Node<H> node = roots.computeIfAbsent(method.toUpperCase(), k -> new Node<>());
+        StringBuilder normalized = new StringBuilder();
+
+        for (String segment : template.split("/")) {
+            if (segment.isEmpty()) {
+                continue;
+            }
+            normalized.append('/').append(segment);
+
+            if (segment.startsWith("{") && segment.endsWith("}")) {
+                String variable = segment.substring(1, segment.length() - 1);
+                boolean numeric = false;
+                int colon = variable.indexOf(':');
+                if (colon >= 0) {
+                    String type = variable.substring(colon + 1);
+                    if (!"long".equals(type)) {
+                        throw new IllegalArgumentException("不支持的路径变量类型: " + template);
+                    }
+                    numeric = true;
+                    variable = variable.substring(0, colon);
+                }
+
+                if (node.variableChild == null) {
+                    node.variableChild = new Node<>();
+                    node.variableName = variable;
+                    node.variableNumeric = numeric;
+                } else if (!node.variableName.equals(variable) || node.variableNumeric != numeric) {
+                    throw new IllegalArgumentException("路径变量定义冲突: " + template);
+                }
+                node = node.variableChild;
+            } else {
+                node = node.children.computeIfAbsent(segment, k -> new Node<>());
+            }
+        }
+
+        if (node.handler != null) {
+            throw new IllegalArgumentException("重复的路由: " + method + " " + template);
+        }
+        node.handler = handler;
+        node.template = normalized.toString();
+        return this;
+    }
+
+    /**
+     * 匹配路由
+     * @param method HTTP方法
+     * @param path 请求路径（通常为 request.getPathInfo()，null视为 "/"）
+     * @return 匹配结果，未找到返回null
+     */
+    public Match<H> match(String method, String path) {
+        Node<H> node = roots.get(method);
+        if (node == null) {
+            return null;
+        }
+
+        String[] names = null;
+        String[] values = null;
+        int variableCount = 0;
+
+        int length = path == null ? 0 : path.length();
+        int start = 0;
+        while (start < length) {
+            if (path.charAt(start) == '/') {
+                start++;
+                continue;
+            }
+
+            int end = path.indexOf('/', start);
+            if (end < 0) {
+                end = length;
+            }
+
+            Node<H> next = node.children.isEmpty() ? null : node.children.get(path.substring(start, end));
+            if (next == null && node.variableChild != null
+                    && (!node.variableNumeric || isDigits(path, start, end))) {
+                if (names == null) {
+                    names = new String[4];
+                    values = new String[4];
+                } else if (variableCount == names.length) {
+                    names = Arrays.copyOf(names, variableCount * 2);
+                    values = Arrays.copyOf(values, variableCount * 2);
+                }
+                names[variableCount] = node.variableName;
+                values[variableCount] = path.substring(start, end);
+                variableCount++;
+                next = node.variableChild;
+            }
+
+            if (next == null) {
+                return null;
+            }
+            node = next;
+            start = end;
+        }
+
+        if (node.handler == null) {
+            return null;
+        }
+        return new Match<>(node.handler, node.template, new PathVariables(names, values, variableCount));
+    }
+
+    private static boolean isDigits(String path, int start, int end) {
+        for (int i = start; i < end; i++) {
+            char c = path.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Servlet路由处理器
+     */
+    @FunctionalInterface
+    public interface RouteHandler {
+        void handle(HttpServletRequest request, HttpServletResponse response, PathVariables pathVariables)
+                throws IOException;
+    }
+
+    /**
+     * 前缀树节点
+     */
+    private static class Node<H> {
+        private final Map<String, Node<H>> children = new HashMap<>();
+        private Node<H> variableChild;
+        private String variableName;
+        private boolean variableNumeric;
+        private H handler;
+        private String template;
+    }
+
+    /**
+     * 路由匹配结果
+     */
+    public static class Match<H> {
+        private final H handler;
+        private final String template;
+        private final PathVariables pathVariables;
+
+        public Match(H handler, String template, PathVariables pathVariables) {
+            this.handler = handler;
+            this.template = template;
+            this.pathVariables = pathVariables;
+        }
+
+        public H getHandler() { return handler; }
+        /** 规范化后的路由模板（如 /{id:long}/stock，根路由为空字符串），用于按路由统计指标 */
+        public String getTemplate() { return template; }
+        public PathVariables getPathVariables() { return pathVariables; }
+    }
+
+    /**
+     * 路径变量
+     */
+    public static class PathVariables {
+        private final String[] names;
+        private final String[] values;
+        private final int size;
+
+        public PathVariables(String[] names, String[] values, int size) {
+            this.names = names;
+            this.values = values;
+            this.size = size;
+        }
+
+        /**
+         * 获取路径变量
+         * @param name 变量名
+         * @return 变量值，不存在返回null
+         */
+        public String get(String name) {
+            for (int i = 0; i < size; i++) {
+                if (names[i].equals(name)) {
+                    return values[i];
+                }
+            }
+            return null;
+        }
+
+        /**
+         * 获取长整数路径变量
+         * @param name 变量名
+         * @return 变量值
+         * @throws NumberFormatException 变量不存在或超出范围
+         */
+        public Long getLong(String name) {
+            return Long.parseLong(get(name));
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.cat.util;
+
+import java.nio.ByteBuffer;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * HMAC-SHA256签名的购物车编码（游客购物车Cookie）
+ * 格式为 base64url(载荷) + "." + base64url(签名)，签名针对载荷的base64url文本计算，客户端无法修改商品或数量。
+ * 载荷为二进制：版本(1) + 过期时间(4，epoch秒) + 每个商品 [商品ID(8) + 数量(4)]，商品按加入顺序排列。
+ * 签名和校验见 SignedPayload
+ */
+public class SignedCart {
+    private static final byte VERSION = 1;
+    private static final int HEADER_BYTES = 5;
+    private static final int LINE_BYTES = 12;
+
+    private final SignedPayload codec;
+    private final int maxLines;
+    private final int maxPayloadChars;
+
+    /**
+     * @param secret 签名密钥，至少32字节
+     * @param maxLines 最多的商品数，超过时拒绝编码和解码
+     */
+    public SignedCart(byte[] secret, int maxLines) {
+        if (maxLines < 1) {
+            throw new IllegalArgumentException("购物车商品数上限无效: " + maxLines);
+        }
+        this.codec = new SignedPayload(secret, "购物车");
+        this.maxLines = maxLines;
+        this.maxPayloadChars = SignedPayload.encodedLength(HEADER_BYTES + maxLines * LINE_BYTES);
+    }
+
+    /**
+     * 编码购物车
+     * @param lines 商品ID -> 数量（按加入顺序）
+     * @param expiresAt 过期时间（epoch秒）
+     * @return 编码文本
+     */
+    public String encode(Map<Long, Integer> lines, long expiresAt) {
+        if (lines.size() > maxLines) {
+            throw new IllegalArgumentException("购物车商品数超过上限: " + lines.size());
+        }
+        ByteBuffer payload = ByteBuffer.allocate(HEADER_BYTES + lines.size() * LINE_BYTES);
+        payload.put(VERSION);
+        payload.putInt((int) expiresAt);
+        for (Map.Entry<Long, Integer> line : lines.entrySet()) {
+            payload.putLong(line.getKey());
+            payload.putInt(line.getValue());
+        }
+
+        return codec.sign(payload.array());
+    }
+
+    /**
+     * 解码并校验购物车
+     * @param text 编码文本
+     * @param nowSeconds 当前时间（epoch秒）
+     * @return 商品ID -> 数量（按加入顺序），格式错误、签名不符或已过期时返回null
+     */
+    public LinkedHashMap<Long, Integer> decode(String text, long nowSeconds) {
+        byte[] payloadBytes = codec.verify(text, maxPayloadChars);
+        if (payloadBytes == null || payloadBytes.length < HEADER_BYTES
+                || (payloadBytes.length - HEADER_BYTES) % LINE_BYTES != 0) {
+            return null;
+        }
+
+        ByteBuffer payload = ByteBuffer.wrap(payloadBytes);
+        if (payload.get() != VERSION || nowSeconds >= Integer.toUnsignedLong(payload.getInt())) {
+            return null;
+        }
+        LinkedHashMap<Long, Integer> lines = new LinkedHashMap<>();
+        while (payload.hasRemaining()) {
+            lines.put(payload.getLong(), payload.getInt());
+        }
+        return lines;
+    }
+}
@@ -0,0 +1,110 @@
+package com.cat.util;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Base64;
+
+/**
+ * HMAC-SHA256签名的二进制载荷，SignedToken 和 SignedCart 的公共编码
+ * 格式为 base64url(载荷) + "." + base64url(签名)，签名针对载荷的base64url文本计算。
+ * 每个线程缓存一个已初始化的Mac，校验时不加锁、不访问共享状态
+ */
+public final class SignedPayload {
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final int SIGNATURE_BYTES = 32;
+    /** 签名部分的字符数（不含分隔符） */
+    public static final int SIGNATURE_CHARS = 43;
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private final String name;
+    private final SecretKeySpec key;
+    private final ThreadLocal<Mac> macs;
+
+    /**
+     * @param secret 签名密钥，至少32字节
+     * @param name 用途名称，用于错误信息（如"令牌"）
+     */
+    public SignedPayload(byte[] secret, String name) {
+        if (secret == null || secret.length < 32) {
+            throw new IllegalArgumentException(name + "签名密钥至少需要32字节");
+        }
+        this.name = name;
+        this.key = new SecretKeySpec(secret, ALGORITHM);
+        this.macs = ThreadLocal.withInitial(this::newMac);
+        // 尽早发现算法或密钥不可用
+        newMac();
+    }
+
+    /**
+     * 载荷编码后的字符数（不含签名）
+     * @param payloadBytes 载荷字节数
+     */
+    public static int encodedLength(int payloadBytes) {
+        return (payloadBytes * 4 + 2) / 3;
+    }
+
+    /**
+     * 签名载荷
+     * @param payload 载荷
+     * @return 编码文本
+     */
+    public String sign(byte[] payload) {
+        byte[] encodedPayload = ENCODER.encode(payload);
+        byte[] signature = macs.get().doFinal(encodedPayload);
+        return new String(encodedPayload, StandardCharsets.ISO_8859_1) + "." + ENCODER.encodeToString(signature);
+    }
+
+    /**
+     * 校验签名并取出载荷
+     * @param text 编码文本
+     * @param maxPayloadChars 载荷部分最多的字符数，更长的文本不计算签名直接拒绝
+     * @return 载荷，格式错误或签名不符时返回null
+     */
+    public byte[] verify(String text, int maxPayloadChars) {
+        if (text == null || text.length() > maxPayloadChars + 1 + SIGNATURE_CHARS) {
+            return null;
+        }
+        int separator = text.length() - SIGNATURE_CHARS - 1;
+        if (separator <= 0 || text.charAt(separator) != '.') {
+            return null;
+        }
+
+        byte[] bytes = text.getBytes(StandardCharsets.ISO_8859_1);
+        Mac mac = macs.get();
+        mac.update(bytes, 0, separator);
+        byte[] expected = mac.doFinal();
+
+        byte[] signature = decode(bytes, separator + 1, SIGNATURE_CHARS);
+        if (signature == null || signature.length != SIGNATURE_BYTES || !MessageDigest.isEqual(expected, signature)) {
+            return null;
+        }
+        return decode(bytes, 0, separator);
+    }
+
+    private static byte[] decode(byte[] text, int offset, int length) {
+        ByteBuffer decoded;
+        try {
+            decoded = DECODER.decode(ByteBuffer.wrap(text, offset, length));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        byte[] bytes = new byte[decoded.remaining()];
+        decoded.get(bytes);
+        return bytes;
+    }
+
+    private Mac newMac() {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("初始化" + name + "签名失败", e);
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.cat.util;
+
+import java.nio.ByteBuffer;
+
+/**
+ * HMAC-SHA256签名的无状态令牌
+ * 格式为 base64url(载荷) + "." + base64url(签名)，签名针对载荷的base64url文本计算。
+ * 载荷为定长二进制：版本(1) + 用户ID(8) + 用户类型(1) + 签发时间(4) + 过期时间(4) + 登录ID(8)，时间为epoch秒。
+ * 登录ID在登录时生成，同一次登录换发的令牌都相同，用于按登录吊销。
+ * 签名和校验见 SignedPayload
+ */
+public class SignedToken {
+    private static final byte VERSION = 1;
+    private static final int PAYLOAD_BYTES = 26;
+    private static final int PAYLOAD_CHARS = SignedPayload.encodedLength(PAYLOAD_BYTES);
+    private static final int TOKEN_CHARS = PAYLOAD_CHARS + 1 + SignedPayload.SIGNATURE_CHARS;
+
+    private final SignedPayload codec;
+
+    /**
+     * @param secret 签名密钥，至少32字节
+     */
+    public SignedToken(byte[] secret) {
+        this.codec = new SignedPayload(secret, "令牌");
+    }
+
+    /**
+     * 签发令牌
+     * @param claims 令牌内容
+     * @return 令牌文本
+     */
+    public String issue(Claims claims) {
+        ByteBuffer payload = ByteBuffer.allocate(PAYLOAD_BYTES);
+        payload.put(VERSION);
+        payload.putLong(claims.getUserId());
+        payload.put(claims.isAdmin() ? (byte) 'A' : (byte) 'C');
+        payload.putInt((int) claims.getIssuedAt());
+        payload.putInt((int) claims.getExpiresAt());
+        payload.putLong(claims.getLoginId());
+
+        return codec.sign(payload.array());
+    }
+
+    /**
+     * 校验令牌
+     * @param token 令牌文本
+     * @param nowSeconds 当前时间（epoch秒）
+     * @return 令牌内容，格式错误、签名不符或已过期时返回null
+     */
+    public Claims verify(String token, long nowSeconds) {
+        if (token == null || token.length() != TOKEN_CHARS) {
+            return null;
+        }
+        byte[] payloadBytes = codec.verify(token, PAYLOAD_CHARS);
+        if (payloadBytes == null || payloadBytes.length != PAYLOAD_BYTES) {
+            return null;
+        }
+
+        ByteBuffer payload = ByteBuffer.wrap(payloadBytes);
+        if (payload.get() != VERSION) {
+            return null;
+        }
+        long userId = payload.getLong();
+        String userType = payload.get() == 'A' ? "ADMIN" : "CUSTOMER";
+        long issuedAt = Integer.toUnsignedLong(payload.getInt());
+        long expiresAt = Integer.toUnsignedLong(payload.getInt());
+        long loginId = payload.getLong();
+
+        if (nowSeconds >= expiresAt) {
+            return null;
+        }
+        return new Claims(userId, userType, issuedAt, expiresAt, loginId);
+    }
+
+    /**
+     * 令牌内容
+     */
+    public static class Claims {
+        private final long userId;
+        private final String userType;
+        private final long issuedAt;
+        private final long expiresAt;
+        private final long loginId;
+
+        public Claims(long userId, String userType, long issuedAt, long expiresAt, long loginId) {
+            this.userId = userId;
+            this.userType = userType;
+            this.issuedAt = issuedAt;
+            this.expiresAt = expiresAt;
+            this.loginId = loginId;
+        }
+
+        public long getUserId() { return userId; }
+        public String getUserType() { return userType; }
+        public long getIssuedAt() { return issuedAt; }
+        public long getExpiresAt() { return expiresAt; }
+        public long getLoginId() { return loginId; }
+        public boolean isAdmin() { return "ADMIN".equals(userType); }
+    }
+}
@@ -0,0 +1,172 @@
+package com.cat.util;
+
+import javax.servlet.http.HttpServletRequest;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+
+/**
+ * 受信任的反向代理（IP或CIDR，逗号分隔），用于确定请求的真实客户端地址
+ * 只有直接连接方是受信任的代理时才读取 X-Forwarded-For，从右向左跳过受信任的代理，取第一个不受信任的地址；
+ * 其他情况下使用连接地址。Proxy-Client-IP 等请求头以及来自其他连接方的 X-Forwarded-For 都可以由客户端任意填写，一律不使用
+ */
+public final class TrustedProxies {
+    private static final int MAX_ADDRESS_LENGTH = 64;
+
+    private final List<byte[]> networks = new ArrayList<>();
+    private final List<Integer> prefixLengths = new ArrayList<>();
+
+    /**
+     * @param config 逗号分隔的IP或CIDR（如 10.0.0.0/8,192.168.1.10），为空表示没有受信任的代理
+     * @throws IllegalArgumentException 格式错误
+     */
+    public TrustedProxies(String config) {
+        for (String item : config.split(",")) {
+            item = item.trim();
+            if (item.isEmpty()) {
+                continue;
+            }
+            int slash = item.indexOf('/');
+            byte[] network = parseLiteral(slash >= 0 ? item.substring(0, slash) : item);
+            if (network == null) {
+                throw new IllegalArgumentException("应为IP地址或CIDR: " + item);
+            }
+            int prefixLength = network.length * 8;
+            if (slash >= 0) {
+                try {
+                    prefixLength = Integer.parseInt(item.substring(slash + 1));
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("CIDR前缀长度无效: " + item);
+                }
+                if (prefixLength < 0 || prefixLength > network.length * 8) {
+                    throw new IllegalArgumentException("CIDR前缀长度无效: " + item);
+                }
+            }
+            networks.add(network);
+            prefixLengths.add(prefixLength);
+        }
+    }
+
+    public boolean isEmpty() {
+        return networks.isEmpty();
+    }
+
+    /**
+     * 地址是否属于受信任的代理
+     */
+    public boolean isTrusted(String address) {
+        if (networks.isEmpty() || address == null) {
+            return false;
+        }
+        byte[] bytes = parseLiteral(address);
+        if (bytes == null) {
+            return false;
+        }
+        for (int i = 0; i < networks.size(); i++) {
+            if (matches(bytes, networks.get(i), prefixLengths.get(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 请求的客户端地址
+     * @param request 当前请求
+     * @return 连接地址；连接方是受信任的代理时为 X-Forwarded-For 中最右边的不受信任地址
+     */
+    public String clientAddress(HttpServletRequest request) {
+        String remoteAddress = request.getRemoteAddr();
+        if (!isTrusted(remoteAddress)) {
+            return remoteAddress;
+        }
+
+        String address = remoteAddress;
+        // 多个 X-Forwarded-For 头按出现顺序拼接，最后一个由最近的代理写入
+        Enumeration<String> headers = request.getHeaders("X-Forwarded-For");
+        List<String> hops = new ArrayList<>();
+        while (headers != null && headers.hasMoreElements()) {
+            for (String hop : headers.nextElement().split(",")) {
+                hop = hop.trim();
+                if (!hop.isEmpty()) {
+                    hops.add(hop);
+                }
+            }
+        }
+        for (int i = hops.size() - 1; i >= 0; i--) {
+            address = hops.get(i);
+            if (!isTrusted(address)) {
+                break;
+            }
+        }
+        return address.length() > MAX_ADDRESS_LENGTH ? address.substring(0, MAX_ADDRESS_LENGTH) : address;
+    }
+
+    private static boolean matches(byte[] address, byte[] network, int prefixLength) {
+        if (address.length != network.length) {
+            return false;
+        }
+        int fullBytes = prefixLength / 8;
+        for (int i = 0; i < fullBytes; i++) {
+            if (address[i] != network[i]) {
+                return false;
+            }
+        }
+        int remainingBits = prefixLength % 8;
+        if (remainingBits == 0) {
+            return true;
+        }
+        int mask = 0xFF << (8 - remainingBits);
+        return (address[fullBytes] & mask) == (network[fullBytes] & mask);
+    }
+
+    /**
+     * 解析IP地址字面量，不是字面量时返回null（不做DNS解析）
+     */
+    private static byte[] parseLiteral(String text) {
+        if (text.isEmpty() || text.length() > MAX_ADDRESS_LENGTH) {
+            return null;
+        }
+        if (text.indexOf(':') < 0) {
+            return parseIpv4(text);
+        }
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (!((c >= '0' && c <= '9') || c == '.' || c == ':' || (c >= 'a' && c <= 'f') || (c >= 'A' && c <= 'F'))) {
+                return null;
+            }
+        }
+        // 含冒号的字符串按IPv6字面量解析，格式错误时直接抛出异常，不会查询DNS
+        try {
+            return InetAddress.getByName(text).getAddress();
+        } catch (UnknownHostException e) {
+            return null;
+        }
+    }
+
+    private static byte[] parseIpv4(String text) {
+        byte[] bytes = new byte[4];
+        int part = 0;
+        int value = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            char c = i < text.length() ? text.charAt(i) : '.';
+            if (c == '.') {
+                if (value < 0 || part > 3) {
+                    return null;
+                }
+                bytes[part++] = (byte) value;
+                value = -1;
+            } else if (c >= '0' && c <= '9') {
+                value = (value < 0 ? 0 : value * 10) + (c - '0');
+                if (value > 255) {
+                    return null;
+                }
+            } else {
+                return null;
+            }
+        }
+        return part == 4 ? bytes : null;
+    }
+}